@@ -8,7 +8,21 @@ public class InputValidator {
 	public static final String DESC_SCRAMBLE_DATA_INPUT = "scrambled data input file";
 	public static final String DESC_DESCRAMBLED_DATA_OUTPUT = "descrambled data output file";
 	public static final String DESC_KEY = "key file";
+	public static final String DESC_INDEX = "descramble index file";
+	public static final String DESC_NEW_KEY = "new key file";
+	public static final String DESC_REKEYED_DATA_OUTPUT = "re-keyed data output file";
 	public static final String CSV_FILE = "csv stats file";
+	/** The file name given to mean standard in or standard out, rather than an actual file. */
+	public static final String STANDARD_STREAM = "-";
+
+	/**
+	 * Determines if the file given actually means standard in or standard out.
+	 * @param file The file given.
+	 * @return If the file given is {@link #STANDARD_STREAM}.
+	 */
+	public static boolean isStandardStream(File file){
+		return file != null && STANDARD_STREAM.equals(file.getPath());
+	}
 
 	//TODO:: rework these to better handle files, using the validation methods in MainGuiApp
 
@@ -16,6 +30,9 @@ public class InputValidator {
 		if(file == null){
 			throw new IllegalArgumentException("No "+ description +" given. Cannot continue.");
 		}
+		if(isStandardStream(file)){
+			return;
+		}
 		if(file.exists()){
 			throw new IllegalArgumentException(description +" ("+file.getPath()+") given already exists.");
 		}
@@ -25,6 +42,9 @@ public class InputValidator {
 		if(file == null){
 			throw new IllegalArgumentException("No "+ description +" given. Cannot continue.");
 		}
+		if(isStandardStream(file)){
+			return;
+		}
 		if(!file.exists()){
 			throw new IllegalArgumentException(description +" ("+file.getPath()+") given does not exist.");
 		}
@@ -4,6 +4,7 @@ import com.ebp.owat.app.config.CommandLineOps;
 import com.ebp.owat.app.config.Globals;
 import com.ebp.owat.app.gui.MainGuiApp;
 import com.ebp.owat.lib.runner.DeScrambleRunner;
+import com.ebp.owat.lib.runner.ReKeyRunner;
 import com.ebp.owat.lib.runner.ScrambleRunner;
 import com.ebp.owat.lib.runner.utils.results.RunResults;
 import org.slf4j.Logger;
@@ -54,6 +55,9 @@ public class Main {
 			case DESCRAMBLE:
 				doDeScramble();
 				break;
+			case REKEY:
+				doReKey();
+				break;
 		}
 	}
 
@@ -64,13 +68,44 @@ public class Main {
 			builder.setMatrixMode(COMMAND_LINE_OPS.getMatrixMode());
 		}
 
-		builder.setKeyOutput(COMMAND_LINE_OPS.getKeyOutputStream())
-			.setDataOutput(COMMAND_LINE_OPS.getDataOutputStream())
-			.setDataInput(COMMAND_LINE_OPS.getDataInputStream());
+		if(COMMAND_LINE_OPS.getKeyEncoding() != null){
+			builder.setKeyEncoding(COMMAND_LINE_OPS.getKeyEncoding());
+		}
+
+		if(COMMAND_LINE_OPS.getDataFormat() != null){
+			builder.setDataFormat(COMMAND_LINE_OPS.getDataFormat());
+		}
+
+		if(COMMAND_LINE_OPS.getKeyFormat() != null){
+			builder.setKeyFormat(COMMAND_LINE_OPS.getKeyFormat());
+		}
+
+		builder.setBackgroundIo(COMMAND_LINE_OPS.useBackgroundIo());
+
+		if(COMMAND_LINE_OPS.hasKeyMemoryLimit()){
+			builder.setKeyMemoryLimit(COMMAND_LINE_OPS.getKeyMemoryLimit());
+		}
+		builder.setKeySpillDirectory(COMMAND_LINE_OPS.getKeySpillDirectory());
+
+		if(COMMAND_LINE_OPS.hasKeyCompression()){
+			builder.setKeyCompression(COMMAND_LINE_OPS.getKeyCompressionLevel(), COMMAND_LINE_OPS.getKeyCompressionBlockSize());
+		}
 
-		ScrambleRunner runner = builder.build();
+		ScrambleRunner runner;
+		//closing flushes out the data, which matters when writing to standard out
+		try(
+			OutputStream dataOutput = COMMAND_LINE_OPS.getDataOutputStream();
+			OutputStream indexOutput = (COMMAND_LINE_OPS.hasIndexFile() ? COMMAND_LINE_OPS.getIndexOutputStream() : null)
+		){
+			builder.setKeyOutput(COMMAND_LINE_OPS.getKeyOutputStream())
+				.setDataOutput(dataOutput)
+				.setIndexOutput(indexOutput)
+				.setDataInput(COMMAND_LINE_OPS.getDataInputStream());
 
-		runner.doSteps();
+			runner = builder.build();
+
+			runner.doSteps();
+		}
 
 		RunResults results = runner.getLastRunResults();
 
@@ -90,13 +125,69 @@ public class Main {
 			builder.setMatrixMode(COMMAND_LINE_OPS.getMatrixMode());
 		}
 
-		builder.setKeyInput(COMMAND_LINE_OPS.getKeyInputStream())
-			.setDataInput(COMMAND_LINE_OPS.getDataInputStream())
-			.setDataOutput(COMMAND_LINE_OPS.getDataOutputStream());
+		if(COMMAND_LINE_OPS.hasRange()){
+			builder.setRange(COMMAND_LINE_OPS.getRangeOffset(), COMMAND_LINE_OPS.getRangeLength());
+		}
+
+		builder.setBackgroundIo(COMMAND_LINE_OPS.useBackgroundIo());
+
+		DeScrambleRunner runner;
+		try(OutputStream dataOutput = COMMAND_LINE_OPS.getDataOutputStream()){
+			builder.setKeyInput(COMMAND_LINE_OPS.getKeyInputStream())
+				.setDataInput(COMMAND_LINE_OPS.getDataInputStream())
+				.setDataOutput(dataOutput);
+
+			runner = builder.build();
+
+			runner.doSteps();
+		}
+
+		RunResults results = runner.getLastRunResults();
+
+		results.logOutTimingData();
+
+		if(COMMAND_LINE_OPS.outputCsvStats()){
+			OutputStream csv = COMMAND_LINE_OPS.getCsvStatsOutputStream();
+			csv.write(results.getCsvLine(true).getBytes(StandardCharsets.UTF_8));
+			csv.close();
+		}
+	}
+
+	private static void doReKey() throws IOException {
+		ReKeyRunner.Builder builder = new ReKeyRunner.Builder();
 
-		DeScrambleRunner runner = builder.build();
+		if(COMMAND_LINE_OPS.getKeyEncoding() != null){
+			builder.setKeyEncoding(COMMAND_LINE_OPS.getKeyEncoding());
+		}
 
-		runner.doSteps();
+		if(COMMAND_LINE_OPS.getDataFormat() != null){
+			builder.setDataFormat(COMMAND_LINE_OPS.getDataFormat());
+		}
+
+		if(COMMAND_LINE_OPS.getKeyFormat() != null){
+			builder.setKeyFormat(COMMAND_LINE_OPS.getKeyFormat());
+		}
+
+		builder.setBackgroundIo(COMMAND_LINE_OPS.useBackgroundIo());
+
+		if(COMMAND_LINE_OPS.hasKeyCompression()){
+			builder.setKeyCompression(COMMAND_LINE_OPS.getKeyCompressionLevel(), COMMAND_LINE_OPS.getKeyCompressionBlockSize());
+		}
+
+		ReKeyRunner runner;
+		try(
+			OutputStream dataOutput = COMMAND_LINE_OPS.getDataOutputStream();
+			OutputStream keyOutput = COMMAND_LINE_OPS.getNewKeyOutputStream()
+		){
+			builder.setKeyInput(COMMAND_LINE_OPS.getKeyInputStream())
+				.setDataInput(COMMAND_LINE_OPS.getDataInputStream())
+				.setDataOutput(dataOutput)
+				.setKeyOutput(keyOutput);
+
+			runner = builder.build();
+
+			runner.doSteps();
+		}
 
 		RunResults results = runner.getLastRunResults();
 
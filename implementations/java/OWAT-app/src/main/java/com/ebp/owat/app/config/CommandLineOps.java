@@ -2,6 +2,12 @@ package com.ebp.owat.app.config;
 
 import com.ebp.owat.app.InputValidator;
 import com.ebp.owat.lib.runner.utils.MatrixMode;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.io.FileSink;
+import com.ebp.owat.lib.utils.io.MappedInputStream;
+import com.ebp.owat.lib.utils.io.ParallelGzipOutputStream;
+import com.ebp.owat.lib.utils.key.KeyEncoding;
+import com.ebp.owat.lib.utils.key.KeyFormat;
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
@@ -14,6 +20,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.Deflater;
 
 import static com.ebp.owat.app.InputValidator.*;
 
@@ -24,6 +31,8 @@ import static com.ebp.owat.app.InputValidator.*;
  */
 public class CommandLineOps {
 	private static final Logger LOGGER = LoggerFactory.getLogger(CommandLineOps.class);
+	/** The size of the buffers put on standard in and standard out. */
+	private static final int STANDARD_STREAM_BUFFER_SIZE = 64 * 1024;
 	
 	private final String[] argsGotten;
 
@@ -33,27 +42,67 @@ public class CommandLineOps {
 	@Option(name="-i", aliases={"--input"}, usage="Input data straight from the command line.")
 	private String inputString = null;
 
-	@Option(name="-f", aliases={"--input-file"}, usage="Input data from a file.")
+	@Option(name="-f", aliases={"--input-file"}, usage="Input data from a file. Give \"-\" to read from standard in.")
 	private File inputFile = null;
 
-	@Option(name = "-o", aliases = {"--output-file"}, usage = "Where to output the data.")
+	@Option(name = "-o", aliases = {"--output-file"}, usage = "Where to output the data. Give \"-\" to write to standard out.")
 	private File dataOutputFile = null;
 
 	@Option(name = "-k", aliases = {"--key-file"}, usage = "The key file.")
 	private File keyFile = null;
 
+	@Option(name = "--new-key-file", usage = "When re-keying, where to output the new key.")
+	private File newKeyFile = null;
+
+	@Option(name = "--index-file", usage = "When scrambling, where to output a descramble index, for reading parts of the original data straight from the scrambled data later.")
+	private File indexFile = null;
+
 	@Option(name = "-c", aliases = {"--csv-stats"}, usage = "For outputting timing data to a CSV file.")
 	private File csvFile = null;
 
 	@Option(name = "--matrix-mode", usage = "For specifying a specific matrix type to use.")
 	private MatrixMode matrixMode = null;
 
+	@Option(name = "--key-encoding", usage = "When scrambling or re-keying, how to write out the key. MOVES (default when scrambling) can be read by every version. PERMUTATION, or AUTO to use whichever of MOVES or PERMUTATION is smaller, can make keys that versions before permutation keys cannot read. Re-keying defaults to the form of the key given. SEED, only when scrambling, holds just the seed the moves were generated from, so the key stays tiny however long the scramble.")
+	private KeyEncoding keyEncoding = null;
+
+	@Option(name = "--key-format", usage = "When scrambling or re-keying, how to write out the key. JSON (default when scrambling) is human readable once decompressed; BINARY is much smaller and faster to read. Re-keying defaults to the format of the key given. Descrambling detects the format on its own.")
+	private KeyFormat keyFormat = null;
+
+	@Option(name = "--data-format", usage = "When scrambling or re-keying, how to write out the scrambled data. BASE64 (default when scrambling) is text safe; BINARY is smaller. Re-keying defaults to the format of the data given. Descrambling detects the format on its own.")
+	private DataFormat dataFormat = null;
+
+	@Option(name = "--range-offset", usage = "When descrambling, the offset of the first byte of the original data to recover. Recovers only part of the data when given.")
+	private Long rangeOffset = null;
+
+	@Option(name = "--range-length", usage = "When descrambling, the number of bytes of the original data to recover. Used with --range-offset.")
+	private Long rangeLength = null;
+
+	@Option(name = "--background-io", usage = "Read ahead and write behind the data on background threads. Speeds things up when the data is on slow media, such as optical discs or removable drives.")
+	private boolean backgroundIo = false;
+
+	@Option(name = "--key-memory-limit", usage = "When scrambling, the most memory in bytes the moves of the key can take up before they are spilled to a temporary file. For very long scrambles that would not otherwise fit in memory. The spilled moves are the key, unencrypted, until the run is done; anyone who can read the file can descramble the data. It is made readable by its owner only where the file system allows.")
+	private Long keyMemoryLimit = null;
+
+	@Option(name = "--key-spill-dir", usage = "When scrambling, the directory the moves of the key are spilled to once past --key-memory-limit. Defaults to the system's temporary directory, which other users can often list. Choose a directory only trusted users can get to.")
+	private File keySpillDirectory = null;
+
+	@Option(name = "--key-compression-level", usage = "When scrambling or re-keying, how hard to compress the key; 0 (none) to 9 (smallest). Defaults to the usual GZIP level.")
+	private Integer keyCompressionLevel = null;
+
+	@Option(name = "--key-compression-block-size", usage = "When scrambling or re-keying, the number of bytes of the key compressed at once on each thread. Smaller blocks use more threads on smaller keys, but compress a little worse.")
+	private Integer keyCompressionBlockSize = null;
+
+	@Option(name = "--sync-policy", usage = "When the data and key files written are forced out to disk. NONE (default) leaves it to the OS; ON_CLOSE forces them out once written.")
+	private FileSink.SyncPolicy syncPolicy = FileSink.SyncPolicy.NONE;
+
 	@Option(name = "-h", aliases = {"--help"}, usage = "Show this help dialogue.")
 	private boolean showHelp = false;
 
 	public enum RunMode {
 		SCRAMBLE,
 		DESCRAMBLE,
+		REKEY,
 		GUI;
 	}
 
@@ -93,7 +142,7 @@ public class CommandLineOps {
 	}
 
 	public boolean outputCsvStats(){
-		return this.csvFile == null;
+		return this.csvFile != null;
 	}
 
 	private void ensureHaveInputData() throws IllegalArgumentException {
@@ -108,7 +157,25 @@ public class CommandLineOps {
 		}
 	}
 
+	private void ensureStandardStreamsNotShared() throws IllegalArgumentException {
+		for(File curFile : Arrays.asList(this.keyFile, this.newKeyFile, this.indexFile, this.csvFile)){
+			if(isStandardStream(curFile)){
+				throw new IllegalArgumentException("Only the data can be read from standard in or written to standard out.");
+			}
+		}
+	}
+
+	private void ensureValidKeyCompression() throws IllegalArgumentException {
+		if(this.keyCompressionLevel != null && this.keyCompressionLevel != Deflater.DEFAULT_COMPRESSION && (this.keyCompressionLevel < Deflater.NO_COMPRESSION || this.keyCompressionLevel > Deflater.BEST_COMPRESSION)){
+			throw new IllegalArgumentException("Key compression level must be from 0 to 9.");
+		}
+		if(this.keyCompressionBlockSize != null && this.keyCompressionBlockSize < 1){
+			throw new IllegalArgumentException("Key compression block size must be at least one byte.");
+		}
+	}
+
 	private void ensureReadyForRun() throws IllegalArgumentException {
+		this.ensureStandardStreamsNotShared();
 		switch (this.runMode){
 			case GUI:
 				break;
@@ -118,6 +185,16 @@ public class CommandLineOps {
 				//ensure we can write out to
 				InputValidator.ensureCanWriteToFile(this.dataOutputFile, DESC_SCRAMBLED_DATA_OUTPUT);
 				InputValidator.ensureCanWriteToFile(this.keyFile, DESC_KEY);
+				if(this.indexFile != null){
+					InputValidator.ensureCanWriteToFile(this.indexFile, DESC_INDEX);
+				}
+				if(this.keyMemoryLimit != null && this.keyMemoryLimit < 1){
+					throw new IllegalArgumentException("Key memory limit must be at least one byte.");
+				}
+				if(this.keySpillDirectory != null && !this.keySpillDirectory.isDirectory()){
+					throw new IllegalArgumentException("Key spill directory given is not a directory.");
+				}
+				this.ensureValidKeyCompression();
 				if(this.outputCsvStats()){
 					InputValidator.ensureCanWriteToFile(csvFile, CSV_FILE);
 				}
@@ -129,12 +206,34 @@ public class CommandLineOps {
 				//ensure we have data to input
 				InputValidator.ensureCanReadFromFile(this.inputFile, DESC_SCRAMBLE_DATA_INPUT);
 
+				if((this.rangeOffset == null) != (this.rangeLength == null)){
+					throw new IllegalArgumentException("Must give both a range offset and length to descramble a range.");
+				}
+				if(this.rangeOffset != null && (this.rangeOffset < 0 || this.rangeLength < 0)){
+					throw new IllegalArgumentException("Range offset and length cannot be negative.");
+				}
+
 				//ensure we can write out
 				InputValidator.ensureCanWriteToFile(this.dataOutputFile, DESC_DESCRAMBLED_DATA_OUTPUT);
 				if(this.outputCsvStats()){
 					InputValidator.ensureCanWriteToFile(csvFile, CSV_FILE);
 				}
 				break;
+			case REKEY:
+				//ensure key file exists
+				InputValidator.ensureCanReadFromFile(this.keyFile, DESC_KEY);
+
+				//ensure we have data to input
+				InputValidator.ensureCanReadFromFile(this.inputFile, DESC_SCRAMBLE_DATA_INPUT);
+
+				//ensure we can write out
+				InputValidator.ensureCanWriteToFile(this.dataOutputFile, DESC_REKEYED_DATA_OUTPUT);
+				InputValidator.ensureCanWriteToFile(this.newKeyFile, DESC_NEW_KEY);
+				this.ensureValidKeyCompression();
+				if(this.outputCsvStats()){
+					InputValidator.ensureCanWriteToFile(csvFile, CSV_FILE);
+				}
+				break;
 			default:
 				throw new IllegalArgumentException("Must specify a mode to run.");
 		}
@@ -152,20 +251,37 @@ public class CommandLineOps {
 		return new FileInputStream(this.keyFile);
 	}
 
-	public OutputStream getKeyOutputStream() throws FileNotFoundException {
-		return new FileOutputStream(this.keyFile);
+	public OutputStream getKeyOutputStream() throws IOException {
+		return new FileSink(this.keyFile, this.syncPolicy);
 	}
 
-	public InputStream getDataInputStream() throws FileNotFoundException {
-		if(this.inputFile != null){
-			return new FileInputStream(this.inputFile);
+	public OutputStream getNewKeyOutputStream() throws IOException {
+		return new FileSink(this.newKeyFile, this.syncPolicy);
+	}
+
+	public boolean hasIndexFile(){
+		return this.indexFile != null;
+	}
+
+	public OutputStream getIndexOutputStream() throws IOException {
+		return new FileSink(this.indexFile, this.syncPolicy);
+	}
+
+	public InputStream getDataInputStream() throws IOException {
+		if(isStandardStream(this.inputFile)){
+			return new BufferedInputStream(new FileInputStream(FileDescriptor.in), STANDARD_STREAM_BUFFER_SIZE);
+		}else if(this.inputFile != null){
+			return new MappedInputStream(this.inputFile);
 		}else{
 			return new ByteArrayInputStream(this.inputString.getBytes(StandardCharsets.UTF_8));
 		}
 	}
 
-	public OutputStream getDataOutputStream() throws FileNotFoundException {
-		return new FileOutputStream(this.dataOutputFile);
+	public OutputStream getDataOutputStream() throws IOException {
+		if(isStandardStream(this.dataOutputFile)){
+			return new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), STANDARD_STREAM_BUFFER_SIZE);
+		}
+		return new FileSink(this.dataOutputFile, this.syncPolicy);
 	}
 
 	public OutputStream getCsvStatsOutputStream() throws FileNotFoundException {
@@ -175,4 +291,56 @@ public class CommandLineOps {
 	public MatrixMode getMatrixMode(){
 		return this.matrixMode;
 	}
+
+	public KeyEncoding getKeyEncoding(){
+		return this.keyEncoding;
+	}
+
+	public KeyFormat getKeyFormat(){
+		return this.keyFormat;
+	}
+
+	public DataFormat getDataFormat(){
+		return this.dataFormat;
+	}
+
+	public boolean useBackgroundIo(){
+		return this.backgroundIo;
+	}
+
+	public boolean hasKeyMemoryLimit(){
+		return this.keyMemoryLimit != null;
+	}
+
+	public long getKeyMemoryLimit(){
+		return this.keyMemoryLimit;
+	}
+
+	public File getKeySpillDirectory(){
+		return this.keySpillDirectory;
+	}
+
+	public boolean hasKeyCompression(){
+		return this.keyCompressionLevel != null || this.keyCompressionBlockSize != null;
+	}
+
+	public int getKeyCompressionLevel(){
+		return (this.keyCompressionLevel == null ? Deflater.DEFAULT_COMPRESSION : this.keyCompressionLevel);
+	}
+
+	public int getKeyCompressionBlockSize(){
+		return (this.keyCompressionBlockSize == null ? ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE : this.keyCompressionBlockSize);
+	}
+
+	public boolean hasRange(){
+		return this.rangeOffset != null;
+	}
+
+	public long getRangeOffset(){
+		return this.rangeOffset;
+	}
+
+	public long getRangeLength(){
+		return this.rangeLength;
+	}
 }
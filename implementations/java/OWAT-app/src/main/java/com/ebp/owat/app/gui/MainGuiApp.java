@@ -663,7 +663,7 @@ public class MainGuiApp {
 			);
 		} else if (this.inputScrambleDataFile()) {
 			LOGGER.debug("Data source file: {}", this.scrambleDataFileInput.getText());
-			builder.setDataInput(new FileInputStream(this.scrambleDataFileInput.getText()));
+			builder.setDataInput(new File(this.scrambleDataFileInput.getText()));
 		} else {
 			throw new IllegalStateException();
 		}
@@ -741,7 +741,7 @@ public class MainGuiApp {
 		if (this.inputScrambledDataDirect()) {
 			builder.setDataInput(new ByteArrayInputStream(this.scrambledDataDirectInput.getText().getBytes(StandardCharsets.UTF_8)));
 		} else if (this.inputScrambledDataFile()) {
-			builder.setDataInput(new FileInputStream(this.scrambledDataFileInput.getText()));
+			builder.setDataInput(new File(this.scrambledDataFileInput.getText()));
 		} else {
 			throw new IllegalStateException();
 		}
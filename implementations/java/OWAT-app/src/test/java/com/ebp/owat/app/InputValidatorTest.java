@@ -2,10 +2,32 @@ package com.ebp.owat.app;
 
 import org.junit.Test;
 
+import java.io.File;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 public class InputValidatorTest {
 
 	@Test
 	public void testInputValidator(){
 		//TODO
 	}
+
+	@Test
+	public void testStandardStream(){
+		File stream = new File(InputValidator.STANDARD_STREAM);
+		assertTrue(InputValidator.isStandardStream(stream));
+		assertFalse(InputValidator.isStandardStream(new File("-data")));
+		assertFalse(InputValidator.isStandardStream(null));
+
+		//never "exists", but is always fine to read from or write to
+		InputValidator.ensureCanReadFromFile(stream, InputValidator.DESC_SCRAMBLE_DATA_INPUT);
+		InputValidator.ensureCanWriteToFile(stream, InputValidator.DESC_SCRAMBLED_DATA_OUTPUT);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoFile(){
+		InputValidator.ensureCanReadFromFile(null, InputValidator.DESC_KEY);
+	}
 }
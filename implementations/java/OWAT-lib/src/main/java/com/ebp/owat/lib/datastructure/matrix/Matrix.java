@@ -195,6 +195,21 @@ public abstract class Matrix<T> implements Iterable<T> {
 	 * @throws IllegalStateException If this is called and there are already rows or columns. Cannot be done due to the method of filling in the data used.
 	 */
 	public boolean grow(long numRows, long numCols, Collection<T> valuesIn) throws IllegalStateException{
+		return this.grow(numRows, numCols, valuesIn.iterator());
+	}
+
+	/**
+	 * Grows a matrix to the size given, filling with the values given in a 'row first' manner.
+	 *
+	 * Takes the values a row at a time, so they never need to be held all at once.
+	 *
+	 * @param numRows The number of rows the matrix should have.
+	 * @param numCols The number or cols the matrix should have.
+	 * @param valuesIn The values to fill the matrix with.
+	 * @return If the matrix was filled with the values given.
+	 * @throws IllegalStateException If this is called and there are already rows or columns. Cannot be done due to the method of filling in the data used.
+	 */
+	public boolean grow(long numRows, long numCols, Iterator<T> valuesIn) throws IllegalStateException{
 		MatrixValidator.throwIfHasRowsCols(this);
 		this.trimTo(0,0);//ensure
 		
@@ -202,18 +217,19 @@ public abstract class Matrix<T> implements Iterable<T> {
 		
 		//at this point, have 1 row with the # cols we need
 		
-		Queue<T> valuesToAdd = new LongLinkedList<>(valuesIn);
-		boolean firstFowFilled = valuesToAdd.size() >= this.getNumCols();
+		List<T> curRow = rowFromIterator(valuesIn, this.getNumCols());
+		boolean firstFowFilled = curRow.size() == this.getNumCols();
 		//add values to first row
-		this.replaceRow(0, collectionFromQueue(valuesToAdd, this.getNumCols()));
+		this.replaceRow(0, curRow);
 		
 		//add rows and fill with data for rest
 		boolean lastFilled = firstFowFilled;
 		for(long i = 1; i < numRows; i++){
 			this.addRow();
-			if(!valuesToAdd.isEmpty()){
-				lastFilled = valuesToAdd.size() == this.getNumCols();
-				this.replaceRow(i, collectionFromQueue(valuesToAdd, this.getNumCols()));
+			if(valuesIn.hasNext()){
+				curRow = rowFromIterator(valuesIn, this.getNumCols());
+				lastFilled = curRow.size() == this.getNumCols() && !valuesIn.hasNext();
+				this.replaceRow(i, curRow);
 			}else{
 				lastFilled = false;
 			}
@@ -228,8 +244,21 @@ public abstract class Matrix<T> implements Iterable<T> {
 	 * @throws IllegalStateException If the matrix is not empty when the method is called.
 	 */
 	public boolean grow(Collection<T> valuesIn) throws IllegalStateException{
-		long numRowsCols = calcSquareSize(valuesIn.size());
-		if(numRowsCols*numRowsCols - valuesIn.size() >= numRowsCols){
+		long numValues = (valuesIn instanceof LongLinkedList ? ((LongLinkedList<T>)valuesIn).sizeL() : valuesIn.size());
+		return this.grow(numValues, valuesIn.iterator());
+	}
+	
+	/**
+	 * Grows the matrix to be as close to square as it can while holding the number of values given, filling it with the values given in a 'row first' manner.
+	 *
+	 * @param numValues The number of values given.
+	 * @param valuesIn The values to give the object.
+	 * @return If the matrix was filled with the values given.
+	 * @throws IllegalStateException If the matrix is not empty when the method is called.
+	 */
+	public boolean grow(long numValues, Iterator<T> valuesIn) throws IllegalStateException{
+		long numRowsCols = calcSquareSize(numValues);
+		if(numRowsCols*numRowsCols - numValues >= numRowsCols){
 			return this.grow(numRowsCols - 1L, numRowsCols, valuesIn);
 		}
 		return this.grow(numRowsCols, numRowsCols, valuesIn);
@@ -758,6 +787,21 @@ public abstract class Matrix<T> implements Iterable<T> {
 		return output;
 	}
 
+	/**
+	 * Takes up to a row's worth of values from the iterator given.
+	 * @param values The values to take from.
+	 * @param numVals The max number of values to take.
+	 * @return The values taken.
+	 */
+	protected List<T> rowFromIterator(Iterator<T> values, long numVals){
+		List<T> output = new ArrayList<>((int)Math.min(numVals, 1024));
+		
+		for(long i = 0; i < numVals && values.hasNext(); i++){
+			output.add(values.next());
+		}
+		return output;
+	}
+
 	/**
 	 * Clears the matrix of ALL data. Resets size to zero and effectively deallocates memory used.
 	 */
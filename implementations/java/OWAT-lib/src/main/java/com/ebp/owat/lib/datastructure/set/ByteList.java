@@ -0,0 +1,285 @@
+package com.ebp.owat.lib.datastructure.set;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive bytes, for holding data read in without boxing every byte.
+ *
+ * Bytes are held in chunks rather than one array, so the list is indexed by long and can hold more than an array can. Small lists are held in a single chunk that grows as needed.
+ */
+public class ByteList {
+	/** The default number of bytes a list starts out able to hold. */
+	public static final int DEFAULT_CAPACITY = 64 * 1024;
+	/** The default number of bytes held in each chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+	/** The max number of bytes that can be given back as a single array; the largest array the JVM will reliably give. */
+	public static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	/** The number of bytes to read in at a time. */
+	private static final int READ_BLOCK_SIZE = 64 * 1024;
+
+	/** The number of bits to shift an index by to get the chunk it is in. */
+	private final int chunkShift;
+	/** The mask to get the position of an index in its chunk. */
+	private final long chunkMask;
+	/** The chunks holding the bytes. All but the last in use are full size; the first may be smaller if it is the only one. */
+	private byte[][] chunks;
+	/** The number of chunks in use. Always at least one. */
+	private int numChunks = 1;
+	/** The number of bytes held. */
+	private long size = 0;
+
+	/**
+	 * Default constructor. Creates an empty list.
+	 */
+	public ByteList(){
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor to create an empty list that can hold the number of bytes given before needing to grow.
+	 * @param initialCapacity The number of bytes to start out able to hold.
+	 */
+	public ByteList(long initialCapacity){
+		this(initialCapacity, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor to create an empty list that can hold the number of bytes given before needing to grow, held in chunks of the size given.
+	 * @param initialCapacity The number of bytes to start out able to hold.
+	 * @param chunkSize The number of bytes to hold in each chunk. Must be a power of two.
+	 * @throws IllegalArgumentException If the capacity is negative, or the chunk size is not a power of two.
+	 */
+	public ByteList(long initialCapacity, int chunkSize){
+		if(initialCapacity < 0){
+			throw new IllegalArgumentException("Cannot have a negative capacity.");
+		}
+		if(chunkSize < 1 || Integer.bitCount(chunkSize) != 1){
+			throw new IllegalArgumentException("Chunk size must be a power of two.");
+		}
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+		this.chunkMask = chunkSize - 1;
+		this.chunks = new byte[1][];
+		this.chunks[0] = new byte[(int)Math.min(initialCapacity, chunkSize)];
+		this.ensureCapacity(initialCapacity);
+	}
+
+	/**
+	 * Constructor to create a list holding the bytes given. The array given is used as is, not copied, unless it is larger than a chunk.
+	 * @param bytes The bytes to hold.
+	 */
+	public ByteList(byte[] bytes){
+		this(0);
+		if(bytes.length <= this.getChunkSize()){
+			this.chunks[0] = bytes;
+			this.size = bytes.length;
+		}else{
+			this.add(bytes, 0, bytes.length);
+		}
+	}
+
+	/**
+	 * Gets the number of bytes held in each full chunk.
+	 * @return The number of bytes held in each full chunk.
+	 */
+	private int getChunkSize(){
+		return 1 << this.chunkShift;
+	}
+
+	/**
+	 * Gets the number of bytes the list can hold without growing.
+	 * @return The number of bytes the list can hold.
+	 */
+	private long getCapacity(){
+		return ((long)(this.numChunks - 1) << this.chunkShift) + this.chunks[this.numChunks - 1].length;
+	}
+
+	/**
+	 * Makes sure the list can hold the number of bytes given, growing it if needed.
+	 * @param capacity The number of bytes the list needs to be able to hold.
+	 * @throws IllegalStateException If the capacity needed is more than the list can hold.
+	 */
+	private void ensureCapacity(long capacity){
+		if(capacity <= this.getCapacity()){
+			return;
+		}
+		int chunkSize = this.getChunkSize();
+		if(this.numChunks == 1 && capacity <= chunkSize){
+			//still small; grow the only chunk
+			long newCapacity = Math.max(capacity, Math.min(chunkSize, (long)this.chunks[0].length * 2));
+			this.chunks[0] = Arrays.copyOf(this.chunks[0], (int)newCapacity);
+			return;
+		}
+		long numChunksNeeded = (capacity + chunkSize - 1) >>> this.chunkShift;
+		if(numChunksNeeded > MAX_ARRAY_SIZE){
+			throw new IllegalStateException("Too many bytes to hold in a list. Capacity needed: " + capacity);
+		}
+		if(this.chunks[0].length < chunkSize){
+			this.chunks[0] = Arrays.copyOf(this.chunks[0], chunkSize);
+		}
+		if(numChunksNeeded > this.chunks.length){
+			this.chunks = Arrays.copyOf(this.chunks, (int)Math.max(numChunksNeeded, Math.min(MAX_ARRAY_SIZE, (long)this.chunks.length * 2)));
+		}
+		while(this.numChunks < numChunksNeeded){
+			this.chunks[this.numChunks++] = new byte[chunkSize];
+		}
+	}
+
+	/**
+	 * Adds a byte to the end of the list.
+	 * @param b The byte to add.
+	 */
+	public void add(byte b){
+		this.ensureCapacity(this.size + 1);
+		this.chunks[(int)(this.size >>> this.chunkShift)][(int)(this.size & this.chunkMask)] = b;
+		this.size++;
+	}
+
+	/**
+	 * Adds bytes from the array given to the end of the list.
+	 * @param b The array to add bytes from.
+	 * @param offset The offset in the array to start at.
+	 * @param length The number of bytes to add.
+	 */
+	public void add(byte[] b, int offset, int length){
+		this.ensureCapacity(this.size + length);
+		while(length > 0){
+			byte[] chunk = this.chunks[(int)(this.size >>> this.chunkShift)];
+			int chunkPos = (int)(this.size & this.chunkMask);
+			int numToCopy = Math.min(length, chunk.length - chunkPos);
+			System.arraycopy(b, offset, chunk, chunkPos, numToCopy);
+			this.size += numToCopy;
+			offset += numToCopy;
+			length -= numToCopy;
+		}
+	}
+
+	/**
+	 * Reads the rest of the stream given onto the end of the list, a block at a time. Does not close the stream.
+	 * @param is The stream to read from.
+	 * @return The number of bytes read.
+	 * @throws IOException If something went wrong reading the stream.
+	 */
+	public long readFrom(InputStream is) throws IOException {
+		long numRead = 0;
+		int curRead;
+		while(true){
+			if(this.size == this.getCapacity()){
+				//only grow if there is actually more to read
+				int next = is.read();
+				if(next == -1){
+					break;
+				}
+				this.ensureCapacity(this.size + READ_BLOCK_SIZE);
+				this.add((byte)next);
+				numRead++;
+			}
+			byte[] chunk = this.chunks[(int)(this.size >>> this.chunkShift)];
+			int chunkPos = (int)(this.size & this.chunkMask);
+			curRead = is.read(chunk, chunkPos, chunk.length - chunkPos);
+			if(curRead == -1){
+				break;
+			}
+			this.size += curRead;
+			numRead += curRead;
+		}
+		return numRead;
+	}
+
+	/**
+	 * Gets the byte at the index given.
+	 * @param index The index of the byte to get.
+	 * @return The byte at the index.
+	 * @throws IndexOutOfBoundsException If the index is not in the list.
+	 */
+	public byte get(long index){
+		if(index < 0 || index >= this.size){
+			throw new IndexOutOfBoundsException("Index " + index + " not in list. Size: " + this.size);
+		}
+		return this.chunks[(int)(index >>> this.chunkShift)][(int)(index & this.chunkMask)];
+	}
+
+	/**
+	 * Copies a run of bytes out of the list into the array given.
+	 * @param index The index of the first byte to copy.
+	 * @param dest The array to copy into.
+	 * @param offset The offset in the array to copy to.
+	 * @param length The number of bytes to copy.
+	 * @throws IndexOutOfBoundsException If the run is not all in the list, or does not fit in the array.
+	 */
+	public void get(long index, byte[] dest, int offset, int length){
+		if(index < 0 || length < 0 || index + length > this.size){
+			throw new IndexOutOfBoundsException("Range " + index + "+" + length + " not in list. Size: " + this.size);
+		}
+		if(offset < 0 || length > dest.length - offset){
+			throw new IndexOutOfBoundsException();
+		}
+		while(length > 0){
+			byte[] chunk = this.chunks[(int)(index >>> this.chunkShift)];
+			int chunkPos = (int)(index & this.chunkMask);
+			int numToCopy = Math.min(length, chunk.length - chunkPos);
+			System.arraycopy(chunk, chunkPos, dest, offset, numToCopy);
+			index += numToCopy;
+			offset += numToCopy;
+			length -= numToCopy;
+		}
+	}
+
+	/**
+	 * Gets the number of bytes held. Use {@link #sizeL()} for lists that can hold more than {@link Integer#MAX_VALUE} bytes.
+	 * @return The number of bytes held, or {@link Integer#MAX_VALUE} if more than that are held.
+	 */
+	public int size(){
+		if(this.size > Integer.MAX_VALUE){
+			return Integer.MAX_VALUE;
+		}
+		return (int)this.size;
+	}
+
+	/**
+	 * Gets the number of bytes held, as a long.
+	 * @return The number of bytes held.
+	 */
+	public long sizeL(){
+		return this.size;
+	}
+
+	/**
+	 * Gets if the list holds no bytes.
+	 * @return If the list is empty.
+	 */
+	public boolean isEmpty(){
+		return this.size == 0;
+	}
+
+	/**
+	 * Gets a read only view of the bytes held, without copying them.
+	 * @return A buffer over the bytes held.
+	 * @throws IllegalStateException If the bytes held are spread over more than one chunk.
+	 */
+	public ByteBuffer asByteBuffer(){
+		if(this.size > this.chunks[0].length){
+			throw new IllegalStateException("Bytes held are spread over more than one chunk; cannot view as one buffer.");
+		}
+		return ByteBuffer.wrap(this.chunks[0], 0, (int)this.size).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the bytes held as an array. Gives the array held if it is exactly the right size, otherwise a copy.
+	 * @return The bytes held.
+	 * @throws IllegalStateException If there are more bytes held than fit in an array.
+	 */
+	public byte[] toArray(){
+		if(this.size > MAX_ARRAY_SIZE){
+			throw new IllegalStateException("Too many bytes held to give as one array. Number held: " + this.size);
+		}
+		if(this.size == this.chunks[0].length){
+			return this.chunks[0];
+		}
+		byte[] output = new byte[(int)this.size];
+		this.get(0, output, 0, output.length);
+		return output;
+	}
+}
@@ -1,6 +1,9 @@
 package com.ebp.owat.lib.datastructure.value;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -9,6 +12,29 @@ import java.util.List;
  * Created by Greg Stewart on 3/26/17.
  */
 public class BitValue extends Value<Boolean> {
+	/** The four possible bit values. Values cannot change once made, so these can be shared. Indexed by [isOriginal][value]. */
+	private static final BitValue[][] VALUES = {
+		{ new BitValue(false, false), new BitValue(true, false) },
+		{ new BitValue(false, true), new BitValue(true, true) }
+	};
+	/** Lookup table of the bits in every byte, lowest bit first. Indexed by [isOriginal][unsigned byte]. */
+	private static final List<List<List<BitValue>>> BYTE_BITS;
+
+	static {
+		List<List<List<BitValue>>> byteBits = new ArrayList<>(2);
+		for(int isOriginal = 0; isOriginal < 2; isOriginal++){
+			List<List<BitValue>> curTable = new ArrayList<>(256);
+			for(int curByte = 0; curByte < 256; curByte++){
+				BitValue[] bits = new BitValue[8];
+				for(int curBit = 0; curBit < 8; curBit++){
+					bits[curBit] = VALUES[isOriginal][(curByte >>> curBit) & 1];
+				}
+				curTable.add(Collections.unmodifiableList(Arrays.asList(bits)));
+			}
+			byteBits.add(curTable);
+		}
+		BYTE_BITS = byteBits;
+	}
 
 	/**
 	 * Constructor that sets this value's value.
@@ -38,32 +64,35 @@ public class BitValue extends Value<Boolean> {
 	}
 
 	/**
-	 * Determines if a certain bit is set.
-	 * @param b The byte
-	 * @param bit The bit to check
-	 * @return If the bit is set or not.
+	 * Gets the bit value given. Shares instances rather than making a new one each time.
+	 * @param value The value of the bit.
+	 * @param isOriginal If this is an original value or not.
+	 * @return The bit value.
+	 */
+	public static BitValue of(boolean value, boolean isOriginal){
+		return VALUES[isOriginal ? 1 : 0][value ? 1 : 0];
+	}
+
+	/**
+	 * Gets the 8 bit values that make up a byte, lowest bit first, from a lookup table.
+	 *
+	 * @param source The byte to get the info from.
+	 * @param isOriginal If the bits are original values or not.
+	 * @return The list of 8 BitValues. Cannot be modified.
 	 */
-	private static boolean isBitSet(byte b, short bit){
-		return (b & (1 << bit)) != 0;
+	public static List<BitValue> bitsOf(byte source, boolean isOriginal){
+		return BYTE_BITS.get(isOriginal ? 1 : 0).get(source & 0xFF);
 	}
 	
 	/**
 	 * Turns a byte into a list of 8 BitValues.
 	 *
 	 * @param source The byte to get the info from.
+	 * @param isOriginal If the bits are original values or not.
 	 * @return The list of 8 BitValues.
 	 */
 	public static List<BitValue> fromByte(byte source, boolean isOriginal){
-		List<BitValue> vals = new LinkedList<>();
-		
-		for(short curBit = 0; curBit < 8; curBit++){
-			boolean curVal = isBitSet(source, curBit);
-			vals.add(
-				new BitValue(curVal, isOriginal)
-			);
-		}
-		
-		return vals;
+		return new ArrayList<>(bitsOf(source, isOriginal));
 	}
 	
 	/**
@@ -76,14 +105,34 @@ public class BitValue extends Value<Boolean> {
 		if(sources.size() != 8){
 			throw new IllegalArgumentException("Cannot parse a byte from a list of bits not 8 bits long.");
 		}
-		byte output = 0;
-		
-		for(short curBit = 0; curBit < 8; curBit++){
-			if(sources.get(curBit).getValue()){
-				output = (byte)(output | ((byte)1 << curBit));
+		return (byte)toBits(sources.iterator(), 8);
+	}
+
+	/**
+	 * Packs up to 64 bit values into a long, the first value into the lowest bit.
+	 * @param sources The bit values to get info from.
+	 * @param numBits The number of bits to take from the sources.
+	 * @return The long holding the bits taken.
+	 * @throws IllegalArgumentException If the number of bits is not between 0 and 64.
+	 * @throws IllegalStateException If there are not enough values, or a value is null.
+	 */
+	public static long toBits(Iterator<? extends Value<?>> sources, int numBits){
+		if(numBits < 0 || numBits > Long.SIZE){
+			throw new IllegalArgumentException("Cannot pack " + numBits + " bits into a long.");
+		}
+		long output = 0;
+		for(int curBit = 0; curBit < numBits; curBit++){
+			if(!sources.hasNext()){
+				throw new IllegalStateException("Not enough bits to pack.");
+			}
+			Value<?> cur = sources.next();
+			if(cur == null){
+				throw new IllegalStateException("Cannot handle null values.");
+			}
+			if((cur.flags & ValueFlag.VALUE.offset) != 0){
+				output |= 1L << curBit;
 			}
 		}
-		
 		return output;
 	}
 
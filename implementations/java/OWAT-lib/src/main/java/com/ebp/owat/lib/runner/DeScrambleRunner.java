@@ -2,21 +2,31 @@ package com.ebp.owat.lib.runner;
 
 import com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix;
 import com.ebp.owat.lib.datastructure.matrix.utils.coordinate.MatrixCoordinate;
-import com.ebp.owat.lib.datastructure.set.LongLinkedList;
+import com.ebp.owat.lib.datastructure.set.ByteList;
 import com.ebp.owat.lib.datastructure.value.NodeMode;
 import com.ebp.owat.lib.datastructure.value.Value;
 import com.ebp.owat.lib.runner.utils.MatrixMode;
 import com.ebp.owat.lib.runner.utils.RunnerUtilities;
 import com.ebp.owat.lib.runner.utils.Step;
 import com.ebp.owat.lib.runner.utils.results.DescrambleResults;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.io.MappedInputStream;
+import com.ebp.owat.lib.utils.io.MappedScrambledData;
+import com.ebp.owat.lib.utils.io.ScrambledDataHeader;
+import com.ebp.owat.lib.utils.io.WriteBehindOutputStream;
+import com.ebp.owat.lib.utils.key.KeyMetaData;
 import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.ebp.owat.lib.utils.key.StreamingKeyReader;
 import com.ebp.owat.lib.utils.rand.OwatRandGenerator;
+import com.ebp.owat.lib.utils.scramble.PositionTracer;
 import com.ebp.owat.lib.utils.scramble.ScrambleMove;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.zip.CRC32;
 
 /**
  * The runner that descrambles data.
@@ -24,8 +34,10 @@ import java.util.Iterator;
  * @param <M> The type of matrix to use
  * @param <R> The random number generator to use
  */
-public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> extends OwatRunner<N,M,R> {
+public class DeScrambleRunner<N extends Value<?>, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> extends OwatRunner<N,M,R> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DeScrambleRunner.class);
+	/** The number of bytes of a range put together before they are written out. */
+	private static final int RANGE_BLOCK_SIZE = 64 * 1024;
 
 	/** The key that will be used. */
 	private ScrambleKey key;
@@ -39,6 +51,14 @@ public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R ex
 	private final InputStream keyInput;
 	/** The stream to use to write the data out */
 	private final OutputStream dataOutput;
+	/** The offset of the first byte of the original data to recover. -1 to recover all of it. */
+	private long rangeOffset = -1;
+	/** The number of bytes of the original data to recover. */
+	private long rangeLength = -1;
+	/** The format the scrambled data was found to be in. */
+	private DataFormat dataFormat;
+	/** If the data is to be read ahead and written behind on background threads, for slow media. */
+	private boolean backgroundIo = false;
 
 	/**
 	 * Constructor to set up the descrambler. To be called by the builder.
@@ -69,6 +89,24 @@ public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R ex
 		this.dataOutput = dataOutput;
 	}
 
+	/**
+	 * Sets the range of the original data to recover.
+	 * @param offset The offset of the first byte to recover. -1 to recover all of it.
+	 * @param length The number of bytes to recover.
+	 */
+	private void setRange(long offset, long length){
+		this.rangeOffset = offset;
+		this.rangeLength = length;
+	}
+
+	/**
+	 * Sets if the data is to be read ahead and written behind on background threads.
+	 * @param backgroundIo If the data is to be read and written in the background.
+	 */
+	private void setBackgroundIo(boolean backgroundIo){
+		this.backgroundIo = backgroundIo;
+	}
+
 	/**
 	 * Builder for the descrambler class. Used to easily setup the descrambler class.
 	 */
@@ -81,6 +119,12 @@ public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R ex
 		private InputStream keyInput;
 		/** The stream to use to write the data out */
 		private OutputStream dataOutput;
+		/** The offset of the first byte of the original data to recover. -1 to recover all of it. */
+		private long rangeOffset = -1;
+		/** The number of bytes of the original data to recover. */
+		private long rangeLength = -1;
+		/** If the data is to be read ahead and written behind on background threads, for slow media. */
+		private boolean backgroundIo = false;
 
 		/**
 		 * Sets the type of matrix to use.
@@ -112,16 +156,16 @@ public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R ex
 		}
 
 		/**
-		 * Sets the data input stream to the file specified.
+		 * Sets the data input stream to the file specified. The file is memory mapped rather than streamed.
 		 *
 		 * TODO:: move file verification from running code to this method.
 		 *
 		 * @param file The file of scrambed data to descramble.
 		 * @return This builder for chained setting methods.
-		 * @throws FileNotFoundException If something went wrong.
+		 * @throws IOException If the file could not be opened or mapped.
 		 */
-		public DeScrambleRunner.Builder setDataInput(File file) throws FileNotFoundException {
-			return this.setDataInput(new FileInputStream(file));
+		public DeScrambleRunner.Builder setDataInput(File file) throws IOException {
+			return this.setDataInput(new MappedInputStream(file));
 		}
 
 		/**
@@ -144,17 +188,51 @@ public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R ex
 			return this;
 		}
 
+		/**
+		 * Sets the range of the original data to recover, instead of all of it.
+		 *
+		 * Only the scrambled values needed for this range are read in, and the matrix is never built. The range is cut short if it goes past the end of the original data.
+		 *
+		 * @param offset The offset of the first byte of the original data to recover.
+		 * @param length The number of bytes to recover.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the offset or length given are negative.
+		 */
+		public DeScrambleRunner.Builder setRange(long offset, long length){
+			if(offset < 0 || length < 0){
+				throw new IllegalArgumentException("Cannot have a negative offset or length for the range to descramble.");
+			}
+			this.rangeOffset = offset;
+			this.rangeLength = length;
+			return this;
+		}
+
+		/**
+		 * Sets if the data is to be read ahead and written behind on background threads; see {@link com.ebp.owat.lib.utils.io.ReadAheadInputStream} and {@link WriteBehindOutputStream}. Defaults to false.
+		 * @param backgroundIo If the data is to be read and written in the background.
+		 * @return This builder, for chaining calls.
+		 */
+		public DeScrambleRunner.Builder setBackgroundIo(boolean backgroundIo){
+			this.backgroundIo = backgroundIo;
+			return this;
+		}
+
 		/**
 		 * Builds the actual runner.
 		 * @return The runner setup with the builder.
 		 */
-		public DeScrambleRunner build(){
-			return new DeScrambleRunner(
+		public DeScrambleRunner<?, ?, ?> build(){
+			DeScrambleRunner<?, ?, ?> runner = new DeScrambleRunner<>(
 				matrixMode,
 				dataInput,
 				keyInput,
 				dataOutput
 			);
+
+			runner.setRange(this.rangeOffset, this.rangeLength);
+			runner.setBackgroundIo(this.backgroundIo);
+
+			return runner;
 		}
 	}
 
@@ -172,37 +250,95 @@ public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R ex
 		DescrambleResults runResults = new DescrambleResults();
 		this.setLastRunResults(runResults);
 		long start, end;
-		M matrix;
 
 		runResults.setCurStep(Step.LOAD_KEY);
 		start = System.currentTimeMillis();
 		LOGGER.info("Loading key...");
-		{
-			byte decompressedKey[] = utils.decompressBytes(this.keyInput);
-			this.key = OBJECT_MAPPER.readValue(decompressedKey, ScrambleKey.class);
-			this.nodeType = this.key.meta.getNodeMode();
+		//the key keeps being read in the background; moves are applied as they are parsed
+		try(
+			StreamingKeyReader keyReader = new StreamingKeyReader(this.keyInput);
+			WriteBehindOutputStream writeBehind = (this.backgroundIo ? new WriteBehindOutputStream(this.dataOutput) : null)
+		){
+			OutputStream dataOutput = (writeBehind == null ? this.dataOutput : writeBehind);
+			KeyMetaData meta = keyReader.getMeta();
+			this.nodeType = meta.getNodeMode();
 			runResults.setNodeMode(this.nodeType);
+			end = System.currentTimeMillis();
+			runResults.setElapsedTime(Step.LOAD_KEY, start, end);
+
+			if(this.rangeOffset >= 0){
+				this.key = keyReader.readWholeKey();
+				this.descrambleRange(runResults, dataOutput, this.rangeOffset, this.rangeLength);
+			}else if(keyReader.isPermutationForm()){
+				this.key = keyReader.readWholeKey();
+				this.descramblePermutation(runResults, dataOutput);
+			}else{
+				this.descrambleAll(runResults, dataOutput, meta, keyReader);
+			}
 		}
-		end = System.currentTimeMillis();
-		runResults.setElapsedTime(Step.LOAD_KEY, start, end);
+
+		runResults.setCurStep(Step.DONE_DESCRAMBLING);
+		LOGGER.info("Done descrambling data...");
+	}
+
+	/**
+	 * Works out the format of the scrambled data, and reads past its header if it has one.
+	 * @param meta The metadata of the key, to check the header against.
+	 * @param readAhead If all of the data is going to be read, so can be read ahead in the background if set to.
+	 * @return The stream to read the bytes of the scrambled matrix from.
+	 * @throws IOException If the scrambled data could not be read, or its header was not valid.
+	 * @throws IllegalArgumentException If the header of the scrambled data does not match the key.
+	 */
+	private InputStream openScrambledData(KeyMetaData meta, boolean readAhead) throws IOException {
+		InputStream scrambledInput = RunnerUtilities.getMarkableStream(
+			this.backgroundIo && readAhead ? RunnerUtilities.getReadAheadStream(this.dataInput) : this.dataInput
+		);
+		this.dataFormat = ScrambledDataHeader.detectFormat(scrambledInput);
+		LOGGER.debug("Scrambled data is in format: {}", this.dataFormat);
+		if(this.dataFormat == DataFormat.BINARY){
+			ScrambledDataHeader.read(scrambledInput).checkMatches(meta);
+		}
+		return scrambledInput;
+	}
+
+	/**
+	 * Descrambles all the data by building the scrambled matrix and doing all the moves in the key to it.
+	 *
+	 * The moves are taken from the key reader as they are parsed, so the whole list of moves is never held in memory. The scrambled data is checked against the size and checksum the key gives before any are done.
+	 * @param runResults The results of this run to update.
+	 * @param dataOutput The stream to write the descrambled data to.
+	 * @param meta The metadata of the key.
+	 * @param keyReader The reader of the rest of the key.
+	 * @throws IOException If something went wrong in the input or output of data, or the key was malformed.
+	 */
+	private void descrambleAll(DescrambleResults runResults, OutputStream dataOutput, KeyMetaData meta, StreamingKeyReader keyReader) throws IOException {
+		long start, end;
+		M matrix;
 
 		runResults.setCurStep(Step.LOAD_SCRAMBLED_DATA);
 		start = System.currentTimeMillis();
 		LOGGER.info("Loading scrambled data...");
 
 		{
-			LongLinkedList<Byte> data = this.utils.readDataIn(this.dataInput, true);
-			runResults.setNumBytesIn(data.sizeL());
-
+			long numBytes = new ScrambledDataHeader(meta).getDataLength();
+			this.checkScrambledDataSize(meta, numBytes);
 			if(this.matrixMode == null){
-				this.matrixMode = MatrixMode.determineModeToUse(data.sizeL());
+				this.matrixMode = MatrixMode.determineModeToUse(numBytes);
 			}
 
 			runResults.setMatrixMode(this.matrixMode);
 
-			LOGGER.debug("Length of scrambled data: {} bytes", data.sizeL());
+			LOGGER.debug("Length of scrambled data: {} bytes", numBytes);
 			LOGGER.debug("Using matrix type: {}", this.matrixMode.name);
-			matrix = this.utils.getMatrix(data, this.matrixMode, this.nodeType, this.key.meta.dataHeight, this.key.meta.dataWidth);
+			//read straight into the matrix; the size of the data is known from the key
+			InputStream scrambledInput = this.openScrambledData(meta, true);
+			CRC32 checksum = new CRC32();
+			matrix = this.utils.getMatrix(scrambledInput, this.dataFormat == DataFormat.BASE64, numBytes, checksum, this.matrixMode, this.nodeType, meta.dataHeight, meta.dataWidth);
+			runResults.setNumBytesIn(numBytes);
+			//make sure the data is what the key was written for before spending the time replaying the moves
+			if(meta.dataChecksum != KeyMetaData.UNKNOWN){
+				meta.checkDataChecksum(checksum.getValue());
+			}
 			runResults.setMatrixSize(matrix.size());
 		}
 		end = System.currentTimeMillis();
@@ -213,39 +349,261 @@ public class DeScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R ex
 		LOGGER.info("Descrambling data...");
 
 		{
-			long numMoves = this.key.getNumMoves();
-			LOGGER.debug("Number of moves: {}", numMoves);
-			runResults.setCurStepProgMax(numMoves);
+			if(meta.numMoves != KeyMetaData.UNKNOWN){
+				runResults.setCurStepProgMax(meta.numMoves);
+			}
 			long l = 0;
-			Iterator<ScrambleMove> it = this.key.getMovesIt();
+			ScrambleMove curMove;
+			while((curMove = keyReader.nextMove()) != null){
+				matrix.doScrambleMove(curMove);
+				runResults.setCurStepProg(l++);
+			}
+			LOGGER.debug("Number of moves: {}", l);
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.DESCRAMBLING, start, end);
+
+		runResults.setCurStep(Step.OUT_DESCRAMBLED_DATA);
+		start = System.currentTimeMillis();
+		LOGGER.info("Outputting descrambled data...");
+		matrix = (M) matrix.getSubMatrix(new MatrixCoordinate(matrix,0,0), meta.originalHeight, meta.originalWidth);
+		{
+			long length = meta.getOriginalDataLength();
+			long numBytesOut = this.utils.writeMatrix(matrix, this.nodeType, length, dataOutput);
+			runResults.setNumBytesOut(numBytesOut);
+			LOGGER.debug("Number of bytes output: {}", numBytesOut);
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.OUT_DESCRAMBLED_DATA, start, end);
+	}
+
+	/**
+	 * Makes sure the number of bytes of scrambled data fits the matrix the key was written for.
+	 * @param meta The metadata of the key.
+	 * @param numBytes The number of bytes of the scrambled matrix.
+	 * @throws IllegalArgumentException If the size of the data does not match the key.
+	 */
+	private void checkScrambledDataSize(KeyMetaData meta, long numBytes){
+		if(numBytes * (this.nodeType == NodeMode.BIT ? 8 : 1) != meta.dataHeight * meta.dataWidth){
+			throw new IllegalArgumentException("The scrambled data given does not match the size of the key given.");
+		}
+	}
+
+	/**
+	 * Makes sure the scrambled data given is what the key was written for.
+	 * @param meta The metadata of the key.
+	 * @param data The bytes of the scrambled matrix.
+	 * @throws IllegalArgumentException If the size of the data does not match the key, or its checksum does not match the one in the key.
+	 */
+	private void checkScrambledData(KeyMetaData meta, ByteList data){
+		this.checkScrambledDataSize(meta, data.sizeL());
+		if(meta.dataChecksum != KeyMetaData.UNKNOWN){
+			meta.checkDataChecksum(RunnerUtilities.getChecksum(data));
+		}
+	}
+
+	/**
+	 * Descrambles all the data with a key in permutation form, looking each value up in the scrambled data by where the key says it went.
+	 *
+	 * The scrambled data is read in whole, as the values of any part of the original data are spread all across it. The descrambled data is then worked out and written out a block at a time, so is never held all at once.
+	 * @param runResults The results of this run to update.
+	 * @param dataOutput The stream to write the descrambled data to.
+	 * @throws IOException If something went wrong in the input or output of data.
+	 * @throws IllegalArgumentException If the scrambled data does not match the key.
+	 */
+	private void descramblePermutation(DescrambleResults runResults, OutputStream dataOutput) throws IOException {
+		long start, end;
+		KeyMetaData meta = this.key.meta;
+		ByteList data;
+
+		runResults.setCurStep(Step.LOAD_SCRAMBLED_DATA);
+		start = System.currentTimeMillis();
+		LOGGER.info("Loading scrambled data...");
+		{
+			InputStream scrambledInput = this.openScrambledData(meta, true);
+			data = this.utils.readBytesIn(scrambledInput, this.dataFormat == DataFormat.BASE64, new ScrambledDataHeader(meta).getDataLength());
+			runResults.setNumBytesIn(data.sizeL());
+			this.checkScrambledData(meta, data);
+			runResults.setMatrixSize(meta.dataHeight * meta.dataWidth);
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.LOAD_SCRAMBLED_DATA, start, end);
+
+		//no moves to replay; each value is looked up as it is written out
+		runResults.setCurStep(Step.DESCRAMBLING);
+		runResults.setElapsedTime(Step.DESCRAMBLING, 0);
+
+		runResults.setCurStep(Step.OUT_DESCRAMBLED_DATA);
+		start = System.currentTimeMillis();
+		LOGGER.info("Outputting descrambled data...");
+		{
+			long numBytesOut = this.utils.writePermutedValues(data, this.key.getScrambledPositions(), this.nodeType, dataOutput);
+			runResults.setNumBytesOut(numBytesOut);
+			LOGGER.debug("Number of bytes output: {}", numBytesOut);
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.OUT_DESCRAMBLED_DATA, start, end);
+	}
+
+	/**
+	 * Gets bytes of the scrambled matrix by their position in it.
+	 */
+	private interface ScrambledBytes {
+		/**
+		 * Gets the byte of the scrambled matrix at the position given.
+		 * @param position The position of the byte in the scrambled matrix.
+		 * @return The byte at the position given.
+		 * @throws IOException If the byte could not be read.
+		 */
+		byte get(long position) throws IOException;
+	}
+
+	/**
+	 * Descrambles only the range of the original data asked for.
+	 *
+	 * Traces each value in the range back through the moves in the key to find where it sits in the scrambled data, or looks it up if the key is in permutation form, then reads in only those values. Scrambled data from a file is read straight out of the mapping by position; other streams can only be read in order, so the bytes needed are read in one pass, skipping the rest. As the rest of the scrambled data is never read, it is not checked against the checksum in the key.
+	 *
+	 * The range is written out a block at a time as it is put together.
+	 *
+	 * @param runResults The results of this run to update.
+	 * @param dataOutput The stream to write the descrambled data to.
+	 * @param offset The offset of the first byte of the original data to recover.
+	 * @param length The number of bytes to recover. Cut short if it goes past the end of the original data.
+	 * @throws IOException If something went wrong in the input or output of data.
+	 * @throws IllegalArgumentException If the range starts past the end of the original data, or has more values than fit in an array.
+	 */
+	private void descrambleRange(DescrambleResults runResults, OutputStream dataOutput, long offset, long length) throws IOException {
+		long start, end;
+		final int valsPerByte = (this.nodeType == NodeMode.BIT ? 8 : 1);
+
+		if(this.matrixMode == null){
+			this.matrixMode = MatrixMode.determineModeToUse(this.key.meta.dataHeight * this.key.meta.dataWidth);
+		}
+		runResults.setMatrixMode(this.matrixMode);
+		runResults.setMatrixSize(this.key.meta.dataHeight * this.key.meta.dataWidth);
+
+		long numBytesAvailable = this.key.meta.getOriginalDataLength() / valsPerByte;
+		if(offset > numBytesAvailable){
+			throw new IllegalArgumentException("Range given starts past the end of the original data. Number of bytes in original data: " + numBytesAvailable);
+		}
+		long numBytes = Math.min(length, numBytesAvailable - offset);
+		if(numBytes * valsPerByte > ByteList.MAX_ARRAY_SIZE){
+			throw new IllegalArgumentException("Range given is too large to descramble at once. Most bytes in a range: " + (ByteList.MAX_ARRAY_SIZE / valsPerByte));
+		}
+		LOGGER.debug("Descrambling {} bytes, starting at byte {}", numBytes, offset);
+
+		long[] positions = new long[(int)(numBytes * valsPerByte)];
+		{
+			long firstVal = offset * valsPerByte;
+			for(int i = 0; i < positions.length; i++){
+				long curVal = firstVal + i;
+				positions[i] = ((curVal / this.key.meta.originalWidth) * this.key.meta.dataWidth) + (curVal % this.key.meta.originalWidth);
+			}
+		}
+
+		runResults.setCurStep(Step.DESCRAMBLING);
+		start = System.currentTimeMillis();
+		LOGGER.info("Tracing data back through key...");
+		if(this.key.isPermutationForm()){
+			long[] scrambledPositions = this.key.getScrambledPositions();
+			for(int i = 0; i < positions.length; i++){
+				positions[i] = scrambledPositions[(int)((offset * valsPerByte) + i)];
+			}
+		}else{
+			PositionTracer tracer = new PositionTracer(this.key.meta.dataHeight, this.key.meta.dataWidth);
+			runResults.setCurStepProgMax(this.key.getNumMoves());
+			long l = 0;
+			Iterator<ScrambleMove> it = this.key.getMovesReverseIt();
 			while(it.hasNext()){
-				matrix.doScrambleMove(it.next());
+				tracer.traceSources(it.next(), positions);
 				runResults.setCurStepProg(l++);
 			}
 		}
 		end = System.currentTimeMillis();
 		runResults.setElapsedTime(Step.DESCRAMBLING, start, end);
 
+		if(this.dataInput instanceof MappedInputStream){
+			try(MappedScrambledData scrambledData = new MappedScrambledData(((MappedInputStream)this.dataInput).getMappedFile())){
+				this.dataFormat = scrambledData.getFormat();
+				LOGGER.debug("Scrambled data is in format: {}", this.dataFormat);
+				if(scrambledData.getHeader() != null){
+					scrambledData.getHeader().checkMatches(this.key.meta);
+				}
+				runResults.setNumBytesIn(positions.length);
+				this.writeRange(runResults, dataOutput, positions, numBytes, scrambledData::get);
+			}
+			return;
+		}
+
+		runResults.setCurStep(Step.LOAD_SCRAMBLED_DATA);
+		start = System.currentTimeMillis();
+		LOGGER.info("Loading needed scrambled data...");
+		long[] offsets;
+		byte[] scrambledBytes;
+		{
+			long[] sorted = new long[positions.length];
+			for(int i = 0; i < positions.length; i++){
+				sorted[i] = positions[i] / valsPerByte;
+			}
+			Arrays.sort(sorted);
+			int numUnique = 0;
+			for(int i = 0; i < sorted.length; i++){
+				if(numUnique == 0 || sorted[i] != sorted[numUnique - 1]){
+					sorted[numUnique++] = sorted[i];
+				}
+			}
+			offsets = Arrays.copyOf(sorted, numUnique);
+			InputStream scrambledInput = this.openScrambledData(this.key.meta, false);
+			scrambledBytes = this.utils.readBytesAt(scrambledInput, offsets, this.dataFormat == DataFormat.BASE64);
+			runResults.setNumBytesIn(scrambledBytes.length);
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.LOAD_SCRAMBLED_DATA, start, end);
+
+		this.writeRange(runResults, dataOutput, positions, numBytes, position -> scrambledBytes[Arrays.binarySearch(offsets, position)]);
+	}
+
+	/**
+	 * Writes out the bytes of original data held at the positions given, a block at a time.
+	 * @param runResults The results of this run to update.
+	 * @param dataOutput The stream to write the descrambled data to.
+	 * @param positions For each value of the range, its position in the scrambled matrix.
+	 * @param numBytes The number of bytes in the range.
+	 * @param scrambledBytes Where to get the bytes of the scrambled matrix from, by their position in it.
+	 * @throws IOException If something went wrong in the input or output of data.
+	 */
+	private void writeRange(DescrambleResults runResults, OutputStream dataOutput, long[] positions, long numBytes, ScrambledBytes scrambledBytes) throws IOException {
+		long start, end;
+		final int valsPerByte = (this.nodeType == NodeMode.BIT ? 8 : 1);
+
 		runResults.setCurStep(Step.OUT_DESCRAMBLED_DATA);
 		start = System.currentTimeMillis();
 		LOGGER.info("Outputting descrambled data...");
-		matrix = (M) matrix.getSubMatrix(new MatrixCoordinate(matrix,0,0), this.key.meta.originalHeight, this.key.meta.originalWidth);
 		{
-			long length = matrix.size();
-			if(this.key.meta.lastColIndex == 0) {
-				length -= matrix.getNumCols() - 1;
-			}else if(this.key.meta.lastColIndex > 0){
-				length -= key.meta.lastColIndex;
+			byte[] block = new byte[(int)Math.min(numBytes, RANGE_BLOCK_SIZE)];
+			int curVal = 0;
+			for(long numWritten = 0; numWritten < numBytes; ){
+				int curNumBytes = (int)Math.min(block.length, numBytes - numWritten);
+				for(int i = 0; i < curNumBytes; i++){
+					int output = 0;
+					for(int j = 0; j < valsPerByte; j++, curVal++){
+						long position = positions[curVal];
+						byte curByte = scrambledBytes.get(position / valsPerByte);
+						if(valsPerByte == 1){
+							output = curByte;
+						}else{
+							output |= ((curByte >> (position % 8)) & 1) << j;
+						}
+					}
+					block[i] = (byte)output;
+				}
+				dataOutput.write(block, 0, curNumBytes);
+				numWritten += curNumBytes;
 			}
-			byte[] bytes = this.utils.getMatrixAsBytes(matrix, this.nodeType, length);
-			runResults.setNumBytesOut(bytes.length);
-			LOGGER.debug("Number of bytes to output: {}", bytes.length);
-			this.dataOutput.write(bytes);
+			runResults.setNumBytesOut(numBytes);
+			LOGGER.debug("Number of bytes output: {}", numBytes);
 		}
 		end = System.currentTimeMillis();
 		runResults.setElapsedTime(Step.OUT_DESCRAMBLED_DATA, start, end);
-
-		runResults.setCurStep(Step.DONE_DESCRAMBLING);
-		LOGGER.info("Done descrambling data...");
 	}
 }
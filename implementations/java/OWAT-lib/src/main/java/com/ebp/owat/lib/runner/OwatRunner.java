@@ -6,12 +6,18 @@ import com.ebp.owat.lib.runner.utils.RunnerUtilities;
 import com.ebp.owat.lib.runner.utils.ScrambleRunnerThread;
 import com.ebp.owat.lib.runner.utils.Step;
 import com.ebp.owat.lib.runner.utils.results.RunResults;
+import com.ebp.owat.lib.utils.io.FileSink;
+import com.ebp.owat.lib.utils.key.BinaryKeySerializer;
+import com.ebp.owat.lib.utils.key.KeyFormat;
+import com.ebp.owat.lib.utils.key.ParallelKeyReader;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
 import com.ebp.owat.lib.utils.rand.OwatRandGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Describes a runner for scrambling/descrambling.
@@ -19,7 +25,7 @@ import java.io.IOException;
  * @param <M> The type of matrix to use
  * @param <R> The random number generator to use
  */
-public abstract class OwatRunner<N extends Value, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> {
+public abstract class OwatRunner<N extends Value<?>, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(OwatRunner.class);
 
 	/**
@@ -70,6 +76,39 @@ public abstract class OwatRunner<N extends Value, M extends ScrambleMatrix<N>, R
 		return this.lastRunResults.getCurStep();
 	}
 
+	/**
+	 * Deserializes a decompressed key, in whichever format it is in. Binary keys with indexed blocks of moves are parsed in parallel.
+	 * @param key The decompressed key.
+	 * @return The key, in descrambling mode.
+	 * @throws IOException If the key could not be deserialized.
+	 */
+	protected static ScrambleKey deserializeKey(byte[] key) throws IOException {
+		if(getKeyFormat(key) == KeyFormat.BINARY){
+			return ParallelKeyReader.read(key);
+		}
+		return OBJECT_MAPPER.readValue(key, ScrambleKey.class);
+	}
+
+	/**
+	 * Gets the format of a decompressed key.
+	 * @param key The decompressed key.
+	 * @return The format the key is in.
+	 */
+	protected static KeyFormat getKeyFormat(byte[] key){
+		return BinaryKeySerializer.detectFormat(key.length == 0 ? -1 : key[0] & 0xFF);
+	}
+
+	/**
+	 * Closes the stream given if it is a {@link FileSink}, as those were opened for this run.
+	 * @param output The output to close.
+	 * @throws IOException If the sink could not write out what was left or sync.
+	 */
+	protected static void closeIfFileSink(OutputStream output) throws IOException {
+		if(output instanceof FileSink){
+			output.close();
+		}
+	}
+
 	/**
 	 * Runs the process.
 	 * @throws IOException If something went wrong in the input or output of data.
@@ -0,0 +1,606 @@
+package com.ebp.owat.lib.runner;
+
+import com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix;
+import com.ebp.owat.lib.runner.utils.MatrixMode;
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.datastructure.value.Value;
+import com.ebp.owat.lib.runner.utils.RunnerUtilities;
+import com.ebp.owat.lib.runner.utils.Step;
+import com.ebp.owat.lib.runner.utils.results.RekeyResults;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.io.FileSink;
+import com.ebp.owat.lib.utils.io.ParallelGzipOutputStream;
+import com.ebp.owat.lib.utils.io.MappedInputStream;
+import com.ebp.owat.lib.utils.io.ScrambledDataHeader;
+import com.ebp.owat.lib.utils.io.WriteBehindOutputStream;
+import com.ebp.owat.lib.utils.key.KeyEncoding;
+import com.ebp.owat.lib.utils.key.KeyFormat;
+import com.ebp.owat.lib.utils.key.KeyMetaData;
+import com.ebp.owat.lib.utils.key.KeyWriter;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.ebp.owat.lib.utils.rand.OwatRandGenerator;
+import com.ebp.owat.lib.utils.rand.RandGenerator;
+import com.ebp.owat.lib.utils.scramble.MovePermutation;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.generator.ScrambleMoveGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.security.SecureRandom;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.ebp.owat.lib.runner.utils.RunnerUtilities.getByteArrFromString;
+
+/**
+ * Runner that re-keys already scrambled data; scrambles it further with a fresh set of moves and makes a new key for the result.
+ *
+ * The scrambled data is read straight into a matrix and the new moves done to it, so the original data is never rebuilt and the data is never held as a single array.
+ *
+ * How the new key is made depends on the form it is to be written in. A key in permutation form is made by folding the new moves into the permutation of the old key, so it stays the size of the matrix however many times the data is re-keyed. A key of moves is the moves of the old key followed by the new ones; moves can only be undone one after another, so the old ones cannot be dropped, and the key grows with each re-key. It is the form to use for data too large to hold the permutation of, or for readers that do not know the permutation form. Use {@link KeyEncoding#PERMUTATION} to keep the key from growing.
+ * @param <N> The type of value to use
+ * @param <M> The type of matrix to use
+ * @param <R> The random number generator to use
+ */
+public class ReKeyRunner<N extends Value<?>, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> extends OwatRunner<N,M,R> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReKeyRunner.class);
+
+	/** The random number generator to use. */
+	private final R rand;
+	/** The stream to use to read the scrambled data in. */
+	private final InputStream dataInput;
+	/** The stream to use to read the old key in. */
+	private final InputStream keyInput;
+	/** The stream to use to write the re-scrambled data out. */
+	private final OutputStream dataOutput;
+	/** The stream to use to write the new key out. */
+	private final OutputStream keyOutput;
+	/** The minimum number of new steps to scramble with. */
+	private long minNumScrambleSteps = -1;
+	/** How the new key is to be written out. Null to use the same form the old key came in. */
+	private KeyEncoding keyEncoding = null;
+	/** The format to write the re-scrambled data out in. Null to use the same format the data came in. */
+	private DataFormat dataFormat = null;
+	/** The format to write the new key out in. Null to use the same format the old key came in. */
+	private KeyFormat keyFormat = null;
+	/** If the data is to be read ahead and written behind on background threads, for slow media. */
+	private boolean backgroundIo = false;
+	/** The level to compress the new key at. */
+	private int keyCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+	/** The number of bytes of the new key compressed in each block. */
+	private int keyCompressionBlockSize = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
+
+	/**
+	 * Constructor to setup the runner. To be called by the builder.
+	 * @param rand The random number generator to use.
+	 * @param dataInput The scrambled data to re-key.
+	 * @param keyInput The key the data is currently scrambled with.
+	 * @param dataOutput The stream to output the re-scrambled data to.
+	 * @param keyOutput The stream to output the new key to.
+	 */
+	private ReKeyRunner(
+		R rand,
+		InputStream dataInput,
+		InputStream keyInput,
+		OutputStream dataOutput,
+		OutputStream keyOutput
+	){
+		if(rand == null){
+			throw new IllegalArgumentException("Invalid null parameter(s) given. Must specify a random number generator or seed.");
+		}
+		if(dataInput == null){
+			throw new IllegalArgumentException("Invalid null parameter(s) given. Must specify data to input.");
+		}
+		if(keyInput == null) {
+			throw new IllegalArgumentException("Invalid null parameter(s) given. Must specify a method of inputting the key data.");
+		}
+		if(dataOutput == null){
+			throw new IllegalArgumentException("Invalid null parameter(s) given. Must specify a method of outputting the scrambled data.");
+		}
+		if(keyOutput == null) {
+			throw new IllegalArgumentException("Invalid null parameter(s) given. Must specify a method of outputting the key data.");
+		}
+
+		this.rand = rand;
+		this.dataInput = dataInput;
+		this.keyInput = keyInput;
+		this.dataOutput = dataOutput;
+		this.keyOutput = keyOutput;
+	}
+
+	/**
+	 * Sets the minimum number of new scramble steps to use.
+	 * @param num The number to use.
+	 */
+	private void setMinNumScrambleSteps(long num){
+		this.minNumScrambleSteps = num;
+	}
+
+	/**
+	 * Sets how the new key is to be written out.
+	 * @param keyEncoding The encoding to use for the new key. Null to use the same form the old key came in.
+	 */
+	private void setKeyEncoding(KeyEncoding keyEncoding){
+		this.keyEncoding = keyEncoding;
+	}
+
+	/**
+	 * Sets the format to write the re-scrambled data out in.
+	 * @param dataFormat The format to use for the re-scrambled data. Null to use the same format the data came in.
+	 */
+	private void setDataFormat(DataFormat dataFormat){
+		this.dataFormat = dataFormat;
+	}
+
+	/**
+	 * Sets the format to write the new key out in.
+	 * @param keyFormat The format to use for the new key. Null to use the same format the old key came in.
+	 */
+	private void setKeyFormat(KeyFormat keyFormat){
+		this.keyFormat = keyFormat;
+	}
+
+	/**
+	 * Sets if the data is to be read ahead and written behind on background threads.
+	 * @param backgroundIo If the data is to be read and written in the background.
+	 */
+	private void setBackgroundIo(boolean backgroundIo){
+		this.backgroundIo = backgroundIo;
+	}
+
+	/**
+	 * Sets how the new key is to be compressed.
+	 * @param level The compression level.
+	 * @param blockSize The number of bytes of the new key compressed in each block.
+	 */
+	private void setKeyCompression(int level, int blockSize){
+		this.keyCompressionLevel = level;
+		this.keyCompressionBlockSize = blockSize;
+	}
+
+	/**
+	 * Builder to setup the re-key runner. The random number generator, the scrambled data and old key to read, and where to write the re-scrambled data and new key, must all be given; everything else defaults to carrying on as the old key and data were written.
+	 * @param <N> The type of value to use
+	 * @param <M> The type of matrix to use
+	 * @param <R> The random number generator to use
+	 */
+	public static class Builder<N extends Value<?>, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> {
+		/** The random number generator to use. */
+		@SuppressWarnings("unchecked")
+		private R rand = (R)new RandGenerator();
+		/** The stream to use to read the scrambled data in. */
+		private InputStream dataInput = null;
+		/** The stream to use to read the old key in. */
+		private InputStream keyInput = null;
+		/** The stream to use to write the re-scrambled data out. */
+		private OutputStream dataOutput = null;
+		/** The stream to use to write the new key out. */
+		private OutputStream keyOutput = null;
+		/** The minimum number of new steps. */
+		private long minNumScrambleSteps = -1;
+		/** How the new key is to be written out. Null to use the same form the old key came in. */
+		private KeyEncoding keyEncoding = null;
+		/** The format to write the re-scrambled data out in. Null to use the same format the data came in. */
+		private DataFormat dataFormat = null;
+		/** The format to write the new key out in. Null to use the same format the old key came in. */
+		private KeyFormat keyFormat = null;
+		/** If the data is to be read ahead and written behind on background threads, for slow media. */
+		private boolean backgroundIo = false;
+		/** The level to compress the new key at. */
+		private int keyCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+		/** The number of bytes of the new key compressed in each block. */
+		private int keyCompressionBlockSize = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
+
+		/**
+		 * Sets the random number generator using the seed given.
+		 * @param seed The seed to use to make the random number generator.
+		 * @return This builder, for chaining setter calls.
+		 */
+		@SuppressWarnings("unchecked")
+		public Builder<N, M, R> setRand(byte[] seed){
+			this.rand = (R)new RandGenerator(new SecureRandom(seed));
+			return this;
+		}
+
+		/**
+		 * Sets the random number generator using the seed given.
+		 * @param seed The seed to use to make the random number generator.
+		 * @return This builder, for chaining setter calls.
+		 */
+		public Builder<N, M, R> setRand(String seed){
+			return this.setRand(getByteArrFromString(seed));
+		}
+
+		/**
+		 * Sets the random number generator to use.
+		 * @param rand The random number generator to use.
+		 * @return This builder, for chaining setter calls.
+		 */
+		public Builder<N, M, R> setRand(R rand){
+			this.rand = rand;
+			return this;
+		}
+
+		/**
+		 * Sets the input stream of scrambled data to re-key.
+		 * @param is The input stream to use.
+		 * @return This builder, for chaining setter calls.
+		 */
+		public Builder<N, M, R> setDataInput(InputStream is){
+			this.dataInput = is;
+			return this;
+		}
+
+		/**
+		 * Sets the scrambled data to re-key from a file. The file is memory mapped rather than streamed.
+		 * @param file The file to use.
+		 * @return This builder, for chaining setter calls.
+		 * @throws IOException If the file could not be opened or mapped.
+		 */
+		public Builder<N, M, R> setDataInput(File file) throws IOException {
+			return this.setDataInput(new MappedInputStream(file));
+		}
+
+		/**
+		 * Sets the input stream to read the current key from.
+		 * @param is The input stream of the key.
+		 * @return This builder, for chaining calls.
+		 */
+		public Builder<N, M, R> setKeyInput(InputStream is){
+			this.keyInput = is;
+			return this;
+		}
+
+		/**
+		 * Sets the output stream to write the re-scrambled data to.
+		 * @param os The output stream to use.
+		 * @return This builder, for chaining setter calls.
+		 */
+		public Builder<N, M, R> setDataOutput(OutputStream os){
+			this.dataOutput = os;
+			return this;
+		}
+
+		/**
+		 * Sets the re-scrambled data to be written straight to a file, leaving syncing up to the OS.
+		 * @param file The file to write to.
+		 * @return This builder, for chaining setter calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setDataOutput(File file) throws IOException {
+			return this.setDataOutput(file, FileSink.SyncPolicy.NONE);
+		}
+
+		/**
+		 * Sets the re-scrambled data to be written straight to a file. The file is closed once the data has been written.
+		 * @param file The file to write to.
+		 * @param syncPolicy When the data written is forced out to the storage device.
+		 * @return This builder, for chaining setter calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setDataOutput(File file, FileSink.SyncPolicy syncPolicy) throws IOException {
+			return this.setDataOutput(new FileSink(file, syncPolicy));
+		}
+
+		/**
+		 * Sets the output stream to write the new key to.
+		 * @param os The output stream to use.
+		 * @return This builder, for chaining calls.
+		 */
+		public Builder<N, M, R> setKeyOutput(OutputStream os){
+			this.keyOutput = os;
+			return this;
+		}
+
+		/**
+		 * Sets the new key to be written straight to a file, leaving syncing up to the OS.
+		 * @param file The file to write to.
+		 * @return This builder, for chaining calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setKeyOutput(File file) throws IOException {
+			return this.setKeyOutput(file, FileSink.SyncPolicy.NONE);
+		}
+
+		/**
+		 * Sets the new key to be written straight to a file. The file is closed once the key has been written.
+		 * @param file The file to write to.
+		 * @param syncPolicy When the data written is forced out to the storage device.
+		 * @return This builder, for chaining calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setKeyOutput(File file, FileSink.SyncPolicy syncPolicy) throws IOException {
+			return this.setKeyOutput(new FileSink(file, syncPolicy));
+		}
+
+		/**
+		 * Sets the minimum number of new scramble steps to use.
+		 * @param num The minimum number of steps to use.
+		 * @return This builder, for chaining setter calls.
+		 */
+		public Builder<N, M, R> setMinNumScrambleSteps(long num){
+			this.minNumScrambleSteps = num;
+			return this;
+		}
+
+		/**
+		 * Sets how the new key is to be written out. Defaults to the form of the old key; {@link KeyEncoding#MOVES}, unless the old key is in permutation form. A key in permutation form cannot be re-keyed into moves.
+		 *
+		 * A new key of moves holds the moves of the old key as well as the new ones, so grows with each re-key. {@link KeyEncoding#PERMUTATION} folds the new moves into the permutation of the old key instead, for a key that stays the same size, so long as the matrix is small enough to hold the permutation of.
+		 * @param keyEncoding The encoding to use for the new key.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the encoding given is null, or is {@link KeyEncoding#SEED}; the new key holds the moves of the old one too, so cannot be made from a single seed.
+		 */
+		public Builder<N, M, R> setKeyEncoding(KeyEncoding keyEncoding){
+			if(keyEncoding == null){
+				throw new IllegalArgumentException("Key encoding cannot be null.");
+			}
+			if(keyEncoding == KeyEncoding.SEED){
+				throw new IllegalArgumentException("Re-keyed keys cannot be in seed form.");
+			}
+			this.keyEncoding = keyEncoding;
+			return this;
+		}
+
+		/**
+		 * Sets the format to write the re-scrambled data out in. Defaults to the format the scrambled data was read in.
+		 * @param dataFormat The format to use for the re-scrambled data.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the format given is null.
+		 */
+		public Builder<N, M, R> setDataFormat(DataFormat dataFormat){
+			if(dataFormat == null){
+				throw new IllegalArgumentException("Data format cannot be null.");
+			}
+			this.dataFormat = dataFormat;
+			return this;
+		}
+
+		/**
+		 * Sets the format to write the new key out in. Defaults to the format the old key was read in.
+		 * @param keyFormat The format to use for the new key.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the format given is null.
+		 */
+		public Builder<N, M, R> setKeyFormat(KeyFormat keyFormat){
+			if(keyFormat == null){
+				throw new IllegalArgumentException("Key format cannot be null.");
+			}
+			this.keyFormat = keyFormat;
+			return this;
+		}
+
+		/**
+		 * Sets if the data is to be read ahead and written behind on background threads; see {@link com.ebp.owat.lib.utils.io.ReadAheadInputStream} and {@link WriteBehindOutputStream}. Defaults to false.
+		 * @param backgroundIo If the data is to be read and written in the background.
+		 * @return This builder, for chaining calls.
+		 */
+		public Builder<N, M, R> setBackgroundIo(boolean backgroundIo){
+			this.backgroundIo = backgroundIo;
+			return this;
+		}
+
+		/**
+		 * Sets how the new key is to be compressed by {@link ParallelGzipOutputStream}. Defaults to {@link Deflater#DEFAULT_COMPRESSION} in blocks of {@link ParallelGzipOutputStream#DEFAULT_BLOCK_SIZE}.
+		 * @param level The compression level, 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+		 * @param blockSize The number of bytes of the new key compressed in each block.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the level is not valid, or the block size is less than 1.
+		 */
+		public Builder<N, M, R> setKeyCompression(int level, int blockSize){
+			if(level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)){
+				throw new IllegalArgumentException("Invalid key compression level: " + level);
+			}
+			if(blockSize < 1){
+				throw new IllegalArgumentException("Key compression block size must be at least one byte.");
+			}
+			this.keyCompressionLevel = level;
+			this.keyCompressionBlockSize = blockSize;
+			return this;
+		}
+
+		/**
+		 * Builds the runner with the data given.
+		 * @return The runner setup with the data given.
+		 */
+		public ReKeyRunner<N, M, R> build(){
+			ReKeyRunner<N, M, R> runner = new ReKeyRunner<>(
+				this.rand,
+				this.dataInput,
+				this.keyInput,
+				this.dataOutput,
+				this.keyOutput
+			);
+
+			runner.setMinNumScrambleSteps(this.minNumScrambleSteps);
+			runner.setKeyEncoding(this.keyEncoding);
+			runner.setDataFormat(this.dataFormat);
+			runner.setKeyFormat(this.keyFormat);
+			runner.setBackgroundIo(this.backgroundIo);
+			runner.setKeyCompression(this.keyCompressionLevel, this.keyCompressionBlockSize);
+
+			return runner;
+		}
+	}
+
+	@Override
+	public synchronized RekeyResults getLastRunResults() {
+		RekeyResults results = (RekeyResults) this.lastRunResults;
+		if(results == null){
+			return null;
+		}
+		return results.clone();
+	}
+
+	@Override
+	public void doSteps() throws IOException {
+		RekeyResults runResults = new RekeyResults();
+		this.setLastRunResults(runResults);
+
+		try{
+			this.reKey(runResults);
+		}finally{
+			//file sinks were opened for this run; close them to write out what is left and sync, even if it failed
+			try{
+				closeIfFileSink(this.dataOutput);
+			}finally{
+				closeIfFileSink(this.keyOutput);
+			}
+		}
+
+		runResults.setCurStep(Step.DONE_REKEYING);
+		LOGGER.info("Done re-keying.");
+	}
+
+	/**
+	 * Re-keys the data; loads the old key and the scrambled data, scrambles the data further, and writes out the data and new key.
+	 * @param runResults The results of this run to update.
+	 * @throws IOException If something went wrong in the input or output of data, or the key was malformed.
+	 */
+	private void reKey(RekeyResults runResults) throws IOException {
+		long start, end;
+		ScrambleKey oldKey;
+		NodeMode nodeType;
+		DataFormat inputFormat;
+		M matrix;
+
+		runResults.setCurStep(Step.REKEY_LOAD_KEY);
+		start = System.currentTimeMillis();
+		LOGGER.info("Loading key...");
+		{
+			byte decompressedKey[] = utils.decompressBytes(this.keyInput);
+			oldKey = deserializeKey(decompressedKey);
+			if(this.keyFormat == null){
+				this.keyFormat = getKeyFormat(decompressedKey);
+			}
+			LOGGER.debug("Key in format: {}", this.keyFormat);
+			nodeType = oldKey.meta.getNodeMode();
+			runResults.setNodeMode(nodeType);
+			if(this.keyEncoding == null){
+				this.keyEncoding = (oldKey.isPermutationForm() ? KeyEncoding.PERMUTATION : KeyEncoding.MOVES);
+			}else if(this.keyEncoding == KeyEncoding.MOVES && oldKey.isPermutationForm()){
+				throw new IllegalArgumentException("Key given is in permutation form. Cannot re-key it into moves.");
+			}
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.REKEY_LOAD_KEY, start, end);
+
+		long matrixSize = oldKey.meta.dataHeight * oldKey.meta.dataWidth;
+		runResults.setMatrixSize(matrixSize);
+		//keys in permutation form get the new moves folded into their permutation, which is held in arrays
+		boolean toPermutation = (oldKey.isPermutationForm() || this.keyEncoding == KeyEncoding.PERMUTATION);
+		if(toPermutation && !MovePermutation.canHold(oldKey.meta.dataHeight, oldKey.meta.dataWidth)){
+			throw new IllegalArgumentException("Scrambled data is too large for a key in permutation form. Most values in a matrix with a permutation key: " + Integer.MAX_VALUE);
+		}
+
+		runResults.setCurStep(Step.REKEY_LOAD_SCRAMBLED_DATA);
+		start = System.currentTimeMillis();
+		LOGGER.info("Loading scrambled data...");
+		{
+			InputStream scrambledInput = RunnerUtilities.getMarkableStream(
+				this.backgroundIo ? RunnerUtilities.getReadAheadStream(this.dataInput) : this.dataInput
+			);
+			inputFormat = ScrambledDataHeader.detectFormat(scrambledInput);
+			LOGGER.debug("Scrambled data is in format: {}", inputFormat);
+			if(inputFormat == DataFormat.BINARY){
+				ScrambledDataHeader.read(scrambledInput).checkMatches(oldKey.meta);
+			}
+			long numBytes = new ScrambledDataHeader(oldKey.meta).getDataLength();
+			if(numBytes * (nodeType == NodeMode.BIT ? 8 : 1) != matrixSize){
+				throw new IllegalArgumentException("The scrambled data given does not match the size of the key given.");
+			}
+			MatrixMode matrixMode = MatrixMode.determineModeToUse(numBytes);
+			runResults.setMatrixMode(matrixMode);
+			LOGGER.debug("Using matrix type: {}", matrixMode.name);
+			//read straight into the matrix; the size of the data is known from the key
+			CRC32 checksum = new CRC32();
+			matrix = this.utils.getMatrix(scrambledInput, inputFormat == DataFormat.BASE64, numBytes, checksum, matrixMode, nodeType, oldKey.meta.dataHeight, oldKey.meta.dataWidth);
+			runResults.setNumBytesIn(numBytes);
+			if(oldKey.meta.dataChecksum != KeyMetaData.UNKNOWN){
+				oldKey.meta.checkDataChecksum(checksum.getValue());
+			}
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.REKEY_LOAD_SCRAMBLED_DATA, start, end);
+
+		runResults.setCurStep(Step.REKEYING);
+		start = System.currentTimeMillis();
+		LOGGER.info("Re-keying data...");
+		ScrambleKey newKey;
+		{
+			if(this.minNumScrambleSteps < 0){
+				this.minNumScrambleSteps = this.utils.determineMinStepsToTake(matrixSize, this.rand);
+			}
+			long numSteps = this.utils.determineNumStepsToTake(matrixSize, this.rand, this.minNumScrambleSteps);
+			LOGGER.debug("Number of new steps in scramble: {}", numSteps);
+			runResults.setCurStepProgMax(numSteps);
+
+			ScrambleMoveGenerator generator = new ScrambleMoveGenerator(this.rand, oldKey.meta.dataHeight, oldKey.meta.dataWidth);
+			MovePermutation permutation = (toPermutation ? new MovePermutation(oldKey.meta.dataHeight, oldKey.meta.dataWidth) : null);
+			newKey = (toPermutation ? null : new ScrambleKey(oldKey));
+			for(long l = 0; l < numSteps; l++){
+				ScrambleMove curMove = generator.getMove();
+				matrix.doScrambleMove(curMove);
+				if(toPermutation){
+					permutation.doMove(curMove);
+				}else{
+					newKey.addMove(curMove);
+				}
+				runResults.setCurStepProg(l);
+			}
+			if(toPermutation){
+				long[] destinations = new long[Math.toIntExact(permutation.size())];
+				for(int i = 0; i < destinations.length; i++){
+					destinations[(int)permutation.getSource(i)] = i;
+				}
+				long[] positions = oldKey.getScrambledPositions().clone();
+				for(int i = 0; i < positions.length; i++){
+					positions[i] = destinations[(int)positions[i]];
+				}
+				newKey = new ScrambleKey(oldKey.meta, positions);
+			}
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.REKEYING, start, end);
+
+		DataFormat outputFormat = (this.dataFormat == null ? inputFormat : this.dataFormat);
+		if(this.dataOutput instanceof FileSink){
+			((FileSink)this.dataOutput).setExpectedLength(
+				RunnerUtilities.getScrambledDataLength(matrix.size(), nodeType, outputFormat)
+			);
+		}
+
+		//the re-scrambled data can finish being written out behind while the new key is written
+		try(WriteBehindOutputStream writeBehind = (this.backgroundIo ? new WriteBehindOutputStream(this.dataOutput) : null)){
+			OutputStream dataOutput = (writeBehind == null ? this.dataOutput : writeBehind);
+
+			runResults.setCurStep(Step.REKEY_OUT_SCRAMBLED_DATA);
+			start = System.currentTimeMillis();
+			LOGGER.info("Outputting scrambled data...");
+			{
+				LOGGER.debug("Outputting scrambled data as {}", outputFormat);
+				CRC32 dataChecksum = new CRC32();
+				long numBytesOut = this.utils.writeScrambledData(dataOutput, matrix, nodeType, outputFormat, dataChecksum);
+				newKey.setDataChecksum(dataChecksum.getValue());
+				runResults.setNumBytesOut(numBytesOut);
+				LOGGER.debug("Number of bytes output: {}", numBytesOut);
+			}
+			end = System.currentTimeMillis();
+			runResults.setElapsedTime(Step.REKEY_OUT_SCRAMBLED_DATA, start, end);
+
+			runResults.setCurStep(Step.REKEY_OUT_KEY);
+			start = System.currentTimeMillis();
+			LOGGER.info("Outputting key...");
+			{
+				newKey.applyEncoding(this.keyEncoding, this.keyFormat);
+				KeyWriter.write(newKey, this.keyFormat, this.keyOutput, this.keyCompressionLevel, this.keyCompressionBlockSize);
+			}
+		}finally{
+			//deletes any moves spilled to disk
+			newKey.close();
+		}
+		end = System.currentTimeMillis();
+		runResults.setElapsedTime(Step.REKEY_OUT_KEY, start, end);
+	}
+}
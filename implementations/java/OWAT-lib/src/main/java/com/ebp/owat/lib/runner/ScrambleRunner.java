@@ -1,15 +1,27 @@
 package com.ebp.owat.lib.runner;
 
 import com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix;
-import com.ebp.owat.lib.datastructure.set.LongLinkedList;
+import com.ebp.owat.lib.datastructure.set.ByteList;
 import com.ebp.owat.lib.datastructure.value.NodeMode;
 import com.ebp.owat.lib.datastructure.value.Value;
 import com.ebp.owat.lib.runner.utils.MatrixMode;
+import com.ebp.owat.lib.runner.utils.RunnerUtilities;
 import com.ebp.owat.lib.runner.utils.Step;
 import com.ebp.owat.lib.runner.utils.results.ScrambleResults;
+import com.ebp.owat.lib.utils.index.DescrambleIndex;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.io.ParallelGzipOutputStream;
+import com.ebp.owat.lib.utils.io.FileSink;
+import com.ebp.owat.lib.utils.io.MappedInputStream;
+import com.ebp.owat.lib.utils.io.WriteBehindOutputStream;
+import com.ebp.owat.lib.utils.key.KeyEncoding;
+import com.ebp.owat.lib.utils.key.KeySeed;
+import com.ebp.owat.lib.utils.key.KeyFormat;
+import com.ebp.owat.lib.utils.key.KeyWriter;
 import com.ebp.owat.lib.utils.key.ScrambleKey;
 import com.ebp.owat.lib.utils.rand.OwatRandGenerator;
 import com.ebp.owat.lib.utils.rand.RandGenerator;
+import com.ebp.owat.lib.utils.scramble.MovePermutation;
 import com.ebp.owat.lib.utils.scramble.ScrambleMove;
 import com.ebp.owat.lib.utils.scramble.generator.ScrambleMoveGenerator;
 import org.slf4j.Logger;
@@ -17,7 +29,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.security.SecureRandom;
-import java.util.Base64;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 import static com.ebp.owat.lib.runner.utils.RunnerUtilities.getByteArrFromString;
 
@@ -27,9 +40,8 @@ import static com.ebp.owat.lib.runner.utils.RunnerUtilities.getByteArrFromString
  * @param <M> The type of matrix to use
  * @param <R> The random number generator to use
  */
-public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> extends OwatRunner<N,M,R> {
+public class ScrambleRunner<N extends Value<?>, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> extends OwatRunner<N,M,R> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ScrambleRunner.class);
-	private static final java.util.Base64.Encoder ENCODER = Base64.getEncoder();
 
 	/**
 	 * The default mode of creating a matrix.
@@ -52,6 +64,24 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 	private final OutputStream keyOutput;
 	/** The minimum number of steps */
 	private long minNumScrambleSteps = -1;
+	/** The stream to write the descramble index out to. Null if no index is to be written. */
+	private OutputStream indexOutput = null;
+	/** How the key is to be written out. */
+	private KeyEncoding keyEncoding = KeyEncoding.MOVES;
+	/** The format to write the scrambled data out in. */
+	private DataFormat dataFormat = DataFormat.BASE64;
+	/** The format to write the key out in. */
+	private KeyFormat keyFormat = KeyFormat.JSON;
+	/** The most memory the moves of the key can take up before they are spilled to disk, in bytes. */
+	private long keyMemoryLimit = Long.MAX_VALUE;
+	/** The directory the moves of the key are spilled to. Null for the system's temporary directory. */
+	private File keySpillDirectory = null;
+	/** If the data is to be read ahead and written behind on background threads, for slow media. */
+	private boolean backgroundIo = false;
+	/** The level to compress the key at. */
+	private int keyCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+	/** The number of bytes of the key compressed in each block. */
+	private int keyCompressionBlockSize = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
 
 	/**
 	 * Constructor to setup the runner. To be called by the builder.
@@ -102,14 +132,81 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		this.minNumScrambleSteps = num;
 	}
 
+	/**
+	 * Sets the stream to write the descramble index out to.
+	 * @param os The stream to write the index to. Null to not write an index.
+	 */
+	private void setIndexOutput(OutputStream os){
+		this.indexOutput = os;
+	}
+
+	/**
+	 * Sets how the key is to be written out.
+	 * @param keyEncoding The encoding to use for the key.
+	 */
+	private void setKeyEncoding(KeyEncoding keyEncoding){
+		this.keyEncoding = keyEncoding;
+	}
+
+	/**
+	 * Sets the format to write the scrambled data out in.
+	 * @param dataFormat The format to use for the scrambled data.
+	 */
+	private void setDataFormat(DataFormat dataFormat){
+		this.dataFormat = dataFormat;
+	}
+
+	/**
+	 * Sets the format to write the key out in.
+	 * @param keyFormat The format to use for the key.
+	 */
+	private void setKeyFormat(KeyFormat keyFormat){
+		this.keyFormat = keyFormat;
+	}
+
+	/**
+	 * Sets if the data is to be read ahead and written behind on background threads.
+	 * @param backgroundIo If the data is to be read and written in the background.
+	 */
+	private void setBackgroundIo(boolean backgroundIo){
+		this.backgroundIo = backgroundIo;
+	}
+
+	/**
+	 * Sets the most memory the moves of the key can take up before they are spilled to disk.
+	 * @param numBytes The limit on the memory the moves of the key can take up, in bytes.
+	 */
+	private void setKeyMemoryLimit(long numBytes){
+		this.keyMemoryLimit = numBytes;
+	}
+
+	/**
+	 * Sets the directory the moves of the key are spilled to.
+	 * @param directory The directory to spill moves to. Null for the system's temporary directory.
+	 */
+	private void setKeySpillDirectory(File directory){
+		this.keySpillDirectory = directory;
+	}
+
+	/**
+	 * Sets how the key is to be compressed.
+	 * @param level The compression level.
+	 * @param blockSize The number of bytes of the key compressed in each block.
+	 */
+	private void setKeyCompression(int level, int blockSize){
+		this.keyCompressionLevel = level;
+		this.keyCompressionBlockSize = blockSize;
+	}
+
 	/**
 	 * Builder to setup the scramble runner.
 	 * @param <N> The type of value to use
 	 * @param <M> The type of matrix to use
 	 * @param <R> The random number generator to use
 	 */
-	public static class Builder<N extends Value, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> {
+	public static class Builder<N extends Value<?>, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> {
 		/** The random number generator to use. */
+		@SuppressWarnings("unchecked")
 		private R rand = (R)new RandGenerator();
 		/** The type of matrix to use. */
 		private MatrixMode matrixMode = null;
@@ -123,13 +220,32 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		private OutputStream keyOutput = null;
 		/** The minimum number of steps */
 		private long minNumScrambleSteps = -1;
+		/** The stream to write the descramble index out to. */
+		private OutputStream indexOutput = null;
+		/** How the key is to be written out. */
+		private KeyEncoding keyEncoding = KeyEncoding.MOVES;
+		/** The format to write the scrambled data out in. */
+		private DataFormat dataFormat = DataFormat.BASE64;
+		/** The format to write the key out in. */
+		private KeyFormat keyFormat = KeyFormat.JSON;
+		/** If the data is to be read ahead and written behind on background threads, for slow media. */
+		private boolean backgroundIo = false;
+		/** The level to compress the key at. */
+		private int keyCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+		/** The number of bytes of the key compressed in each block. */
+		private int keyCompressionBlockSize = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
+		/** The most memory the moves of the key can take up before they are spilled to disk, in bytes. */
+		private long keyMemoryLimit = Long.MAX_VALUE;
+		/** The directory the moves of the key are spilled to. Null for the system's temporary directory. */
+		private File keySpillDirectory = null;
 
 		/**
 		 * Sets the random number generator using the seed given.
 		 * @param seed The seed to use to make the random number generator.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setRand(byte[] seed){
+		@SuppressWarnings("unchecked")
+		public Builder<N, M, R> setRand(byte[] seed){
 			this.rand = (R)new RandGenerator(new SecureRandom(seed));
 			return this;
 		}
@@ -139,7 +255,7 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * @param seed The seed to use to make the random number generator.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setRand(String seed){
+		public Builder<N, M, R> setRand(String seed){
 			return this.setRand(getByteArrFromString(seed));
 		}
 
@@ -148,7 +264,7 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * @param rand The random number generator to use.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setRand(R rand){
+		public Builder<N, M, R> setRand(R rand){
 			this.rand = rand;
 			return this;
 		}
@@ -158,7 +274,7 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * @param matrixMode The type of matrix to use.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setMatrixMode(MatrixMode matrixMode){
+		public Builder<N, M, R> setMatrixMode(MatrixMode matrixMode){
 			this.matrixMode = matrixMode;
 			return this;
 		}
@@ -168,7 +284,7 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * @param nodeType The type of node to use.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setNodeType(NodeMode nodeType){
+		public Builder<N, M, R> setNodeType(NodeMode nodeType){
 			this.nodeType = nodeType;
 			return this;
 		}
@@ -178,7 +294,7 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * @param is The input stream to use.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setDataInput(InputStream is){
+		public Builder<N, M, R> setDataInput(InputStream is){
 			this.dataInput = is;
 			return this;
 		}
@@ -188,21 +304,21 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * @param data The data to scramble.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setDataInput(String data){
+		public Builder<N, M, R> setDataInput(String data){
 			return this.setDataInput(new ByteArrayInputStream(getByteArrFromString(data)));
 		}
 
 		/**
-		 * Sets the data to scramble from a file.
+		 * Sets the data to scramble from a file. The file is memory mapped rather than streamed.
 		 *
 		 * TODO:: change the file validation to this
 		 *
 		 * @param file The file to use.
 		 * @return This builer, for chaining setter calls.
-		 * @throws FileNotFoundException
+		 * @throws IOException If the file could not be opened or mapped.
 		 */
-		public Builder setDataInput(File file) throws FileNotFoundException {
-			return this.setDataInput(new FileInputStream(file));
+		public Builder<N, M, R> setDataInput(File file) throws IOException {
+			return this.setDataInput(new MappedInputStream(file));
 		}
 
 		/**
@@ -211,31 +327,206 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * @param os The output stream to use.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setDataOutput(OutputStream os){
+		public Builder<N, M, R> setDataOutput(OutputStream os){
 			this.dataOutput = os;
 			return this;
 		}
 
-		//TODO:: make setDataOutput(File)
+		/**
+		 * Sets the scrambled data to be written straight to a file, leaving syncing up to the OS.
+		 *
+		 * @param file The file to write to.
+		 * @return This builder, for chaining setter calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setDataOutput(File file) throws IOException {
+			return this.setDataOutput(file, FileSink.SyncPolicy.NONE);
+		}
+
+		/**
+		 * Sets the scrambled data to be written straight to a file. The file is sized to the scrambled data before it is written, and closed once it has been.
+		 *
+		 * @param file The file to write to.
+		 * @param syncPolicy When the data written is forced out to the storage device.
+		 * @return This builder, for chaining setter calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setDataOutput(File file, FileSink.SyncPolicy syncPolicy) throws IOException {
+			return this.setDataOutput(new FileSink(file, syncPolicy));
+		}
 
 		/**
 		 * Sets the output stream to use for outputting the key.
 		 * @param os The output stream to use.
 		 * @return This builder, for chaining calls.
 		 */
-		public Builder setKeyOutput(OutputStream os){
+		public Builder<N, M, R> setKeyOutput(OutputStream os){
 			this.keyOutput = os;
 			return this;
 		}
 
-		//TODO:: make setKeyOutput(File)
+		/**
+		 * Sets the key to be written straight to a file, leaving syncing up to the OS.
+		 * @param file The file to write to.
+		 * @return This builder, for chaining calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setKeyOutput(File file) throws IOException {
+			return this.setKeyOutput(file, FileSink.SyncPolicy.NONE);
+		}
+
+		/**
+		 * Sets the key to be written straight to a file. The file is closed once the key has been written.
+		 * @param file The file to write to.
+		 * @param syncPolicy When the data written is forced out to the storage device.
+		 * @return This builder, for chaining calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setKeyOutput(File file, FileSink.SyncPolicy syncPolicy) throws IOException {
+			return this.setKeyOutput(new FileSink(file, syncPolicy));
+		}
+
+		/**
+		 * Sets the output stream to write a {@link DescrambleIndex descramble index} to. Optional; no index is written if not set.
+		 * @param os The output stream to use.
+		 * @return This builder, for chaining calls.
+		 */
+		public Builder<N, M, R> setIndexOutput(OutputStream os){
+			this.indexOutput = os;
+			return this;
+		}
+
+		/**
+		 * Sets a {@link DescrambleIndex descramble index} to be written straight to a file, leaving syncing up to the OS.
+		 * @param file The file to write to.
+		 * @return This builder, for chaining calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setIndexOutput(File file) throws IOException {
+			return this.setIndexOutput(file, FileSink.SyncPolicy.NONE);
+		}
+
+		/**
+		 * Sets a {@link DescrambleIndex descramble index} to be written straight to a file. The file is closed once the index has been written.
+		 * @param file The file to write to.
+		 * @param syncPolicy When the data written is forced out to the storage device.
+		 * @return This builder, for chaining calls.
+		 * @throws IOException If the file could not be opened.
+		 */
+		public Builder<N, M, R> setIndexOutput(File file, FileSink.SyncPolicy syncPolicy) throws IOException {
+			return this.setIndexOutput(new FileSink(file, syncPolicy));
+		}
+
+		/**
+		 * Sets how the key is to be written out. Defaults to {@link KeyEncoding#MOVES}, which every version can read. {@link KeyEncoding#PERMUTATION}, and {@link KeyEncoding#AUTO} when it picks a permutation, make keys older versions cannot read.
+		 *
+		 * {@link KeyEncoding#SEED} generates the moves from a seed, so the key holds only the seed and stays small no matter how long the scramble. The moves are then generated again when descrambling.
+		 *
+		 * @param keyEncoding The encoding to use for the key.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the encoding given is null.
+		 */
+		public Builder<N, M, R> setKeyEncoding(KeyEncoding keyEncoding){
+			if(keyEncoding == null){
+				throw new IllegalArgumentException("Key encoding cannot be null.");
+			}
+			this.keyEncoding = keyEncoding;
+			return this;
+		}
+
+		/**
+		 * Sets the format to write the scrambled data out in. Defaults to {@link DataFormat#BASE64}.
+		 * @param dataFormat The format to use for the scrambled data.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the format given is null.
+		 */
+		public Builder<N, M, R> setDataFormat(DataFormat dataFormat){
+			if(dataFormat == null){
+				throw new IllegalArgumentException("Data format cannot be null.");
+			}
+			this.dataFormat = dataFormat;
+			return this;
+		}
+
+		/**
+		 * Sets the format to write the key out in. Defaults to {@link KeyFormat#JSON}.
+		 * @param keyFormat The format to use for the key.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the format given is null.
+		 */
+		public Builder<N, M, R> setKeyFormat(KeyFormat keyFormat){
+			if(keyFormat == null){
+				throw new IllegalArgumentException("Key format cannot be null.");
+			}
+			this.keyFormat = keyFormat;
+			return this;
+		}
+
+		/**
+		 * Sets if the data is to be read ahead and written behind on background threads; see {@link com.ebp.owat.lib.utils.io.ReadAheadInputStream} and {@link WriteBehindOutputStream}. Defaults to false.
+		 * @param backgroundIo If the data is to be read and written in the background.
+		 * @return This builder, for chaining calls.
+		 */
+		public Builder<N, M, R> setBackgroundIo(boolean backgroundIo){
+			this.backgroundIo = backgroundIo;
+			return this;
+		}
+
+		/**
+		 * Sets how the key is to be compressed by {@link ParallelGzipOutputStream}. Defaults to {@link Deflater#DEFAULT_COMPRESSION} in blocks of {@link ParallelGzipOutputStream#DEFAULT_BLOCK_SIZE}.
+		 * @param level The compression level, 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+		 * @param blockSize The number of bytes of the key compressed in each block.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the level is not valid, or the block size is less than 1.
+		 */
+		public Builder<N, M, R> setKeyCompression(int level, int blockSize){
+			if(level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)){
+				throw new IllegalArgumentException("Invalid key compression level: " + level);
+			}
+			if(blockSize < 1){
+				throw new IllegalArgumentException("Key compression block size must be at least one byte.");
+			}
+			this.keyCompressionLevel = level;
+			this.keyCompressionBlockSize = blockSize;
+			return this;
+		}
+
+		/**
+		 * Sets the most memory the moves of the key can take up before they are spilled to a temporary file. Defaults to no limit.
+		 *
+		 * Worth it for very long scrambles, where the moves would otherwise not fit in memory alongside the matrix. The spilled moves are read back in when the key is written out, and deleted once the run is done.
+		 *
+		 * @param numBytes The limit on the memory the moves of the key can take up, in bytes.
+		 * @return This builder, for chaining calls.
+		 * @throws IllegalArgumentException If the limit given is less than 1.
+		 */
+		public Builder<N, M, R> setKeyMemoryLimit(long numBytes){
+			if(numBytes < 1){
+				throw new IllegalArgumentException("Key memory limit must be at least one byte.");
+			}
+			this.keyMemoryLimit = numBytes;
+			return this;
+		}
+
+		/**
+		 * Sets the directory the moves of the key are spilled to, once past the {@link #setKeyMemoryLimit(long) memory limit}. Defaults to the system's temporary directory.
+		 *
+		 * The spilled moves are the key, unencrypted, until the run is done; anyone who can read them can descramble the data. The file is made readable by its owner only where the file system allows, but choose a directory only trusted users can get to.
+		 *
+		 * @param directory The directory to spill moves to. Null for the system's temporary directory.
+		 * @return This builder, for chaining calls.
+		 */
+		public Builder<N, M, R> setKeySpillDirectory(File directory){
+			this.keySpillDirectory = directory;
+			return this;
+		}
 
 		/**
 		 * Sets the minimum number of scramble steps to use.
 		 * @param num The minimum number of steps to use.
 		 * @return This builder, for chaining setter calls.
 		 */
-		public Builder setMinNumScrambleSteps(long num){
+		public Builder<N, M, R> setMinNumScrambleSteps(long num){
 			this.minNumScrambleSteps = num;
 			return this;
 		}
@@ -244,7 +535,7 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		 * Builds the runner with the data given.
 		 * @return The runner setup with the data given.
 		 */
-		public ScrambleRunner build(){
+		public ScrambleRunner<N, M, R> build(){
 			ScrambleRunner<N, M, R> runner =  new ScrambleRunner<>(
 				this.rand,
 				this.dataInput,
@@ -255,6 +546,14 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 			);
 
 			runner.setMinNumScrambleSteps(this.minNumScrambleSteps);
+			runner.setIndexOutput(this.indexOutput);
+			runner.setKeyEncoding(this.keyEncoding);
+			runner.setDataFormat(this.dataFormat);
+			runner.setKeyFormat(this.keyFormat);
+			runner.setBackgroundIo(this.backgroundIo);
+			runner.setKeyCompression(this.keyCompressionLevel, this.keyCompressionBlockSize);
+			runner.setKeyMemoryLimit(this.keyMemoryLimit);
+			runner.setKeySpillDirectory(this.keySpillDirectory);
 			
 			return runner;
 		}
@@ -269,11 +568,52 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		return results.clone();
 	}
 
+	/**
+	 * Sets the type of matrix to use for the original data, if not set already.
+	 * @param runResults The results of this run to update.
+	 * @param numBytes The number of bytes of original data.
+	 */
+	private void setMatrixModeFor(ScrambleResults runResults, long numBytes){
+		if(this.matrixMode == null){
+			this.matrixMode = MatrixMode.determineModeToUse(numBytes);
+		}
+
+		runResults.setMatrixMode(this.matrixMode);
+
+		LOGGER.debug("Length of original data: {} bytes", numBytes);
+		LOGGER.debug("Using matrix type: {}", this.matrixMode.name);
+	}
+
 	@Override
 	public void doSteps() throws IOException {
 		ScrambleResults runResults = new ScrambleResults(this.nodeType);
 		this.setLastRunResults(runResults);
 
+		try{
+			this.scramble(runResults);
+		}finally{
+			//file sinks were opened for this run; close them to write out what is left and sync, even if it failed
+			try{
+				closeIfFileSink(this.dataOutput);
+			}finally{
+				try{
+					closeIfFileSink(this.keyOutput);
+				}finally{
+					closeIfFileSink(this.indexOutput);
+				}
+			}
+		}
+
+		runResults.setCurStep(Step.DONE_SCRAMBLING);
+		LOGGER.info("Done Scrambling.");
+	}
+
+	/**
+	 * Does the steps of the scramble, up to writing out the key. Leaves the outputs open.
+	 * @param runResults The results of this run to update.
+	 * @throws IOException If something went wrong in the input or output of data.
+	 */
+	private void scramble(ScrambleResults runResults) throws IOException {
 		long start, end;
 		M matrix;
 		
@@ -282,19 +622,22 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 			start = System.currentTimeMillis();
 			LOGGER.info("Loading data...");
 			
-			LongLinkedList<Byte> data = this.utils.readDataIn(this.dataInput);
-			runResults.setNumBytesIn(data.sizeL());
-
-			if(this.matrixMode == null){
-				this.matrixMode = MatrixMode.determineModeToUse(data.sizeL());
+			if(this.dataInput instanceof MappedInputStream){
+				//size is known up front; fill the matrix straight out of the mapping
+				long numBytes = ((MappedInputStream)this.dataInput).remaining();
+				runResults.setNumBytesIn(numBytes);
+				this.setMatrixModeFor(runResults, numBytes);
+				matrix = this.utils.getMatrix(this.dataInput, false, numBytes, null, this.matrixMode, this.nodeType, -1, -1);
+			}else{
+				ByteList data = this.utils.readBytesIn(
+					this.backgroundIo ? RunnerUtilities.getReadAheadStream(this.dataInput) : this.dataInput,
+					false
+				);
+				runResults.setNumBytesIn(data.sizeL());
+				this.setMatrixModeFor(runResults, data.sizeL());
+				matrix = this.utils.getMatrix(data, this.matrixMode, this.nodeType);
 			}
 
-			runResults.setMatrixMode(this.matrixMode);
-
-			LOGGER.debug("Length of original data: {} bytes", data.sizeL());
-			LOGGER.debug("Using matrix type: {}", this.matrixMode.name);
-			matrix = this.utils.getMatrix(data, this.matrixMode, this.nodeType);
-
 			LOGGER.debug("Size of matrix with just original data: {}rows x {}cols, {} values", matrix.getHeight(), matrix.getWidth(), matrix.numElements());
 
 			long origDataHeight = matrix.getNumRows();
@@ -316,7 +659,16 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 
 			this.utils.padMatrix(matrix, this.rand, this.nodeType);
 			LOGGER.debug("Size of matrix: {}rows x {}cols, {} values", matrix.getNumRows(), matrix.getNumCols(), matrix.size());
+			if(this.keyEncoding == KeyEncoding.PERMUTATION && !MovePermutation.canHold(matrix.getNumRows(), matrix.getNumCols())){
+				//caught before the scramble rather than when the key is written out
+				throw new IllegalArgumentException("Data is too large for a key in permutation form. Most values in a matrix with a permutation key: " + Integer.MAX_VALUE);
+			}
+			if(this.indexOutput != null && !DescrambleIndex.canBuild(matrix.getNumRows(), matrix.getNumCols())){
+				throw new IllegalArgumentException("Data is too large to build an index for. Most values in a matrix with an index: " + Integer.MAX_VALUE);
+			}
 			this.key = new ScrambleKey(origDataHeight, origDataWidth, matrix.getNumRows(), matrix.getNumCols(), this.nodeType.typeClass, lastRowIndex);
+			this.key.setMovesMemoryLimit(this.keyMemoryLimit);
+			this.key.setMovesSpillDirectory(this.keySpillDirectory);
 
 			end = System.currentTimeMillis();
 			runResults.setElapsedTime(Step.PAD_DATA, start, end);
@@ -334,43 +686,70 @@ public class ScrambleRunner<N extends Value, M extends ScrambleMatrix<N>, R exte
 		long numSteps = this.utils.determineNumStepsToTake(matrix, this.rand, this.minNumScrambleSteps);
 		LOGGER.debug("Number of steps in scramble: {}", numSteps);
 		runResults.setCurStepProgMax(numSteps);
-		ScrambleMoveGenerator generator = new ScrambleMoveGenerator(this.rand, matrix);
+		ScrambleMoveGenerator generator;
+		if(this.keyEncoding == KeyEncoding.SEED){
+			//the moves come from a generator that can be made again from the seed alone
+			KeySeed seed = new KeySeed(this.rand.nextLong(), numSteps);
+			this.key.useSeed(seed);
+			generator = seed.newMoveGenerator(this.key.meta);
+		}else{
+			generator = new ScrambleMoveGenerator(this.rand, matrix);
+		}
 		for(long l = 0; l < numSteps; l++){
 			ScrambleMove curMove = generator.getMove();
 			matrix.doScrambleMove(curMove);
-			this.key.addMove(curMove);
+			if(!this.key.isSeedForm()){
+				this.key.addMove(curMove);
+			}
 			runResults.setCurStepProg(l);
 		}
 
 		end = System.currentTimeMillis();
 		runResults.setElapsedTime(Step.SCRAMBLING, start, end);
 
-		runResults.setCurStep(Step.OUT_SCRAMBLED_DATA);
-		start = System.currentTimeMillis();
-		LOGGER.info("Outputting scrambled data...");
-		{
-			byte[] bytes = ENCODER.encode(this.utils.getMatrixAsBytes(matrix, this.nodeType));
-			runResults.setNumBytesOut(bytes.length);
-			LOGGER.debug("Number of bytes to output: {}", bytes.length);
-			this.dataOutput.write(bytes);
+		if(this.dataOutput instanceof FileSink){
+			((FileSink)this.dataOutput).setExpectedLength(
+				RunnerUtilities.getScrambledDataLength(matrix.size(), this.nodeType, this.dataFormat)
+			);
 		}
-		end = System.currentTimeMillis();
-		runResults.setElapsedTime(Step.OUT_SCRAMBLED_DATA, start, end);
 
-		runResults.setCurStep(Step.OUT_KEY);
-		start = System.currentTimeMillis();
-		LOGGER.info("Outputting key...");
+		//the scrambled data can finish being written out behind while the key is written
+		try(WriteBehindOutputStream writeBehind = (this.backgroundIo ? new WriteBehindOutputStream(this.dataOutput) : null)){
+			OutputStream dataOutput = (writeBehind == null ? this.dataOutput : writeBehind);
 
-		{
-			byte compressedKey[] = utils.compressBytes(OBJECT_MAPPER.writeValueAsBytes(this.key));
+			runResults.setCurStep(Step.OUT_SCRAMBLED_DATA);
+			start = System.currentTimeMillis();
+			LOGGER.info("Outputting scrambled data...");
+			{
+				LOGGER.debug("Outputting scrambled data as {}", this.dataFormat);
+				CRC32 dataChecksum = new CRC32();
+				long numBytesOut = this.utils.writeScrambledData(dataOutput, matrix, this.nodeType, this.dataFormat, dataChecksum);
+				this.key.setDataChecksum(dataChecksum.getValue());
+				runResults.setNumBytesOut(numBytesOut);
+				LOGGER.debug("Number of bytes output: {}", numBytesOut);
+			}
+			end = System.currentTimeMillis();
+			runResults.setElapsedTime(Step.OUT_SCRAMBLED_DATA, start, end);
+
+			runResults.setCurStep(Step.OUT_KEY);
+			start = System.currentTimeMillis();
+			LOGGER.info("Outputting key...");
 
-			this.keyOutput.write(compressedKey);
+			{
+				this.key.applyEncoding(this.keyEncoding, this.keyFormat);
+				LOGGER.debug("Key in permutation form: {}, format: {}", this.key.isPermutationForm(), this.keyFormat);
+				KeyWriter.write(this.key, this.keyFormat, this.keyOutput, this.keyCompressionLevel, this.keyCompressionBlockSize);
+			}
+			if(this.indexOutput != null){
+				LOGGER.info("Outputting descramble index...");
+				DescrambleIndex.build(this.key).write(this.indexOutput);
+			}
+		}finally{
+			//deletes any moves spilled to disk
+			this.key.close();
 		}
 
 		end = System.currentTimeMillis();
 		runResults.setElapsedTime(Step.OUT_KEY, start, end);
-
-		runResults.setCurStep(Step.DONE_SCRAMBLING);
-		LOGGER.info("Done Scrambling.");
 	}
 }
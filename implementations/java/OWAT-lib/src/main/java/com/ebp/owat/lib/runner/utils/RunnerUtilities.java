@@ -6,25 +6,39 @@ import com.ebp.owat.lib.datastructure.matrix.hash.HashedScramblingMatrix;
 import com.ebp.owat.lib.datastructure.matrix.iterator.MatrixIterator;
 import com.ebp.owat.lib.datastructure.matrix.linked.LinkedScramblingMatrix;
 import com.ebp.owat.lib.datastructure.matrix.utils.coordinate.MatrixCoordinate;
+import com.ebp.owat.lib.datastructure.set.ByteList;
 import com.ebp.owat.lib.datastructure.set.LongLinkedList;
 import com.ebp.owat.lib.datastructure.value.BitValue;
 import com.ebp.owat.lib.datastructure.value.ByteValue;
 import com.ebp.owat.lib.datastructure.value.NodeMode;
 import com.ebp.owat.lib.datastructure.value.Value;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.io.MappedInputStream;
+import com.ebp.owat.lib.utils.io.NonClosingOutputStream;
+import com.ebp.owat.lib.utils.io.ParallelGzipOutputStream;
+import com.ebp.owat.lib.utils.io.ReadAheadInputStream;
+import com.ebp.owat.lib.utils.io.ScrambledDataHeader;
 import com.ebp.owat.lib.utils.rand.OwatRandGenerator;
 import com.ebp.owat.lib.utils.scramble.MoveValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import static com.ebp.owat.lib.datastructure.value.NodeMode.BIT;
 import static com.ebp.owat.lib.datastructure.value.NodeMode.BYTE;
@@ -38,9 +52,12 @@ import static com.ebp.owat.lib.datastructure.value.NodeMode.BYTE;
  * @param <M> The matrix with the type N
  * @param <R> The type of random generator
  */
-public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> {
+public class RunnerUtilities<N extends Value<?>, M extends ScrambleMatrix<N>, R extends OwatRandGenerator> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RunnerUtilities.class);
 	private static final java.util.Base64.Decoder DECODER = Base64.getDecoder();
+	private static final java.util.Base64.Encoder ENCODER = Base64.getEncoder();
+	/** The number of bytes to gather up before writing them out. */
+	private static final int WRITE_BLOCK_SIZE = 64 * 1024;
 
 	/**
 	 * Gets a byte array from a string.
@@ -59,43 +76,184 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 	}
 
 	/**
-	 * Reads the data in from they input stream. Closes stream when done.
+	 * Reads the data in from the input stream, in blocks. Closes stream when done.
 	 *
 	 * @param dataInput The stream to get the data from.
 	 * @param decode If we need to decode from Base64
-	 * @return A list of the data read in.
+	 * @return The data read in.
 	 * @throws IOException If something goes wrong with the read.
 	 */
-	public LongLinkedList<Byte> readDataIn(InputStream dataInput, boolean decode) throws IOException {
-		LongLinkedList<Byte> output = new LongLinkedList<>();
-		try {
-			int readResult = dataInput.read();
-			while (readResult != -1) {
-				byte curByte = (byte) readResult;
-				output.addLast(curByte);
-				readResult = dataInput.read();
+	public ByteList readBytesIn(InputStream dataInput, boolean decode) throws IOException {
+		return readBytesIn(dataInput, decode, -1);
+	}
+
+	/**
+	 * Reads the data in from the input stream, in blocks. Closes stream when done.
+	 *
+	 * @param dataInput The stream to get the data from.
+	 * @param decode If we need to decode from Base64
+	 * @param expectedSize The number of bytes expected once read in and decoded, to size the buffer up front. -1 if not known.
+	 * @return The data read in.
+	 * @throws IOException If something goes wrong with the read.
+	 */
+	public ByteList readBytesIn(InputStream dataInput, boolean decode, long expectedSize) throws IOException {
+		ByteList output;
+		if (expectedSize >= 0) {
+			output = new ByteList(expectedSize);
+		} else if (dataInput instanceof MappedInputStream) {
+			//size is known up front; read straight out of the mapping in one pass
+			long size = ((MappedInputStream) dataInput).remaining();
+			if (decode) {
+				size = (size / 4) * 3;
 			}
+			output = new ByteList(size);
+		} else {
+			output = new ByteList();
+		}
+		try {
+			//decode as the data comes in, so the encoded data is never held all at once
+			output.readFrom(decode ? DECODER.wrap(dataInput) : dataInput);
 		} finally {
 			if (dataInput != null) {
 				dataInput.close();
 			}
 		}
-		if (decode) {
-			byte data[] = new byte[output.size()];
+		return output;
+	}
 
-			int count = 0;
-			for (byte curByte : output) {
-				data[count] = curByte;
-				count++;
-			}
+	/**
+	 * Gets a stream that Base64 encodes the data written to it on the way to the stream given.
+	 *
+	 * Closing the stream returned writes out the end of the encoding, but leaves the stream given open and unflushed.
+	 *
+	 * @param dataOutput The stream to write the encoded data to.
+	 * @return The stream to write data to be encoded into.
+	 */
+	public OutputStream getEncodingStream(OutputStream dataOutput) {
+		//leave the stream given as it is; flushing would wait on any writing behind
+		return ENCODER.wrap(new NonClosingOutputStream(dataOutput));
+	}
 
-			data = DECODER.decode(data);
+	/**
+	 * Gets a stream that supports {@link InputStream#mark(int) marking} over the stream given, so the format of the data in it can be {@link ScrambledDataHeader#detectFormat(InputStream) detected}.
+	 * @param dataInput The stream to read from.
+	 * @return The stream given if it already supports marking, otherwise a buffered stream over it.
+	 */
+	public static InputStream getMarkableStream(InputStream dataInput) {
+		if (dataInput.markSupported()) {
+			return dataInput;
+		}
+		return new BufferedInputStream(dataInput);
+	}
 
-			output = new LongLinkedList<>();
+	/**
+	 * Gets a stream that reads ahead of the stream given on a background thread.
+	 * @param dataInput The stream to read from.
+	 * @return A stream reading ahead of the stream given, or the stream given if it is memory mapped; the OS already reads ahead of mapped files.
+	 */
+	public static InputStream getReadAheadStream(InputStream dataInput) {
+		if (dataInput instanceof MappedInputStream) {
+			return dataInput;
+		}
+		return new ReadAheadInputStream(dataInput);
+	}
 
-			for (byte curByte : data) {
-				output.addLast(curByte);
-			}
+	/**
+	 * Writes out a scrambled matrix in the format given, straight from the matrix.
+	 * @param dataOutput The stream to write to. Not closed.
+	 * @param matrix The scrambled matrix.
+	 * @param nodeType The type of node the matrix is made of.
+	 * @param format The format to write the data in.
+	 * @return The number of bytes written.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public long writeScrambledData(OutputStream dataOutput, M matrix, NodeMode nodeType, DataFormat format) throws IOException {
+		return this.writeScrambledData(dataOutput, matrix, nodeType, format, null);
+	}
+
+	/**
+	 * Writes out a scrambled matrix in the format given, straight from the matrix, checksumming the bytes of the matrix on the way.
+	 * @param dataOutput The stream to write to. Not closed.
+	 * @param matrix The scrambled matrix.
+	 * @param nodeType The type of node the matrix is made of.
+	 * @param format The format to write the data in.
+	 * @param checksum The checksum to update with the bytes of the matrix, before any encoding. Null to not checksum them.
+	 * @return The number of bytes written.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public long writeScrambledData(OutputStream dataOutput, M matrix, NodeMode nodeType, DataFormat format, Checksum checksum) throws IOException {
+		switch (format) {
+			case BASE64:
+				long numBytes;
+				try (OutputStream os = this.getEncodingStream(dataOutput)) {
+					numBytes = this.writeMatrix(matrix, nodeType, checksum == null ? os : new CheckedOutputStream(os, checksum));
+				}
+				return getEncodedLength(numBytes);
+			case BINARY:
+				new ScrambledDataHeader(nodeType, matrix.getNumRows(), matrix.getNumCols()).write(dataOutput);
+				return ScrambledDataHeader.HEADER_SIZE + this.writeMatrix(matrix, nodeType, checksum == null ? dataOutput : new CheckedOutputStream(dataOutput, checksum));
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * Gets the CRC32 of the bytes given, as {@link com.ebp.owat.lib.utils.key.KeyMetaData#dataChecksum held in the key} for scrambled data.
+	 * @param data The bytes to checksum.
+	 * @return The CRC32 of the bytes.
+	 */
+	public static long getChecksum(ByteList data) {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[(int) Math.min(WRITE_BLOCK_SIZE, data.sizeL())];
+		for (long i = 0; i < data.sizeL(); i += buffer.length) {
+			int length = (int) Math.min(buffer.length, data.sizeL() - i);
+			data.get(i, buffer, 0, length);
+			crc.update(buffer, 0, length);
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Gets the number of bytes a scrambled matrix will take up once written out in the format given.
+	 * @param numElements The number of elements in the matrix.
+	 * @param nodeType The type of node the matrix is made of.
+	 * @param format The format the data is to be written in.
+	 * @return The number of bytes the scrambled data will take up.
+	 */
+	public static long getScrambledDataLength(long numElements, NodeMode nodeType, DataFormat format) {
+		long numBytes = (nodeType == BIT ? (numElements + 7) / 8 : numElements);
+		switch (format) {
+			case BASE64:
+				return getEncodedLength(numBytes);
+			case BINARY:
+				return ScrambledDataHeader.HEADER_SIZE + numBytes;
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * Gets the number of bytes the data will take up once Base64 encoded.
+	 * @param numBytes The number of bytes before encoding.
+	 * @return The number of bytes after encoding.
+	 */
+	public static long getEncodedLength(long numBytes) {
+		return ((numBytes + 2) / 3) * 4;
+	}
+
+	/**
+	 * Reads the data in from they input stream. Closes stream when done.
+	 *
+	 * @param dataInput The stream to get the data from.
+	 * @param decode If we need to decode from Base64
+	 * @return A list of the data read in.
+	 * @throws IOException If something goes wrong with the read.
+	 */
+	public LongLinkedList<Byte> readDataIn(InputStream dataInput, boolean decode) throws IOException {
+		ByteList bytes = this.readBytesIn(dataInput, decode);
+		LongLinkedList<Byte> output = new LongLinkedList<>();
+		for (long l = 0; l < bytes.sizeL(); l++) {
+			output.addLast(bytes.get(l));
 		}
 		return output;
 	}
@@ -110,22 +268,120 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 		return readDataIn(dataInput, false);
 	}
 
+	/**
+	 * Skips the number of bytes given in the stream, making sure they are actually skipped.
+	 * @param dataInput The stream to skip bytes in.
+	 * @param numToSkip The number of bytes to skip.
+	 * @throws IOException If something goes wrong with the read, or the end of the stream was hit.
+	 */
+	private static void skipFully(InputStream dataInput, long numToSkip) throws IOException {
+		while (numToSkip > 0) {
+			long skipped = dataInput.skip(numToSkip);
+			if (skipped <= 0) {
+				if (dataInput.read() == -1) {
+					throw new EOFException("Hit the end of the data before getting to the bytes requested.");
+				}
+				skipped = 1;
+			}
+			numToSkip -= skipped;
+		}
+	}
+
+	/**
+	 * Reads exactly the number of bytes needed to fill the buffer given.
+	 * @param dataInput The stream to read from.
+	 * @param buffer The buffer to fill.
+	 * @return The number of bytes read. Only less than the buffer size if the end of the stream was hit.
+	 * @throws IOException If something goes wrong with the read.
+	 */
+	private static int readFully(InputStream dataInput, byte[] buffer) throws IOException {
+		int numRead = 0;
+		while (numRead < buffer.length) {
+			int curRead = dataInput.read(buffer, numRead, buffer.length - numRead);
+			if (curRead == -1) {
+				break;
+			}
+			numRead += curRead;
+		}
+		return numRead;
+	}
+
+	/**
+	 * Reads only the bytes at the offsets given from the stream, skipping over the rest. Closes stream when done.
+	 *
+	 * Offsets are of the data after decoding, if decoding from Base64.
+	 *
+	 * @param dataInput The stream to get the data from.
+	 * @param offsets The offsets of the bytes to read. Must be sorted in ascending order, without duplicates.
+	 * @param decode If we need to decode from Base64
+	 * @return The bytes read, in the same order as the offsets given.
+	 * @throws IOException If something goes wrong with the read, or an offset was past the end of the data.
+	 */
+	public byte[] readBytesAt(InputStream dataInput, long[] offsets, boolean decode) throws IOException {
+		byte[] output = new byte[offsets.length];
+		try {
+			long curPos = 0;
+			long curGroup = -1;
+			byte[] decodedGroup = null;
+			byte[] encodedGroup = new byte[4];
+			for (int i = 0; i < offsets.length; i++) {
+				long offset = offsets[i];
+				if (i > 0 && offset <= offsets[i - 1]) {
+					throw new IllegalArgumentException("Offsets given were not in ascending order, or had duplicates.");
+				}
+				if (!decode) {
+					skipFully(dataInput, offset - curPos);
+					int readResult = dataInput.read();
+					if (readResult == -1) {
+						throw new EOFException("Hit the end of the data before getting to the bytes requested.");
+					}
+					output[i] = (byte) readResult;
+					curPos = offset + 1;
+					continue;
+				}
+				//every 3 bytes of data are encoded in a group of 4 chars
+				long group = offset / 3;
+				if (group != curGroup) {
+					skipFully(dataInput, (group * 4) - curPos);
+					int numRead = readFully(dataInput, encodedGroup);
+					if (numRead != encodedGroup.length) {
+						throw new EOFException("Hit the end of the data before getting to the bytes requested.");
+					}
+					decodedGroup = DECODER.decode(encodedGroup);
+					curPos = (group + 1) * 4;
+					curGroup = group;
+				}
+				int groupIndex = (int) (offset % 3);
+				if (groupIndex >= decodedGroup.length) {
+					throw new EOFException("Hit the end of the data before getting to the bytes requested.");
+				}
+				output[i] = decodedGroup[groupIndex];
+			}
+		} finally {
+			if (dataInput != null) {
+				dataInput.close();
+			}
+		}
+		return output;
+	}
+
 	/**
 	 * Fills the matrix given with the data given.
 	 *
 	 * @param emptyMatrix The empty matrix to insert values into.
-	 * @param values The values to enter into the matrix
+	 * @param values The values to enter into the matrix. Taken a row at a time.
+	 * @param numValues The number of values given.
 	 * @param height The hight of the resulting matrix. (optional, to be used with height)
 	 * @param width The width of the resulting matrix. (optional, to be used with width)
 	 * @throws IllegalStateException if the matrix given is not empty.
 	 */
-	private void fillMatrixWithData(M emptyMatrix, LongLinkedList values, long height, long width) {
+	private void fillMatrixWithData(M emptyMatrix, Iterator<? extends Value<?>> values, long numValues, long height, long width) {
+		@SuppressWarnings("unchecked")
+		Iterator<N> nodeValues = (Iterator<N>) values;
 		if (height < 1 || width < 1) {
-			//noinspection unchecked
-			emptyMatrix.grow(values);
+			emptyMatrix.grow(numValues, nodeValues);
 		} else {
-			//noinspection unchecked
-			emptyMatrix.grow(height, width, values);
+			emptyMatrix.grow(height, width, nodeValues);
 		}
 	}
 
@@ -171,22 +427,35 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 	 *
 	 * @param matrixMode The type of matrix to use.
 	 * @param data The data to fill the matrix with.
+	 * @param numBytes The number of bytes of data given.
 	 * @param height The height to make the matrix. (-1 for auto)
 	 * @param width The width to make the matrix. (-1 for auto)
 	 * @return The bit matrix with the data given.
 	 */
-	private M getBitMatrix(MatrixMode matrixMode, LongLinkedList<Byte> data, long height, long width) {
+	private M getBitMatrix(MatrixMode matrixMode, ByteSource data, long numBytes, long height, long width) {
 
 		M matrix = this.getNewMatrix(matrixMode, BIT);
 
-		Iterator<Byte> it = data.destructiveIterator();
-		LongLinkedList<BitValue> bitValues = new LongLinkedList<>();
+		//expand the bits as the matrix takes them, rather than holding them all at once
+		Iterator<BitValue> bitValues = new Iterator<BitValue>() {
+			private List<BitValue> curBits = null;
+			private int curBit = 8;
 
-		while (it.hasNext()) {
-			byte curByte = it.next();
-			bitValues.addAll(BitValue.fromByte(curByte, true));
-		}
-		this.fillMatrixWithData(matrix, bitValues, height, width);
+			@Override
+			public boolean hasNext() {
+				return this.curBit < 8 || data.hasNext();
+			}
+
+			@Override
+			public BitValue next() {
+				if (this.curBit == 8) {
+					this.curBits = BitValue.bitsOf(data.next(), true);
+					this.curBit = 0;
+				}
+				return this.curBits.get(this.curBit++);
+			}
+		};
+		this.fillMatrixWithData(matrix, bitValues, numBytes * 8, height, width);
 
 		return matrix;
 	}
@@ -195,22 +464,27 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 	 * Gets a byte matrix comprising the data given.
 	 * @param matrixMode The type of matrix to use.
 	 * @param data The data to put into the matrix.
+	 * @param numBytes The number of bytes of data given.
 	 * @param height The height of the matrix (-1 for auto)
 	 * @param width The width of the matrix (-1 for auto)
 	 * @return The matrix with the data given.
 	 */
-	private M getByteMatrix(MatrixMode matrixMode, LongLinkedList<Byte> data, long height, long width) {
+	private M getByteMatrix(MatrixMode matrixMode, ByteSource data, long numBytes, long height, long width) {
 		M matrix = this.getNewMatrix(matrixMode, BYTE);
 
-		Iterator<Byte> it = data.destructiveIterator();
-		LongLinkedList<ByteValue> byteValues = new LongLinkedList<>();
+		Iterator<ByteValue> byteValues = new Iterator<ByteValue>() {
+			@Override
+			public boolean hasNext() {
+				return data.hasNext();
+			}
 
-		while (it.hasNext()) {
-			byte curByte = it.next();
-			byteValues.addLast(new ByteValue(curByte, true));
-		}
+			@Override
+			public ByteValue next() {
+				return new ByteValue(data.next(), true);
+			}
+		};
 
-		this.fillMatrixWithData(matrix, byteValues, height, width);
+		this.fillMatrixWithData(matrix, byteValues, numBytes, height, width);
 
 		return matrix;
 	}
@@ -224,19 +498,250 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 	 * @param width    The width of the matrix to make. -1 for Automatic.
 	 * @return A matrix built with the data given.
 	 */
-	public M getMatrix(LongLinkedList<Byte> data, MatrixMode matrixMode, NodeMode nodeType, long height, long width) {
+	public M getMatrix(ByteList data, MatrixMode matrixMode, NodeMode nodeType, long height, long width) {
+		return this.getMatrix(new ListByteSource(data), data.sizeL(), matrixMode, nodeType, height, width);
+	}
+
+	/**
+	 * Gets a matrix built with the bytes from the source given.
+	 *
+	 * @param data     The source of the data.
+	 * @param numBytes The number of bytes the source holds.
+	 * @param nodeType The type of node to use.
+	 * @param height   The height of the matrix to make. -1 for Automatic.
+	 * @param width    The width of the matrix to make. -1 for Automatic.
+	 * @return A matrix built with the data given.
+	 */
+	private M getMatrix(ByteSource data, long numBytes, MatrixMode matrixMode, NodeMode nodeType, long height, long width) {
 		switch (nodeType) {
 			case BIT:
 				LOGGER.debug("Matrix set to Bit nodes.");
-				return this.getBitMatrix(matrixMode, data, height, width);
+				return this.getBitMatrix(matrixMode, data, numBytes, height, width);
 			case BYTE:
 				LOGGER.debug("Matrix set to Bit nodes.");
-				return this.getByteMatrix(matrixMode, data, height, width);
+				return this.getByteMatrix(matrixMode, data, numBytes, height, width);
 			default:
 				throw new IllegalStateException();
 		}
 	}
 
+	/**
+	 * Gets a matrix built with the data read straight from the stream given, so the data is never held anywhere but the matrix. Closes stream when done.
+	 *
+	 * @param dataInput  The stream to get the data from.
+	 * @param decode     If we need to decode from Base64
+	 * @param numBytes   The number of bytes the stream holds, after decoding.
+	 * @param checksum   The checksum to update with the bytes read, after decoding. Null to not checksum them.
+	 * @param matrixMode The type of matrix this should be.
+	 * @param nodeType   The type of node to use.
+	 * @param height     The height of the matrix to make. -1 for Automatic.
+	 * @param width      The width of the matrix to make. -1 for Automatic.
+	 * @return A matrix built with the data read.
+	 * @throws IOException If something goes wrong with the read.
+	 * @throws IllegalArgumentException If the stream does not hold the number of bytes given.
+	 */
+	public M getMatrix(InputStream dataInput, boolean decode, long numBytes, Checksum checksum, MatrixMode matrixMode, NodeMode nodeType, long height, long width) throws IOException {
+		try {
+			InputStream input = decode ? DECODER.wrap(dataInput) : dataInput;
+			M matrix;
+			try {
+				matrix = this.getMatrix(new StreamByteSource(input, numBytes, checksum), numBytes, matrixMode, nodeType, height, width);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			checkAtEnd(input, numBytes);
+			return matrix;
+		} finally {
+			dataInput.close();
+		}
+	}
+
+	/**
+	 * Reads exactly the number of bytes given from the stream, straight into an array of that size. Closes stream when done.
+	 *
+	 * @param dataInput The stream to get the data from.
+	 * @param decode    If we need to decode from Base64
+	 * @param numBytes  The number of bytes the stream holds, after decoding.
+	 * @param checksum  The checksum to update with the bytes read, after decoding. Null to not checksum them.
+	 * @return The bytes read.
+	 * @throws IOException If something goes wrong with the read.
+	 * @throws IllegalArgumentException If the stream does not hold the number of bytes given.
+	 */
+	public byte[] readBytesIn(InputStream dataInput, boolean decode, int numBytes, Checksum checksum) throws IOException {
+		try {
+			InputStream input = decode ? DECODER.wrap(dataInput) : dataInput;
+			byte[] output = new byte[numBytes];
+			if (readFully(input, output) != numBytes) {
+				throw new IllegalArgumentException("The data given holds fewer than the " + numBytes + " bytes expected.");
+			}
+			checkAtEnd(input, numBytes);
+			if (checksum != null) {
+				checksum.update(output, 0, output.length);
+			}
+			return output;
+		} finally {
+			dataInput.close();
+		}
+	}
+
+	/**
+	 * Makes sure there is nothing left in the stream given.
+	 * @param dataInput The stream read from.
+	 * @param numBytes The number of bytes expected to have been in the stream.
+	 * @throws IOException If something goes wrong with the read.
+	 * @throws IllegalArgumentException If there was more left in the stream.
+	 */
+	private static void checkAtEnd(InputStream dataInput, long numBytes) throws IOException {
+		if (dataInput.read() != -1) {
+			throw new IllegalArgumentException("The data given holds more than the " + numBytes + " bytes expected.");
+		}
+	}
+
+	/**
+	 * A source of the bytes to fill a matrix with, taken in order.
+	 */
+	private interface ByteSource {
+		/**
+		 * @return If there are more bytes to take.
+		 */
+		boolean hasNext();
+
+		/**
+		 * @return The next byte.
+		 * @throws NoSuchElementException If there are no more bytes.
+		 */
+		byte next();
+	}
+
+	/**
+	 * Source of the bytes held in a list.
+	 */
+	private static class ListByteSource implements ByteSource {
+		/** The list of bytes. */
+		private final ByteList data;
+		/** The index of the next byte. */
+		private long curByte = 0;
+
+		/**
+		 * @param data The list of bytes to take from.
+		 */
+		private ListByteSource(ByteList data) {
+			this.data = data;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.curByte < this.data.sizeL();
+		}
+
+		@Override
+		public byte next() {
+			if (this.curByte >= this.data.sizeL()) {
+				throw new NoSuchElementException();
+			}
+			return this.data.get(this.curByte++);
+		}
+	}
+
+	/**
+	 * Source of the bytes read from a stream, read a block at a time as they are taken.
+	 *
+	 * Errors reading are thrown as {@link UncheckedIOException}s, to get through the matrix.
+	 */
+	private static class StreamByteSource implements ByteSource {
+		/** The stream to read from. */
+		private final InputStream dataInput;
+		/** The checksum to update with each block read. Null if not checksumming. */
+		private final Checksum checksum;
+		/** The number of bytes expected. */
+		private final long numBytes;
+		/** The block of bytes read. */
+		private final byte[] buffer;
+		/** The number of bytes left to read from the stream. */
+		private long numLeft;
+		/** The number of bytes in the current block. */
+		private int bufferLength = 0;
+		/** The index of the next byte in the current block. */
+		private int bufferPos = 0;
+
+		/**
+		 * @param dataInput The stream to read from.
+		 * @param numBytes The number of bytes to read.
+		 * @param checksum The checksum to update with the bytes read. Null to not checksum them.
+		 */
+		private StreamByteSource(InputStream dataInput, long numBytes, Checksum checksum) {
+			this.dataInput = dataInput;
+			this.checksum = checksum;
+			this.numBytes = numBytes;
+			this.numLeft = numBytes;
+			this.buffer = new byte[(int) Math.max(1, Math.min(WRITE_BLOCK_SIZE, numBytes))];
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.bufferPos < this.bufferLength || this.numLeft > 0;
+		}
+
+		@Override
+		public byte next() {
+			if (this.bufferPos >= this.bufferLength) {
+				if (this.numLeft <= 0) {
+					throw new NoSuchElementException();
+				}
+				int toRead = (int) Math.min(this.buffer.length, this.numLeft);
+				int numRead = 0;
+				try {
+					while (numRead < toRead) {
+						int curRead = this.dataInput.read(this.buffer, numRead, toRead - numRead);
+						if (curRead == -1) {
+							throw new IllegalArgumentException("The data given holds fewer than the " + this.numBytes + " bytes expected.");
+						}
+						numRead += curRead;
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				if (this.checksum != null) {
+					this.checksum.update(this.buffer, 0, numRead);
+				}
+				this.numLeft -= numRead;
+				this.bufferLength = numRead;
+				this.bufferPos = 0;
+			}
+			return this.buffer[this.bufferPos++];
+		}
+	}
+
+	/**
+	 * Gets a matrix built with the data given, automatically setting height/width.
+	 *
+	 * @param data     The data read in.
+	 * @param matrixMode The type of matrix this should be.
+	 * @param nodeType The type of node to use.
+	 * @return A matrix built with the data given.
+	 */
+	public M getMatrix(ByteList data, MatrixMode matrixMode, NodeMode nodeType) {
+		return getMatrix(data, matrixMode, nodeType, -1, -1);
+	}
+
+	/**
+	 * Gets a matrix built with the data given.
+	 *
+	 * @param data     The data read in.
+	 * @param nodeType The type of node to use.
+	 * @param height   The height of the matrix to make. -1 for Automatic.
+	 * @param width    The width of the matrix to make. -1 for Automatic.
+	 * @return A matrix built with the data given.
+	 */
+	public M getMatrix(LongLinkedList<Byte> data, MatrixMode matrixMode, NodeMode nodeType, long height, long width) {
+		ByteList bytes = new ByteList(data.sizeL());
+		Iterator<Byte> it = data.destructiveIterator();
+		while (it.hasNext()) {
+			bytes.add(it.next());
+		}
+		return getMatrix(bytes, matrixMode, nodeType, height, width);
+	}
+
 	/**
 	 * Gets a matrix built with the data given, automatically setting height/width.
 	 *
@@ -262,7 +767,7 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 		if (nodeType == BIT) {
 			for (long i = 0; i < numValues; i++) {
 				//noinspection unchecked
-				output.add((N) new BitValue(rand.nextBool(), false));
+				output.add((N) BitValue.of(rand.nextBool(), false));
 			}
 		} else if (nodeType == BYTE) {
 			for (long i = 0; i < numValues; i++) {
@@ -327,7 +832,7 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 				switch (nodeType) {
 					case BIT:
 						//noinspection unchecked
-						matrix.setValue(curPos, (N) new BitValue(rand.nextBool(), false));
+						matrix.setValue(curPos, (N) BitValue.of(rand.nextBool(), false));
 						break;
 					case BYTE:
 						//noinspection unchecked
@@ -403,8 +908,19 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 	 * @return The number of steps to take to scramble the matrix.
 	 */
 	public long determineNumStepsToTake(M matrix, OwatRandGenerator rand, long minNumScrambleSteps) {
-		long min = minNumScrambleSteps + getNormallizedNumber(matrix.size()) + matrix.size();
-		long max = rand.nextLong(min + 1, min + (long) Math.ceil(Math.sqrt(matrix.size())) + rand.nextLong(1000));
+		return determineNumStepsToTake(matrix.size(), rand, minNumScrambleSteps);
+	}
+
+	/**
+	 * Determines the number of steps to take to scramble a matrix of the size given.
+	 * @param matrixSize The number of values in the matrix being scrambled.
+	 * @param rand The random number generator to use.
+	 * @param minNumScrambleSteps The bare minimum number of steps to use.
+	 * @return The number of steps to take to scramble the matrix.
+	 */
+	public long determineNumStepsToTake(long matrixSize, OwatRandGenerator rand, long minNumScrambleSteps) {
+		long min = minNumScrambleSteps + getNormallizedNumber(matrixSize) + matrixSize;
+		long max = rand.nextLong(min + 1, min + (long) Math.ceil(Math.sqrt(matrixSize)) + rand.nextLong(1000));
 		return rand.nextLong(min, max);
 	}
 
@@ -415,78 +931,130 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 	 * @return The appropriate minimum number of steps to take.
 	 */
 	public long determineMinStepsToTake(M matrix, OwatRandGenerator rand) {
+		return determineMinStepsToTake(matrix.size(), rand);
+	}
+
+	/**
+	 * Determines the appropriate minimum number of steps to take for a matrix of the size given.
+	 * @param matrixSize The number of values in the matrix being scrambled.
+	 * @param rand The random number generator being used.
+	 * @return The appropriate minimum number of steps to take.
+	 */
+	public long determineMinStepsToTake(long matrixSize, OwatRandGenerator rand) {
 		return determineNumStepsToTake(
-			matrix,
+			matrixSize,
 			rand,
-			getNormallizedNumber(matrix.size())
+			getNormallizedNumber(matrixSize)
 		);
 	}
 
 	/**
-	 * Gets the matrix given as an array of bytes.
+	 * Writes out the values of the original data, looking each up in the bytes of the scrambled matrix by its position there, packing them into bytes a block at a time as it goes.
+	 * @param scrambledData The bytes of the scrambled matrix.
+	 * @param scrambledPositions For each value of the original data, its position in the scrambled matrix.
+	 * @param nodeType The type of node the bytes hold.
+	 * @param dataOutput The stream to write to. Not closed.
+	 * @return The number of bytes written.
+	 * @throws IOException If something went wrong writing.
+	 * @throws IndexOutOfBoundsException If a position is not in the scrambled data.
+	 */
+	public long writePermutedValues(ByteList scrambledData, long[] scrambledPositions, NodeMode nodeType, OutputStream dataOutput) throws IOException {
+		int valsPerByte = (nodeType == BIT ? 8 : 1);
+		long numBytes = scrambledPositions.length / valsPerByte;
+		byte[] buffer = new byte[(int) Math.min(WRITE_BLOCK_SIZE, numBytes)];
+		long numWritten = 0;
+		while (numWritten < numBytes) {
+			int numToWrite = (int) Math.min(buffer.length, numBytes - numWritten);
+			for (int i = 0; i < numToWrite; i++) {
+				int firstVal = (int) ((numWritten + i) * valsPerByte);
+				if (valsPerByte == 1) {
+					buffer[i] = scrambledData.get(scrambledPositions[firstVal]);
+					continue;
+				}
+				int curByte = 0;
+				for (int j = 0; j < valsPerByte; j++) {
+					long position = scrambledPositions[firstVal + j];
+					if (((scrambledData.get(position / 8) >> (position % 8)) & 1) == 1) {
+						curByte |= 1 << j;
+					}
+				}
+				buffer[i] = (byte) curByte;
+			}
+			dataOutput.write(buffer, 0, numToWrite);
+			numWritten += numToWrite;
+		}
+		return numWritten;
+	}
+
+	/**
+	 * Writes the values of the matrix given out to the stream given, row by row, packing them into bytes a block at a time as it goes.
 	 * @param matrix The matrix
 	 * @param nodeType The node type used
 	 * @param length The number of elements in the matrix to go through.
-	 * @return The matrix given as an array of bytes.
+	 * @param dataOutput The stream to write to. Not closed.
+	 * @return The number of bytes written.
+	 * @throws IOException If something went wrong writing.
 	 */
-	public byte[] getMatrixAsBytes(M matrix, NodeMode nodeType, long length) {
-		byte[] bytes;
-		if (nodeType == BIT) {
-			//noinspection unchecked
-			MatrixIterator<BitValue> bitIt = (MatrixIterator<BitValue>) matrix.iterator();
-
-			LongLinkedList<BitValue> tempBits;
-			LongLinkedList<Byte> tempBytes = new LongLinkedList<>();
-
-			for(long l = 0; l < length; l += 8) {
-				tempBits = new LongLinkedList<>();
-				for (short i = 0; i < 8; i++) {
-					if (!bitIt.hasNext()) {
-						throw new IllegalStateException("Matrix was not set up properly; invalid number of bits in matrix.");
-					}
-
-					BitValue val = bitIt.next();
-
-					if (val == null) {
-						throw new IllegalStateException("Cannot handle null values in matrix.");
-					}
+	public long writeMatrix(M matrix, NodeMode nodeType, long length, OutputStream dataOutput) throws IOException {
+		if (nodeType != BIT && nodeType != BYTE) {
+			throw new IllegalStateException();
+		}
+		byte[] buffer = new byte[WRITE_BLOCK_SIZE];
+		int bufferPos = 0;
+		long numWritten = 0;
+		MatrixIterator<N> it = matrix.iterator();
 
-					tempBits.addLast(val);
+		if (nodeType == BIT) {
+			//pack a word of bits at a time
+			for (long numBytesLeft = (length + 7) / 8; numBytesLeft > 0; ) {
+				int numBytes = (int) Math.min(Long.BYTES, numBytesLeft);
+				long word;
+				try {
+					word = BitValue.toBits(it, numBytes * 8);
+				} catch (IllegalStateException e) {
+					throw new IllegalStateException("Matrix was not set up properly; invalid number of bits in matrix.", e);
+				}
+				for (int i = 0; i < numBytes; i++) {
+					buffer[bufferPos++] = (byte) (word >>> (i * 8));
+				}
+				numBytesLeft -= numBytes;
 
+				if (buffer.length - bufferPos < Long.BYTES) {
+					dataOutput.write(buffer, 0, bufferPos);
+					numWritten += bufferPos;
+					bufferPos = 0;
 				}
-				tempBytes.addLast(BitValue.toByte(tempBits));
 			}
+		} else {
+			for (long l = 0; l < length; l++) {
+				buffer[bufferPos++] = ((ByteValue) it.next()).getValue();
 
-			bytes = new byte[tempBytes.size()];
-			Iterator<Byte> it = tempBytes.destructiveIterator();
-			for (int i = 0; i < bytes.length; i++) {
-				bytes[i] = it.next();
-			}
-		} else if (nodeType == NodeMode.BYTE) {
-			bytes = new byte[(int)length];
-			//noinspection unchecked
-			Iterator<ByteValue> it = (Iterator<ByteValue>) matrix.iterator();
-			for (int i = 0; i < length; i++) {
-				bytes[i] = it.next().getValue();
+				if (bufferPos == buffer.length) {
+					dataOutput.write(buffer, 0, bufferPos);
+					numWritten += bufferPos;
+					bufferPos = 0;
+				}
 			}
-		} else {
-			throw new IllegalStateException();
 		}
-		return bytes;
+		dataOutput.write(buffer, 0, bufferPos);
+		numWritten += bufferPos;
+		return numWritten;
 	}
 
 	/**
-	 * Gets the matrix given as an array of bytes.
+	 * Writes all the values of the matrix given out to the stream given.
 	 * @param matrix The matrix
 	 * @param nodeType The type of node used.
-	 * @return The matrix given as an array of bytes.
+	 * @param dataOutput The stream to write to. Not closed.
+	 * @return The number of bytes written.
+	 * @throws IOException If something went wrong writing.
 	 */
-	public byte[] getMatrixAsBytes(M matrix, NodeMode nodeType) {
-		return getMatrixAsBytes(matrix, nodeType, matrix.size());
+	public long writeMatrix(M matrix, NodeMode nodeType, OutputStream dataOutput) throws IOException {
+		return writeMatrix(matrix, nodeType, matrix.size(), dataOutput);
 	}
 
 	/**
-	 * Compresses a set of bytes using GZIP.
+	 * Compresses a set of bytes using GZIP. Large sets are compressed in blocks, in parallel.
 	 * @param bytes The bytes to compress.
 	 * @return The compressed bytes.
 	 */
@@ -494,7 +1062,7 @@ public class RunnerUtilities<N extends Value, M extends ScrambleMatrix<N>, R ext
 		byte output[];
 		try(
 			ByteArrayOutputStream os = new ByteArrayOutputStream(bytes.length);
-			GZIPOutputStream gzos = new GZIPOutputStream(os);
+			ParallelGzipOutputStream gzos = new ParallelGzipOutputStream(os);
 		) {
 			gzos.write(bytes);
 			gzos.close();
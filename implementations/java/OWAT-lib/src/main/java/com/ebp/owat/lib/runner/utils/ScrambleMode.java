@@ -5,7 +5,8 @@ package com.ebp.owat.lib.runner.utils;
  */
 public enum ScrambleMode {
 	SCRAMBLING("scrambling", 5),
-	DESCRAMBLING("scrambling", 4);
+	DESCRAMBLING("scrambling", 4),
+	REKEYING("rekeying", 5);
 
 	/** The name of the mode */
 	public final String name;
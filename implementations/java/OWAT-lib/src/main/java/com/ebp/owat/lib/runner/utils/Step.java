@@ -9,6 +9,7 @@ import java.util.List;
 public enum Step {
 	NOT_STARTED_SCRAMBLE(0, "Not Started", ScrambleMode.SCRAMBLING),
 	NOT_STARTED_DESCRAMBLE(0, "Not Started", ScrambleMode.DESCRAMBLING),
+	NOT_STARTED_REKEY(0, "Not Started", ScrambleMode.REKEYING),
 
 	LOAD_DATA(1, "Loading Data", ScrambleMode.SCRAMBLING),
 	PAD_DATA(2, "Padding Data", ScrambleMode.SCRAMBLING),
@@ -21,7 +22,14 @@ public enum Step {
 	LOAD_SCRAMBLED_DATA(2, "Loading Scrambled Data", ScrambleMode.DESCRAMBLING),
 	DESCRAMBLING(3, "Descrambling", ScrambleMode.DESCRAMBLING),
 	OUT_DESCRAMBLED_DATA(4, "Outputting Descrambled Data", ScrambleMode.DESCRAMBLING),
-	DONE_DESCRAMBLING(5, "Done", ScrambleMode.DESCRAMBLING);
+	DONE_DESCRAMBLING(5, "Done", ScrambleMode.DESCRAMBLING),
+
+	REKEY_LOAD_KEY(1, "Loading Key", ScrambleMode.REKEYING),
+	REKEY_LOAD_SCRAMBLED_DATA(2, "Loading Scrambled Data", ScrambleMode.REKEYING),
+	REKEYING(3, "Re-keying", ScrambleMode.REKEYING),
+	REKEY_OUT_SCRAMBLED_DATA(4, "Outputting Scrambled Data", ScrambleMode.REKEYING),
+	REKEY_OUT_KEY(5, "Outputting key", ScrambleMode.REKEYING),
+	DONE_REKEYING(6, "Done", ScrambleMode.REKEYING);
 
 	/** The step number of the step. */
 	public final int stepNo;
@@ -48,8 +56,10 @@ public enum Step {
 			if(
 				curStep == NOT_STARTED_SCRAMBLE ||
 				curStep == NOT_STARTED_DESCRAMBLE ||
+				curStep == NOT_STARTED_REKEY ||
 				curStep == DONE_DESCRAMBLING ||
-				curStep == DONE_SCRAMBLING
+				curStep == DONE_SCRAMBLING ||
+				curStep == DONE_REKEYING
 			){
 				continue;
 			}
@@ -0,0 +1,72 @@
+package com.ebp.owat.lib.runner.utils.results;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.runner.utils.Step;
+
+import static com.ebp.owat.lib.runner.utils.ScrambleMode.REKEYING;
+
+/**
+ * Represents the run results from re-keying.
+ */
+public class RekeyResults extends RunResults {
+	/**
+	 * Base constructor.
+	 */
+	public RekeyResults(){
+		super(REKEYING);
+	}
+
+	/**
+	 * Constructor to setup the node mode.
+	 * @param nodeMode The node mode used.
+	 */
+	public RekeyResults(NodeMode nodeMode){
+		super(REKEYING, nodeMode);
+	}
+
+	@Override
+	public synchronized RekeyResults clone(){
+		RekeyResults output = new RekeyResults(this.getNodeMode());
+		output.setMatrixMode(this.getMatrixMode());
+		output.setCurStep(this.getCurStep());
+		output.setCurStepProgMax(this.getCurStepProgMax());
+		output.setCurStepProg(this.getCurStepProg());
+		output.setTimingMap(this.getTimingMap());
+		output.setMatrixSize(this.getMatrixSize());
+		output.setNumBytesIn(this.getNumBytesIn());
+		output.setNumBytesOut(this.getNumBytesOut());
+
+		return output;
+	}
+
+	/**
+	 * Gets the CSV head used for re-keying data results.
+	 * @return The CSV head used for re-keying data results.
+	 */
+	public static String getCsvHead(){
+		StringBuilder sb = new StringBuilder(RunResults.getCsvHeadBase());
+
+		for (Step curStep : Step.getStepsIn(REKEYING)) {
+			sb.append(",");
+			sb.append(curStep.stepName);
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public String getCsvLine(boolean header){
+		StringBuilder sb = new StringBuilder();
+
+		if(header){
+			sb.append(getCsvHead());
+			sb.append(System.getProperty("line.separator"));
+		}
+
+		sb.append(super.getCsvLineBase());
+
+		sb.append(super.getCsvTiming());
+
+		return sb.toString();
+	}
+}
@@ -32,6 +32,9 @@ public abstract class RunResults {
 		if(this.scrambleMode == ScrambleMode.DESCRAMBLING){
 			this.curStep = Step.NOT_STARTED_DESCRAMBLE;
 		}
+		if(this.scrambleMode == ScrambleMode.REKEYING){
+			this.curStep = Step.NOT_STARTED_REKEY;
+		}
 	}
 
 	/**
@@ -335,7 +338,7 @@ public abstract class RunResults {
 		sb.append(",");
 		sb.append(this.nodeMode.typeStr);
 		sb.append(",");
-		sb.append(this.matrixMode.name);
+		sb.append(this.matrixMode == null ? "" : this.matrixMode.name);
 		sb.append(",");
 		sb.append(this.getCurStep().stepName);
 		sb.append(",");
@@ -400,6 +403,8 @@ public abstract class RunResults {
 				mode = curResults.getScrambleMode();
 				if(curResults instanceof ScrambleResults){
 					sb.append(ScrambleResults.getCsvHead());
+				}else if(curResults instanceof RekeyResults){
+					sb.append(RekeyResults.getCsvHead());
 				}else{
 					sb.append(DescrambleResults.getCsvHead());
 				}
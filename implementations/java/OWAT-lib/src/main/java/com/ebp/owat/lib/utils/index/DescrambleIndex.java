@@ -0,0 +1,148 @@
+package com.ebp.owat.lib.utils.index;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.utils.key.KeyMetaData;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.ebp.owat.lib.utils.scramble.MovePermutation;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An index that maps each value of the original data straight to where it is in the scrambled data, so parts of the original data can be read without descrambling all of it.
+ *
+ * Written out in a compact binary form:
+ * <pre>
+ *     magic bytes      4 bytes, {@link #MAGIC}
+ *     version          1 byte
+ *     node mode        1 byte, the ordinal of the {@link NodeMode}
+ *     entry size       1 byte, the number of bytes each entry takes up
+ *     data height      8 bytes
+ *     data width       8 bytes
+ *     num entries      8 bytes
+ *     entries          (num entries * entry size) bytes
+ * </pre>
+ * All numbers are big-endian. Entry {@code i} is the row-major position in the scrambled matrix of value {@code i} of the original data.
+ *
+ * The entries are worked out and held in an array, so an index can only be built for matrices of at most {@link Integer#MAX_VALUE} values; see {@link #canBuild(long, long)}. The index file itself has no such limit.
+ */
+public class DescrambleIndex {
+	/** The bytes every index file starts with. */
+	public static final byte[] MAGIC = {(byte)0x89, 'O', 'W', 'I'};
+	/** The version of the index format written. */
+	public static final byte VERSION = 1;
+	/** The number of bytes in the header of an index file. */
+	public static final int HEADER_SIZE = MAGIC.length + 3 + (3 * Long.BYTES);
+
+	/** The type of node the scrambled data was made of. */
+	public final NodeMode nodeMode;
+	/** The height of the scrambled matrix. */
+	public final long dataHeight;
+	/** The width of the scrambled matrix. */
+	public final long dataWidth;
+	/** For each value of the original data, its position in the scrambled matrix. */
+	private final long[] entries;
+
+	/**
+	 * Constructor to set all the data.
+	 * @param nodeMode The type of node the scrambled data was made of.
+	 * @param dataHeight The height of the scrambled matrix.
+	 * @param dataWidth The width of the scrambled matrix.
+	 * @param entries For each value of the original data, its position in the scrambled matrix.
+	 */
+	private DescrambleIndex(NodeMode nodeMode, long dataHeight, long dataWidth, long[] entries){
+		this.nodeMode = nodeMode;
+		this.dataHeight = dataHeight;
+		this.dataWidth = dataWidth;
+		this.entries = entries;
+	}
+
+	/**
+	 * Gets if an index can be built for a matrix of the size given.
+	 * @param dataHeight The height of the matrix.
+	 * @param dataWidth The width of the matrix.
+	 * @return If the entries of an index for the matrix can be held.
+	 */
+	public static boolean canBuild(long dataHeight, long dataWidth){
+		return MovePermutation.canHold(dataHeight, dataWidth);
+	}
+
+	/**
+	 * Builds the index from the key given, in one pass through its moves if it is not already in permutation form. Does not change the key.
+	 * @param key The key to build the index from.
+	 * @return The index for data scrambled with the key given.
+	 * @throws IllegalArgumentException If the matrix the key is for is too large to {@link #canBuild(long, long) build an index} for.
+	 */
+	public static DescrambleIndex build(ScrambleKey key){
+		KeyMetaData meta = key.meta;
+		if(!canBuild(meta.dataHeight, meta.dataWidth)){
+			throw new IllegalArgumentException("Scrambled data is too large to build an index for. Most values in a matrix with an index: " + Integer.MAX_VALUE);
+		}
+		return new DescrambleIndex(meta.getNodeMode(), meta.dataHeight, meta.dataWidth, key.getScrambledPositions());
+	}
+
+	/**
+	 * Gets the number of bytes needed to hold any position in a matrix of the size given.
+	 * @param dataHeight The height of the matrix.
+	 * @param dataWidth The width of the matrix.
+	 * @return The number of bytes needed for each entry.
+	 */
+	public static int getEntrySize(long dataHeight, long dataWidth){
+		long maxPosition = Math.max((dataHeight * dataWidth) - 1, 1);
+		return (Long.SIZE - Long.numberOfLeadingZeros(maxPosition) + 7) / 8;
+	}
+
+	/**
+	 * Gets the number of entries in the index; one for each value of the original data.
+	 * @return The number of entries in the index.
+	 */
+	public long getNumEntries(){
+		return this.entries.length;
+	}
+
+	/**
+	 * Gets the position in the scrambled matrix of the value of the original data given.
+	 * @param index The index of the value in the original data.
+	 * @return The position of the value in the scrambled matrix.
+	 * @throws IndexOutOfBoundsException If the index is not of a value in the original data.
+	 */
+	public long getEntry(long index){
+		if(index < 0 || index >= this.entries.length){
+			throw new IndexOutOfBoundsException("Index " + index + " is not of a value in the original data. Number of entries: " + this.entries.length);
+		}
+		return this.entries[(int)index];
+	}
+
+	/**
+	 * Writes this index out to the stream given. Does not close the stream.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing the index.
+	 */
+	public void write(OutputStream os) throws IOException {
+		DataOutputStream dos = new DataOutputStream(os);
+		int entrySize = getEntrySize(this.dataHeight, this.dataWidth);
+
+		dos.write(MAGIC);
+		dos.writeByte(VERSION);
+		dos.writeByte(this.nodeMode.ordinal());
+		dos.writeByte(entrySize);
+		dos.writeLong(this.dataHeight);
+		dos.writeLong(this.dataWidth);
+		dos.writeLong(this.entries.length);
+
+		byte[] buffer = new byte[entrySize * 1024];
+		int bufferPos = 0;
+		for(long entry : this.entries){
+			for(int i = entrySize - 1; i >= 0; i--){
+				buffer[bufferPos++] = (byte)(entry >>> (i * 8));
+			}
+			if(bufferPos == buffer.length){
+				dos.write(buffer, 0, bufferPos);
+				bufferPos = 0;
+			}
+		}
+		dos.write(buffer, 0, bufferPos);
+		dos.flush();
+	}
+}
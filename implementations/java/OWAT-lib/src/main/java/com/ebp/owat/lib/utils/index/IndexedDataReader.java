@@ -0,0 +1,198 @@
+package com.ebp.owat.lib.utils.index;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.io.MappedFile;
+import com.ebp.owat.lib.utils.io.MappedScrambledData;
+import com.ebp.owat.lib.utils.io.ScrambledDataHeader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reads the original data straight out of a scrambled data file, using a {@link DescrambleIndex} file to find where each value is.
+ *
+ * Both files are memory mapped, so each read only touches the parts of the files needed for the bytes asked for. The scrambled data can be in either {@link DataFormat}.
+ */
+public class IndexedDataReader implements Closeable {
+	/** The most values whose entries are read out of the index at once, when reading a run of bytes. */
+	private static final int ENTRY_BLOCK_SIZE = 8 * 1024;
+	/** The mapped index file. */
+	private final MappedFile index;
+	/** The mapped scrambled data file. */
+	private final MappedScrambledData data;
+	/** The type of node the scrambled data was made of. */
+	private final NodeMode nodeMode;
+	/** The number of bytes each entry in the index takes up. */
+	private final int entrySize;
+	/** The number of entries in the index. */
+	private final long numEntries;
+
+	/**
+	 * Constructor to open the index and scrambled data given.
+	 * @param indexFile The index file, as written by {@link DescrambleIndex#write(java.io.OutputStream)}.
+	 * @param dataFile The scrambled data file the index is for.
+	 * @throws IOException If either file could not be opened, or the index file is not valid.
+	 */
+	public IndexedDataReader(File indexFile, File dataFile) throws IOException {
+		this.index = new MappedFile(indexFile);
+		try{
+			this.data = new MappedScrambledData(dataFile);
+		}catch (IOException e){
+			this.index.close();
+			throw e;
+		}
+
+		if(this.index.size() < DescrambleIndex.HEADER_SIZE){
+			this.close();
+			throw new IOException("File given is too small to be an index file.");
+		}
+		for(int i = 0; i < DescrambleIndex.MAGIC.length; i++){
+			if(this.index.get(i) != DescrambleIndex.MAGIC[i]){
+				this.close();
+				throw new IOException("File given is not an index file.");
+			}
+		}
+		int pos = DescrambleIndex.MAGIC.length;
+		if(this.index.get(pos++) != DescrambleIndex.VERSION){
+			this.close();
+			throw new IOException("Index file is of an unsupported version.");
+		}
+		int nodeModeOrdinal = this.index.get(pos++);
+		if(nodeModeOrdinal < 0 || nodeModeOrdinal >= NodeMode.values().length){
+			this.close();
+			throw new IOException("Index file has an invalid node mode.");
+		}
+		this.nodeMode = NodeMode.values()[nodeModeOrdinal];
+		this.entrySize = this.index.get(pos++);
+		long dataHeight = this.index.getNumber(pos, Long.BYTES);
+		pos += Long.BYTES;
+		long dataWidth = this.index.getNumber(pos, Long.BYTES);
+		pos += Long.BYTES;
+		this.numEntries = this.index.getNumber(pos, Long.BYTES);
+
+		if(this.entrySize < 1 || this.entrySize > Long.BYTES || this.index.size() != DescrambleIndex.HEADER_SIZE + (this.numEntries * this.entrySize)){
+			this.close();
+			throw new IOException("Index file is malformed.");
+		}
+
+		ScrambledDataHeader header = this.data.getHeader();
+		if(header != null && !header.equals(new ScrambledDataHeader(this.nodeMode, dataHeight, dataWidth))){
+			this.close();
+			throw new IOException("Scrambled data file does not match the index given.");
+		}
+	}
+
+	/**
+	 * Gets the number of values that make up a byte of the original data.
+	 * @return The number of values that make up a byte.
+	 */
+	private int getValsPerByte(){
+		return this.nodeMode == NodeMode.BIT ? 8 : 1;
+	}
+
+	/**
+	 * Gets the number of bytes of original data that can be read.
+	 * @return The number of bytes in the original data.
+	 */
+	public long length(){
+		return this.numEntries / this.getValsPerByte();
+	}
+
+	/**
+	 * Gets the position in the scrambled matrix of the value of the original data given.
+	 * @param valIndex The index of the value in the original data.
+	 * @return The position of the value in the scrambled matrix.
+	 */
+	private long getEntry(long valIndex){
+		return this.index.getNumber(DescrambleIndex.HEADER_SIZE + (valIndex * this.entrySize), this.entrySize);
+	}
+
+	/**
+	 * Reads a single byte of the original data.
+	 * @param position The position of the byte in the original data.
+	 * @return The byte of original data.
+	 * @throws IOException If the scrambled data could not be read.
+	 * @throws IndexOutOfBoundsException If the position is not in the original data.
+	 */
+	public byte read(long position) throws IOException {
+		if(position < 0 || position >= this.length()){
+			throw new IndexOutOfBoundsException("Position " + position + " is not in the original data. Length: " + this.length());
+		}
+		if(this.nodeMode == NodeMode.BYTE){
+			return this.data.get(this.getEntry(position));
+		}
+		int output = 0;
+		for(int i = 0; i < 8; i++){
+			long scrambledBit = this.getEntry((position * 8) + i);
+			int bit = (this.data.get(scrambledBit / 8) >>> (scrambledBit % 8)) & 1;
+			output |= bit << i;
+		}
+		return (byte)output;
+	}
+
+	/**
+	 * Reads bytes of the original data into the buffer given.
+	 *
+	 * The entries of a run of bytes sit next to each other in the index, so are copied out of it a block at a time rather than looked up one by one.
+	 * @param position The position in the original data to start reading at.
+	 * @param buffer The buffer to read into.
+	 * @param offset The offset in the buffer to start putting bytes.
+	 * @param length The max number of bytes to read.
+	 * @return The number of bytes read, or -1 if the position is at or past the end of the original data.
+	 * @throws IOException If the scrambled data could not be read.
+	 */
+	public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+		if(position < 0){
+			throw new IndexOutOfBoundsException("Position cannot be negative.");
+		}
+		if(position >= this.length()){
+			return -1;
+		}
+		int numToRead = (int)Math.min(length, this.length() - position);
+		int valsPerByte = this.getValsPerByte();
+		int bytesPerBlock = ENTRY_BLOCK_SIZE / valsPerByte;
+		byte[] entryBlock = new byte[Math.min(numToRead, bytesPerBlock) * valsPerByte * this.entrySize];
+
+		int numRead = 0;
+		while(numRead < numToRead){
+			int curNumBytes = Math.min(numToRead - numRead, bytesPerBlock);
+			int curNumEntryBytes = curNumBytes * valsPerByte * this.entrySize;
+			long entryStart = DescrambleIndex.HEADER_SIZE + ((position + numRead) * valsPerByte * this.entrySize);
+			if(this.index.read(entryStart, entryBlock, 0, curNumEntryBytes) != curNumEntryBytes){
+				throw new IOException("Index file is too short for the number of entries it gives.");
+			}
+
+			int entryPos = 0;
+			for(int i = 0; i < curNumBytes; i++){
+				int output = 0;
+				for(int j = 0; j < valsPerByte; j++){
+					long entry = 0;
+					for(int k = 0; k < this.entrySize; k++){
+						entry = (entry << 8) | (entryBlock[entryPos++] & 0xFF);
+					}
+					if(this.nodeMode == NodeMode.BYTE){
+						output = this.data.get(entry);
+					}else{
+						output |= ((this.data.get(entry / 8) >>> (entry % 8)) & 1) << j;
+					}
+				}
+				buffer[offset + numRead + i] = (byte)output;
+			}
+			numRead += curNumBytes;
+		}
+		return numToRead;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try{
+			this.index.close();
+		}finally{
+			if(this.data != null){
+				this.data.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.ebp.owat.lib.utils.io;
+
+/**
+ * The formats scrambled data can be written out in.
+ */
+public enum DataFormat {
+	/** The bytes of the scrambled matrix, Base64 encoded. Safe to handle as text. */
+	BASE64,
+	/** A {@link ScrambledDataHeader header} followed by the raw bytes of the scrambled matrix. A third smaller than Base64, and quicker to read and write. */
+	BINARY;
+}
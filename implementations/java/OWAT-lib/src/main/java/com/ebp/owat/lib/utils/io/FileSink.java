@@ -0,0 +1,216 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An output stream straight to a file, written through a {@link FileChannel} from a direct buffer.
+ *
+ * Writing from a direct buffer saves the copy into a temporary direct buffer the JDK makes on every write from a heap array. Bytes are gathered into large blocks before being written, so the file is written in a few large, sequential writes.
+ *
+ * When the number of bytes to be written is known, the file can be {@link #setExpectedLength(long) set to that length} before writing. Any length set but not written is trimmed off when closed.
+ */
+public class FileSink extends OutputStream {
+	/** The default size of the buffer. */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * When the data written is forced out to the storage device, rather than being left to the OS to write out when it sees fit.
+	 */
+	public enum SyncPolicy {
+		/** Never forced out; left to the OS. */
+		NONE,
+		/** Forced out once, when closed. */
+		ON_CLOSE,
+		/** Forced out every time the stream is flushed, and when closed. */
+		ON_FLUSH;
+	}
+
+	/** The channel to the file being written to. */
+	private final FileChannel channel;
+	/** The buffer bytes are gathered in before being written. */
+	private final ByteBuffer buffer;
+	/** When the data written is forced out to the storage device. */
+	private final SyncPolicy syncPolicy;
+	/** The number of bytes written to the file so far. */
+	private long position = 0;
+	/** The length the file was set to up front. */
+	private long expectedLength = 0;
+	/** If this stream has been closed. */
+	private boolean closed = false;
+
+	/**
+	 * Constructor to write to the file given, leaving syncing up to the OS.
+	 * @param file The file to write to. Created if it does not exist, emptied if it does.
+	 * @throws IOException If the file could not be opened.
+	 */
+	public FileSink(File file) throws IOException {
+		this(file, SyncPolicy.NONE);
+	}
+
+	/**
+	 * Constructor to write to the file given.
+	 * @param file The file to write to. Created if it does not exist, emptied if it does.
+	 * @param syncPolicy When the data written is forced out to the storage device.
+	 * @throws IOException If the file could not be opened.
+	 */
+	public FileSink(File file, SyncPolicy syncPolicy) throws IOException {
+		this(file, syncPolicy, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructor to write to the file given.
+	 * @param file The file to write to. Created if it does not exist, emptied if it does.
+	 * @param syncPolicy When the data written is forced out to the storage device.
+	 * @param bufferSize The size of the buffer to gather bytes in.
+	 * @throws IOException If the file could not be opened.
+	 * @throws IllegalArgumentException If the file or sync policy is null, or the buffer size is less than 1.
+	 */
+	public FileSink(File file, SyncPolicy syncPolicy, int bufferSize) throws IOException {
+		if(file == null){
+			throw new IllegalArgumentException("File to write to cannot be null.");
+		}
+		if(syncPolicy == null){
+			throw new IllegalArgumentException("Sync policy cannot be null.");
+		}
+		if(bufferSize < 1){
+			throw new IllegalArgumentException("Buffer must be at least one byte.");
+		}
+		this.syncPolicy = syncPolicy;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.channel = FileChannel.open(
+			file.toPath(),
+			StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING
+		);
+	}
+
+	/**
+	 * Gets when the data written is forced out to the storage device.
+	 * @return When the data written is forced out.
+	 */
+	public SyncPolicy getSyncPolicy(){
+		return this.syncPolicy;
+	}
+
+	/**
+	 * Gets the number of bytes written to this stream so far.
+	 * @return The number of bytes written.
+	 */
+	public long getNumBytesWritten(){
+		return this.position + this.buffer.position();
+	}
+
+	/**
+	 * Sets the length of the file up front to the number of bytes expected, so the length does not have to be updated as it is written. Does nothing if the file is already at least that long.
+	 *
+	 * Only the length is set; no space is reserved on the storage device. On most file systems the file is sparse until written, so running out of space is still only found when writing. Java has no portable way of reserving the space itself.
+	 * @param length The number of bytes expected to be written in total.
+	 * @throws IOException If the length could not be set, or this stream has been closed.
+	 * @throws IllegalArgumentException If the length given is negative.
+	 */
+	public void setExpectedLength(long length) throws IOException {
+		if(length < 0){
+			throw new IllegalArgumentException("Cannot expect a negative length.");
+		}
+		this.throwIfClosed();
+		if(length <= this.expectedLength || length <= this.getNumBytesWritten()){
+			return;
+		}
+		//writing the last byte makes the file take on its full length
+		ByteBuffer last = ByteBuffer.allocate(1);
+		while(last.hasRemaining()){
+			this.channel.write(last, length - 1);
+		}
+		this.expectedLength = length;
+	}
+
+	/**
+	 * Throws if this stream has been closed.
+	 * @throws IOException If this stream has been closed.
+	 */
+	private void throwIfClosed() throws IOException {
+		if(this.closed){
+			throw new IOException("Stream closed.");
+		}
+	}
+
+	/**
+	 * Writes out the bytes gathered in the buffer.
+	 * @throws IOException If something went wrong writing.
+	 */
+	private void drainBuffer() throws IOException {
+		this.buffer.flip();
+		while(this.buffer.hasRemaining()){
+			this.position += this.channel.write(this.buffer, this.position);
+		}
+		this.buffer.clear();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.throwIfClosed();
+		this.buffer.put((byte)b);
+		if(!this.buffer.hasRemaining()){
+			this.drainBuffer();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off){
+			throw new IndexOutOfBoundsException();
+		}
+		this.throwIfClosed();
+		while(len > 0){
+			int numToCopy = Math.min(len, this.buffer.remaining());
+			this.buffer.put(b, off, numToCopy);
+			off += numToCopy;
+			len -= numToCopy;
+			if(!this.buffer.hasRemaining()){
+				this.drainBuffer();
+			}
+		}
+	}
+
+	/**
+	 * Writes out the bytes gathered so far. Also forces them out to the storage device if {@link SyncPolicy#ON_FLUSH syncing on flush}.
+	 * @throws IOException If something went wrong writing.
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.throwIfClosed();
+		this.drainBuffer();
+		if(this.syncPolicy == SyncPolicy.ON_FLUSH){
+			this.channel.force(false);
+		}
+	}
+
+	/**
+	 * Writes out the bytes gathered, trims off any expected length not written, syncs as the policy calls for, then closes the file.
+	 * @throws IOException If something went wrong writing or closing.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.closed){
+			return;
+		}
+		try{
+			this.drainBuffer();
+			if(this.expectedLength > this.position){
+				this.channel.truncate(this.position);
+			}
+			if(this.syncPolicy != SyncPolicy.NONE){
+				this.channel.force(true);
+			}
+		}finally{
+			this.closed = true;
+			this.channel.close();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only view of a file, memory mapped in chunks so that files larger than a single buffer can hold can still be read by position.
+ */
+public class MappedFile implements Closeable {
+	/** The size of each mapped chunk of the file. */
+	private static final long CHUNK_SIZE = 1L << 30;
+
+	/** The channel the file was mapped from. */
+	private final FileChannel channel;
+	/** The mapped chunks of the file. */
+	private final MappedByteBuffer[] chunks;
+	/** The size of the file. */
+	private final long size;
+
+	/**
+	 * Constructor to map the file given.
+	 * @param file The file to map.
+	 * @throws IOException If the file could not be opened or mapped.
+	 */
+	public MappedFile(File file) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try{
+			this.size = this.channel.size();
+			this.chunks = new MappedByteBuffer[(int) ((this.size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+			for(int i = 0; i < this.chunks.length; i++){
+				long start = i * CHUNK_SIZE;
+				this.chunks[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, this.size - start));
+			}
+		}catch (IOException | RuntimeException e){
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the size of the file.
+	 * @return The size of the file, in bytes.
+	 */
+	public long size(){
+		return this.size;
+	}
+
+	/**
+	 * Gets the byte at the position given.
+	 * @param position The position of the byte to get.
+	 * @return The byte at the position given.
+	 * @throws IndexOutOfBoundsException If the position is not in the file.
+	 */
+	public byte get(long position){
+		if(position < 0 || position >= this.size){
+			throw new IndexOutOfBoundsException("Position " + position + " is not in the file. File size: " + this.size);
+		}
+		return this.chunks[(int)(position / CHUNK_SIZE)].get((int)(position % CHUNK_SIZE));
+	}
+
+	/**
+	 * Copies bytes of the file into the buffer given, starting at the position given.
+	 * @param position The position in the file to start copying from.
+	 * @param buffer The buffer to copy into.
+	 * @param offset The offset in the buffer to start putting bytes.
+	 * @param length The max number of bytes to copy.
+	 * @return The number of bytes copied, or -1 if the position is at or past the end of the file.
+	 */
+	public int read(long position, byte[] buffer, int offset, int length){
+		if(position < 0){
+			throw new IndexOutOfBoundsException("Position cannot be negative.");
+		}
+		if(position >= this.size){
+			return -1;
+		}
+		int numToRead = (int)Math.min(length, this.size - position);
+		int numRead = 0;
+		while(numRead < numToRead){
+			long curPos = position + numRead;
+			//duplicate so concurrent readers do not fight over the chunk's position
+			ByteBuffer chunk = this.chunks[(int)(curPos / CHUNK_SIZE)].duplicate();
+			chunk.position((int)(curPos % CHUNK_SIZE));
+			int curRead = Math.min(numToRead - numRead, chunk.remaining());
+			chunk.get(buffer, offset + numRead, curRead);
+			numRead += curRead;
+		}
+		return numRead;
+	}
+
+	/**
+	 * Reads a big-endian unsigned integer of the number of bytes given, starting at the position given.
+	 * @param position The position of the first byte of the number.
+	 * @param numBytes The number of bytes in the number, 1 to 8.
+	 * @return The number read.
+	 * @throws IndexOutOfBoundsException If the number does not fit in the file.
+	 */
+	public long getNumber(long position, int numBytes){
+		long number = 0;
+		for(int i = 0; i < numBytes; i++){
+			number = (number << 8) | (this.get(position + i) & 0xFF);
+		}
+		return number;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
@@ -0,0 +1,99 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream over a memory mapped file.
+ *
+ * Reads copy straight out of the mapping, skips just move the position, and the number of bytes left is always known, so readers can size their buffers up front.
+ */
+public class MappedInputStream extends InputStream {
+	/** The mapped file being read. */
+	private final MappedFile file;
+	/** The position of the next byte to read. */
+	private long position = 0;
+	/** The position marked to reset to. */
+	private long mark = 0;
+
+	/**
+	 * Constructor to map the file given for reading.
+	 * @param file The file to read.
+	 * @throws IOException If the file could not be opened or mapped.
+	 */
+	public MappedInputStream(File file) throws IOException {
+		this.file = new MappedFile(file);
+	}
+
+	/**
+	 * Gets the mapped file being read, for reading by position rather than in order.
+	 * @return The mapped file being read. Closed when this stream is.
+	 */
+	public MappedFile getMappedFile(){
+		return this.file;
+	}
+
+	/**
+	 * Gets the number of bytes left to read.
+	 * @return The number of bytes between the current position and the end of the file.
+	 */
+	public long remaining(){
+		return Math.max(0, this.file.size() - this.position);
+	}
+
+	@Override
+	public int read(){
+		if(this.position >= this.file.size()){
+			return -1;
+		}
+		return this.file.get(this.position++) & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len){
+		if(off < 0 || len < 0 || len > b.length - off){
+			throw new IndexOutOfBoundsException();
+		}
+		if(len == 0){
+			return 0;
+		}
+		int numRead = this.file.read(this.position, b, off, len);
+		if(numRead > 0){
+			this.position += numRead;
+		}
+		return numRead;
+	}
+
+	@Override
+	public long skip(long n){
+		long numSkipped = Math.min(Math.max(0, n), this.remaining());
+		this.position += numSkipped;
+		return numSkipped;
+	}
+
+	@Override
+	public int available(){
+		return (int)Math.min(Integer.MAX_VALUE, this.remaining());
+	}
+
+	@Override
+	public boolean markSupported(){
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit){
+		this.mark = this.position;
+	}
+
+	@Override
+	public synchronized void reset(){
+		this.position = this.mark;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.file.close();
+	}
+}
@@ -0,0 +1,116 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Scrambled data in a memory mapped file, read by the position of each byte in the scrambled matrix rather than from start to end.
+ *
+ * The data can be in either {@link DataFormat}. For Base64 data, only the characters a byte is held in are decoded, so reading a byte never touches more than two characters of the file.
+ */
+public class MappedScrambledData implements Closeable {
+	/** Table to turn Base64 characters into the 6 bits they represent. -1 for characters not in the alphabet. */
+	private static final int[] BASE64_VALUES = new int[256];
+
+	static {
+		Arrays.fill(BASE64_VALUES, -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for(int i = 0; i < alphabet.length(); i++){
+			BASE64_VALUES[alphabet.charAt(i)] = i;
+		}
+	}
+
+	/** The mapped file of scrambled data. */
+	private final MappedFile file;
+	/** The format the scrambled data is in. */
+	private final DataFormat format;
+	/** The header of the scrambled data. Null if the data is in Base64, which has none. */
+	private final ScrambledDataHeader header;
+
+	/**
+	 * Constructor to map the scrambled data file given.
+	 * @param file The scrambled data file.
+	 * @throws IOException If the file could not be opened or mapped, or its header was not valid.
+	 */
+	public MappedScrambledData(File file) throws IOException {
+		this(new MappedFile(file));
+	}
+
+	/**
+	 * Constructor to read the scrambled data in the mapped file given. The file is closed when this is.
+	 * @param file The mapped scrambled data file.
+	 * @throws IOException If the header of the scrambled data was not valid.
+	 */
+	public MappedScrambledData(MappedFile file) throws IOException {
+		this.file = file;
+		if(file.size() > 0 && file.get(0) == ScrambledDataHeader.MAGIC[0]){
+			this.format = DataFormat.BINARY;
+			byte[] headerBytes = new byte[ScrambledDataHeader.HEADER_SIZE];
+			int numRead = Math.max(0, file.read(0, headerBytes, 0, headerBytes.length));
+			try{
+				this.header = ScrambledDataHeader.read(new ByteArrayInputStream(headerBytes, 0, numRead));
+			}catch (IOException e){
+				file.close();
+				throw e;
+			}
+		}else{
+			this.format = DataFormat.BASE64;
+			this.header = null;
+		}
+	}
+
+	/**
+	 * Gets the format the scrambled data is in.
+	 * @return The format of the scrambled data.
+	 */
+	public DataFormat getFormat(){
+		return this.format;
+	}
+
+	/**
+	 * Gets the header of the scrambled data.
+	 * @return The header of the scrambled data, or null if it is in Base64, which has none.
+	 */
+	public ScrambledDataHeader getHeader(){
+		return this.header;
+	}
+
+	/**
+	 * Gets the byte of the scrambled matrix at the position given.
+	 * @param position The position of the byte in the decoded scrambled matrix.
+	 * @return The decoded byte.
+	 * @throws IOException If the scrambled data is not valid Base64, or is too short to hold the position.
+	 */
+	public byte get(long position) throws IOException {
+		if(position < 0){
+			throw new IndexOutOfBoundsException("Position cannot be negative.");
+		}
+		if(this.format == DataFormat.BINARY){
+			if(ScrambledDataHeader.HEADER_SIZE + position >= this.file.size()){
+				throw new IOException("Scrambled data is too short to hold position " + position + ".");
+			}
+			return this.file.get(ScrambledDataHeader.HEADER_SIZE + position);
+		}
+		long charPos = (position / 3) * 4;
+		int byteInGroup = (int)(position % 3);
+		if(charPos + byteInGroup + 1 >= this.file.size()){
+			throw new IOException("Scrambled data is too short to hold position " + position + ".");
+		}
+		int first = BASE64_VALUES[this.file.get(charPos + byteInGroup) & 0xFF];
+		int second = BASE64_VALUES[this.file.get(charPos + byteInGroup + 1) & 0xFF];
+		if(first < 0 || second < 0){
+			throw new IOException("Scrambled data is not valid Base64.");
+		}
+		//each byte is made of the low bits of one char and the high bits of the next
+		int shift = 2 * (byteInGroup + 1);
+		return (byte)((first << shift) | (second >>> (6 - shift)));
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.file.close();
+	}
+}
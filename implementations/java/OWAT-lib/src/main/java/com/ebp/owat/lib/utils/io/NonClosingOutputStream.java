@@ -0,0 +1,33 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that passes writes through to the stream given, but leaves it open when closed.
+ *
+ * For wrapping a stream in one that writes out its end when closed, such as a Base64 encoder, without closing the stream under it. Closing does not flush either, so it never waits on anything writing behind.
+ */
+public class NonClosingOutputStream extends FilterOutputStream {
+	/**
+	 * Constructor to pass writes through to the stream given.
+	 * @param out The stream to write to. Left open.
+	 */
+	public NonClosingOutputStream(OutputStream out){
+		super(out);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		this.out.write(b, off, len);
+	}
+
+	/**
+	 * Does nothing; the stream given is left as it is.
+	 */
+	@Override
+	public void close(){
+		//leave the stream given open and unflushed
+	}
+}
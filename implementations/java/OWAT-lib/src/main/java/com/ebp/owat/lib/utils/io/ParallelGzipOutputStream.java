@@ -0,0 +1,322 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that GZIP compresses what is written to it on several threads at once.
+ *
+ * What is written is split into blocks, each deflated on its own by one of a set of background threads. Smaller blocks spread the work of compressing small inputs over more threads, at a small cost in how well they compress. Each block is primed with the end of the block before it as a dictionary, so compression is nearly as good as deflating the whole stream at once. Every block but the last ends in a sync flush, which ends it on a byte boundary, so the deflated blocks can simply be joined in order. The result is a single ordinary GZIP member, readable by {@link java.util.zip.GZIPInputStream} or anything else that reads GZIP.
+ *
+ * Only a fixed number of blocks are held at once; writing waits for the oldest to be compressed and written out once there are too many. Errors hit compressing are thrown on the next call made after them.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+	/** The default size of each block. */
+	public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+	/** The most of the previous block that can prime the next; the size of the deflate window. */
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	/** The size of the buffer deflated blocks are written into. */
+	private static final int OUTPUT_BUFFER_SIZE = 16 * 1024;
+	/** The GZIP header; deflate, no flags, no time, unknown OS. The same as {@link java.util.zip.GZIPOutputStream} writes. */
+	private static final byte[] HEADER = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+	/** Marks the end of the blocks to compress. */
+	private static final Block END = new Block(null, 0, null, 0, false);
+
+	/**
+	 * A block of bytes to be compressed.
+	 */
+	private static class Block {
+		/** The bytes to compress. */
+		final byte[] input;
+		/** The number of bytes to compress. */
+		final int length;
+		/** The bytes of the block before, the end of which primes this one. Null for the first block. */
+		final byte[] previous;
+		/** The number of bytes in the block before. */
+		final int previousLength;
+		/** If this is the last block, ending the deflated data. */
+		final boolean last;
+		/** Counted down once this block is compressed, or failed to be. */
+		final CountDownLatch done = new CountDownLatch(1);
+		/** The compressed block. */
+		ByteArrayOutputStream output = null;
+		/** The error hit compressing this block, if any. */
+		Throwable error = null;
+
+		/**
+		 * Constructor to set up a block to compress.
+		 * @param input The bytes to compress.
+		 * @param length The number of bytes to compress.
+		 * @param previous The bytes of the block before. Null for the first block.
+		 * @param previousLength The number of bytes in the block before.
+		 * @param last If this is the last block.
+		 */
+		Block(byte[] input, int length, byte[] previous, int previousLength, boolean last){
+			this.input = input;
+			this.length = length;
+			this.previous = previous;
+			this.previousLength = previousLength;
+			this.last = last;
+		}
+	}
+
+	/** The stream being written to. */
+	private final OutputStream out;
+	/** The compression level to use. */
+	private final int level;
+	/** The size of each block. */
+	private final int blockSize;
+	/** The most blocks that can be waiting to be compressed or written out. */
+	private final int maxPending;
+	/** The blocks waiting to be compressed. */
+	private final BlockingQueue<Block> toCompress = new LinkedBlockingQueue<>();
+	/** The blocks handed off, in the order they are to be written out. */
+	private final Queue<Block> pending = new ArrayDeque<>();
+	/** The threads compressing. */
+	private final Thread[] compressThreads;
+	/** The CRC of everything written. */
+	private final CRC32 crc = new CRC32();
+
+	/** The number of bytes written, over all blocks. */
+	private long numBytesIn = 0;
+	/** The block being filled. */
+	private byte[] curBlock;
+	/** The number of bytes in the block being filled. */
+	private int curLength = 0;
+	/** The last block handed off. Null if none have been yet. */
+	private byte[] prevBlock = null;
+	/** The number of bytes in the last block handed off. */
+	private int prevLength = 0;
+	/** If this stream has been closed. */
+	private boolean closed = false;
+
+	/**
+	 * Constructor to start compressing to the stream given, with the default level and block size, on as many threads as there are processors.
+	 * @param out The stream to write to. Not closed when this stream is.
+	 * @throws IOException If the GZIP header could not be written.
+	 */
+	public ParallelGzipOutputStream(OutputStream out) throws IOException {
+		this(out, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor to start compressing to the stream given.
+	 * @param out The stream to write to. Not closed when this stream is.
+	 * @param level The compression level, 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @param blockSize The number of bytes compressed in each block.
+	 * @param numThreads The number of threads to compress on.
+	 * @throws IllegalArgumentException If the stream is null, the level is not valid, or the block size or number of threads is less than 1.
+	 * @throws IOException If the GZIP header could not be written.
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int level, int blockSize, int numThreads) throws IOException {
+		if(out == null){
+			throw new IllegalArgumentException("Stream to write to cannot be null.");
+		}
+		if(level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)){
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		if(blockSize < 1 || numThreads < 1){
+			throw new IllegalArgumentException("Must have at least one thread compressing blocks of at least one byte.");
+		}
+		this.out = out;
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxPending = numThreads * 2;
+		this.curBlock = new byte[blockSize];
+
+		this.out.write(HEADER);
+
+		this.compressThreads = new Thread[numThreads];
+		for(int i = 0; i < numThreads; i++){
+			this.compressThreads[i] = new Thread(this::compressBlocks, "owat-gzip-" + i);
+			this.compressThreads[i].setDaemon(true);
+			this.compressThreads[i].start();
+		}
+	}
+
+	/**
+	 * The compression stage. Compresses blocks as they are handed off, until the end of the stream.
+	 */
+	private void compressBlocks(){
+		try{
+			while(true){
+				Block block = this.toCompress.take();
+				if(block == END){
+					return;
+				}
+				try{
+					block.output = this.compress(block);
+				}catch (Throwable e){
+					block.error = e;
+				}
+				block.done.countDown();
+			}
+		}catch (InterruptedException e){
+			//closed; nothing left to do
+		}
+	}
+
+	/**
+	 * Deflates a block on its own, primed with the end of the block before it.
+	 * @param block The block to compress.
+	 * @return The deflated block. Ends the deflated data if the last block, otherwise ends in a sync flush.
+	 */
+	private ByteArrayOutputStream compress(Block block){
+		Deflater deflater = new Deflater(this.level, true);
+		try{
+			if(block.previous != null && this.level != Deflater.NO_COMPRESSION){
+				int dictionaryLength = Math.min(DICTIONARY_SIZE, block.previousLength);
+				deflater.setDictionary(block.previous, block.previousLength - dictionaryLength, dictionaryLength);
+			}
+			deflater.setInput(block.input, 0, block.length);
+			ByteArrayOutputStream output = new ByteArrayOutputStream(block.length / 2 + 64);
+			byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+			int numDeflated;
+			if(block.last){
+				deflater.finish();
+				while(!deflater.finished()){
+					numDeflated = deflater.deflate(buffer);
+					output.write(buffer, 0, numDeflated);
+				}
+			}else{
+				//a full buffer means there could be more to flush
+				do{
+					numDeflated = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					output.write(buffer, 0, numDeflated);
+				}while(numDeflated == buffer.length);
+			}
+			return output;
+		}finally{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Throws if this stream has been closed.
+	 * @throws IOException If this stream has been closed.
+	 */
+	private void throwIfClosed() throws IOException {
+		if(this.closed){
+			throw new IOException("Stream closed.");
+		}
+	}
+
+	/**
+	 * Waits for a block to be compressed, then writes it out.
+	 * @param block The block to write out.
+	 * @throws IOException If the block could not be compressed or written, or interrupted while waiting.
+	 */
+	private void writeOut(Block block) throws IOException {
+		try{
+			block.done.await();
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for data to be compressed.");
+		}
+		if(block.error != null){
+			throw new IOException("Failed to compress data: " + block.error.getMessage(), block.error);
+		}
+		block.output.writeTo(this.out);
+	}
+
+	/**
+	 * Hands the block being filled off to be compressed, writing out the oldest blocks if too many are waiting.
+	 * @param last If this is the last block.
+	 * @throws IOException If a block could not be compressed or written, or interrupted while waiting.
+	 */
+	private void handOff(boolean last) throws IOException {
+		this.crc.update(this.curBlock, 0, this.curLength);
+		this.numBytesIn += this.curLength;
+		Block block = new Block(this.curBlock, this.curLength, this.prevBlock, this.prevLength, last);
+		this.pending.add(block);
+		this.toCompress.add(block);
+
+		this.prevBlock = this.curBlock;
+		this.prevLength = this.curLength;
+		this.curBlock = (last ? null : new byte[this.blockSize]);
+		this.curLength = 0;
+
+		while(this.pending.size() > this.maxPending){
+			this.writeOut(this.pending.poll());
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.throwIfClosed();
+		this.curBlock[this.curLength++] = (byte)b;
+		if(this.curLength == this.blockSize){
+			this.handOff(false);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off){
+			throw new IndexOutOfBoundsException();
+		}
+		this.throwIfClosed();
+		while(len > 0){
+			int numToCopy = Math.min(len, this.blockSize - this.curLength);
+			System.arraycopy(b, off, this.curBlock, this.curLength, numToCopy);
+			this.curLength += numToCopy;
+			off += numToCopy;
+			len -= numToCopy;
+			if(this.curLength == this.blockSize){
+				this.handOff(false);
+			}
+		}
+	}
+
+	/**
+	 * Writes out the blocks already compressed, then flushes the stream written to. Does not wait on blocks still being compressed.
+	 * @throws IOException If a block could not be compressed or written.
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.throwIfClosed();
+		while(!this.pending.isEmpty() && this.pending.peek().done.getCount() == 0){
+			this.writeOut(this.pending.poll());
+		}
+		this.out.flush();
+	}
+
+	/**
+	 * Compresses and writes out everything written, ends the GZIP data, then stops the background threads. Does not close the stream written to.
+	 * @throws IOException If a block could not be compressed or written, or interrupted while waiting.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.closed){
+			return;
+		}
+		try{
+			this.handOff(true);
+			while(!this.pending.isEmpty()){
+				this.writeOut(this.pending.poll());
+			}
+			//the trailer; CRC then length, little-endian
+			long crcValue = this.crc.getValue();
+			for(long value : new long[]{ crcValue, this.numBytesIn }){
+				for(int i = 0; i < 4; i++){
+					this.out.write((int)(value >>> (8 * i)));
+				}
+			}
+			this.out.flush();
+		}finally{
+			this.closed = true;
+			for(int i = 0; i < this.compressThreads.length; i++){
+				this.toCompress.add(END);
+			}
+		}
+	}
+}
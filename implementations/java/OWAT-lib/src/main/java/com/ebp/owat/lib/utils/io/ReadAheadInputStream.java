@@ -0,0 +1,196 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An input stream that reads ahead of the caller on a background thread.
+ *
+ * The thread fills large buffers from the stream given while the caller works through the ones already filled, so slow media is kept busy rather than waiting on the caller. Only a fixed number of buffers are ever held at once.
+ *
+ * Worth it for slow media, such as optical discs or removable drives, so the rest of the process is not held up waiting on them. On fast local disks the extra thread and copy gain little.
+ */
+public class ReadAheadInputStream extends InputStream {
+	/** The default size of each buffer. */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+	/** The default number of buffers. */
+	public static final int DEFAULT_NUM_BUFFERS = 4;
+	/** Marks the end of the stream. */
+	private static final byte[] END = new byte[0];
+
+	/** The stream being read from. */
+	private final InputStream in;
+	/** The size of each buffer. */
+	private final int bufferSize;
+	/** The buffers free to be filled. */
+	private final BlockingQueue<byte[]> emptyBuffers;
+	/** The buffers filled, waiting to be read. */
+	private final BlockingQueue<byte[]> filledBuffers;
+	/** The thread reading ahead. */
+	private final Thread readThread;
+
+	/** The error hit reading ahead, if any. */
+	private volatile Throwable error = null;
+	/** If this stream has been closed. */
+	private boolean closed = false;
+	/** The buffer currently being read from. */
+	private byte[] curBuffer = null;
+	/** The position of the next byte to read in the current buffer. */
+	private int curPos = 0;
+
+	/**
+	 * Constructor to start reading ahead of the stream given, using the default buffers.
+	 * @param in The stream to read from. Closed when this stream is.
+	 */
+	public ReadAheadInputStream(InputStream in){
+		this(in, DEFAULT_BUFFER_SIZE, DEFAULT_NUM_BUFFERS);
+	}
+
+	/**
+	 * Constructor to start reading ahead of the stream given.
+	 * @param in The stream to read from. Closed when this stream is.
+	 * @param bufferSize The size of each buffer.
+	 * @param numBuffers The number of buffers to read ahead into.
+	 * @throws IllegalArgumentException If the stream is null, or the buffer size or number of buffers is less than 1.
+	 */
+	public ReadAheadInputStream(InputStream in, int bufferSize, int numBuffers){
+		if(in == null){
+			throw new IllegalArgumentException("Stream to read from cannot be null.");
+		}
+		if(bufferSize < 1 || numBuffers < 1){
+			throw new IllegalArgumentException("Must have at least one buffer of at least one byte.");
+		}
+		this.in = in;
+		this.bufferSize = bufferSize;
+		this.emptyBuffers = new ArrayBlockingQueue<>(numBuffers);
+		this.filledBuffers = new ArrayBlockingQueue<>(numBuffers + 1);
+		for(int i = 0; i < numBuffers; i++){
+			this.emptyBuffers.add(new byte[bufferSize]);
+		}
+		this.readThread = new Thread(this::readAhead, "owat-read-ahead");
+		this.readThread.setDaemon(true);
+		this.readThread.start();
+	}
+
+	/**
+	 * The reading stage. Fills buffers from the stream until the end of it.
+	 */
+	private void readAhead(){
+		try{
+			while(true){
+				byte[] buffer = this.emptyBuffers.take();
+				int numRead = 0;
+				int curRead;
+				while(numRead < buffer.length && (curRead = this.in.read(buffer, numRead, buffer.length - numRead)) != -1){
+					numRead += curRead;
+				}
+				if(numRead > 0){
+					this.filledBuffers.put(numRead == buffer.length ? buffer : Arrays.copyOf(buffer, numRead));
+				}
+				if(numRead < buffer.length){
+					break;
+				}
+			}
+		}catch (InterruptedException e){
+			return;
+		}catch (Throwable e){
+			this.error = e;
+		}
+		try{
+			this.filledBuffers.put(END);
+		}catch (InterruptedException e){
+			//closed; nothing left to do
+		}
+	}
+
+	/**
+	 * Throws if this stream has been closed.
+	 * @throws IOException If this stream has been closed.
+	 */
+	private void throwIfClosed() throws IOException {
+		if(this.closed){
+			throw new IOException("Stream closed.");
+		}
+	}
+
+	/**
+	 * Makes sure there is a buffer with bytes left to read, waiting for one to be filled if needed.
+	 * @return If there are bytes left to read; false at the end of the stream.
+	 * @throws IOException If the read ahead hit an error.
+	 */
+	private boolean fillIfNeeded() throws IOException {
+		while(this.curBuffer == null || this.curPos == this.curBuffer.length){
+			if(this.curBuffer == END){
+				return false;
+			}
+			if(this.curBuffer != null && this.curBuffer.length == this.bufferSize){
+				this.emptyBuffers.offer(this.curBuffer);
+			}
+			try{
+				this.curBuffer = this.filledBuffers.take();
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for data.");
+			}
+			this.curPos = 0;
+			if(this.curBuffer == END){
+				Throwable e = this.error;
+				if(e != null){
+					throw new IOException("Failed to read data: " + e.getMessage(), e);
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		this.throwIfClosed();
+		if(!this.fillIfNeeded()){
+			return -1;
+		}
+		return this.curBuffer[this.curPos++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off){
+			throw new IndexOutOfBoundsException();
+		}
+		this.throwIfClosed();
+		if(len == 0){
+			return 0;
+		}
+		if(!this.fillIfNeeded()){
+			return -1;
+		}
+		int numRead = Math.min(len, this.curBuffer.length - this.curPos);
+		System.arraycopy(this.curBuffer, this.curPos, b, off, numRead);
+		this.curPos += numRead;
+		return numRead;
+	}
+
+	@Override
+	public int available() throws IOException {
+		this.throwIfClosed();
+		if(this.curBuffer == null){
+			return 0;
+		}
+		return this.curBuffer.length - this.curPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(this.closed){
+			return;
+		}
+		this.closed = true;
+		this.readThread.interrupt();
+		this.in.close();
+	}
+}
@@ -0,0 +1,161 @@
+package com.ebp.owat.lib.utils.io;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.utils.key.KeyMetaData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The header at the start of scrambled data written in the {@link DataFormat#BINARY binary format}.
+ *
+ * Layout, all numbers big-endian:
+ * <ul>
+ *     <li>The {@link #MAGIC magic bytes}</li>
+ *     <li>The {@link #VERSION version} of the format (1 byte)</li>
+ *     <li>The ordinal of the {@link NodeMode node mode} of the matrix (1 byte)</li>
+ *     <li>The height of the matrix (8 bytes)</li>
+ *     <li>The width of the matrix (8 bytes)</li>
+ * </ul>
+ * The raw bytes of the matrix follow straight after.
+ *
+ * The first magic byte is not in the Base64 alphabet, so binary data can always be told apart from Base64 data.
+ */
+public class ScrambledDataHeader {
+	/** The bytes every binary scrambled data file starts with. */
+	public static final byte[] MAGIC = { (byte)0x89, 'O', 'W', 'D' };
+	/** The version of the format written. */
+	public static final byte VERSION = 1;
+	/** The number of bytes the header takes up. */
+	public static final int HEADER_SIZE = MAGIC.length + 2 + (2 * Long.BYTES);
+
+	/** The type of node the matrix is made of. */
+	public final NodeMode nodeMode;
+	/** The height of the matrix. */
+	public final long dataHeight;
+	/** The width of the matrix. */
+	public final long dataWidth;
+
+	/**
+	 * Constructor to set up the header.
+	 * @param nodeMode The type of node the matrix is made of.
+	 * @param dataHeight The height of the matrix.
+	 * @param dataWidth The width of the matrix.
+	 */
+	public ScrambledDataHeader(NodeMode nodeMode, long dataHeight, long dataWidth){
+		if(nodeMode == null){
+			throw new IllegalArgumentException("Node mode cannot be null.");
+		}
+		if(dataHeight < 0 || dataWidth < 0){
+			throw new IllegalArgumentException("Matrix cannot have a negative size.");
+		}
+		this.nodeMode = nodeMode;
+		this.dataHeight = dataHeight;
+		this.dataWidth = dataWidth;
+	}
+
+	/**
+	 * Constructor to set up the header for the data described by the key metadata given.
+	 * @param meta The metadata of the key for the data.
+	 */
+	public ScrambledDataHeader(KeyMetaData meta){
+		this(meta.getNodeMode(), meta.dataHeight, meta.dataWidth);
+	}
+
+	/**
+	 * Gets the number of bytes of matrix data that follow the header.
+	 * @return The number of bytes of matrix data.
+	 */
+	public long getDataLength(){
+		return (this.dataHeight * this.dataWidth) / (this.nodeMode == NodeMode.BIT ? 8 : 1);
+	}
+
+	/**
+	 * Makes sure this header describes the same matrix as the key metadata given.
+	 * @param meta The metadata of the key to check against.
+	 * @throws IllegalArgumentException If the header does not match the key.
+	 */
+	public void checkMatches(KeyMetaData meta){
+		if(this.nodeMode != meta.getNodeMode() || this.dataHeight != meta.dataHeight || this.dataWidth != meta.dataWidth){
+			throw new IllegalArgumentException("The scrambled data given does not match the key given.");
+		}
+	}
+
+	/**
+	 * Writes this header out to the stream given.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public void write(OutputStream os) throws IOException {
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.write(MAGIC);
+		dos.writeByte(VERSION);
+		dos.writeByte(this.nodeMode.ordinal());
+		dos.writeLong(this.dataHeight);
+		dos.writeLong(this.dataWidth);
+	}
+
+	/**
+	 * Works out if the data in the stream given is in the binary format, without moving past any of it.
+	 * @param is The stream of scrambled data. Must {@link InputStream#markSupported() support marking}.
+	 * @return The format of the data in the stream.
+	 * @throws IOException If something went wrong reading.
+	 */
+	public static DataFormat detectFormat(InputStream is) throws IOException {
+		if(!is.markSupported()){
+			throw new IllegalArgumentException("Stream given must support marking.");
+		}
+		is.mark(1);
+		int first = is.read();
+		is.reset();
+		return first == (MAGIC[0] & 0xFF) ? DataFormat.BINARY : DataFormat.BASE64;
+	}
+
+	/**
+	 * Reads a header from the stream given, leaving the stream at the start of the matrix data.
+	 * @param is The stream to read from.
+	 * @return The header read.
+	 * @throws IOException If something went wrong reading, or the header was not valid.
+	 */
+	public static ScrambledDataHeader read(InputStream is) throws IOException {
+		DataInputStream dis = new DataInputStream(is);
+		byte[] magic = new byte[MAGIC.length];
+		dis.readFully(magic);
+		if(!Arrays.equals(MAGIC, magic)){
+			throw new IOException("Scrambled data is not in the binary format.");
+		}
+		if(dis.readByte() != VERSION){
+			throw new IOException("Scrambled data is of an unsupported version.");
+		}
+		int nodeModeOrdinal = dis.readUnsignedByte();
+		if(nodeModeOrdinal >= NodeMode.values().length){
+			throw new IOException("Scrambled data has an invalid node mode.");
+		}
+		long dataHeight = dis.readLong();
+		long dataWidth = dis.readLong();
+		if(dataHeight < 0 || dataWidth < 0){
+			throw new IOException("Scrambled data has an invalid size.");
+		}
+		return new ScrambledDataHeader(NodeMode.values()[nodeModeOrdinal], dataHeight, dataWidth);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		ScrambledDataHeader that = (ScrambledDataHeader) o;
+		return dataHeight == that.dataHeight &&
+			dataWidth == that.dataWidth &&
+			nodeMode == that.nodeMode;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(nodeMode, dataHeight, dataWidth);
+	}
+}
@@ -0,0 +1,84 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Reads and writes numbers as variable length integers (LEB128); 7 bits per byte, least significant first, with the top bit of each byte set if more follow.
+ *
+ * Small numbers take few bytes. Numbers that could be negative should be {@link #zigzag(long) zigzag encoded} first, so small negative numbers stay small.
+ */
+public class VarInt {
+	/** The most bytes a long can take up. */
+	public static final int MAX_SIZE = 10;
+
+	/**
+	 * Zigzag encodes the number given, mapping small negative numbers to small positive ones (0, -1, 1, -2, ... to 0, 1, 2, 3, ...).
+	 * @param value The number to encode.
+	 * @return The encoded number.
+	 */
+	public static long zigzag(long value){
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Undoes {@link #zigzag(long) zigzag encoding}.
+	 * @param value The encoded number.
+	 * @return The number decoded.
+	 */
+	public static long unzigzag(long value){
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Gets the number of bytes the number given takes up.
+	 * @param value The number.
+	 * @return The number of bytes it takes up.
+	 */
+	public static int size(long value){
+		int size = 1;
+		while((value & ~0x7FL) != 0){
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the number given.
+	 * @param os The stream to write to.
+	 * @param value The number to write. Treated as unsigned.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public static void write(OutputStream os, long value) throws IOException {
+		while((value & ~0x7FL) != 0){
+			os.write((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		os.write((int)value);
+	}
+
+	/**
+	 * Reads a number.
+	 * @param is The stream to read from.
+	 * @return The number read.
+	 * @throws EOFException If the stream ended before the number did.
+	 * @throws IOException If something went wrong reading, or the number was too long.
+	 */
+	public static long read(InputStream is) throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7){
+			int cur = is.read();
+			if(cur == -1){
+				throw new EOFException("Stream ended in the middle of a number.");
+			}
+			value |= (long)(cur & 0x7F) << shift;
+			if((cur & 0x80) == 0){
+				return value;
+			}
+		}
+		throw new IOException("Malformed number; too many bytes.");
+	}
+}
@@ -0,0 +1,241 @@
+package com.ebp.owat.lib.utils.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * An output stream that writes behind the caller on a background thread.
+ *
+ * Writes fill large buffers, which are handed to the thread to write out while the caller carries on filling the next, so slow media is kept busy rather than waiting on the caller. Only a fixed number of buffers are ever held at once. As with {@link ReadAheadInputStream}, it pays off on slow media more than on fast local disks.
+ *
+ * Errors hit writing are thrown on the next call made after them. {@link #flush() Flushing} and {@link #close() closing} wait for everything written so far to be written out.
+ */
+public class WriteBehindOutputStream extends OutputStream {
+	/** The default size of each buffer. */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+	/** The default number of buffers. */
+	public static final int DEFAULT_NUM_BUFFERS = 4;
+	/** Marks the end of the stream. */
+	private static final Chunk END = new Chunk(0);
+
+	/**
+	 * A buffer of bytes waiting to be written.
+	 */
+	private static class Chunk {
+		/** The buffer. */
+		final byte[] bytes;
+		/** The number of bytes in the buffer to write. */
+		int length = 0;
+		/** Counted down once this chunk is written and the stream flushed. Null if the stream is not to be flushed. */
+		CountDownLatch flushed = null;
+
+		/**
+		 * Constructor to make a chunk with a buffer of the size given.
+		 * @param size The size of the buffer.
+		 */
+		Chunk(int size){
+			this.bytes = new byte[size];
+		}
+	}
+
+	/** The stream being written to. */
+	private final OutputStream out;
+	/** The chunks free to be filled. */
+	private final BlockingQueue<Chunk> emptyChunks;
+	/** The chunks filled, waiting to be written. */
+	private final BlockingQueue<Chunk> filledChunks;
+	/** The thread writing behind. */
+	private final Thread writeThread;
+
+	/** The error hit writing, if any. */
+	private volatile Throwable error = null;
+	/** If this stream has been closed. */
+	private boolean closed = false;
+	/** The chunk currently being filled. Null if one has not been taken yet. */
+	private Chunk curChunk = null;
+
+	/**
+	 * Constructor to start writing behind to the stream given, using the default buffers.
+	 * @param out The stream to write to. Not closed when this stream is.
+	 */
+	public WriteBehindOutputStream(OutputStream out){
+		this(out, DEFAULT_BUFFER_SIZE, DEFAULT_NUM_BUFFERS);
+	}
+
+	/**
+	 * Constructor to start writing behind to the stream given.
+	 * @param out The stream to write to. Not closed when this stream is.
+	 * @param bufferSize The size of each buffer.
+	 * @param numBuffers The number of buffers to write behind from.
+	 * @throws IllegalArgumentException If the stream is null, or the buffer size or number of buffers is less than 1.
+	 */
+	public WriteBehindOutputStream(OutputStream out, int bufferSize, int numBuffers){
+		if(out == null){
+			throw new IllegalArgumentException("Stream to write to cannot be null.");
+		}
+		if(bufferSize < 1 || numBuffers < 1){
+			throw new IllegalArgumentException("Must have at least one buffer of at least one byte.");
+		}
+		this.out = out;
+		this.emptyChunks = new ArrayBlockingQueue<>(numBuffers);
+		this.filledChunks = new ArrayBlockingQueue<>(numBuffers + 1);
+		for(int i = 0; i < numBuffers; i++){
+			this.emptyChunks.add(new Chunk(bufferSize));
+		}
+		this.writeThread = new Thread(this::writeBehind, "owat-write-behind");
+		this.writeThread.setDaemon(true);
+		this.writeThread.start();
+	}
+
+	/**
+	 * The writing stage. Writes out chunks as they are filled, until the end of the stream.
+	 */
+	private void writeBehind(){
+		try{
+			while(true){
+				Chunk chunk = this.filledChunks.take();
+				if(chunk == END){
+					return;
+				}
+				//once failed, keep taking chunks so the caller never blocks; the error is thrown to them
+				if(this.error == null){
+					try{
+						this.out.write(chunk.bytes, 0, chunk.length);
+						if(chunk.flushed != null){
+							this.out.flush();
+						}
+					}catch (Throwable e){
+						this.error = e;
+					}
+				}
+				CountDownLatch flushed = chunk.flushed;
+				chunk.length = 0;
+				chunk.flushed = null;
+				this.emptyChunks.put(chunk);
+				if(flushed != null){
+					flushed.countDown();
+				}
+			}
+		}catch (InterruptedException e){
+			//closed; nothing left to do
+		}
+	}
+
+	/**
+	 * Throws if this stream has been closed, or the error hit writing if there was one.
+	 * @throws IOException If this stream has been closed, or there was an error writing.
+	 */
+	private void throwIfUnusable() throws IOException {
+		if(this.closed){
+			throw new IOException("Stream closed.");
+		}
+		Throwable e = this.error;
+		if(e != null){
+			throw new IOException("Failed to write data: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Gets the chunk to fill, waiting for one to be free if needed.
+	 * @return The chunk to fill.
+	 * @throws IOException If interrupted while waiting.
+	 */
+	private Chunk getCurChunk() throws IOException {
+		if(this.curChunk == null){
+			try{
+				this.curChunk = this.emptyChunks.take();
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting to write data.");
+			}
+		}
+		return this.curChunk;
+	}
+
+	/**
+	 * Hands the current chunk off to be written.
+	 * @param flushed The latch to count down once written and flushed. Null if not flushing.
+	 * @throws IOException If interrupted while waiting.
+	 */
+	private void handOff(CountDownLatch flushed) throws IOException {
+		Chunk chunk = this.getCurChunk();
+		chunk.flushed = flushed;
+		this.curChunk = null;
+		try{
+			this.filledChunks.put(chunk);
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting to write data.");
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.throwIfUnusable();
+		Chunk chunk = this.getCurChunk();
+		chunk.bytes[chunk.length++] = (byte)b;
+		if(chunk.length == chunk.bytes.length){
+			this.handOff(null);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off){
+			throw new IndexOutOfBoundsException();
+		}
+		this.throwIfUnusable();
+		while(len > 0){
+			Chunk chunk = this.getCurChunk();
+			int numToCopy = Math.min(len, chunk.bytes.length - chunk.length);
+			System.arraycopy(b, off, chunk.bytes, chunk.length, numToCopy);
+			chunk.length += numToCopy;
+			off += numToCopy;
+			len -= numToCopy;
+			if(chunk.length == chunk.bytes.length){
+				this.handOff(null);
+			}
+		}
+	}
+
+	/**
+	 * Waits for everything written so far to be written out, then flushes the stream written to.
+	 * @throws IOException If there was an error writing, or interrupted while waiting.
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.throwIfUnusable();
+		CountDownLatch flushed = new CountDownLatch(1);
+		this.handOff(flushed);
+		try{
+			flushed.await();
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for data to be written.");
+		}
+		this.throwIfUnusable();
+	}
+
+	/**
+	 * Waits for everything written to be written out, then stops the background thread. Does not close the stream written to.
+	 * @throws IOException If there was an error writing, or interrupted while waiting.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.closed){
+			return;
+		}
+		try{
+			this.flush();
+		}finally{
+			this.closed = true;
+			if(!this.filledChunks.offer(END)){
+				this.writeThread.interrupt();
+			}
+		}
+	}
+}
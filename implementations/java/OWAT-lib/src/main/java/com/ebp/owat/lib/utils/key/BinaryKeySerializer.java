@@ -0,0 +1,381 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.runner.utils.ScrambleMode;
+import com.ebp.owat.lib.utils.io.VarInt;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static com.ebp.owat.lib.utils.scramble.ScrambleConstants.RotateBox;
+import static com.ebp.owat.lib.utils.scramble.ScrambleConstants.SlideCol;
+
+/**
+ * Writes and reads keys in the {@link KeyFormat#BINARY binary key format}.
+ *
+ * Layout, before GZIP compression, all fixed size numbers big-endian:
+ * <ul>
+ *     <li>The {@link #MAGIC magic bytes}</li>
+ *     <li>The {@link #VERSION version} of the format (1 byte)</li>
+ *     <li>The ordinal of the {@link NodeMode node mode} (1 byte)</li>
+ *     <li>The original height, original width, data height, data width and last column index of the {@link KeyMetaData metadata} (8 bytes each)</li>
+ *     <li>The number of moves, the checksum of the moves and the checksum of the scrambled data of the metadata (8 bytes each, {@link KeyMetaData#UNKNOWN} if not known). Not in keys of version 1.</li>
+ *     <li>The form of the key; {@link #FORM_MOVES}, {@link #FORM_INDEXED_MOVES}, {@link #FORM_COLUMNAR_MOVES}, {@link #FORM_PERMUTATION} or {@link #FORM_SEED} (1 byte)</li>
+ * </ul>
+ * In moves form, each move that descrambles the data follows in order, as its opcode (the ordinal of its {@link ScrambleMoves type} plus one, 1 byte) then each of its arguments as a {@link VarInt variable length integer}. Arguments that can be negative are zigzag encoded. A zero opcode ends the moves.
+ *
+ * In indexed moves form, the moves are laid out the same, in blocks of {@link #MOVES_PER_BLOCK} moves. After the zero opcode comes an index of the blocks, so they can be found and {@link ParallelKeyReader parsed in parallel}: the number of blocks, then the number of moves and number of bytes in each block, all as variable length integers, then the number of bytes in the index (4 bytes). Read in order, the index can simply be ignored.
+ *
+ * In columnar moves form, the moves are in blocks of at most {@link #MOVES_PER_BLOCK} moves, each laid out as a {@link ColumnarMoveBlock}; the opcodes of the moves, then their arguments, each kind in a stream of its own. A block of no moves ends the moves, followed by an index of the blocks laid out the same as in indexed moves form. Keys holding moves are written in this form; the others are still read.
+ *
+ * In permutation form, the positions follow as written by {@link PermutationSerializer#write(long[], OutputStream)}.
+ *
+ * In seed form, the {@link KeySeed seed} follows: the generator version as a variable length integer, the seed (8 bytes), then the number of moves as a variable length integer.
+ *
+ * The first magic byte can never start a JSON key, so the two formats can always be told apart.
+ */
+public class BinaryKeySerializer {
+	/** The bytes every binary key starts with, once decompressed. */
+	public static final byte[] MAGIC = { (byte)0x89, 'O', 'W', 'K' };
+	/** The version of the format written. */
+	public static final byte VERSION = 2;
+	/** The version of the format before the metadata held what is needed to check the key. Still read. */
+	public static final byte VERSION_UNCHECKED = 1;
+	/** Marks a key holding moves. */
+	public static final int FORM_MOVES = 0;
+	/** Marks a key holding a permutation. */
+	public static final int FORM_PERMUTATION = 1;
+	/** Marks a key holding moves, followed by an index of the blocks they are in. */
+	public static final int FORM_INDEXED_MOVES = 2;
+	/** Marks a key holding the seed its moves were generated from. */
+	public static final int FORM_SEED = 3;
+	/** Marks a key holding moves in columnar blocks, followed by an index of the blocks. */
+	public static final int FORM_COLUMNAR_MOVES = 4;
+	/** The number of moves in each indexed block, but the last. */
+	public static final int MOVES_PER_BLOCK = 64 * 1024;
+	/** The opcode that ends the moves. */
+	public static final int END_OF_MOVES = 0;
+	/** The move types, by opcode. */
+	private static final ScrambleMoves[] MOVES_BY_OPCODE = ScrambleMoves.values();
+
+	/**
+	 * Gets if the argument of the type of move given can be negative, and so is zigzag encoded.
+	 * @param move The type of move.
+	 * @param argIndex The index of the argument.
+	 * @return If the argument can be negative.
+	 */
+	static boolean isSignedArg(ScrambleMoves move, int argIndex){
+		switch (move){
+			case SLIDE_ROW:
+			case SLIDE_COL:
+				return argIndex == SlideCol.NUMTOSLIDE;
+			case ROT_BOX:
+				return argIndex == RotateBox.ROTNUM;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Works out if the decompressed key starting with the byte given is in the binary format.
+	 * @param firstByte The first byte of the decompressed key.
+	 * @return The format of the key.
+	 */
+	public static KeyFormat detectFormat(int firstByte){
+		return firstByte == (MAGIC[0] & 0xFF) ? KeyFormat.BINARY : KeyFormat.JSON;
+	}
+
+	/**
+	 * Writes out a move.
+	 * @param move The move to write.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public static void writeMove(ScrambleMove move, OutputStream os) throws IOException {
+		os.write(move.move.ordinal() + 1);
+		for(int i = 0; i < move.move.numArgs; i++){
+			long arg = move.getArg(i);
+			VarInt.write(os, isSignedArg(move.move, i) ? VarInt.zigzag(arg) : arg);
+		}
+	}
+
+	/**
+	 * Gets the number of bytes a move takes up once written.
+	 * @param move The move.
+	 * @return The number of bytes it takes up.
+	 */
+	public static int sizeOfMove(ScrambleMove move){
+		int size = 1;
+		for(int i = 0; i < move.move.numArgs; i++){
+			long arg = move.getArg(i);
+			size += VarInt.size(isSignedArg(move.move, i) ? VarInt.zigzag(arg) : arg);
+		}
+		return size;
+	}
+
+	/**
+	 * Reads the next move.
+	 * @param is The stream to read from.
+	 * @return The move read, or null if the end of the moves was reached.
+	 * @throws IOException If something went wrong reading, or the move was malformed.
+	 */
+	public static ScrambleMove readMove(InputStream is) throws IOException {
+		int opcode = is.read();
+		if(opcode == -1){
+			throw new IOException("Malformed key; ended in the middle of the moves.");
+		}
+		if(opcode == END_OF_MOVES){
+			return null;
+		}
+		if(opcode > MOVES_BY_OPCODE.length){
+			throw new IOException("Malformed key; invalid move opcode " + opcode);
+		}
+		ScrambleMoves type = MOVES_BY_OPCODE[opcode - 1];
+		long[] args = new long[type.numArgs];
+		for(int i = 0; i < args.length; i++){
+			long arg = VarInt.read(is);
+			args[i] = isSignedArg(type, i) ? VarInt.unzigzag(arg) : arg;
+		}
+		return new ScrambleMove(type, args);
+	}
+
+	/**
+	 * Writes out the header of a key; everything before its moves or permutation.
+	 * @param meta The metadata of the key.
+	 * @param form The form of the key.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public static void writeHeader(KeyMetaData meta, int form, OutputStream os) throws IOException {
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.write(MAGIC);
+		dos.writeByte(VERSION);
+		dos.writeByte(meta.getNodeMode().ordinal());
+		dos.writeLong(meta.originalHeight);
+		dos.writeLong(meta.originalWidth);
+		dos.writeLong(meta.dataHeight);
+		dos.writeLong(meta.dataWidth);
+		dos.writeLong(meta.lastColIndex);
+		dos.writeLong(meta.numMoves);
+		dos.writeLong(meta.movesChecksum);
+		dos.writeLong(meta.dataChecksum);
+		dos.writeByte(form);
+	}
+
+	/**
+	 * Reads the metadata out of the header of a key. Leaves the stream at the {@link #readForm(InputStream) form} of the key.
+	 * @param is The stream to read from.
+	 * @return The metadata of the key.
+	 * @throws IOException If something went wrong reading, or the header was not valid.
+	 */
+	public static KeyMetaData readMeta(InputStream is) throws IOException {
+		DataInputStream dis = new DataInputStream(is);
+		byte[] magic = new byte[MAGIC.length];
+		dis.readFully(magic);
+		if(!Arrays.equals(MAGIC, magic)){
+			throw new IOException("Key is not in the binary format.");
+		}
+		byte version = dis.readByte();
+		if(version != VERSION && version != VERSION_UNCHECKED){
+			throw new IOException("Key is of an unsupported version.");
+		}
+		int nodeModeOrdinal = dis.readUnsignedByte();
+		if(nodeModeOrdinal >= NodeMode.values().length){
+			throw new IOException("Key has an invalid node mode.");
+		}
+		KeyMetaData meta = new KeyMetaData(
+			dis.readLong(),
+			dis.readLong(),
+			dis.readLong(),
+			dis.readLong(),
+			KeyMetaData.getTypeStr(NodeMode.values()[nodeModeOrdinal].typeClass),
+			dis.readLong()
+		);
+		if(version == VERSION_UNCHECKED){
+			return meta;
+		}
+		return meta.withChecks(dis.readLong(), dis.readLong(), dis.readLong());
+	}
+
+	/**
+	 * Reads the form of the key, straight after its {@link #readMeta(InputStream) metadata}.
+	 * @param is The stream to read from.
+	 * @return The form of the key.
+	 * @throws IOException If something went wrong reading, or the form was not valid.
+	 */
+	public static int readForm(InputStream is) throws IOException {
+		int form = is.read();
+		if(form < FORM_MOVES || form > FORM_COLUMNAR_MOVES){
+			throw new IOException("Key has an invalid form.");
+		}
+		return form;
+	}
+
+	/**
+	 * Writes out the seed of a key, after its header.
+	 * @param seed The seed to write.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public static void writeSeed(KeySeed seed, OutputStream os) throws IOException {
+		VarInt.write(os, seed.getGeneratorVersion());
+		new DataOutputStream(os).writeLong(seed.seed);
+		VarInt.write(os, seed.numMoves);
+	}
+
+	/**
+	 * Reads the seed of a key, straight after its {@link #readForm(InputStream) form}.
+	 * @param is The stream to read from.
+	 * @return The seed read.
+	 * @throws IOException If something went wrong reading, or the seed was not valid.
+	 */
+	public static KeySeed readSeed(InputStream is) throws IOException {
+		long generatorVersion = VarInt.read(is);
+		long seed = new DataInputStream(is).readLong();
+		long numMoves = VarInt.read(is);
+		if(generatorVersion != KeySeed.GENERATOR_VERSION){
+			throw new IOException("Key was made with an unsupported move generator version: " + generatorVersion);
+		}
+		return new KeySeed(seed, numMoves);
+	}
+
+	/**
+	 * Writes out the key given. Keys holding moves are written in {@link #FORM_COLUMNAR_MOVES columnar moves form}.
+	 * @param key The key to write.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public static void write(ScrambleKey key, OutputStream os) throws IOException {
+		KeyMetaData meta = key.getCheckedMeta();
+		if(key.isPermutationForm()){
+			writeHeader(meta, FORM_PERMUTATION, os);
+			PermutationSerializer.write(key.getScrambledPositions(), os);
+			return;
+		}
+		if(key.isSeedForm()){
+			writeHeader(meta, FORM_SEED, os);
+			writeSeed(key.getSeed(), os);
+			return;
+		}
+		writeHeader(meta, FORM_COLUMNAR_MOVES, os);
+		//the index is small; a couple of numbers per block
+		ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+		long numBlocks = 0;
+		ColumnarMoveBlock block = new ColumnarMoveBlock(MOVES_PER_BLOCK);
+		Iterator<ScrambleMove> it = key.getDescrambleMovesIt();
+		while(it.hasNext()){
+			if(block.add(it.next()) || !it.hasNext()){
+				VarInt.write(blocks, block.size());
+				VarInt.write(blocks, block.writeTo(os));
+				numBlocks++;
+			}
+		}
+		os.write(END_OF_MOVES);
+
+		VarInt.write(os, numBlocks);
+		blocks.writeTo(os);
+		new DataOutputStream(os).writeInt(VarInt.size(numBlocks) + blocks.size());
+	}
+
+	/**
+	 * Gets the number of bytes the moves given take up once written in {@link #FORM_COLUMNAR_MOVES columnar moves form}, not counting the block index.
+	 * @param moves The moves.
+	 * @return The number of bytes they take up.
+	 */
+	public static long sizeOfMoves(Iterator<ScrambleMove> moves){
+		OutputStream discard = new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		};
+		long size = 1;
+		ColumnarMoveBlock block = new ColumnarMoveBlock(MOVES_PER_BLOCK);
+		try{
+			while(moves.hasNext()){
+				if(block.add(moves.next()) || !moves.hasNext()){
+					size += block.writeTo(discard);
+				}
+			}
+		}catch (IOException e){
+			//cannot happen writing nowhere
+			throw new IllegalStateException(e);
+		}
+		return size;
+	}
+
+	/**
+	 * Reads the next block of moves of a key in {@link #FORM_COLUMNAR_MOVES columnar moves form}.
+	 * @param is The stream to read from.
+	 * @return The moves of the block, or null if the end of the moves was reached.
+	 * @throws IOException If something went wrong reading, or the block was malformed.
+	 */
+	public static MoveLog readColumnarBlock(InputStream is) throws IOException {
+		return ColumnarMoveBlock.read(is, MOVES_PER_BLOCK);
+	}
+
+	/**
+	 * Serializes the key given.
+	 * @param key The key to serialize.
+	 * @return The key in the binary format, before compression.
+	 */
+	public static byte[] serialize(ScrambleKey key){
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try{
+			write(key, os);
+		}catch (IOException e){
+			//cannot happen writing to memory
+			throw new IllegalStateException(e);
+		}
+		return os.toByteArray();
+	}
+
+	/**
+	 * Reads a whole key, in order. Any block index is ignored. The moves read are checked against the metadata.
+	 * @param is The stream to read from, at the start of the key.
+	 * @return The key read, in descrambling mode.
+	 * @throws IOException If something went wrong reading, or the key was malformed.
+	 * @throws IllegalArgumentException If the key is in permutation form, and too large to hold the permutation of.
+	 */
+	public static ScrambleKey read(InputStream is) throws IOException {
+		KeyMetaData meta = readMeta(is);
+		int form = readForm(is);
+		if(form == FORM_PERMUTATION){
+			return new ScrambleKey(meta, PermutationSerializer.read(is, PermutationSerializer.getNumPositions(meta)), ScrambleMode.DESCRAMBLING);
+		}
+		if(form == FORM_SEED){
+			return new ScrambleKey(meta, readSeed(is));
+		}
+		MoveLog moves = new MoveLog(meta.numMoves);
+		MoveChecksum checksum = new MoveChecksum();
+		if(form == FORM_COLUMNAR_MOVES){
+			MoveLog block;
+			while((block = readColumnarBlock(is)) != null){
+				for(ScrambleMove curMove : block){
+					checksum.update(curMove);
+					moves.add(curMove);
+				}
+			}
+		}else{
+			ScrambleMove curMove;
+			while((curMove = readMove(is)) != null){
+				checksum.update(curMove);
+				moves.add(curMove);
+			}
+		}
+		checksum.verify(meta);
+		return new ScrambleKey(meta, moves);
+	}
+}
@@ -0,0 +1,288 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.io.VarInt;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A block of moves, written and read in the columnar layout of {@link BinaryKeySerializer#FORM_COLUMNAR_MOVES columnar moves form}.
+ *
+ * Rather than each move in turn, a block holds the moves split into streams:
+ * <ul>
+ *     <li>The number of moves in the block, as a {@link VarInt variable length integer}. Zero ends the moves.</li>
+ *     <li>The opcode of each move (the ordinal of its {@link ScrambleMoves type} plus one, 1 byte).</li>
+ *     <li>For each type of move in the block, in order of type, each of its arguments in turn, over all the moves of that type.</li>
+ * </ul>
+ * Arguments that can be negative, the slide and rotation amounts, are zigzag encoded variable length integers. All others are row and column indexes, bit packed, most significant bit first, to the fewest bits that hold the largest in the stream; the number of bits (1 byte) comes first. For moves that fit the data, that is <code>ceil(log2(dim))</code> bits.
+ *
+ * Kept apart like this, each stream holds numbers of the same kind and range, so what GZIP is given is far more regular than moves written one after the other.
+ */
+public class ColumnarMoveBlock {
+	/** The move types, by ordinal. */
+	private static final ScrambleMoves[] TYPES = ScrambleMoves.values();
+	/** The most bits a packed argument can take. */
+	private static final int MAX_BITS = Long.SIZE;
+
+	/** The moves in the block. */
+	private final ScrambleMove[] moves;
+	/** The number of moves in the block. */
+	private int numMoves = 0;
+	/** The block, as written; reused between blocks. */
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+	/**
+	 * Constructor to set up an empty block.
+	 * @param maxMoves The most moves the block can hold.
+	 * @throws IllegalArgumentException If the most moves is less than 1.
+	 */
+	public ColumnarMoveBlock(int maxMoves){
+		if(maxMoves < 1){
+			throw new IllegalArgumentException("Block must be able to hold at least one move.");
+		}
+		this.moves = new ScrambleMove[maxMoves];
+	}
+
+	/**
+	 * Adds a move to the block.
+	 * @param move The move to add.
+	 * @return If the block is now full.
+	 * @throws IllegalStateException If the block was already full.
+	 */
+	public boolean add(ScrambleMove move){
+		if(this.isFull()){
+			throw new IllegalStateException("Block of moves is full.");
+		}
+		this.moves[this.numMoves++] = move;
+		return this.isFull();
+	}
+
+	/**
+	 * Gets the number of moves in the block.
+	 * @return The number of moves in the block.
+	 */
+	public int size(){
+		return this.numMoves;
+	}
+
+	/**
+	 * Gets if the block is empty.
+	 * @return If the block is empty.
+	 */
+	public boolean isEmpty(){
+		return this.numMoves == 0;
+	}
+
+	/**
+	 * Gets if the block is full.
+	 * @return If the block is full.
+	 */
+	public boolean isFull(){
+		return this.numMoves == this.moves.length;
+	}
+
+	/**
+	 * Writes out the block, then empties it.
+	 * @param os The stream to write to.
+	 * @return The number of bytes written.
+	 * @throws IOException If something went wrong writing.
+	 * @throws IllegalStateException If the block is empty; an empty block would end the moves.
+	 */
+	public int writeTo(OutputStream os) throws IOException {
+		if(this.isEmpty()){
+			throw new IllegalStateException("Cannot write an empty block of moves.");
+		}
+		this.buffer.reset();
+		VarInt.write(this.buffer, this.numMoves);
+
+		int[] numOfType = new int[TYPES.length];
+		for(int i = 0; i < this.numMoves; i++){
+			ScrambleMoves type = this.moves[i].move;
+			this.buffer.write(type.ordinal() + 1);
+			numOfType[type.ordinal()]++;
+		}
+
+		long[] column = new long[this.numMoves];
+		for(ScrambleMoves curType : TYPES){
+			if(numOfType[curType.ordinal()] == 0){
+				continue;
+			}
+			for(int curArg = 0; curArg < curType.numArgs; curArg++){
+				int count = 0;
+				for(int i = 0; i < this.numMoves; i++){
+					if(this.moves[i].move == curType){
+						column[count++] = this.moves[i].getArg(curArg);
+					}
+				}
+				if(BinaryKeySerializer.isSignedArg(curType, curArg)){
+					for(int i = 0; i < count; i++){
+						VarInt.write(this.buffer, VarInt.zigzag(column[i]));
+					}
+				}else{
+					writePacked(this.buffer, column, count);
+				}
+			}
+		}
+
+		for(int i = 0; i < this.numMoves; i++){
+			this.moves[i] = null;
+		}
+		this.numMoves = 0;
+		this.buffer.writeTo(os);
+		return this.buffer.size();
+	}
+
+	/**
+	 * Gets the number of bits needed to hold the number given.
+	 * @param value The number. Treated as unsigned.
+	 * @return The number of bits needed; zero for zero.
+	 */
+	private static int bitsFor(long value){
+		return MAX_BITS - Long.numberOfLeadingZeros(value);
+	}
+
+	/**
+	 * Writes a stream of numbers bit packed; the number of bits each takes, then the numbers.
+	 * @param os The stream to write to.
+	 * @param values The numbers to write.
+	 * @param count The number of numbers to write.
+	 * @throws IOException If something went wrong writing.
+	 */
+	private static void writePacked(OutputStream os, long[] values, int count) throws IOException {
+		long all = 0;
+		for(int i = 0; i < count; i++){
+			all |= values[i];
+		}
+		int width = bitsFor(all);
+		os.write(width);
+
+		int cur = 0;
+		int curBits = 0;
+		for(int i = 0; i < count; i++){
+			long value = values[i];
+			int bitsLeft = width;
+			while(bitsLeft > 0){
+				int numBits = Math.min(bitsLeft, Byte.SIZE - curBits);
+				bitsLeft -= numBits;
+				cur = (cur << numBits) | (int)((value >>> bitsLeft) & ((1 << numBits) - 1));
+				curBits += numBits;
+				if(curBits == Byte.SIZE){
+					os.write(cur);
+					cur = 0;
+					curBits = 0;
+				}
+			}
+		}
+		if(curBits > 0){
+			os.write(cur << (Byte.SIZE - curBits));
+		}
+	}
+
+	/**
+	 * Reads a stream of bit packed numbers.
+	 * @param dis The stream to read from.
+	 * @param count The number of numbers to read.
+	 * @return The numbers read.
+	 * @throws IOException If something went wrong reading, or the number of bits was not valid.
+	 */
+	private static long[] readPacked(DataInputStream dis, int count) throws IOException {
+		int width = dis.readUnsignedByte();
+		if(width > MAX_BITS){
+			throw new IOException("Malformed key; invalid number of bits for a packed argument: " + width);
+		}
+		byte[] packed = new byte[(int)(((long)count * width + Byte.SIZE - 1) / Byte.SIZE)];
+		dis.readFully(packed);
+
+		long[] values = new long[count];
+		long bitPos = 0;
+		for(int i = 0; i < count; i++){
+			long value = 0;
+			int bitsLeft = width;
+			while(bitsLeft > 0){
+				int bitOffset = (int)(bitPos & 7);
+				int numBits = Math.min(bitsLeft, Byte.SIZE - bitOffset);
+				int bits = (packed[(int)(bitPos >>> 3)] >>> (Byte.SIZE - bitOffset - numBits)) & ((1 << numBits) - 1);
+				value = (value << numBits) | bits;
+				bitsLeft -= numBits;
+				bitPos += numBits;
+			}
+			values[i] = value;
+		}
+		return values;
+	}
+
+	/**
+	 * Reads the next block of moves.
+	 * @param is The stream to read from.
+	 * @param maxMoves The most moves a block can hold.
+	 * @return The moves of the block, or null if the end of the moves was reached.
+	 * @throws IOException If something went wrong reading, or the block was malformed.
+	 */
+	public static MoveLog read(InputStream is, int maxMoves) throws IOException {
+		try{
+			long numMovesRead = VarInt.read(is);
+			if(numMovesRead == 0){
+				return null;
+			}
+			if(numMovesRead > maxMoves){
+				throw new IOException("Malformed key; block holds too many moves: " + numMovesRead);
+			}
+			int numMoves = (int)numMovesRead;
+			DataInputStream dis = new DataInputStream(is);
+
+			byte[] opcodes = new byte[numMoves];
+			dis.readFully(opcodes);
+			int[] numOfType = new int[TYPES.length];
+			for(byte curOpcode : opcodes){
+				int opcode = curOpcode & 0xFF;
+				if(opcode == 0 || opcode > TYPES.length){
+					throw new IOException("Malformed key; invalid move opcode " + opcode);
+				}
+				numOfType[opcode - 1]++;
+			}
+
+			long[][][] columns = new long[TYPES.length][][];
+			for(ScrambleMoves curType : TYPES){
+				int count = numOfType[curType.ordinal()];
+				if(count == 0){
+					continue;
+				}
+				columns[curType.ordinal()] = new long[curType.numArgs][];
+				for(int curArg = 0; curArg < curType.numArgs; curArg++){
+					long[] column;
+					if(BinaryKeySerializer.isSignedArg(curType, curArg)){
+						column = new long[count];
+						for(int i = 0; i < count; i++){
+							column[i] = VarInt.unzigzag(VarInt.read(is));
+						}
+					}else{
+						column = readPacked(dis, count);
+					}
+					columns[curType.ordinal()][curArg] = column;
+				}
+			}
+
+			MoveLog moves = new MoveLog();
+			int[] nextOfType = new int[TYPES.length];
+			for(byte curOpcode : opcodes){
+				ScrambleMoves type = TYPES[(curOpcode & 0xFF) - 1];
+				int index = nextOfType[type.ordinal()]++;
+				long[] args = new long[type.numArgs];
+				for(int curArg = 0; curArg < args.length; curArg++){
+					args[curArg] = columns[type.ordinal()][curArg][index];
+				}
+				moves.add(new ScrambleMove(type, args));
+			}
+			return moves;
+		}catch (EOFException e){
+			throw new IOException("Malformed key; ended in the middle of a block of moves.", e);
+		}
+	}
+}
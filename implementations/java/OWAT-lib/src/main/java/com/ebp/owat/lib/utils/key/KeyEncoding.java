@@ -0,0 +1,15 @@
+package com.ebp.owat.lib.utils.key;
+
+/**
+ * The ways the scrambling in a key can be written out.
+ */
+public enum KeyEncoding {
+	/** Use whichever of moves or permutation is smaller for the key. Keys already in seed form stay in seed form. Keys that end up in permutation form cannot be read by versions before permutation keys. */
+	AUTO,
+	/** The list of moves that undo the scramble. The default; readable by every version. */
+	MOVES,
+	/** The position of each value of the original data in the scrambled data. Means no moves need to be replayed when descrambling. Cannot be read by versions before permutation keys. */
+	PERMUTATION,
+	/** The seed the moves were generated from, so they can be generated again when descrambling. The same size no matter how many moves there are. Only for keys made from a seed, when scrambling. */
+	SEED;
+}
@@ -0,0 +1,11 @@
+package com.ebp.owat.lib.utils.key;
+
+/**
+ * The formats a key can be written out in. Either way, the key is GZIP compressed.
+ */
+public enum KeyFormat {
+	/** A JSON object, with the moves or permutation as strings. Human readable once decompressed. */
+	JSON,
+	/** The compact binary form written by {@link BinaryKeySerializer}. Much smaller, and much faster to read. */
+	BINARY;
+}
@@ -13,8 +13,13 @@ import static com.ebp.owat.lib.utils.key.SerializationConstants.*;
 
 /**
  * Class to organize the data in the key's metadata section.
+ *
+ * Keys written by this library also hold what is needed to check them before use; the number of moves, a checksum of the moves and a checksum of the scrambled data. Older keys do not, and have them {@link #UNKNOWN unknown}.
  */
 public class KeyMetaData {
+	/** Marks a number of moves or checksum as not known. */
+	public static final long UNKNOWN = -1;
+
 	/** The height of the original data. */
 	@JsonProperty(ORIGINAL_HEIGHT)
 	public final long originalHeight;
@@ -33,6 +38,15 @@ public class KeyMetaData {
 	/** The end of the original data in the last row of the original dataset. */
 	@JsonProperty(LAST_COL_INDEX)
 	public final long lastColIndex;
+	/** The number of moves in the key. {@link #UNKNOWN} if not known, or the key holds no moves. */
+	@JsonProperty(NUM_MOVES)
+	public final long numMoves;
+	/** The CRC32 of the moves that descramble the data, each as {@link BinaryKeySerializer#writeMove written in binary}, in order. {@link #UNKNOWN} if not known, or the moves are not held. */
+	@JsonProperty(MOVES_CHECKSUM)
+	public final long movesChecksum;
+	/** The CRC32 of the bytes of the scrambled matrix. {@link #UNKNOWN} if not known. */
+	@JsonProperty(DATA_CHECKSUM)
+	public final long dataChecksum;
 
 	/**
 	 * Constructor to set all the data.
@@ -43,6 +57,29 @@ public class KeyMetaData {
 	 * @param nodeType The type of node used.
 	 * @param lastColIndex The  end of the original data in the last row of the original dataset.
 	 */
+	public KeyMetaData(
+		long originalHeight,
+		long originalWidth,
+		long dataHeight,
+		long dataWidth,
+		String nodeType,
+		long lastColIndex
+	) {
+		this(originalHeight, originalWidth, dataHeight, dataWidth, nodeType, lastColIndex, null, null, null);
+	}
+
+	/**
+	 * Constructor to set all the data, including what is needed to check the key.
+	 * @param originalHeight The height of the original data.
+	 * @param originalWidth The width of the original data.
+	 * @param dataHeight The height of the overall data.
+	 * @param dataWidth The width of the overall data.
+	 * @param nodeType The type of node used.
+	 * @param lastColIndex The  end of the original data in the last row of the original dataset.
+	 * @param numMoves The number of moves in the key. Null or {@link #UNKNOWN} if not known.
+	 * @param movesChecksum The checksum of the moves. Null or {@link #UNKNOWN} if not known.
+	 * @param dataChecksum The checksum of the scrambled data. Null or {@link #UNKNOWN} if not known.
+	 */
 	@JsonCreator
 	public KeyMetaData(
 		@JsonProperty(ORIGINAL_HEIGHT) long originalHeight,
@@ -50,7 +87,10 @@ public class KeyMetaData {
 		@JsonProperty(DATA_HEIGHT) long dataHeight,
 		@JsonProperty(DATA_WIDTH) long dataWidth,
 		@JsonProperty(NODE_TYPE) String nodeType,
-		@JsonProperty(value = LAST_COL_INDEX, defaultValue = "-1") long lastColIndex
+		@JsonProperty(value = LAST_COL_INDEX, defaultValue = "-1") long lastColIndex,
+		@JsonProperty(NUM_MOVES) Long numMoves,
+		@JsonProperty(MOVES_CHECKSUM) Long movesChecksum,
+		@JsonProperty(DATA_CHECKSUM) Long dataChecksum
 	) {
 		this.originalHeight = originalHeight;
 		this.originalWidth = originalWidth;
@@ -58,6 +98,34 @@ public class KeyMetaData {
 		this.dataWidth = dataWidth;
 		this.nodeType = nodeType;
 		this.lastColIndex = lastColIndex;
+		this.numMoves = (numMoves == null ? UNKNOWN : numMoves);
+		this.movesChecksum = (movesChecksum == null ? UNKNOWN : movesChecksum);
+		this.dataChecksum = (dataChecksum == null ? UNKNOWN : dataChecksum);
+	}
+
+	/**
+	 * Gets a copy of this metadata, with what is needed to check the key set to that given.
+	 * @param numMoves The number of moves in the key. {@link #UNKNOWN} if not known.
+	 * @param movesChecksum The checksum of the moves. {@link #UNKNOWN} if not known.
+	 * @param dataChecksum The checksum of the scrambled data. {@link #UNKNOWN} if not known.
+	 * @return A copy of this metadata, with the checks given.
+	 */
+	public KeyMetaData withChecks(long numMoves, long movesChecksum, long dataChecksum){
+		return new KeyMetaData(
+			this.originalHeight, this.originalWidth, this.dataHeight, this.dataWidth, this.nodeType, this.lastColIndex,
+			numMoves, movesChecksum, dataChecksum
+		);
+	}
+
+	/**
+	 * Makes sure the scrambled data read matches the checksum of the data this key was written for. Passes if the checksum is not known.
+	 * @param dataChecksum The CRC32 of the bytes of the scrambled matrix read.
+	 * @throws IllegalArgumentException If the data does not match the key.
+	 */
+	public void checkDataChecksum(long dataChecksum){
+		if(this.dataChecksum != UNKNOWN && this.dataChecksum != dataChecksum){
+			throw new IllegalArgumentException("The scrambled data given does not match the key given; its checksum differs.");
+		}
 	}
 	
 	/**
@@ -88,6 +156,21 @@ public class KeyMetaData {
 		}
 	}
 	
+	/**
+	 * Gets the number of values the original data took up in the matrix.
+	 * @return The number of values the original data took up.
+	 */
+	@JsonIgnore
+	public long getOriginalDataLength(){
+		long length = this.originalHeight * this.originalWidth;
+		if(this.lastColIndex == 0) {
+			length -= this.originalWidth - 1;
+		}else if(this.lastColIndex > 0){
+			length -= this.lastColIndex;
+		}
+		return length;
+	}
+	
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
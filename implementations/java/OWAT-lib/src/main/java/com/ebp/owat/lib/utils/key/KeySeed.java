@@ -0,0 +1,194 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.rand.SplitMixRandGenerator;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.generator.ScrambleMoveGenerator;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import static com.ebp.owat.lib.utils.key.SerializationConstants.GENERATOR_VERSION_FIELD;
+import static com.ebp.owat.lib.utils.key.SerializationConstants.NUM_MOVES;
+import static com.ebp.owat.lib.utils.key.SerializationConstants.SEED_VALUE;
+
+/**
+ * The seed of a key in {@link KeyEncoding#SEED seed form}; all that is needed to generate its moves again.
+ *
+ * The moves are those a {@link ScrambleMoveGenerator} gives for a matrix the size of the data, drawing its numbers from a {@link SplitMixRandGenerator} seeded with the seed. Both are bit for bit stable; any change to the numbers either gives means bumping the {@link #GENERATOR_VERSION generator version}, so older keys are refused rather than descrambled wrong.
+ */
+public class KeySeed {
+	/** The version of the generators the moves are made with. */
+	public static final int GENERATOR_VERSION = 1;
+	/** The number of moves generated again at a time when going through them last to first. */
+	static final int DESCRAMBLE_CHUNK_SIZE = 64 * 1024;
+
+	/** The seed of the random number generator. */
+	@JsonProperty(SEED_VALUE)
+	public final long seed;
+	/** The number of moves generated. */
+	@JsonProperty(NUM_MOVES)
+	public final long numMoves;
+
+	/**
+	 * Constructor for a seed of the current generator version.
+	 * @param seed The seed of the random number generator.
+	 * @param numMoves The number of moves generated.
+	 * @throws IllegalArgumentException If the number of moves is negative.
+	 */
+	public KeySeed(long seed, long numMoves){
+		this(GENERATOR_VERSION, seed, numMoves);
+	}
+
+	/**
+	 * Constructor to set all the data.
+	 * @param generatorVersion The version of the generators the moves were made with.
+	 * @param seed The seed of the random number generator.
+	 * @param numMoves The number of moves generated.
+	 * @throws IllegalArgumentException If the generator version is not supported, or the number of moves is negative.
+	 */
+	@JsonCreator
+	public KeySeed(
+		@JsonProperty(GENERATOR_VERSION_FIELD) int generatorVersion,
+		@JsonProperty(SEED_VALUE) long seed,
+		@JsonProperty(NUM_MOVES) long numMoves
+	){
+		if(generatorVersion != GENERATOR_VERSION){
+			throw new IllegalArgumentException("Unsupported move generator version: " + generatorVersion);
+		}
+		if(numMoves < 0){
+			throw new IllegalArgumentException("Number of moves cannot be negative.");
+		}
+		this.seed = seed;
+		this.numMoves = numMoves;
+	}
+
+	/**
+	 * Gets the version of the generators the moves are made with.
+	 * @return The version of the generators.
+	 */
+	@JsonProperty(GENERATOR_VERSION_FIELD)
+	public int getGeneratorVersion(){
+		return GENERATOR_VERSION;
+	}
+
+	/**
+	 * Gets a new generator of the moves of this seed, from the first.
+	 * @param meta The metadata of the key.
+	 * @return A new generator of the moves.
+	 */
+	public ScrambleMoveGenerator newMoveGenerator(KeyMetaData meta){
+		return new ScrambleMoveGenerator(new SplitMixRandGenerator(this.seed), meta.dataHeight, meta.dataWidth);
+	}
+
+	/**
+	 * Generates the moves of this seed, in the order they scrambled the data.
+	 * @param meta The metadata of the key.
+	 * @return The moves that scrambled the data.
+	 */
+	public MoveLog generateMoves(KeyMetaData meta){
+		ScrambleMoveGenerator generator = this.newMoveGenerator(meta);
+		MoveLog moves = new MoveLog();
+		for(long i = 0; i < this.numMoves; i++){
+			moves.add(generator.getMove());
+		}
+		return moves;
+	}
+
+	/**
+	 * Generates the moves of this seed, then undoes them; the moves that descramble the data, in the order they are to be done.
+	 * @param meta The metadata of the key.
+	 * @return The moves that descramble the data.
+	 */
+	public MoveLog generateDescrambleMoves(KeyMetaData meta){
+		MoveLog descrambleMoves = new MoveLog();
+		Iterator<ScrambleMove> it = this.descrambleMovesIterator(meta);
+		while(it.hasNext()){
+			descrambleMoves.add(it.next());
+		}
+		return descrambleMoves;
+	}
+
+	/**
+	 * Gets an iterator of the moves that descramble the data, in the order they are to be done, without holding them all.
+	 *
+	 * The moves are generated once through to note the state of the number generator at the start of each chunk of moves, then each chunk is generated again, last to first, and undone. Only one chunk of moves is held at a time, at the cost of generating each move twice.
+	 * @param meta The metadata of the key.
+	 * @return An iterator of the moves that descramble the data.
+	 */
+	public Iterator<ScrambleMove> descrambleMovesIterator(KeyMetaData meta){
+		return this.descrambleMovesIterator(meta, DESCRAMBLE_CHUNK_SIZE);
+	}
+
+	/**
+	 * Gets an iterator of the moves that descramble the data, generating them again a chunk at a time.
+	 * @param meta The metadata of the key.
+	 * @param chunkSize The number of moves to generate again at a time.
+	 * @return An iterator of the moves that descramble the data.
+	 */
+	Iterator<ScrambleMove> descrambleMovesIterator(KeyMetaData meta, int chunkSize){
+		SplitMixRandGenerator numGenerator = new SplitMixRandGenerator(this.seed);
+		ScrambleMoveGenerator generator = new ScrambleMoveGenerator(numGenerator, meta.dataHeight, meta.dataWidth);
+		int numChunks = (int)((this.numMoves + chunkSize - 1) / chunkSize);
+		long[] checkpoints = new long[numChunks];
+		for(int i = 0; i < numChunks; i++){
+			checkpoints[i] = numGenerator.getState();
+			long chunkEnd = Math.min(this.numMoves, (long)(i + 1) * chunkSize);
+			for(long j = (long)i * chunkSize; j < chunkEnd; j++){
+				generator.getMove();
+			}
+		}
+		return new Iterator<ScrambleMove>() {
+			/** The chunk to generate next. */
+			private int nextChunk = numChunks - 1;
+			/** The moves of the current chunk. */
+			private final ScrambleMove[] chunk = new ScrambleMove[(int)Math.min(chunkSize, numMoves)];
+			/** The number of moves of the current chunk left to give. */
+			private int chunkLeft = 0;
+
+			@Override
+			public boolean hasNext() {
+				if(this.chunkLeft == 0 && this.nextChunk >= 0){
+					ScrambleMoveGenerator chunkGenerator = new ScrambleMoveGenerator(
+						new SplitMixRandGenerator(checkpoints[this.nextChunk]),
+						meta.dataHeight,
+						meta.dataWidth
+					);
+					this.chunkLeft = (int)(Math.min(numMoves, (long)(this.nextChunk + 1) * chunkSize) - (long)this.nextChunk * chunkSize);
+					for(int i = 0; i < this.chunkLeft; i++){
+						this.chunk[i] = chunkGenerator.getMove();
+					}
+					this.nextChunk--;
+				}
+				return this.chunkLeft > 0;
+			}
+
+			@Override
+			public ScrambleMove next() {
+				if(!this.hasNext()){
+					throw new NoSuchElementException();
+				}
+				ScrambleMove curMove = this.chunk[--this.chunkLeft];
+				this.chunk[this.chunkLeft] = null;
+				return curMove.getReverse();
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		KeySeed keySeed = (KeySeed) o;
+		return seed == keySeed.seed &&
+			numMoves == keySeed.numMoves;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(seed, numMoves);
+	}
+}
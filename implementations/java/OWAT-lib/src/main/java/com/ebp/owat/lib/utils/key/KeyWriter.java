@@ -0,0 +1,118 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.io.NonClosingOutputStream;
+import com.ebp.owat.lib.utils.io.ParallelGzipOutputStream;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.zip.Deflater;
+
+import static com.ebp.owat.lib.utils.key.SerializationConstants.META;
+import static com.ebp.owat.lib.utils.key.SerializationConstants.PERMUTATION;
+import static com.ebp.owat.lib.utils.key.SerializationConstants.SCRAMBLE;
+import static com.ebp.owat.lib.utils.key.SerializationConstants.SEED;
+
+/**
+ * Writes a key out compressed, a move at a time, straight into the compression stream.
+ *
+ * The whole key is never held in memory as one string or array, so writing out a key takes the same memory no matter how many moves it holds. The JSON written reads back the same as that written by Jackson from a {@link ScrambleKey}; the metadata comes first, so the moves can be {@link StreamingKeyReader streamed} when read back in. The metadata written is {@link ScrambleKey#getCheckedMeta() checked}, so the key can be checked as it is read.
+ */
+public class KeyWriter {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	/** The size of the buffer in front of the compression stream, so the many small writes of a key are not each handed to it. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** The number of characters of moves to gather before writing them out. */
+	private static final int MOVES_BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * Writes out the key given, GZIP compressed with the default level and block size, in the format given.
+	 * @param key The key to write.
+	 * @param format The format to write the key in.
+	 * @param os The stream to write to. Not closed.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public static void write(ScrambleKey key, KeyFormat format, OutputStream os) throws IOException {
+		write(key, format, os, Deflater.DEFAULT_COMPRESSION, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Writes out the key given, GZIP compressed, in the format given. Blocks of the key are compressed in parallel, on as many threads as there are processors.
+	 * @param key The key to write.
+	 * @param format The format to write the key in.
+	 * @param os The stream to write to. Not closed.
+	 * @param compressionLevel The compression level, 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @param compressionBlockSize The number of bytes of the key compressed in each block.
+	 * @throws IOException If something went wrong writing.
+	 * @throws IllegalArgumentException If the compression level is not valid, or the block size is less than 1.
+	 */
+	public static void write(ScrambleKey key, KeyFormat format, OutputStream os, int compressionLevel, int compressionBlockSize) throws IOException {
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(
+			os,
+			compressionLevel,
+			compressionBlockSize,
+			Runtime.getRuntime().availableProcessors()
+		);
+		try(OutputStream buffered = new BufferedOutputStream(gzip, BUFFER_SIZE)){
+			if(format == KeyFormat.BINARY){
+				BinaryKeySerializer.write(key, buffered);
+			}else{
+				writeJson(key, buffered);
+			}
+		}
+	}
+
+	/**
+	 * Writes out the key given as JSON.
+	 * @param key The key to write.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing.
+	 */
+	private static void writeJson(ScrambleKey key, OutputStream os) throws IOException {
+		writeAscii(os, "{\"" + META + "\":");
+		os.write(OBJECT_MAPPER.writeValueAsBytes(key.getCheckedMeta()));
+
+		if(key.isSeedForm()){
+			writeAscii(os, ",\"" + SEED + "\":");
+			os.write(OBJECT_MAPPER.writeValueAsBytes(key.getSeed()));
+			writeAscii(os, "}");
+			return;
+		}
+		if(key.isPermutationForm()){
+			//Base64 needs no escaping in a JSON string
+			writeAscii(os, ",\"" + PERMUTATION + "\":\"");
+			try(OutputStream encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(os))){
+				PermutationSerializer.write(key.getScrambledPositions(), encoder);
+			}
+		}else{
+			//moves are made only of characters that need no escaping in a JSON string
+			writeAscii(os, ",\"" + SCRAMBLE + "\":\"");
+			StringBuilder sb = new StringBuilder(MOVES_BLOCK_SIZE + 64);
+			Iterator<ScrambleMove> it = key.getDescrambleMovesIt();
+			while(it.hasNext()){
+				it.next().toKeyString(sb, false);
+				if(sb.length() >= MOVES_BLOCK_SIZE){
+					writeAscii(os, sb);
+					sb.setLength(0);
+				}
+			}
+			writeAscii(os, sb);
+		}
+		writeAscii(os, "\"}");
+	}
+
+	/**
+	 * Writes out the characters given, which must all be ASCII.
+	 * @param os The stream to write to.
+	 * @param chars The characters to write.
+	 * @throws IOException If something went wrong writing.
+	 */
+	private static void writeAscii(OutputStream os, CharSequence chars) throws IOException {
+		os.write(chars.toString().getBytes(StandardCharsets.US_ASCII));
+	}
+}
@@ -0,0 +1,177 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+/**
+ * Counts and checksums moves, as held in the {@link KeyMetaData#movesChecksum metadata} of a key.
+ *
+ * The checksum is the CRC32 of the moves as {@link BinaryKeySerializer#writeMove(ScrambleMove, OutputStream) written in binary}, one after the other, so it is the same whichever format the key is in.
+ *
+ * Moves can also be {@link #prepend(ScrambleMove) put in front} of those already added, for keys that learn their moves last to first; the checksum of the move is combined with that of the moves after it, rather than going through them again.
+ */
+public class MoveChecksum {
+	/** The CRC32 polynomial, reflected. */
+	private static final long POLYNOMIAL = 0xEDB88320L;
+	/** x^0, reflected; multiplying by it changes nothing. */
+	private static final long X_POW_0 = 0x80000000L;
+	/** x^8, reflected; multiplying by it shifts a checksum over one zero byte. */
+	private static final long X_POW_8 = 0x00800000L;
+	
+	/** The checksum of the moves {@link #update(ScrambleMove) added} after those prepended. */
+	private final CRC32 crc = new CRC32();
+	/** The number of bytes of moves added after those prepended. */
+	private long numAddedBytes = 0;
+	/** Passes what is written on to the checksum. */
+	private final OutputStream crcStream = new OutputStream() {
+		@Override
+		public void write(int b) {
+			crc.update(b);
+			numAddedBytes++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			crc.update(b, off, len);
+			numAddedBytes += len;
+		}
+	};
+	/** The checksum of the moves {@link #prepend(ScrambleMove) prepended}. */
+	private long prependedValue = 0;
+	/** x^(8 * the number of bytes of moves prepended), reflected; shifts a checksum over the moves prepended. */
+	private long prependedShift = X_POW_0;
+	/** The number of moves so far. */
+	private long numMoves = 0;
+	
+	/**
+	 * Makes an empty checksum.
+	 */
+	public MoveChecksum(){
+	}
+	
+	/**
+	 * Makes a checksum of the same moves as the one given. Changes to one do not change the other.
+	 * @param other The checksum to copy.
+	 */
+	public MoveChecksum(MoveChecksum other){
+		this.prependedValue = other.getValue();
+		this.prependedShift = multiply(other.prependedShift, shiftFor(other.numAddedBytes));
+		this.numMoves = other.numMoves;
+	}
+
+	/**
+	 * Gets the checksum of the moves given.
+	 * @param moves The moves, in the order they descramble the data.
+	 * @return The checksum of the moves.
+	 */
+	public static MoveChecksum of(Iterator<ScrambleMove> moves){
+		MoveChecksum checksum = new MoveChecksum();
+		while(moves.hasNext()){
+			checksum.update(moves.next());
+		}
+		return checksum;
+	}
+
+	/**
+	 * Adds a move to the checksum.
+	 * @param move The next move.
+	 */
+	public void update(ScrambleMove move){
+		try{
+			BinaryKeySerializer.writeMove(move, this.crcStream);
+		}catch (IOException e){
+			//cannot happen writing to the checksum
+			throw new IllegalStateException(e);
+		}
+		this.numMoves++;
+	}
+	
+	/**
+	 * Adds a move to the checksum, before all the moves already in it.
+	 * @param move The move that comes before the rest.
+	 */
+	public void prepend(ScrambleMove move){
+		MoveChecksum moveChecksum = new MoveChecksum();
+		moveChecksum.update(move);
+		//crc(move + rest) = crc(move) shifted over the rest, xor crc(rest)
+		this.prependedValue = multiply(this.prependedShift, moveChecksum.getValue()) ^ this.prependedValue;
+		this.prependedShift = multiply(this.prependedShift, shiftFor(moveChecksum.numAddedBytes));
+		this.numMoves++;
+	}
+
+	/**
+	 * Gets the number of moves added.
+	 * @return The number of moves added.
+	 */
+	public long getNumMoves(){
+		return this.numMoves;
+	}
+
+	/**
+	 * Gets the checksum of the moves added.
+	 * @return The checksum of the moves added.
+	 */
+	public long getValue(){
+		if(this.numAddedBytes == 0){
+			return this.prependedValue;
+		}
+		return multiply(shiftFor(this.numAddedBytes), this.prependedValue) ^ this.crc.getValue();
+	}
+	
+	/**
+	 * Gets x^(8 * the number of bytes given) modulo the polynomial; what shifts a checksum over that many bytes.
+	 * @param numBytes The number of bytes to shift over.
+	 * @return The reflected x^(8 * numBytes).
+	 */
+	private static long shiftFor(long numBytes){
+		long shift = X_POW_0;
+		long square = X_POW_8;
+		while(numBytes != 0){
+			if((numBytes & 1) != 0){
+				shift = multiply(shift, square);
+			}
+			square = multiply(square, square);
+			numBytes >>>= 1;
+		}
+		return shift;
+	}
+	
+	/**
+	 * Multiplies two reflected polynomials, modulo the CRC32 polynomial.
+	 * @param power A power of x. Cannot be zero.
+	 * @param value The polynomial to multiply it by.
+	 * @return power * value, modulo the polynomial.
+	 */
+	private static long multiply(long power, long value){
+		long bit = X_POW_0;
+		long product = 0;
+		while(true){
+			if((power & bit) != 0){
+				product ^= value;
+				if((power & (bit - 1)) == 0){
+					return product;
+				}
+			}
+			bit >>>= 1;
+			value = ((value & 1) != 0) ? (value >>> 1) ^ POLYNOMIAL : value >>> 1;
+		}
+	}
+
+	/**
+	 * Makes sure the moves added are those the metadata given says the key holds. Only what the metadata knows is checked.
+	 * @param meta The metadata of the key.
+	 * @throws IOException If the number of moves or their checksum does not match.
+	 */
+	public void verify(KeyMetaData meta) throws IOException {
+		if(meta.numMoves != KeyMetaData.UNKNOWN && meta.numMoves != this.numMoves){
+			throw new IOException("Malformed key; expected " + meta.numMoves + " moves but read " + this.numMoves);
+		}
+		if(meta.movesChecksum != KeyMetaData.UNKNOWN && meta.movesChecksum != this.getValue()){
+			throw new IOException("Malformed key; the moves do not match their checksum.");
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.io.VarInt;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads a whole decompressed binary key, parsing its blocks of moves on several threads at once.
+ *
+ * Only keys in {@link BinaryKeySerializer#FORM_INDEXED_MOVES indexed} or {@link BinaryKeySerializer#FORM_COLUMNAR_MOVES columnar} moves form can be parsed in parallel; the index gives where each block starts and how many moves it holds, so each thread can parse its blocks on its own. The blocks parsed are then joined in order, and checked against the metadata. Keys in any other form are read in order.
+ */
+public class ParallelKeyReader {
+	/** The number of bytes holding the length of the block index. */
+	private static final int INDEX_LENGTH_SIZE = Integer.BYTES;
+
+	/**
+	 * Reads the key given, using as many threads as there are processors.
+	 * @param key The decompressed binary key.
+	 * @return The key read, in descrambling mode.
+	 * @throws IOException If the key was malformed.
+	 */
+	public static ScrambleKey read(byte[] key) throws IOException {
+		return read(key, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Reads the key given.
+	 * @param key The decompressed binary key.
+	 * @param numThreads The most threads to parse blocks of moves on.
+	 * @return The key read, in descrambling mode.
+	 * @throws IOException If the key was malformed.
+	 * @throws IllegalArgumentException If the number of threads is less than 1.
+	 */
+	public static ScrambleKey read(byte[] key, int numThreads) throws IOException {
+		if(numThreads < 1){
+			throw new IllegalArgumentException("Need at least one thread to read the key.");
+		}
+		ByteArrayInputStream is = new ByteArrayInputStream(key);
+		KeyMetaData meta = BinaryKeySerializer.readMeta(is);
+		int form = BinaryKeySerializer.readForm(is);
+		if(form != BinaryKeySerializer.FORM_INDEXED_MOVES && form != BinaryKeySerializer.FORM_COLUMNAR_MOVES){
+			return BinaryKeySerializer.read(new ByteArrayInputStream(key));
+		}
+		boolean columnar = form == BinaryKeySerializer.FORM_COLUMNAR_MOVES;
+		int movesStart = key.length - is.available();
+
+		//the index, from the end of the key
+		if(key.length - movesStart < INDEX_LENGTH_SIZE){
+			throw new IOException("Malformed key; missing block index.");
+		}
+		int indexLength = ByteBuffer.wrap(key, key.length - INDEX_LENGTH_SIZE, INDEX_LENGTH_SIZE).getInt();
+		int indexStart = key.length - INDEX_LENGTH_SIZE - indexLength;
+		//the moves end in the end of moves opcode, right before the index
+		if(indexLength < 1 || indexStart <= movesStart || key[indexStart - 1] != BinaryKeySerializer.END_OF_MOVES){
+			throw new IOException("Malformed key; invalid block index.");
+		}
+		ByteArrayInputStream index = new ByteArrayInputStream(key, indexStart, indexLength);
+		long numBlocks = VarInt.read(index);
+		if(numBlocks > indexLength){
+			throw new IOException("Malformed key; invalid number of blocks.");
+		}
+		int[] blockStarts = new int[(int)numBlocks + 1];
+		long[] blockNumMoves = new long[(int)numBlocks];
+		blockStarts[0] = movesStart;
+		for(int i = 0; i < numBlocks; i++){
+			long numMoves = VarInt.read(index);
+			long numBytes = VarInt.read(index);
+			//every move takes at least a byte
+			if(numMoves < 1 || numBytes < numMoves || blockStarts[i] + numBytes >= indexStart){
+				throw new IOException("Malformed key; block " + i + " does not fit in the key.");
+			}
+			blockStarts[i + 1] = blockStarts[i] + (int)numBytes;
+			blockNumMoves[i] = numMoves;
+		}
+		if(blockStarts[(int)numBlocks] != indexStart - 1){
+			throw new IOException("Malformed key; blocks do not cover the moves.");
+		}
+
+		MoveLog[] blocks = parseBlocks(key, columnar, blockStarts, blockNumMoves, numThreads);
+
+		MoveLog moves = new MoveLog(meta.numMoves);
+		MoveChecksum checksum = new MoveChecksum();
+		for(int i = 0; i < blocks.length; i++){
+			for(ScrambleMove curMove : blocks[i]){
+				checksum.update(curMove);
+				moves.add(curMove);
+			}
+			//let go of each block once joined
+			blocks[i] = null;
+		}
+		checksum.verify(meta);
+		return new ScrambleKey(meta, moves);
+	}
+
+	/**
+	 * Parses the blocks of moves, each thread taking the next block not yet parsed.
+	 * @param key The decompressed key.
+	 * @param columnar If the blocks are {@link ColumnarMoveBlock columnar}.
+	 * @param blockStarts The offset in the key of the start of each block, followed by the end of the last.
+	 * @param blockNumMoves The number of moves in each block.
+	 * @param numThreads The most threads to parse on.
+	 * @return The moves of each block.
+	 * @throws IOException If a block was malformed.
+	 */
+	private static MoveLog[] parseBlocks(byte[] key, boolean columnar, int[] blockStarts, long[] blockNumMoves, int numThreads) throws IOException {
+		int numBlocks = blockNumMoves.length;
+		MoveLog[] blocks = new MoveLog[numBlocks];
+		AtomicInteger nextBlock = new AtomicInteger();
+		AtomicReference<IOException> error = new AtomicReference<>();
+		Runnable parser = ()->{
+			int curBlock;
+			while(error.get() == null && (curBlock = nextBlock.getAndIncrement()) < numBlocks){
+				try{
+					blocks[curBlock] = parseBlock(key, columnar, blockStarts[curBlock], blockStarts[curBlock + 1], blockNumMoves[curBlock]);
+				}catch (IOException e){
+					error.compareAndSet(null, e);
+				}catch (IllegalArgumentException e){
+					error.compareAndSet(null, new IOException("Malformed key; invalid move in block " + curBlock, e));
+				}
+			}
+		};
+
+		Thread[] threads = new Thread[Math.max(0, Math.min(numThreads, numBlocks) - 1)];
+		for(int i = 0; i < threads.length; i++){
+			threads[i] = new Thread(parser, "owat-key-parse-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+		//this thread parses too
+		parser.run();
+		try{
+			for(Thread curThread : threads){
+				curThread.join();
+			}
+		}catch (InterruptedException e){
+			error.compareAndSet(null, new InterruptedIOException("Interrupted parsing key."));
+			for(Thread curThread : threads){
+				curThread.interrupt();
+			}
+			Thread.currentThread().interrupt();
+		}
+		if(error.get() != null){
+			throw error.get();
+		}
+		return blocks;
+	}
+
+	/**
+	 * Parses a single block of moves.
+	 * @param key The decompressed key.
+	 * @param columnar If the block is {@link ColumnarMoveBlock columnar}.
+	 * @param start The offset in the key of the start of the block.
+	 * @param end The offset in the key of the end of the block.
+	 * @param numMoves The number of moves in the block.
+	 * @return The moves of the block.
+	 * @throws IOException If the block was malformed.
+	 */
+	private static MoveLog parseBlock(byte[] key, boolean columnar, int start, int end, long numMoves) throws IOException {
+		ByteArrayInputStream block = new ByteArrayInputStream(key, start, end - start);
+		if(columnar){
+			MoveLog moves = BinaryKeySerializer.readColumnarBlock(block);
+			if(moves == null || moves.sizeL() != numMoves || block.available() != 0){
+				throw new IOException("Malformed key; block does not hold the moves indexed.");
+			}
+			return moves;
+		}
+		MoveLog moves = new MoveLog();
+		for(long i = 0; i < numMoves; i++){
+			ScrambleMove curMove = BinaryKeySerializer.readMove(block);
+			if(curMove == null){
+				throw new IOException("Malformed key; moves ended in the middle of a block.");
+			}
+			moves.add(curMove);
+		}
+		if(block.available() != 0){
+			throw new IOException("Malformed key; block held more moves than indexed.");
+		}
+		return moves;
+	}
+}
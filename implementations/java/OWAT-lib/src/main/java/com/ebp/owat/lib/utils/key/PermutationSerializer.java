@@ -0,0 +1,147 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.io.VarInt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+
+/**
+ * Turns the list of scrambled positions in a permutation form key to and from its compact string form.
+ *
+ * Each position is stored as the difference from the one before it, zigzag encoded so small negative differences stay small, then written as a variable length number of 7 bits per byte. The bytes are then Base64 encoded.
+ */
+public class PermutationSerializer {
+	private static final Base64.Encoder ENCODER = Base64.getEncoder();
+	private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+	/**
+	 * Gets the number of positions in the permutation of a key with the metadata given; one for each value of the original data.
+	 * @param meta The metadata of the key.
+	 * @return The number of positions in the permutation.
+	 * @throws IllegalArgumentException If there are too many to hold in one array.
+	 */
+	public static int getNumPositions(KeyMetaData meta){
+		long numPositions = meta.getOriginalDataLength();
+		if(numPositions > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("Original data is too large to hold the permutation of. Number of values: " + numPositions);
+		}
+		return (int)numPositions;
+	}
+
+	/**
+	 * Serializes the positions given.
+	 * @param positions The positions to serialize.
+	 * @return The positions, in their compact string form.
+	 */
+	public static String serialize(long[] positions){
+		ByteArrayOutputStream os = new ByteArrayOutputStream(positions.length * 2);
+		try{
+			write(positions, os);
+		}catch (IOException e){
+			//cannot happen writing to memory
+			throw new IllegalStateException(e);
+		}
+		return ENCODER.encodeToString(os.toByteArray());
+	}
+
+	/**
+	 * Deserializes positions from their compact string form.
+	 * @param serialized The serialized positions.
+	 * @param numPositions The number of positions expected.
+	 * @return The positions.
+	 * @throws IllegalArgumentException If the string given does not hold the number of positions expected.
+	 */
+	public static long[] deserialize(String serialized, int numPositions){
+		ByteArrayInputStream is = new ByteArrayInputStream(DECODER.decode(serialized));
+		long[] positions;
+		try{
+			positions = read(is, numPositions);
+		}catch (IOException e){
+			throw new IllegalArgumentException("Serialized permutation is malformed or too short.", e);
+		}
+		if(is.available() != 0){
+			throw new IllegalArgumentException("Serialized permutation holds more positions than expected.");
+		}
+		return positions;
+	}
+
+	/**
+	 * Writes the positions given out as raw bytes, before any Base64 encoding.
+	 * @param positions The positions to write.
+	 * @param os The stream to write to.
+	 * @throws IOException If something went wrong writing.
+	 */
+	public static void write(long[] positions, OutputStream os) throws IOException {
+		long last = 0;
+		for(long curPosition : positions){
+			VarInt.write(os, VarInt.zigzag(curPosition - last));
+			last = curPosition;
+		}
+	}
+
+	/**
+	 * Reads positions {@link #write(long[], OutputStream) written out as raw bytes}.
+	 * @param is The stream to read from.
+	 * @param numPositions The number of positions to read.
+	 * @return The positions.
+	 * @throws IOException If something went wrong reading, or the stream did not hold the number of positions expected.
+	 */
+	public static long[] read(InputStream is, int numPositions) throws IOException {
+		long[] positions = new long[numPositions];
+		long last = 0;
+		for(int i = 0; i < numPositions; i++){
+			last += VarInt.unzigzag(VarInt.read(is));
+			positions[i] = last;
+		}
+		return positions;
+	}
+
+	/**
+	 * Gets the length of the {@link #serialize(long[]) compact string form} of the positions given, without building it.
+	 * @param positions The positions.
+	 * @return The length of the string they serialize to.
+	 */
+	public static long serializedLength(long[] positions){
+		return encodedLength(size(positions));
+	}
+
+	/**
+	 * Gets the length of the Base64 encoding of the number of bytes given.
+	 * @param numBytes The number of raw bytes.
+	 * @return The number of characters they encode to.
+	 */
+	public static long encodedLength(long numBytes){
+		return ((numBytes + 2) / 3) * 4;
+	}
+
+	/**
+	 * Estimates the number of raw bytes the positions of a well scrambled matrix take up once {@link #write(long[], OutputStream) written out}, from its size alone.
+	 *
+	 * The positions of a well scrambled matrix are spread across it with no order, so the difference between one and the next is a third of the size of the matrix on average.
+	 * @param numPositions The number of positions; the length of the original data.
+	 * @param matrixSize The number of values in the scrambled matrix.
+	 * @return The estimated number of bytes the positions take up.
+	 */
+	public static long estimateSize(long numPositions, long matrixSize){
+		return numPositions * VarInt.size(VarInt.zigzag(matrixSize / 3));
+	}
+
+	/**
+	 * Gets the number of raw bytes the positions given take up once {@link #write(long[], OutputStream) written out}.
+	 * @param positions The positions.
+	 * @return The number of bytes they take up.
+	 */
+	public static long size(long[] positions){
+		long size = 0;
+		long last = 0;
+		for(long curPosition : positions){
+			size += VarInt.size(VarInt.zigzag(curPosition - last));
+			last = curPosition;
+		}
+		return size;
+	}
+}
@@ -1,32 +1,53 @@
 package com.ebp.owat.lib.utils.key;
 
-import com.ebp.owat.lib.datastructure.set.LongLinkedList;
 import com.ebp.owat.lib.datastructure.value.Value;
 import com.ebp.owat.lib.runner.utils.ScrambleMode;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.MovePermutation;
 import com.ebp.owat.lib.utils.scramble.ScrambleMove;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Objects;
 
 import static com.ebp.owat.lib.runner.utils.ScrambleMode.DESCRAMBLING;
 import static com.ebp.owat.lib.runner.utils.ScrambleMode.SCRAMBLING;
 import static com.ebp.owat.lib.utils.key.SerializationConstants.META;
+import static com.ebp.owat.lib.utils.key.SerializationConstants.PERMUTATION;
 import static com.ebp.owat.lib.utils.key.SerializationConstants.SCRAMBLE;
+import static com.ebp.owat.lib.utils.key.SerializationConstants.SEED;
 
 /**
  * The key for scrambling the data.
+ *
+ * The moves of a key can be {@link #setMovesMemoryLimit(long) spilled to disk} once they take up too much memory; {@link #close() close} the key once done with it to delete them.
  */
-public class ScrambleKey {
-	/** The metadata that describes the matrix. */
-	@JsonProperty(META)
+public class ScrambleKey implements Closeable {
+	/** The metadata that describes the matrix. Serialized as the {@link #getCheckedMeta() checked metadata}. */
+	@JsonIgnore
 	public final KeyMetaData meta;
 	
-	/** The moves used to scramble the matrix. */
-	private LongLinkedList<ScrambleMove> moves;
+	/** The moves held. When scrambling, the moves that scrambled the matrix in the order they were done. When descrambling, the moves that descramble it in the order they are to be done. */
+	private MoveLog moves;
+	
+	/** The count and checksum of the moves held, in the order they descramble the data, kept as moves are added. Null if not kept, for keys whose moves were not added one at a time. */
+	private MoveChecksum movesChecksum = null;
+	
+	/** For each value of the original data, its position in the scrambled matrix. Null unless the key is in {@link KeyEncoding#PERMUTATION permutation form}. */
+	private long[] scrambledPositions = null;
+	
+	/** The seed the moves were generated from. Null unless the key is in {@link KeyEncoding#SEED seed form}. When scrambling, the moves are not held, but generated again when needed. */
+	private KeySeed seed = null;
+	
+	/** The checksum of the scrambled data this key is for. {@link KeyMetaData#UNKNOWN} to use that in the metadata. */
+	private long dataChecksum = KeyMetaData.UNKNOWN;
 	
 	/** If this key is part of the scrambling or descrambling process. */
 	@JsonIgnore
@@ -51,7 +72,8 @@ public class ScrambleKey {
 	) {
 		this.mode = SCRAMBLING;
 		this.meta = new KeyMetaData(originalHeight, originalWidth, dataHeight, dataWidth, KeyMetaData.getTypeStr(type), lastRowIndex);
-		this.moves = new LongLinkedList<>();
+		this.moves = new MoveLog();
+		this.movesChecksum = new MoveChecksum();
 	}
 
 	/**
@@ -59,23 +81,224 @@ public class ScrambleKey {
 	 * @param meta The metadata to use.
 	 * @param movesStr The string of moves
 	 */
+	public ScrambleKey(KeyMetaData meta, String movesStr){
+		this(meta, movesStr, null);
+	}
+	
+	/**
+	 * Constructor to setup the scramble key, from either its moves or its permutation.
+	 * @param meta The metadata to use.
+	 * @param movesStr The string of moves. Ignored if the permutation is given.
+	 * @param permutationStr The serialized permutation, as made by {@link PermutationSerializer}. Null if the key is made of moves.
+	 */
+	public ScrambleKey(KeyMetaData meta, String movesStr, String permutationStr){
+		this(meta, movesStr, permutationStr, null);
+	}
+	
+	/**
+	 * Constructor to setup the scramble key, from either its moves, its permutation or its seed.
+	 * @param meta The metadata to use.
+	 * @param movesStr The string of moves. Ignored if the permutation or seed is given.
+	 * @param permutationStr The serialized permutation, as made by {@link PermutationSerializer}. Null if the key is not in permutation form.
+	 * @param seed The seed the moves were generated from. Null if the key is not in seed form.
+	 */
 	@JsonCreator
-	public ScrambleKey(@JsonProperty(META) KeyMetaData meta, @JsonProperty(SCRAMBLE) String movesStr){
+	public ScrambleKey(
+		@JsonProperty(META) KeyMetaData meta,
+		@JsonProperty(SCRAMBLE) String movesStr,
+		@JsonProperty(PERMUTATION) String permutationStr,
+		@JsonProperty(SEED) KeySeed seed
+	){
 		this.mode = DESCRAMBLING;
 		this.meta = meta;
-		this.moves = ScrambleMove.parseMulti(movesStr);
+		if(seed != null){
+			this.seed = seed;
+			this.moves = seed.generateDescrambleMoves(meta);
+		}else if(permutationStr != null){
+			this.moves = new MoveLog();
+			this.scrambledPositions = PermutationSerializer.deserialize(permutationStr, PermutationSerializer.getNumPositions(meta));
+		}else{
+			this.moves = MoveLog.parse(movesStr);
+		}
+	}
+	
+	/**
+	 * Constructor to set up a key from moves that were already parsed.
+	 * @param meta The metadata to use.
+	 * @param moves The moves, in the order they descramble the data.
+	 */
+	ScrambleKey(KeyMetaData meta, MoveLog moves){
+		this.mode = DESCRAMBLING;
+		this.meta = meta;
+		this.moves = moves;
+	}
+	
+	/**
+	 * Constructor to set up a key in seed form, for descrambling. The moves are generated from the seed straight away.
+	 * @param meta The metadata to use.
+	 * @param seed The seed the moves were generated from.
+	 */
+	public ScrambleKey(KeyMetaData meta, KeySeed seed){
+		this(meta, null, null, seed);
+	}
+	
+	/**
+	 * Constructor to set up a key in permutation form.
+	 * @param meta The metadata to use.
+	 * @param scrambledPositions For each value of the original data, its position in the scrambled matrix.
+	 * @throws IllegalArgumentException If the number of positions does not match the length of the original data.
+	 */
+	public ScrambleKey(KeyMetaData meta, long[] scrambledPositions){
+		this(meta, scrambledPositions, SCRAMBLING);
+	}
+	
+	/**
+	 * Constructor to set up a key in permutation form, for the mode given.
+	 * @param meta The metadata to use.
+	 * @param scrambledPositions For each value of the original data, its position in the scrambled matrix.
+	 * @param mode If the key is part of the scrambling or descrambling process.
+	 * @throws IllegalArgumentException If the number of positions does not match the length of the original data.
+	 */
+	ScrambleKey(KeyMetaData meta, long[] scrambledPositions, ScrambleMode mode){
+		if(scrambledPositions.length != meta.getOriginalDataLength()){
+			throw new IllegalArgumentException("Number of positions given does not match the length of the original data.");
+		}
+		this.mode = mode;
+		this.meta = meta;
+		this.moves = new MoveLog();
+		this.scrambledPositions = scrambledPositions;
+	}
+	
+	/**
+	 * Constructor to set up a key for scrambling data further that was already scrambled with the key given. Moves added to this key are done after the ones in the key given.
+	 * @param keyToBuildOn The key the data was already scrambled with. Not changed.
+	 */
+	public ScrambleKey(ScrambleKey keyToBuildOn){
+		if(keyToBuildOn.isPermutationForm()){
+			throw new IllegalArgumentException("Cannot add moves on to a key in permutation form.");
+		}
+		this.mode = SCRAMBLING;
+		this.meta = keyToBuildOn.meta;
+		this.moves = new MoveLog();
+		
+		if(keyToBuildOn.mode == SCRAMBLING){
+			this.moves.addAll(keyToBuildOn.getScrambleMoves());
+			this.movesChecksum = new MoveChecksum(keyToBuildOn.getMovesChecksum());
+			return;
+		}
+		//the moves that scrambled the data are those that descramble it, last to first, each undone
+		this.movesChecksum = new MoveChecksum();
+		Iterator<ScrambleMove> it = keyToBuildOn.moves.reverseIterator();
+		while(it.hasNext()){
+			ScrambleMove move = it.next();
+			this.moves.add(move.getReverse());
+			this.movesChecksum.prepend(move);
+		}
+	}
+	
+	/**
+	 * Puts this key into seed form; its moves are to be those generated from the seed given, rather than added. The moves are not held.
+	 * @param seed The seed the moves are generated from.
+	 * @throws IllegalStateException If the key is not set to be scrambling, already has moves or is not in moves form.
+	 */
+	public void useSeed(KeySeed seed){
+		if(this.mode != SCRAMBLING){
+			throw new IllegalStateException("The mode of the ScrambleKey is not set to SCRAMBLING. Cannot set the seed when descrambling.");
+		}
+		if(this.isPermutationForm() || this.isSeedForm() || !this.moves.isEmpty()){
+			throw new IllegalStateException("The ScrambleKey already has moves. Cannot set the seed.");
+		}
+		this.seed = seed;
+		this.movesChecksum = null;
+	}
+	
+	/**
+	 * Gets the moves that scrambled the data, in the order they were done. Only for keys set to be scrambling.
+	 * @return The moves that scrambled the data; generated again if in seed form.
+	 */
+	private MoveLog getScrambleMoves(){
+		if(this.isSeedForm()){
+			return this.seed.generateMoves(this.meta);
+		}
+		return this.moves;
 	}
 	
 	/**
 	 * Adds a move to the list.
 	 * @param move The move to add to the list.
-	 * @throws IllegalStateException If the key is not set to be scrambling.
+	 * @throws IllegalStateException If the key is not set to be scrambling, or is in permutation or seed form.
 	 */
 	public void addMove(ScrambleMove move){
 		if(this.mode != SCRAMBLING){
 			throw new IllegalStateException("The mode of the ScrambleKey is not set to SCRAMBLING. Cannot add a move when descrambling.");
 		}
-		this.moves.addFirst(move);
+		if(this.isPermutationForm()){
+			throw new IllegalStateException("The ScrambleKey is in permutation form. Cannot add a move.");
+		}
+		if(this.isSeedForm()){
+			throw new IllegalStateException("The ScrambleKey is in seed form. Cannot add a move.");
+		}
+		this.moves.add(move);
+		if(this.movesChecksum != null){
+			//the move done last is the first undone
+			this.movesChecksum.prepend(move.getReverse());
+		}
+	}
+	
+	/**
+	 * Sets the limit on the memory the moves of this key can take up. Past it, the moves are spilled to a temporary file, and read back from it when the key is written out.
+	 * @param numBytes The limit on the memory the moves held can take up, in bytes.
+	 * @throws IllegalArgumentException If the limit given is less than 1.
+	 */
+	public void setMovesMemoryLimit(long numBytes){
+		this.moves.setSpillThreshold(numBytes);
+	}
+	
+	/**
+	 * Sets the directory the moves of this key are spilled to, once past the {@link #setMovesMemoryLimit(long) limit}. Defaults to the system's temporary directory.
+	 * @param directory The directory to spill moves to. Null for the system's temporary directory.
+	 * @throws IllegalStateException If moves have already been spilled.
+	 */
+	public void setMovesSpillDirectory(File directory){
+		this.moves.setSpillDirectory(directory);
+	}
+	
+	/**
+	 * Sets the checksum of the scrambled data this key is for, to be written out with the key.
+	 * @param checksum The CRC32 of the bytes of the scrambled matrix.
+	 */
+	public void setDataChecksum(long checksum){
+		this.dataChecksum = checksum;
+	}
+	
+	/**
+	 * Gets the metadata to write out with this key; its metadata, with the number of moves and the checksums of the moves and data filled in. Keys in permutation form have no moves to count, and keys in seed form none to checksum.
+	 *
+	 * This is what is serialized as the metadata of the key. The moves of keys being scrambled are checksummed as they are added, so they are not gone through again.
+	 * @return The metadata to write out with this key.
+	 */
+	@JsonProperty(META)
+	public KeyMetaData getCheckedMeta(){
+		long dataChecksum = (this.dataChecksum == KeyMetaData.UNKNOWN ? this.meta.dataChecksum : this.dataChecksum);
+		if(this.isPermutationForm()){
+			return this.meta.withChecks(KeyMetaData.UNKNOWN, KeyMetaData.UNKNOWN, dataChecksum);
+		}
+		if(this.isSeedForm()){
+			return this.meta.withChecks(this.seed.numMoves, KeyMetaData.UNKNOWN, dataChecksum);
+		}
+		MoveChecksum checksum = this.getMovesChecksum();
+		return this.meta.withChecks(checksum.getNumMoves(), checksum.getValue(), dataChecksum);
+	}
+	
+	/**
+	 * Gets the count and checksum of the moves held, in the order they descramble the data. Only goes through the moves if they were not checksummed as they were added.
+	 * @return The checksum of the moves held. Not to be modified.
+	 */
+	private MoveChecksum getMovesChecksum(){
+		if(this.movesChecksum != null){
+			return this.movesChecksum;
+		}
+		return MoveChecksum.of(this.getDescrambleMovesIt());
 	}
 	
 	/**
@@ -91,16 +314,249 @@ public class ScrambleKey {
 		return this.moves.destructiveIterator();
 	}
 
+	/**
+	 * Gets an iterator that goes through the moves in reverse order, last move first. Used to trace values back through the descrambling process.
+	 * @return An iterator of the moves held, last to first. Does NOT remove the moves as it iterates.
+	 * @throws IllegalStateException If the key is set to be scrambling
+	 */
+	@JsonIgnore
+	public Iterator<ScrambleMove> getMovesReverseIt(){
+		if(this.mode != DESCRAMBLING){
+			throw new IllegalStateException("The mode of the ScrambleKey is not set to DESCRAMBLING. Cannot trace moves when scrambling.");
+		}
+		return this.moves.reverseIterator();
+	}
+
+	/**
+	 * Gets an iterator that goes through the moves that undo the scramble, in the order they are to be done. Works in either mode.
+	 * @return An iterator of the moves that descramble the data. Does NOT remove or change the moves held.
+	 */
+	@JsonIgnore
+	public Iterator<ScrambleMove> getDescrambleMovesIt(){
+		if(this.mode == DESCRAMBLING){
+			return this.moves.iterator();
+		}
+		//undo the moves that scrambled the data, last to first
+		Iterator<ScrambleMove> it = this.getScrambleMoves().reverseIterator();
+		return new Iterator<ScrambleMove>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+			
+			@Override
+			public ScrambleMove next() {
+				return it.next().getReverse();
+			}
+		};
+	}
+
+	/**
+	 * Gets if this key is in permutation form; holding where each value ended up instead of the moves that put it there.
+	 * @return If this key is in permutation form.
+	 */
+	@JsonIgnore
+	public boolean isPermutationForm(){
+		return this.scrambledPositions != null;
+	}
+	
+	/**
+	 * Gets if this key is in seed form; holding the seed its moves were generated from instead of the moves themselves.
+	 * @return If this key is in seed form.
+	 */
+	@JsonIgnore
+	public boolean isSeedForm(){
+		return this.seed != null;
+	}
+	
+	/**
+	 * Gets the seed the moves of this key were generated from.
+	 * @return The seed of this key. Null if the key is not in seed form.
+	 */
+	@JsonGetter(SEED)
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public KeySeed getSeed(){
+		return this.seed;
+	}
+	
+	/**
+	 * Gets the position in the scrambled matrix of each value of the original data. Worked out from the moves if the key is not in permutation form.
+	 * @return For each value of the original data, its position in the scrambled matrix. Not to be modified.
+	 * @throws IllegalArgumentException If the matrix is too large to hold the permutation of.
+	 */
+	@JsonIgnore
+	public long[] getScrambledPositions(){
+		if(this.isPermutationForm()){
+			return this.scrambledPositions;
+		}
+		MovePermutation permutation = new MovePermutation(this.meta.dataHeight, this.meta.dataWidth);
+		
+		Iterator<ScrambleMove> it = this.getDescrambleMovesIt();
+		while(it.hasNext()){
+			permutation.doMove(it.next());
+		}
+		
+		long[] positions = new long[PermutationSerializer.getNumPositions(this.meta)];
+		for(int i = 0; i < positions.length; i++){
+			long row = i / this.meta.originalWidth;
+			long col = i % this.meta.originalWidth;
+			positions[i] = permutation.getSource((row * this.meta.dataWidth) + col);
+		}
+		return positions;
+	}
+	
+	/**
+	 * Sets up the key to be written out in JSON with the encoding given. Once in permutation form, a key stays in permutation form.
+	 * @param encoding The encoding to use. {@link KeyEncoding#AUTO} turns the key into permutation form if that would be smaller than its moves.
+	 * @throws IllegalStateException If asked for moves when the key is already in permutation form.
+	 */
+	public void applyEncoding(KeyEncoding encoding){
+		this.applyEncoding(encoding, KeyFormat.JSON);
+	}
+	
+	/**
+	 * Sets up the key to be written out in the format given with the encoding given. Once in permutation form, a key stays in permutation form.
+	 * @param encoding The encoding to use. {@link KeyEncoding#AUTO} turns the key into permutation form if that would be smaller than its moves in the format given, and leaves keys in seed form as they are. The permutation is only worked out if the matrix is small enough to hold it, and its size estimated from the size of the matrix is smaller than the moves; otherwise the key is left as moves.
+	 * @param format The format the key is to be written out in.
+	 * @throws IllegalStateException If asked for moves when the key is already in permutation form, or for a seed when the key was not made from one.
+	 */
+	public void applyEncoding(KeyEncoding encoding, KeyFormat format){
+		if(this.isPermutationForm()){
+			if(encoding == KeyEncoding.MOVES || encoding == KeyEncoding.SEED){
+				throw new IllegalStateException("Key is already in permutation form. Cannot turn it back into " + encoding + ".");
+			}
+			return;
+		}
+		if(this.isSeedForm()){
+			if(encoding == KeyEncoding.SEED || encoding == KeyEncoding.AUTO){
+				//nothing is smaller than the seed
+				return;
+			}
+			this.dropSeed();
+		}
+		switch (encoding){
+			case SEED:
+				throw new IllegalStateException("Key was not made from a seed. Cannot turn it into seed form.");
+			case MOVES:
+				break;
+			case PERMUTATION:
+				this.toPermutationForm(this.getScrambledPositions());
+				break;
+			case AUTO: {
+				//only work the permutation out if it can be held and could be the smaller
+				if(!MovePermutation.canHold(this.meta.dataHeight, this.meta.dataWidth)){
+					break;
+				}
+				long movesSize = this.getMovesSize(format);
+				if(this.estimatePermutationSize(format) >= movesSize){
+					break;
+				}
+				long[] positions = this.getScrambledPositions();
+				if(getPermutationSize(positions, format) < movesSize){
+					this.toPermutationForm(positions);
+				}
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of bytes the moves held take up in the format given.
+	 * @param format The format the moves are to be written in.
+	 * @return The number of bytes the moves take up.
+	 */
+	private long getMovesSize(KeyFormat format){
+		if(format == KeyFormat.JSON){
+			//count a move at a time rather than building the whole string
+			long size = 0;
+			StringBuilder sb = new StringBuilder();
+			Iterator<ScrambleMove> it = this.getDescrambleMovesIt();
+			while(it.hasNext()){
+				it.next().toKeyString(sb, false);
+				size += sb.length();
+				sb.setLength(0);
+			}
+			return size;
+		}
+		return BinaryKeySerializer.sizeOfMoves(this.getDescrambleMovesIt());
+	}
+	
+	/**
+	 * Gets the number of bytes the positions given take up in the format given.
+	 * @param positions The positions of the permutation.
+	 * @param format The format the permutation is to be written in.
+	 * @return The number of bytes the permutation takes up.
+	 */
+	private static long getPermutationSize(long[] positions, KeyFormat format){
+		if(format == KeyFormat.JSON){
+			return PermutationSerializer.serializedLength(positions);
+		}
+		return PermutationSerializer.size(positions);
+	}
+	
+	/**
+	 * Estimates the number of bytes the permutation of this key would take up in the format given, from the size of the matrix alone.
+	 * @param format The format the permutation is to be written in.
+	 * @return The estimated number of bytes the permutation would take up.
+	 */
+	private long estimatePermutationSize(KeyFormat format){
+		long size = PermutationSerializer.estimateSize(this.meta.getOriginalDataLength(), this.meta.dataHeight * this.meta.dataWidth);
+		if(format == KeyFormat.JSON){
+			return PermutationSerializer.encodedLength(size);
+		}
+		return size;
+	}
+	
+	/**
+	 * Turns this key out of seed form, holding the moves generated from the seed instead.
+	 */
+	private void dropSeed(){
+		if(this.mode == SCRAMBLING){
+			this.moves = this.seed.generateMoves(this.meta);
+		}
+		this.seed = null;
+		this.movesChecksum = null;
+	}
+	
+	/**
+	 * Turns this key into permutation form, dropping the moves held.
+	 * @param positions For each value of the original data, its position in the scrambled matrix.
+	 */
+	private void toPermutationForm(long[] positions){
+		this.scrambledPositions = positions;
+		this.moves.close();
+		this.moves = new MoveLog();
+		this.movesChecksum = null;
+	}
+	
+	/**
+	 * Gets the permutation of this key as a string.
+	 * @return The permutation in this key as a string. Null if the key is not in permutation form.
+	 */
+	@JsonGetter(PERMUTATION)
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public String getPermutation(){
+		if(!this.isPermutationForm()){
+			return null;
+		}
+		return PermutationSerializer.serialize(this.scrambledPositions);
+	}
+	
 	/**
 	 * Gets the moves in this key as a string.
-	 * @return The moves in this key as a string.
+	 * @return The moves in this key as a string. Null if the key is in permutation or seed form.
 	 */
 	@JsonGetter(SCRAMBLE)
+	@JsonInclude(JsonInclude.Include.NON_NULL)
 	public String getMoves(){
+		if(this.isPermutationForm() || this.isSeedForm()){
+			return null;
+		}
 		StringBuilder sb = new StringBuilder();
 		
-		for(ScrambleMove curMove : moves){
-			curMove.toKeyString(sb, true);
+		Iterator<ScrambleMove> it = this.getDescrambleMovesIt();
+		while(it.hasNext()){
+			it.next().toKeyString(sb, false);
 		}
 		
 		return sb.toString();
@@ -112,6 +568,9 @@ public class ScrambleKey {
 	 */
 	@JsonIgnore
 	public long getNumMoves(){
+		if(this.isSeedForm()){
+			return this.seed.numMoves;
+		}
 		return this.moves.sizeL();
 	}
 	
@@ -126,7 +585,9 @@ public class ScrambleKey {
 		if (o == null || getClass() != o.getClass()) return false;
 		ScrambleKey that = (ScrambleKey) o;
 		return Objects.equals(meta, that.meta) &&
-			Objects.equals(moves, that.moves) &&
+			this.getNumMoves() == that.getNumMoves() &&
+			sameDescrambleMoves(this, that) &&
+			Arrays.equals(scrambledPositions, that.scrambledPositions) &&
 			(includeMode ? this.mode == that.mode : true);
 	}
 	
@@ -135,8 +596,38 @@ public class ScrambleKey {
 		return this.equals(o, false);
 	}
 	
+	/**
+	 * Gets if the keys given descramble data with the same moves, whichever mode they are in.
+	 * @param one One key.
+	 * @param other The other key.
+	 * @return If the keys hold the same moves to descramble data.
+	 */
+	private static boolean sameDescrambleMoves(ScrambleKey one, ScrambleKey other){
+		Iterator<ScrambleMove> oneIt = one.getDescrambleMovesIt();
+		Iterator<ScrambleMove> otherIt = other.getDescrambleMovesIt();
+		while(oneIt.hasNext()){
+			if(!otherIt.hasNext() || !oneIt.next().equals(otherIt.next())){
+				return false;
+			}
+		}
+		return !otherIt.hasNext();
+	}
+	
 	@Override
 	public int hashCode() {
-		return Objects.hash(meta, moves);
+		int movesHash = 1;
+		Iterator<ScrambleMove> it = this.getDescrambleMovesIt();
+		while(it.hasNext()){
+			movesHash = 31 * movesHash + it.next().hashCode();
+		}
+		return Objects.hash(meta, movesHash, Arrays.hashCode(scrambledPositions));
+	}
+	
+	/**
+	 * Lets go of the moves held, deleting any spilled to disk.
+	 */
+	@Override
+	public void close(){
+		this.moves.close();
 	}
 }
@@ -6,12 +6,19 @@ package com.ebp.owat.lib.utils.key;
 public class SerializationConstants {
 	public static final String META = "meta";
 	public static final String SCRAMBLE = "scramble";
+	public static final String PERMUTATION = "perm";
+	public static final String SEED = "seed";
+	public static final String GENERATOR_VERSION_FIELD = "genVersion";
+	public static final String SEED_VALUE = "value";
+	public static final String NUM_MOVES = "numMoves";
 	public static final String ORIGINAL_HEIGHT = "origHeight";
 	public static final String ORIGINAL_WIDTH = "origWidth";
 	public static final String DATA_HEIGHT = "dataHeight";
 	public static final String DATA_WIDTH = "dataWidth";
 	public static final String NODE_TYPE = "nodeType";
 	public static final String LAST_COL_INDEX = "lastColInd";
+	public static final String MOVES_CHECKSUM = "movesCrc";
+	public static final String DATA_CHECKSUM = "dataCrc";
 	
 	public static final String BIT_TYPE_STR = "bit";
 	public static final String BYTE_TYPE_STR = "byte";
@@ -0,0 +1,715 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.runner.utils.ScrambleMode;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.MoveTokenizer;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.io.PushbackReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static com.ebp.owat.lib.utils.key.SerializationConstants.*;
+
+/**
+ * Reads a compressed key as a pipeline, so moves can be used while the rest of the key is still being read.
+ *
+ * One thread decompresses the key, one parses the metadata and moves out of it, and the caller takes the moves as they are parsed. The stages are joined by bounded queues, so only a small part of the moves is ever held in memory at once.
+ *
+ * Reads keys in either {@link KeyFormat format}. In JSON, expects the key as written by {@link ScrambleKey}; an object holding the {@link SerializationConstants#META meta} and either the {@link SerializationConstants#SCRAMBLE scramble} moves, the {@link SerializationConstants#PERMUTATION permutation} or the {@link SerializationConstants#SEED seed}. Keys in seed form have their moves generated again from the seed, and passed on as if they had been read. The moves can only be streamed if the metadata comes before them, as it does in keys written by this library; otherwise they are held until the metadata is read. Binary keys, as written by {@link BinaryKeySerializer}, always have their metadata first. JSON keys are parsed a character at a time, and the characters of the moves string, escapes decoded, are tokenized as they arrive; the string is never held whole, so moves are passed on before the end of it is read.
+ *
+ * The moves read are {@link MoveChecksum counted and checksummed} against the metadata; if they do not match, an error is given once the end of the moves is reached, in place of the end.
+ */
+public class StreamingKeyReader implements Closeable {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	/** The size of the chunks of decompressed key passed between stages. */
+	private static final int CHUNK_SIZE = 64 * 1024;
+	/** The number of chunks of decompressed key that can be waiting to be parsed. */
+	private static final int NUM_CHUNKS_QUEUED = 16;
+	/** The number of moves in each batch passed to the caller. */
+	private static final int BATCH_SIZE = 1024;
+	/** The number of batches of moves that can be waiting to be used. */
+	private static final int NUM_BATCHES_QUEUED = 64;
+	/** Marks the end of a queue. */
+	private static final byte[] END_OF_CHUNKS = new byte[0];
+	/** Marks the end of a queue. */
+	private static final ScrambleMove[] END_OF_MOVES = new ScrambleMove[0];
+
+	/** The chunks of decompressed key, waiting to be parsed. */
+	private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(NUM_CHUNKS_QUEUED);
+	/** The batches of parsed moves, waiting to be used. */
+	private final BlockingQueue<ScrambleMove[]> moveBatches = new ArrayBlockingQueue<>(NUM_BATCHES_QUEUED);
+	/** Released once the metadata and form of the key are known. */
+	private final CountDownLatch headerLatch = new CountDownLatch(1);
+	/** The thread decompressing the key. */
+	private final Thread decompressThread;
+	/** The thread parsing the key. */
+	private final Thread parseThread;
+
+	/** The metadata of the key. */
+	private volatile KeyMetaData meta = null;
+	/** The serialized permutation, if the key is in permutation form and JSON. */
+	private volatile String permutationStr = null;
+	/** The positions of the permutation, if the key is in permutation form and binary. */
+	private volatile long[] scrambledPositions = null;
+	/** The first error hit by either stage. */
+	private volatile Throwable error = null;
+
+	/** The batch of moves currently being taken from. */
+	private ScrambleMove[] curBatch = null;
+	/** The index of the next move in the current batch. */
+	private int curBatchIndex = 0;
+
+	/**
+	 * Constructor to start reading the key given.
+	 * @param compressedKey The GZIP compressed key to read. Closed when done.
+	 */
+	public StreamingKeyReader(InputStream compressedKey){
+		this.decompressThread = new Thread(() -> this.decompress(compressedKey), "owat-key-decompress");
+		this.parseThread = new Thread(this::parse, "owat-key-parse");
+		this.decompressThread.setDaemon(true);
+		this.parseThread.setDaemon(true);
+		this.decompressThread.start();
+		this.parseThread.start();
+	}
+
+	/**
+	 * Records an error hit in a stage, keeping only the first.
+	 * @param e The error hit.
+	 */
+	private synchronized void setError(Throwable e){
+		if(this.error == null){
+			this.error = e;
+		}
+	}
+
+	/**
+	 * Throws the error hit by a stage, if there was one.
+	 * @throws IOException The error hit, wrapped if not already an IOException.
+	 */
+	private void throwIfError() throws IOException {
+		Throwable e = this.error;
+		if(e == null){
+			return;
+		}
+		if(e instanceof IOException){
+			throw new IOException(e.getMessage(), e);
+		}
+		throw new IOException("Failed to read key: " + e.getMessage(), e);
+	}
+
+	/**
+	 * The decompression stage. Reads the key into chunks of decompressed bytes.
+	 * @param compressedKey The compressed key.
+	 */
+	private void decompress(InputStream compressedKey){
+		try(InputStream is = new GZIPInputStream(compressedKey, CHUNK_SIZE)){
+			while(true){
+				byte[] chunk = new byte[CHUNK_SIZE];
+				int numRead = 0;
+				int curRead;
+				while(numRead < chunk.length && (curRead = is.read(chunk, numRead, chunk.length - numRead)) != -1){
+					numRead += curRead;
+				}
+				if(numRead == 0){
+					break;
+				}
+				this.chunks.put(numRead == chunk.length ? chunk : Arrays.copyOf(chunk, numRead));
+				if(numRead < chunk.length){
+					break;
+				}
+			}
+		}catch (InterruptedException e){
+			return;
+		}catch (Throwable e){
+			this.setError(e);
+		}
+		try{
+			this.chunks.put(END_OF_CHUNKS);
+		}catch (InterruptedException e){
+			//closed; nothing left to do
+		}
+	}
+
+	/**
+	 * The parsing stage. Reads the metadata and moves out of the decompressed key.
+	 */
+	private void parse(){
+		try{
+			new KeyParser().parse();
+		}catch (InterruptedException e){
+			return;
+		}catch (Throwable e){
+			this.setError(e);
+		}
+		this.headerLatch.countDown();
+		try{
+			this.moveBatches.put(END_OF_MOVES);
+		}catch (InterruptedException e){
+			//closed; nothing left to do
+		}
+	}
+
+	/**
+	 * Waits until the metadata and form of the key are known.
+	 * @throws IOException If the key could not be read.
+	 */
+	private void awaitHeader() throws IOException {
+		try{
+			this.headerLatch.await();
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for key.");
+		}
+		if(this.meta == null){
+			this.throwIfError();
+			throw new IOException("Key did not contain metadata.");
+		}
+	}
+
+	/**
+	 * Gets the metadata of the key, waiting for it to be read if needed.
+	 * @return The metadata of the key.
+	 * @throws IOException If the key could not be read.
+	 */
+	public KeyMetaData getMeta() throws IOException {
+		this.awaitHeader();
+		return this.meta;
+	}
+
+	/**
+	 * Gets the number of moves in the key, from its metadata, waiting for it to be read if needed.
+	 * @return The number of moves in the key. {@link KeyMetaData#UNKNOWN} if the key does not say.
+	 * @throws IOException If the key could not be read.
+	 */
+	public long getNumMoves() throws IOException {
+		return this.getMeta().numMoves;
+	}
+
+	/**
+	 * Gets if the key is in permutation form, waiting for it to be read if needed. Keys in permutation form have no moves to stream.
+	 * @return If the key is in permutation form.
+	 * @throws IOException If the key could not be read.
+	 */
+	public boolean isPermutationForm() throws IOException {
+		this.awaitHeader();
+		return this.permutationStr != null || this.scrambledPositions != null;
+	}
+
+	/**
+	 * Gets the next move that descrambles the data, waiting for it to be parsed if needed.
+	 * @return The next move, or null if there are no more.
+	 * @throws IOException If the key could not be read.
+	 */
+	public ScrambleMove nextMove() throws IOException {
+		if(this.curBatch == END_OF_MOVES){
+			this.throwIfError();
+			return null;
+		}
+		if(this.curBatch == null || this.curBatchIndex >= this.curBatch.length){
+			try{
+				this.curBatch = this.moveBatches.take();
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for key.");
+			}
+			this.curBatchIndex = 0;
+			if(this.curBatch == END_OF_MOVES){
+				this.throwIfError();
+				return null;
+			}
+		}
+		return this.curBatch[this.curBatchIndex++];
+	}
+
+	/**
+	 * Reads the rest of the key in, for when the moves are needed all at once.
+	 * @return The whole key, in descrambling mode.
+	 * @throws IOException If the key could not be read.
+	 */
+	public ScrambleKey readWholeKey() throws IOException {
+		KeyMetaData meta = this.getMeta();
+		if(this.scrambledPositions != null){
+			return new ScrambleKey(meta, this.scrambledPositions, ScrambleMode.DESCRAMBLING);
+		}
+		if(this.isPermutationForm()){
+			return new ScrambleKey(meta, null, this.permutationStr);
+		}
+		MoveLog moves = new MoveLog(meta.numMoves);
+		ScrambleMove curMove;
+		while((curMove = this.nextMove()) != null){
+			moves.add(curMove);
+		}
+		return new ScrambleKey(meta, moves);
+	}
+
+	/**
+	 * Stops reading the key.
+	 */
+	@Override
+	public void close(){
+		this.decompressThread.interrupt();
+		this.parseThread.interrupt();
+	}
+
+	/**
+	 * Parser of the decompressed key, pulling bytes from the chunk queue.
+	 */
+	private class KeyParser {
+		/** The chunk being parsed. */
+		private byte[] chunk = null;
+		/** The position in the current chunk. */
+		private int chunkPos = 0;
+		/** The batch of moves being filled. */
+		private ScrambleMove[] batch = new ScrambleMove[BATCH_SIZE];
+		/** The number of moves in the batch being filled. */
+		private int batchSize = 0;
+		/** Moves read before the metadata was, held until it is read. */
+		private MoveLog heldMoves = null;
+		/** The checksum of the moves passed on. */
+		private final MoveChecksum checksum = new MoveChecksum();
+
+		/**
+		 * Gets the next byte of the key.
+		 * @return The next byte of the key, or -1 at the end.
+		 * @throws InterruptedException If interrupted waiting for the key.
+		 */
+		private int read() throws InterruptedException {
+			while(this.chunk == null || this.chunkPos >= this.chunk.length){
+				if(this.chunk == END_OF_CHUNKS){
+					return -1;
+				}
+				this.chunk = chunks.take();
+				this.chunkPos = 0;
+			}
+			return this.chunk[this.chunkPos++] & 0xFF;
+		}
+
+		/**
+		 * Gets a stream over the rest of the key, for reading the binary format.
+		 * @param firstByte The byte already read, to give back first.
+		 * @return A stream over the rest of the key.
+		 */
+		private InputStream asStream(int firstByte){
+			PushbackInputStream stream = new PushbackInputStream(new InputStream() {
+				@Override
+				public int read() throws IOException {
+					try{
+						return KeyParser.this.read();
+					}catch (InterruptedException e){
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted waiting for key.");
+					}
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					if(len == 0){
+						return 0;
+					}
+					//only what is already decompressed, so buffered readers are not held up waiting to fill their buffers
+					int first = this.read();
+					if(first == -1){
+						return -1;
+					}
+					b[off] = (byte)first;
+					int numRead = Math.min(len - 1, KeyParser.this.chunk.length - KeyParser.this.chunkPos);
+					System.arraycopy(KeyParser.this.chunk, KeyParser.this.chunkPos, b, off + 1, numRead);
+					KeyParser.this.chunkPos += numRead;
+					return numRead + 1;
+				}
+			});
+			try{
+				stream.unread(firstByte);
+			}catch (IOException e){
+				//cannot happen; there is room for the one byte
+				throw new IllegalStateException(e);
+			}
+			return stream;
+		}
+
+		/**
+		 * Gets the next byte of the key that is not whitespace.
+		 * @return The next non whitespace byte, or -1 at the end.
+		 * @throws InterruptedException If interrupted waiting for the key.
+		 */
+		private int readNonWhitespace() throws InterruptedException {
+			int cur;
+			do{
+				cur = this.read();
+			}while(cur != -1 && Character.isWhitespace(cur));
+			return cur;
+		}
+
+		/**
+		 * Generates the moves of the seed given and passes them on, in the order they descramble the data.
+		 * @param seed The seed the moves were generated from.
+		 * @throws InterruptedException If interrupted waiting for room in the queue.
+		 */
+		private void addSeedMoves(KeySeed seed) throws InterruptedException {
+			Iterator<ScrambleMove> it = seed.descrambleMovesIterator(meta);
+			while(it.hasNext()){
+				this.addMove(it.next());
+			}
+		}
+
+		/**
+		 * Passes a parsed move on, or holds it if the metadata has not been read yet.
+		 * @param move The move parsed.
+		 * @throws InterruptedException If interrupted waiting for room in the queue.
+		 */
+		private void addMove(ScrambleMove move) throws InterruptedException {
+			if(meta == null){
+				if(this.heldMoves == null){
+					this.heldMoves = new MoveLog();
+				}
+				this.heldMoves.add(move);
+				return;
+			}
+			this.checksum.update(move);
+			this.batch[this.batchSize++] = move;
+			if(this.batchSize == this.batch.length){
+				this.flushMoves();
+			}
+		}
+
+		/**
+		 * Passes the batch of moves being filled on.
+		 * @throws InterruptedException If interrupted waiting for room in the queue.
+		 */
+		private void flushMoves() throws InterruptedException {
+			if(this.batchSize == 0){
+				return;
+			}
+			moveBatches.put(this.batchSize == this.batch.length ? this.batch : Arrays.copyOf(this.batch, this.batchSize));
+			this.batch = new ScrambleMove[BATCH_SIZE];
+			this.batchSize = 0;
+		}
+
+		/**
+		 * Gets the next character of a JSON key that is not whitespace.
+		 * @param json The reader of the key.
+		 * @return The next non whitespace character.
+		 * @throws IOException If the key ended first.
+		 */
+		private int nextJsonChar(PushbackReader json) throws IOException {
+			int cur;
+			do{
+				cur = json.read();
+			}while(cur != -1 && Character.isWhitespace(cur));
+			if(cur == -1){
+				throw new IOException("Malformed key; ended before the end of the key.");
+			}
+			return cur;
+		}
+
+		/**
+		 * Gets the next character of the JSON string being read, with any escape decoded.
+		 * @param json The reader of the key, inside a string.
+		 * @return The next character of the string, or -1 once its closing quote is read.
+		 * @throws IOException If the key ended first, or held an invalid escape.
+		 */
+		private int nextStringChar(PushbackReader json) throws IOException {
+			int cur = json.read();
+			switch (cur){
+				case -1:
+					throw new IOException("Malformed key; ended before the end of a string.");
+				case '"':
+					return -1;
+				case '\\':
+					break;
+				default:
+					return cur;
+			}
+			cur = json.read();
+			switch (cur){
+				case '"':
+				case '\\':
+				case '/':
+					return cur;
+				case 'b':
+					return '\b';
+				case 'f':
+					return '\f';
+				case 'n':
+					return '\n';
+				case 'r':
+					return '\r';
+				case 't':
+					return '\t';
+				case 'u':
+					int value = 0;
+					for(int i = 0; i < 4; i++){
+						int digit = Character.digit(json.read(), 16);
+						if(digit < 0){
+							throw new IOException("Malformed key; invalid unicode escape in a string.");
+						}
+						value = (value << 4) | digit;
+					}
+					return value;
+				default:
+					throw new IOException("Malformed key; invalid escape in a string.");
+			}
+		}
+
+		/**
+		 * Reads the rest of the JSON string being read.
+		 * @param json The reader of the key, just past the opening quote of the string.
+		 * @return The string read.
+		 * @throws IOException If the string was malformed.
+		 */
+		private String readJsonString(PushbackReader json) throws IOException {
+			StringBuilder sb = new StringBuilder();
+			int cur;
+			while((cur = this.nextStringChar(json)) != -1){
+				sb.append((char)cur);
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Reads the text of the next JSON value as it is, to be handed to the object mapper. Only for the small values of a key, such as its metadata.
+		 * @param json The reader of the key, before the value.
+		 * @return The text of the value.
+		 * @throws IOException If the key ended before the end of the value.
+		 */
+		private String readRawJsonValue(PushbackReader json) throws IOException {
+			StringBuilder sb = new StringBuilder();
+			int cur = this.nextJsonChar(json);
+			if(cur != '{' && cur != '[' && cur != '"'){
+				//a number or literal; runs until whatever follows it
+				while(cur != -1 && cur != ',' && cur != '}' && cur != ']' && !Character.isWhitespace(cur)){
+					sb.append((char)cur);
+					cur = json.read();
+				}
+				if(cur != -1){
+					json.unread(cur);
+				}
+				return sb.toString();
+			}
+			int depth = 0;
+			boolean inString = false;
+			do{
+				sb.append((char)cur);
+				if(inString){
+					if(cur == '\\'){
+						cur = json.read();
+						if(cur == -1){
+							break;
+						}
+						sb.append((char)cur);
+					}else if(cur == '"'){
+						inString = false;
+					}
+				}else if(cur == '"'){
+					inString = true;
+				}else if(cur == '{' || cur == '['){
+					depth++;
+				}else if(cur == '}' || cur == ']'){
+					depth--;
+				}
+				if(depth == 0 && !inString){
+					return sb.toString();
+				}
+			}while((cur = json.read()) != -1);
+			throw new IOException("Malformed key; ended before the end of a value.");
+		}
+
+		/**
+		 * Reads a JSON string value, or null.
+		 * @param json The reader of the key, before the value.
+		 * @param what What the value is, for the error if it is neither.
+		 * @return True if the reader is now inside the string, just past its opening quote. False if the value was null.
+		 * @throws IOException If the value was neither a string nor null.
+		 */
+		private boolean startStringOrNull(PushbackReader json, String what) throws IOException {
+			int cur = this.nextJsonChar(json);
+			if(cur == '"'){
+				return true;
+			}
+			json.unread(cur);
+			if(!"null".equals(this.readRawJsonValue(json))){
+				throw new IOException("Malformed key; expected the " + what + " to be a string.");
+			}
+			return false;
+		}
+
+		/**
+		 * Reads the moves out of the scramble string the reader is in, passing each on as soon as it is parsed.
+		 *
+		 * Each character of the string is run through the tokenizer as soon as it is read, so the string is never held whole.
+		 * @param json The reader of the key, just past the opening quote of the scramble string.
+		 * @throws IOException If the moves were malformed.
+		 * @throws InterruptedException If interrupted waiting for room in the queue.
+		 */
+		private void readMoves(PushbackReader json) throws IOException, InterruptedException {
+			MoveTokenizer tokenizer = new MoveTokenizer();
+			int cur;
+			while((cur = this.nextStringChar(json)) != -1){
+				ScrambleMove curMove;
+				try{
+					curMove = tokenizer.accept((char)cur);
+				}catch (IllegalArgumentException e){
+					throw new IOException("Malformed key; invalid move. " + e.getMessage(), e);
+				}
+				if(curMove != null){
+					this.addMove(curMove);
+				}
+			}
+			if(!tokenizer.isBetweenMoves()){
+				throw new IOException("Malformed key; unfinished move at end of the moves.");
+			}
+		}
+
+		/**
+		 * Parses the whole key, in whichever format it is in.
+		 * @throws IOException If the key was malformed.
+		 * @throws InterruptedException If interrupted waiting for the key.
+		 */
+		private void parse() throws IOException, InterruptedException {
+			int first = this.readNonWhitespace();
+			try{
+				if(BinaryKeySerializer.detectFormat(first) == KeyFormat.BINARY){
+					this.parseBinary(this.asStream(first));
+				}else{
+					this.parseJson(new PushbackReader(new InputStreamReader(this.asStream(first), StandardCharsets.UTF_8)));
+				}
+			}catch (InterruptedIOException e){
+				throw new InterruptedException(e.getMessage());
+			}
+			//keys in permutation form hold no moves to check
+			if(scrambledPositions == null && permutationStr == null){
+				this.checksum.verify(meta);
+			}
+		}
+
+		/**
+		 * Parses a binary key.
+		 * @param is The stream of the key, from its start.
+		 * @throws IOException If the key was malformed.
+		 * @throws InterruptedException If interrupted waiting for room in the queue.
+		 */
+		private void parseBinary(InputStream is) throws IOException, InterruptedException {
+			KeyMetaData readMeta = BinaryKeySerializer.readMeta(is);
+			int form = BinaryKeySerializer.readForm(is);
+			if(form == BinaryKeySerializer.FORM_PERMUTATION){
+				scrambledPositions = PermutationSerializer.read(is, PermutationSerializer.getNumPositions(readMeta));
+				meta = readMeta;
+				return;
+			}
+			if(form == BinaryKeySerializer.FORM_SEED){
+				KeySeed seed = BinaryKeySerializer.readSeed(is);
+				meta = readMeta;
+				headerLatch.countDown();
+				this.addSeedMoves(seed);
+				this.flushMoves();
+				return;
+			}
+			meta = readMeta;
+			headerLatch.countDown();
+			if(form == BinaryKeySerializer.FORM_COLUMNAR_MOVES){
+				MoveLog block;
+				while((block = BinaryKeySerializer.readColumnarBlock(is)) != null){
+					for(ScrambleMove curMove : block){
+						this.addMove(curMove);
+					}
+				}
+				this.flushMoves();
+				return;
+			}
+			ScrambleMove curMove;
+			while((curMove = BinaryKeySerializer.readMove(is)) != null){
+				this.addMove(curMove);
+			}
+			this.flushMoves();
+		}
+
+		/**
+		 * Parses a JSON key.
+		 * @param json The reader of the key, from its start.
+		 * @throws IOException If the key was malformed.
+		 * @throws InterruptedException If interrupted waiting for room in the queue.
+		 */
+		private void parseJson(PushbackReader json) throws IOException, InterruptedException {
+			boolean headerReleased = false;
+			KeySeed seed = null;
+			if(this.nextJsonChar(json) != '{'){
+				throw new IOException("Malformed key; expected an object.");
+			}
+			int cur = this.nextJsonChar(json);
+			while(cur != '}'){
+				if(cur != '"'){
+					throw new IOException("Malformed key; expected a field name.");
+				}
+				String name = this.readJsonString(json);
+				if(this.nextJsonChar(json) != ':'){
+					throw new IOException("Malformed key; expected a value for field \"" + name + "\"");
+				}
+				switch (name){
+					case META:
+						meta = OBJECT_MAPPER.readValue(this.readRawJsonValue(json), KeyMetaData.class);
+						break;
+					case SCRAMBLE:
+						if(this.startStringOrNull(json, "moves")){
+							if(meta != null && !headerReleased){
+								headerReleased = true;
+								headerLatch.countDown();
+							}
+							this.readMoves(json);
+						}
+						break;
+					case PERMUTATION:
+						if(this.startStringOrNull(json, "permutation")){
+							permutationStr = this.readJsonString(json);
+						}
+						break;
+					case SEED:
+						seed = OBJECT_MAPPER.readValue(this.readRawJsonValue(json), KeySeed.class);
+						break;
+					default:
+						throw new IOException("Malformed key; unknown field \"" + name + "\"");
+				}
+				cur = this.nextJsonChar(json);
+				if(cur == ','){
+					cur = this.nextJsonChar(json);
+					if(cur == '}'){
+						throw new IOException("Malformed key; expected a field name.");
+					}
+				}else if(cur != '}'){
+					throw new IOException("Malformed key; expected a comma or the end of the key.");
+				}
+			}
+			if(meta == null){
+				throw new IOException("Key did not contain metadata.");
+			}
+			if(seed != null){
+				if(headerReleased || this.heldMoves != null){
+					throw new IOException("Malformed key; holds both moves and a seed.");
+				}
+				headerLatch.countDown();
+				this.addSeedMoves(seed);
+			}
+			if(this.heldMoves != null){
+				MoveLog toPass = this.heldMoves;
+				this.heldMoves = null;
+				headerLatch.countDown();
+				for(ScrambleMove curMove : toPass){
+					this.addMove(curMove);
+				}
+			}
+			this.flushMoves();
+		}
+	}
+}
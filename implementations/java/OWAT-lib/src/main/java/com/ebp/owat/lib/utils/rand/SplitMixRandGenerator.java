@@ -0,0 +1,74 @@
+package com.ebp.owat.lib.utils.rand;
+
+import java.security.SecureRandom;
+
+/**
+ * A OwatRandGenerator whose numbers are fully determined by its seed, the same on every platform and in every version.
+ *
+ * Built on SplitMix64 (Steele, Lea and Flood, 2014). Each step adds {@link #GOLDEN_GAMMA} to the state, then mixes the state into the 64 bits given back. From those bits:
+ * <ul>
+ *     <li>{@link #nextLong()} gives the top 63 bits.</li>
+ *     <li>{@link #nextLong(long)} takes the top 53 bits as a double in [0, 1), multiplies it by the bound and truncates towards zero.</li>
+ *     <li>{@link #nextBool()} gives the top bit.</li>
+ * </ul>
+ * Keys in {@link com.ebp.owat.lib.utils.key.KeySeed seed form} depend on all of this staying the same; changing any of it means bumping {@link com.ebp.owat.lib.utils.key.KeySeed#GENERATOR_VERSION the generator version}.
+ */
+public class SplitMixRandGenerator extends OwatRandGenerator {
+	/** Added to the state each step. The odd number closest to 2^64 divided by the golden ratio. */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	/** The scale to turn 53 bits into a double in [0, 1). */
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	/** The current state. */
+	private long state;
+
+	/**
+	 * Default constructor. Seeds the generator with a secure random seed.
+	 */
+	public SplitMixRandGenerator(){
+		this(new SecureRandom().nextLong());
+	}
+
+	/**
+	 * Constructor to set the seed.
+	 * @param seed The seed to use.
+	 */
+	public SplitMixRandGenerator(long seed){
+		super();
+		this.state = seed;
+	}
+
+	/**
+	 * Gets the current state of the generator. A generator given it as its seed gives the same numbers this one goes on to give.
+	 * @return The current state.
+	 */
+	public long getState(){
+		return this.state;
+	}
+
+	/**
+	 * Steps the generator, getting the next 64 random bits.
+	 * @return The next 64 random bits.
+	 */
+	private long next(){
+		long z = (this.state += GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public long nextLong() {
+		return this.next() >>> 1;
+	}
+
+	@Override
+	public long nextLong(long upperBound) {
+		return (long)(((this.next() >>> 11) * DOUBLE_UNIT) * upperBound);
+	}
+
+	@Override
+	public boolean nextBool() {
+		return this.next() < 0;
+	}
+}
@@ -0,0 +1,595 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import com.ebp.owat.lib.utils.io.VarInt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable log of moves, held as primitives rather than as a list of move objects.
+ *
+ * Each move is held as its type, one byte, plus its arguments, one long each; a move of two arguments takes up 17 bytes rather than the hundred or so a list node, move object and argument array take. Types and arguments are held in separate chunks, so the log never needs one huge array and never copies what it holds as it grows.
+ *
+ * Moves can be gone through in either direction without copying. Moves given back are new objects, made as they are gone through; changing them does not change the log.
+ *
+ * A log can be given a {@link #setSpillThreshold(long) limit} on the memory its moves take up. Once past it, the moves in memory are written out to a temporary file as a segment, and the log carries on in memory empty. Segments are written one after the other and read back one at a time, in whichever order they are gone through, so no more than about the limit is ever held in memory. {@link #close() Closing} the log deletes the file.
+ *
+ * The moves are written to the file as they are, unencrypted; anyone who can read the file can descramble the data. The file is made readable by its owner only, where the file system allows, in the {@link #setSpillDirectory(File) directory given} or the system's temporary directory.
+ */
+public class MoveLog implements Iterable<ScrambleMove>, Closeable {
+	/** The number of bits to shift an index by to get the chunk it is in. */
+	private static final int CHUNK_SHIFT = 14;
+	/** The number of types or arguments held in each chunk. */
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	/** The mask to get the position of an index in its chunk. */
+	private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+	/** The size of the buffers used to write and read spilled moves. */
+	private static final int SPILL_BUFFER_SIZE = 1024 * 1024;
+	/** The move types, by ordinal. */
+	private static final ScrambleMoves[] MOVE_TYPES = ScrambleMoves.values();
+	/** The most moves a log is sized up front for; the number expected could come from a corrupt key. */
+	private static final long MAX_PRESIZED_MOVES = 1L << 32;
+
+	/** The chunks holding the ordinal of the type of each move in memory. */
+	private byte[][] types = new byte[0][];
+	/** The chunks holding the arguments of every move in memory, one after the other. */
+	private long[][] args = new long[0][];
+	/** The index of the first move held. Moves before it have been {@link #destructiveIterator() taken off}. */
+	private long start = 0;
+	/** The index of the first argument of the first move held. */
+	private long argStart = 0;
+	/** The index after the last move held. */
+	private long end = 0;
+	/** The index after the last argument held. */
+	private long argEnd = 0;
+
+	/** The number of bytes the moves in memory can take up before they are spilled to disk. */
+	private long spillThreshold = Long.MAX_VALUE;
+	/** The directory to spill moves to. Null for the system's temporary directory. */
+	private File spillDirectory = null;
+	/** The file moves are spilled to. Null until moves are first spilled. */
+	private File spillFile = null;
+	/** The stream writing to the spill file. */
+	private OutputStream spillOutput = null;
+	/** The number of bytes written to the spill file. */
+	private long spillSize = 0;
+	/** The offset in the spill file of each segment, followed by the end of the last. */
+	private long[] segmentOffsets = new long[]{ 0 };
+	/** The number of moves in each segment. */
+	private long[] segmentNumMoves = new long[0];
+	/** The number of segments spilled. */
+	private int numSegments = 0;
+	/** The number of moves spilled, over all segments. */
+	private long numSpilledMoves = 0;
+
+	/**
+	 * Default constructor. Creates an empty log that is held only in memory.
+	 */
+	public MoveLog(){}
+
+	/**
+	 * Constructor to create an empty log, sized up front to hold the number of moves given without growing its tables of chunks. Only the tables are sized; chunks are still made as they are filled.
+	 * @param expectedNumMoves The number of moves expected to be added. Negative if not known.
+	 */
+	public MoveLog(long expectedNumMoves){
+		expectedNumMoves = Math.min(expectedNumMoves, MAX_PRESIZED_MOVES);
+		if(expectedNumMoves > 0){
+			long maxArgs = 0;
+			for(ScrambleMoves curType : MOVE_TYPES){
+				maxArgs = Math.max(maxArgs, curType.numArgs);
+			}
+			this.types = new byte[Math.toIntExact(((expectedNumMoves - 1) >>> CHUNK_SHIFT) + 1)][];
+			this.args = new long[Math.toIntExact(((expectedNumMoves * maxArgs - 1) >>> CHUNK_SHIFT) + 1)][];
+		}
+	}
+
+	/**
+	 * Parses a log of moves from the string of moves given, as made by {@link ScrambleMove#toKeyString(StringBuilder, boolean)}.
+	 * @param moves The string of moves.
+	 * @return A log of the moves in the string, in the same order.
+	 * @throws IllegalArgumentException If the string held an invalid move, or ended part way through one.
+	 */
+	public static MoveLog parse(CharSequence moves){
+		MoveLog output = new MoveLog();
+		MoveTokenizer tokenizer = new MoveTokenizer();
+		for(int i = 0; i < moves.length(); i++){
+			ScrambleMove curMove = tokenizer.accept(moves.charAt(i));
+			if(curMove != null){
+				output.add(curMove);
+			}
+		}
+		if(!tokenizer.isBetweenMoves()){
+			throw new IllegalArgumentException("Unfinished move at end of the moves.");
+		}
+		return output;
+	}
+
+	/**
+	 * Sets the limit on the number of bytes the moves in memory can take up. Once past it, they are spilled to a temporary file.
+	 * @param numBytes The limit on the memory the moves held can take up. {@link Long#MAX_VALUE} never spills.
+	 * @throws IllegalArgumentException If the limit given is less than 1.
+	 */
+	public void setSpillThreshold(long numBytes){
+		if(numBytes < 1){
+			throw new IllegalArgumentException("Memory limit must be at least one byte.");
+		}
+		this.spillThreshold = numBytes;
+	}
+
+	/**
+	 * Sets the directory moves are spilled to. Defaults to the system's temporary directory.
+	 * @param directory The directory to spill moves to. Null for the system's temporary directory.
+	 * @throws IllegalStateException If moves have already been spilled.
+	 */
+	public void setSpillDirectory(File directory){
+		if(this.spillFile != null){
+			throw new IllegalStateException("Moves have already been spilled.");
+		}
+		this.spillDirectory = directory;
+	}
+
+	/**
+	 * Creates the file to spill moves to, readable and writable by its owner only where the file system allows.
+	 * @return The file created.
+	 * @throws IOException If the file could not be created.
+	 */
+	private File createSpillFile() throws IOException {
+		Path directory = (this.spillDirectory == null ? new File(System.getProperty("java.io.tmpdir")) : this.spillDirectory).toPath();
+		if(Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class)){
+			return Files.createTempFile(
+				directory,
+				"owat-moves",
+				".tmp",
+				PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+			).toFile();
+		}
+		File file = Files.createTempFile(directory, "owat-moves", ".tmp").toFile();
+		if(!(file.setReadable(false, false) && file.setReadable(true, true) && file.setWritable(false, false) && file.setWritable(true, true))){
+			//deleting rather than spilling to a file others might read
+			file.delete();
+			throw new IOException("Could not make the file to spill moves to private to its owner.");
+		}
+		return file;
+	}
+
+	/**
+	 * Gets if any moves have been spilled to disk.
+	 * @return If moves have been spilled.
+	 */
+	public boolean hasSpilled(){
+		return this.numSegments > 0;
+	}
+
+	/**
+	 * Grows the array of chunks given to hold the number of chunks given, if needed.
+	 * @param chunks The array of chunks.
+	 * @param numChunks The number of chunks it needs to hold.
+	 * @return The array of chunks, grown if needed.
+	 */
+	private static <T> T[] ensureNumChunks(T[] chunks, long numChunks){
+		if(numChunks <= chunks.length){
+			return chunks;
+		}
+		return Arrays.copyOf(chunks, Math.toIntExact(Math.max(numChunks, (long)chunks.length * 2)));
+	}
+
+	/**
+	 * Adds a move to the end of the log. Spills the moves in memory to disk if they then take up more than the {@link #setSpillThreshold(long) limit}.
+	 * @param move The move to add.
+	 * @throws UncheckedIOException If the moves needed spilling, but could not be written out.
+	 */
+	public void add(ScrambleMove move){
+		long typeChunk = this.end >>> CHUNK_SHIFT;
+		this.types = ensureNumChunks(this.types, typeChunk + 1);
+		if(this.types[(int)typeChunk] == null){
+			this.types[(int)typeChunk] = new byte[CHUNK_SIZE];
+		}
+		this.types[(int)typeChunk][(int)(this.end & CHUNK_MASK)] = (byte)move.move.ordinal();
+
+		int numArgs = move.move.numArgs;
+		this.args = ensureNumChunks(this.args, ((this.argEnd + numArgs - 1) >>> CHUNK_SHIFT) + 1);
+		for(int i = 0; i < numArgs; i++){
+			long argIndex = this.argEnd + i;
+			int argChunk = (int)(argIndex >>> CHUNK_SHIFT);
+			if(this.args[argChunk] == null){
+				this.args[argChunk] = new long[CHUNK_SIZE];
+			}
+			this.args[argChunk][(int)(argIndex & CHUNK_MASK)] = move.getArg(i);
+		}
+		this.end++;
+		this.argEnd += numArgs;
+
+		if(this.getMemorySize() >= this.spillThreshold){
+			try{
+				this.spill();
+			}catch (IOException e){
+				throw new UncheckedIOException("Could not spill moves to disk.", e);
+			}
+		}
+	}
+
+	/**
+	 * Adds all the moves in the log given to the end of this one.
+	 * @param other The log to add the moves of. Not changed.
+	 */
+	public void addAll(MoveLog other){
+		Iterator<ScrambleMove> it = other.iterator();
+		while(it.hasNext()){
+			this.add(it.next());
+		}
+	}
+
+	/**
+	 * Gets the number of bytes the moves in memory take up.
+	 * @return The number of bytes the moves in memory take up.
+	 */
+	private long getMemorySize(){
+		return (this.end - this.start) + ((this.argEnd - this.argStart) * Long.BYTES);
+	}
+
+	/**
+	 * Writes the moves in memory out to the end of the spill file as a new segment, then lets go of them.
+	 * @throws IOException If the moves could not be written out.
+	 */
+	private void spill() throws IOException {
+		if(this.spillOutput == null){
+			this.spillFile = this.createSpillFile();
+			this.spillFile.deleteOnExit();
+			this.spillOutput = new BufferedOutputStream(new FileOutputStream(this.spillFile), SPILL_BUFFER_SIZE);
+		}
+		Iterator<ScrambleMove> it = this.memoryIterator();
+		while(it.hasNext()){
+			ScrambleMove curMove = it.next();
+			this.spillOutput.write(curMove.move.ordinal());
+			this.spillSize++;
+			for(int i = 0; i < curMove.move.numArgs; i++){
+				long arg = VarInt.zigzag(curMove.getArg(i));
+				VarInt.write(this.spillOutput, arg);
+				this.spillSize += VarInt.size(arg);
+			}
+		}
+
+		if(this.numSegments == this.segmentNumMoves.length){
+			int newLength = Math.max(8, this.numSegments * 2);
+			this.segmentNumMoves = Arrays.copyOf(this.segmentNumMoves, newLength);
+			this.segmentOffsets = Arrays.copyOf(this.segmentOffsets, newLength + 1);
+		}
+		this.segmentNumMoves[this.numSegments] = this.end - this.start;
+		this.segmentOffsets[this.numSegments + 1] = this.spillSize;
+		this.numSegments++;
+		this.numSpilledMoves += this.end - this.start;
+		this.clearMemory();
+	}
+
+	/**
+	 * Reads a segment of spilled moves back into memory.
+	 * @param segment The index of the segment to read.
+	 * @return The moves of the segment.
+	 * @throws UncheckedIOException If the segment could not be read.
+	 */
+	private MoveLog readSegment(int segment){
+		MoveLog output = new MoveLog();
+		try{
+			this.spillOutput.flush();
+			try(FileInputStream fis = new FileInputStream(this.spillFile)){
+				fis.getChannel().position(this.segmentOffsets[segment]);
+				long segmentSize = this.segmentOffsets[segment + 1] - this.segmentOffsets[segment];
+				InputStream is = new BufferedInputStream(fis, (int)Math.max(1, Math.min(SPILL_BUFFER_SIZE, segmentSize)));
+				for(long i = 0; i < this.segmentNumMoves[segment]; i++){
+					int type = is.read();
+					if(type < 0 || type >= MOVE_TYPES.length){
+						throw new IOException("Spilled moves were corrupted.");
+					}
+					long[] moveArgs = new long[MOVE_TYPES[type].numArgs];
+					for(int j = 0; j < moveArgs.length; j++){
+						moveArgs[j] = VarInt.unzigzag(VarInt.read(is));
+					}
+					output.add(new ScrambleMove(MOVE_TYPES[type], moveArgs));
+				}
+			}
+		}catch (IOException e){
+			throw new UncheckedIOException("Could not read spilled moves back in.", e);
+		}
+		return output;
+	}
+
+	/**
+	 * Gets the type of the move in memory at the index given.
+	 * @param index The index of the move.
+	 * @return The type of the move.
+	 */
+	private ScrambleMoves getType(long index){
+		return MOVE_TYPES[this.types[(int)(index >>> CHUNK_SHIFT)][(int)(index & CHUNK_MASK)]];
+	}
+
+	/**
+	 * Makes the move of the type given, from the arguments in memory starting at the index given.
+	 * @param type The type of the move.
+	 * @param argIndex The index of the first argument of the move.
+	 * @return The move.
+	 */
+	private ScrambleMove getMove(ScrambleMoves type, long argIndex){
+		long[] moveArgs = new long[type.numArgs];
+		for(int i = 0; i < moveArgs.length; i++, argIndex++){
+			moveArgs[i] = this.args[(int)(argIndex >>> CHUNK_SHIFT)][(int)(argIndex & CHUNK_MASK)];
+		}
+		return new ScrambleMove(type, moveArgs);
+	}
+
+	/**
+	 * Gets the number of moves held, both in memory and spilled.
+	 * @return The number of moves held.
+	 */
+	public long sizeL(){
+		return this.numSpilledMoves + (this.end - this.start);
+	}
+
+	/**
+	 * Gets if the log holds no moves.
+	 * @return If the log is empty.
+	 */
+	public boolean isEmpty(){
+		return this.sizeL() == 0;
+	}
+
+	/**
+	 * Gets an iterator that goes through the moves in memory first to last.
+	 * @return An iterator of the moves in memory.
+	 */
+	private Iterator<ScrambleMove> memoryIterator(){
+		return new Iterator<ScrambleMove>() {
+			private long index = start;
+			private long argIndex = argStart;
+
+			@Override
+			public boolean hasNext() {
+				return this.index < end;
+			}
+
+			@Override
+			public ScrambleMove next() {
+				if(!this.hasNext()){
+					throw new NoSuchElementException();
+				}
+				ScrambleMoves type = getType(this.index++);
+				ScrambleMove move = getMove(type, this.argIndex);
+				this.argIndex += type.numArgs;
+				return move;
+			}
+		};
+	}
+
+	/**
+	 * Gets an iterator that goes through the moves in memory last to first.
+	 * @return An iterator of the moves in memory, last to first.
+	 */
+	private Iterator<ScrambleMove> memoryReverseIterator(){
+		return new Iterator<ScrambleMove>() {
+			private long index = end;
+			private long argIndex = argEnd;
+
+			@Override
+			public boolean hasNext() {
+				return this.index > start;
+			}
+
+			@Override
+			public ScrambleMove next() {
+				if(!this.hasNext()){
+					throw new NoSuchElementException();
+				}
+				ScrambleMoves type = getType(--this.index);
+				this.argIndex -= type.numArgs;
+				return getMove(type, this.argIndex);
+			}
+		};
+	}
+
+	/**
+	 * Gets an iterator that goes through the moves first to last. Spilled segments are read back in one at a time as they are reached.
+	 * @return An iterator of the moves held. Does NOT remove the moves as it iterates.
+	 * @throws UncheckedIOException If spilled moves could not be read back in.
+	 */
+	@Override
+	public Iterator<ScrambleMove> iterator(){
+		if(!this.hasSpilled()){
+			return this.memoryIterator();
+		}
+		return new Iterator<ScrambleMove>() {
+			/** The next segment to read; the moves in memory once past the last segment. */
+			private int nextPart = 0;
+			private Iterator<ScrambleMove> curPart = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while(!this.curPart.hasNext()){
+					if(this.nextPart < numSegments){
+						this.curPart = readSegment(this.nextPart++).memoryIterator();
+					}else if(this.nextPart == numSegments){
+						this.curPart = memoryIterator();
+						this.nextPart++;
+					}else{
+						return false;
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public ScrambleMove next() {
+				if(!this.hasNext()){
+					throw new NoSuchElementException();
+				}
+				return this.curPart.next();
+			}
+		};
+	}
+
+	/**
+	 * Gets an iterator that goes through the moves last to first. Spilled segments are read back in one at a time as they are reached, last to first.
+	 * @return An iterator of the moves held, last to first. Does NOT remove the moves as it iterates.
+	 * @throws UncheckedIOException If spilled moves could not be read back in.
+	 */
+	public Iterator<ScrambleMove> reverseIterator(){
+		if(!this.hasSpilled()){
+			return this.memoryReverseIterator();
+		}
+		return new Iterator<ScrambleMove>() {
+			/** The next segment to read. */
+			private int nextSegment = numSegments - 1;
+			private Iterator<ScrambleMove> curPart = memoryReverseIterator();
+
+			@Override
+			public boolean hasNext() {
+				while(!this.curPart.hasNext()){
+					if(this.nextSegment < 0){
+						return false;
+					}
+					this.curPart = readSegment(this.nextSegment--).memoryReverseIterator();
+				}
+				return true;
+			}
+
+			@Override
+			public ScrambleMove next() {
+				if(!this.hasNext()){
+					throw new NoSuchElementException();
+				}
+				return this.curPart.next();
+			}
+		};
+	}
+
+	/**
+	 * Gets an iterator that takes the moves off the front of the log as it goes through them, first to last. Chunks are let go of as soon as all they hold has been gone through.
+	 * @return An iterator of the moves held. REMOVES the moves as it iterates.
+	 * @throws IllegalStateException If moves have been spilled to disk.
+	 */
+	public Iterator<ScrambleMove> destructiveIterator(){
+		if(this.hasSpilled()){
+			throw new IllegalStateException("Cannot take moves off a log that has spilled to disk.");
+		}
+		return new Iterator<ScrambleMove>() {
+			@Override
+			public boolean hasNext() {
+				return !isEmpty();
+			}
+
+			@Override
+			public ScrambleMove next() {
+				if(!this.hasNext()){
+					throw new NoSuchElementException();
+				}
+				ScrambleMoves type = getType(start);
+				ScrambleMove move = getMove(type, argStart);
+				removeFirst(type.numArgs);
+				return move;
+			}
+		};
+	}
+
+	/**
+	 * Takes the first move in memory off the log, letting go of any chunks no longer needed.
+	 * @param numArgs The number of arguments of the first move.
+	 */
+	private void removeFirst(int numArgs){
+		long oldArgStart = this.argStart;
+		this.start++;
+		this.argStart += numArgs;
+		if(this.start == this.end){
+			this.clearMemory();
+			return;
+		}
+		if((this.start & CHUNK_MASK) == 0){
+			this.types[(int)((this.start - 1) >>> CHUNK_SHIFT)] = null;
+		}
+		for(long chunk = oldArgStart >>> CHUNK_SHIFT; chunk < (this.argStart >>> CHUNK_SHIFT); chunk++){
+			this.args[(int)chunk] = null;
+		}
+	}
+
+	/**
+	 * Lets go of the moves in memory.
+	 */
+	private void clearMemory(){
+		this.types = new byte[0][];
+		this.args = new long[0][];
+		this.start = 0;
+		this.argStart = 0;
+		this.end = 0;
+		this.argEnd = 0;
+	}
+
+	/**
+	 * Removes all the moves held, deleting any spilled to disk.
+	 */
+	public void clear(){
+		this.clearMemory();
+		if(this.spillOutput != null){
+			try{
+				this.spillOutput.close();
+			}catch (IOException e){
+				//only being deleted
+			}
+			this.spillFile.delete();
+			this.spillOutput = null;
+			this.spillFile = null;
+		}
+		this.spillSize = 0;
+		this.segmentOffsets = new long[]{ 0 };
+		this.segmentNumMoves = new long[0];
+		this.numSegments = 0;
+		this.numSpilledMoves = 0;
+	}
+
+	/**
+	 * Removes all the moves held, deleting any spilled to disk.
+	 */
+	@Override
+	public void close(){
+		this.clear();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		MoveLog that = (MoveLog) o;
+		if(this.sizeL() != that.sizeL()){
+			return false;
+		}
+		Iterator<ScrambleMove> thisIt = this.iterator();
+		Iterator<ScrambleMove> thatIt = that.iterator();
+		while(thisIt.hasNext()){
+			if(!thisIt.next().equals(thatIt.next())){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for(ScrambleMove curMove : this){
+			result = 31 * result + curMove.hashCode();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,154 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import static com.ebp.owat.lib.utils.scramble.ScrambleConstants.*;
+
+/**
+ * A permutation of the positions of a matrix, built up by doing scramble moves to it instead of to a matrix of values.
+ *
+ * Holds, for each position in the matrix, the position the value there started at before any moves were done. Positions are given as row-major indexes into a matrix of the size given; (row * numCols) + col.
+ *
+ * Follows the exact same semantics as the moves in {@link com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix}.
+ */
+public class MovePermutation {
+	/** The number of rows in the matrix. */
+	private final long numRows;
+	/** The number of columns in the matrix. */
+	private final long numCols;
+	/** For each position, the position the value there started at. */
+	private final long[] sources;
+	/** The tracer used for moves that are not simple to do in place. */
+	private final PositionTracer tracer;
+
+	/**
+	 * Constructor to set up the identity permutation for a matrix of the size given.
+	 * @param numRows The number of rows in the matrix.
+	 * @param numCols The number of columns in the matrix.
+	 * @throws IllegalArgumentException If either dimension is less than 1, or the matrix is too big to hold the permutation of.
+	 */
+	public MovePermutation(long numRows, long numCols){
+		this.tracer = new PositionTracer(numRows, numCols);
+		if(!canHold(numRows, numCols)){
+			throw new IllegalArgumentException("Matrix is too large to hold a permutation of.");
+		}
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.sources = new long[(int)(numRows * numCols)];
+		for(int i = 0; i < this.sources.length; i++){
+			this.sources[i] = i;
+		}
+	}
+
+	/**
+	 * Gets if the permutation of a matrix of the size given can be held.
+	 * @param numRows The number of rows in the matrix.
+	 * @param numCols The number of columns in the matrix.
+	 * @return If the matrix is small enough to hold the permutation of.
+	 */
+	public static boolean canHold(long numRows, long numCols){
+		return numRows >= 1 && numCols >= 1 && numRows <= Integer.MAX_VALUE / numCols;
+	}
+
+	/**
+	 * Gets the number of positions in the permutation.
+	 * @return The number of positions in the permutation.
+	 */
+	public long size(){
+		return this.sources.length;
+	}
+
+	/**
+	 * Gets the position the value now at the index given started at.
+	 * @param index The current position.
+	 * @return The position the value started at.
+	 */
+	public long getSource(long index){
+		return this.sources[(int)index];
+	}
+
+	/**
+	 * Swaps the entries at the two indexes given.
+	 * @param one The first index.
+	 * @param two The second index.
+	 */
+	private void swap(long one, long two){
+		long temp = this.sources[(int)one];
+		this.sources[(int)one] = this.sources[(int)two];
+		this.sources[(int)two] = temp;
+	}
+
+	/**
+	 * Slides a line of entries, moving each the number of spaces given, wrapping around the end.
+	 * @param start The index of the first entry in the line.
+	 * @param step The distance between entries in the line.
+	 * @param length The number of entries in the line.
+	 * @param numToSlide The number of spaces to slide. Can be negative.
+	 */
+	private void slide(long start, long step, long length, long numToSlide){
+		long[] line = new long[(int)length];
+		for(int i = 0; i < line.length; i++){
+			line[i] = this.sources[(int)(start + (i * step))];
+		}
+		for(int i = 0; i < line.length; i++){
+			long dest = Math.floorMod(i + numToSlide, length);
+			this.sources[(int)(start + (dest * step))] = line[i];
+		}
+	}
+
+	/**
+	 * Does a scramble move to the permutation.
+	 * @param move The move to do.
+	 * @throws IllegalArgumentException If the move given is not a proper move.
+	 */
+	public void doMove(ScrambleMove move){
+		switch (move.move){
+			case SWAP:
+				this.swap(
+					(move.getArg(Swap.Y1) * this.numCols) + move.getArg(Swap.X1),
+					(move.getArg(Swap.Y2) * this.numCols) + move.getArg(Swap.X2)
+				);
+				break;
+			case SWAP_ROW: {
+				long one = move.getArg(SwapRow.ROWCOL1) * this.numCols,
+					two = move.getArg(SwapRow.ROWCOL2) * this.numCols;
+				if(one != two){
+					for(long i = 0; i < this.numCols; i++){
+						this.swap(one + i, two + i);
+					}
+				}
+				break;
+			}
+			case SWAP_COL: {
+				long one = move.getArg(SwapCol.ROWCOL1),
+					two = move.getArg(SwapCol.ROWCOL2);
+				if(one != two){
+					for(long i = 0; i < this.numRows; i++){
+						this.swap((i * this.numCols) + one, (i * this.numCols) + two);
+					}
+				}
+				break;
+			}
+			case SLIDE_ROW:
+				this.slide(move.getArg(SlideRow.ROWCOL) * this.numCols, 1, this.numCols, move.getArg(SlideRow.NUMTOSLIDE));
+				break;
+			case SLIDE_COL:
+				this.slide(move.getArg(SlideCol.ROWCOL), this.numCols, this.numRows, move.getArg(SlideCol.NUMTOSLIDE));
+				break;
+			case ROT_BOX: {
+				long x = move.getArg(RotateBox.X),
+					y = move.getArg(RotateBox.Y),
+					size = move.getArg(RotateBox.SIZE);
+				long[] box = new long[(int)(size * size)];
+				for(int i = 0; i < box.length; i++){
+					box[i] = this.sources[(int)(((y + (i / size)) * this.numCols) + x + (i % size))];
+				}
+				for(int i = 0; i < box.length; i++){
+					long index = ((y + (i / size)) * this.numCols) + x + (i % size);
+					this.sources[(int)this.tracer.getDestination(move, index)] = box[i];
+				}
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("The move given was invalid; Not a proper move.");
+		}
+	}
+}
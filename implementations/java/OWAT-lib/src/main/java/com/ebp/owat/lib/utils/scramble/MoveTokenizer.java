@@ -0,0 +1,279 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import static com.ebp.owat.lib.utils.scramble.ScrambleConstants.*;
+
+/**
+ * Parses moves out of their key strings in a single pass, a character at a time.
+ *
+ * Reads the opcode and numbers of each move straight out of the characters fed to it, with no regexes and no strings built along the way. Accepts the same moves as {@link ScrambleMoves#isValid(String)}; whitespace around any part of a move, either the opcode or op string in any case, and negative numbers only where a move can have them.
+ */
+public class MoveTokenizer {
+	/** The longest opcode or op string of any move. */
+	private static final int MAX_OP_LENGTH = 3;
+	/** The move types, in the order they are checked. */
+	private static final ScrambleMoves[] MOVES = ScrambleMoves.values();
+
+	/** The parts of a move the tokenizer can be in. */
+	private enum State {
+		/** Between moves; before the op. */
+		BEFORE_OP,
+		/** In the op. */
+		IN_OP,
+		/** After the op, before the separator from the arguments. */
+		AFTER_OP,
+		/** Before an argument. */
+		BEFORE_ARG,
+		/** After the minus sign of an argument. */
+		IN_SIGN,
+		/** In the digits of an argument. */
+		IN_ARG,
+		/** After an argument, before the separator following it. */
+		AFTER_ARG
+	}
+
+	/** The part of a move being read. */
+	private State state = State.BEFORE_OP;
+	/** The characters of the op read so far. */
+	private final char[] op = new char[MAX_OP_LENGTH];
+	/** The number of characters of the op read so far. */
+	private int opLength = 0;
+	/** The type of the move being read. */
+	private ScrambleMoves curMove = null;
+	/** The arguments of the move being read. */
+	private long[] args = null;
+	/** The index of the argument being read. */
+	private int argIndex = 0;
+	/** If the argument being read is negative. */
+	private boolean negative = false;
+
+	/**
+	 * Gets the separator that follows the argument given of the type of move given.
+	 * @param move The type of move.
+	 * @param argIndex The index of the argument.
+	 * @return The separator following the argument. Ends the move after the last argument.
+	 */
+	private static char getSeparatorAfter(ScrambleMoves move, int argIndex){
+		if(argIndex == move.numArgs - 1){
+			return MOVE_END;
+		}
+		switch (move){
+			case SWAP:
+				return argIndex == Swap.X1 || argIndex == Swap.X2 ? COORD_SEP : ARG_SEP;
+			case ROT_BOX:
+				return argIndex == RotateBox.X ? COORD_SEP : ARG_SEP;
+			default:
+				return ARG_SEP;
+		}
+	}
+
+	/**
+	 * Gets if the argument given of the type of move given can be negative.
+	 * @param move The type of move.
+	 * @param argIndex The index of the argument.
+	 * @return If the argument can be negative.
+	 */
+	private static boolean canBeNegative(ScrambleMoves move, int argIndex){
+		switch (move){
+			case SLIDE_ROW:
+			case SLIDE_COL:
+				return argIndex == SlideCol.NUMTOSLIDE;
+			case ROT_BOX:
+				return argIndex == RotateBox.ROTNUM;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Gets if the character given is the separator given. Coordinate separators can be in either case.
+	 * @param c The character read.
+	 * @param separator The separator expected.
+	 * @return If the character is the separator.
+	 */
+	private static boolean isSeparator(int c, char separator){
+		if(separator == COORD_SEP){
+			return Character.toLowerCase(c) == COORD_SEP;
+		}
+		return c == separator;
+	}
+
+	/**
+	 * Gets if the op read so far is the string given, ignoring case.
+	 * @param opStr The string to check against.
+	 * @return If the op read is the string.
+	 */
+	private boolean opMatches(String opStr){
+		if(opStr.length() != this.opLength){
+			return false;
+		}
+		for(int i = 0; i < this.opLength; i++){
+			if(Character.toLowerCase(this.op[i]) != Character.toLowerCase(opStr.charAt(i))){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Works out the type of move from the op read, and gets ready to read its arguments.
+	 * @throws IllegalArgumentException If the op is not that of any move.
+	 */
+	private void endOp(){
+		for(ScrambleMoves cur : MOVES){
+			if(this.opMatches(cur.opCode) || this.opMatches(cur.opStr)){
+				this.curMove = cur;
+				this.args = new long[cur.numArgs];
+				this.argIndex = 0;
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Invalid move op \"" + new String(this.op, 0, this.opLength) + "\"");
+	}
+
+	/**
+	 * Finishes the argument being read.
+	 * @throws IllegalArgumentException If the argument is not valid for the move.
+	 */
+	private void endArg(){
+		if(this.negative){
+			this.args[this.argIndex] = -this.args[this.argIndex];
+		}
+		if(this.curMove == ScrambleMoves.ROT_BOX && this.argIndex == RotateBox.ROTNUM){
+			long rotNum = Math.abs(this.args[this.argIndex]);
+			if(rotNum < 1 || rotNum > 3){
+				throw new IllegalArgumentException("Invalid number of rotations: " + this.args[this.argIndex]);
+			}
+		}
+		this.state = State.AFTER_ARG;
+	}
+
+	/**
+	 * Reads the separator after the current argument.
+	 * @param c The character read.
+	 * @return The move, if the separator ended it. Null otherwise.
+	 * @throws IllegalArgumentException If the character is not the separator expected.
+	 */
+	private ScrambleMove readSeparator(int c){
+		char expected = getSeparatorAfter(this.curMove, this.argIndex);
+		if(!isSeparator(c, expected)){
+			throw this.unexpected(c);
+		}
+		if(expected == MOVE_END){
+			ScrambleMove move = new ScrambleMove(this.curMove, this.args);
+			this.reset();
+			return move;
+		}
+		this.argIndex++;
+		this.state = State.BEFORE_ARG;
+		return null;
+	}
+
+	/**
+	 * Makes the exception for a character that was not expected.
+	 * @param c The character read.
+	 * @return The exception to throw.
+	 */
+	private IllegalArgumentException unexpected(int c){
+		return new IllegalArgumentException("Unexpected character '" + (char)c + "' in move" + (this.curMove == null ? "." : " of type " + this.curMove));
+	}
+
+	/**
+	 * Reads the next character of the moves.
+	 * @param c The character to read.
+	 * @return The move, if the character ended one. Null otherwise.
+	 * @throws IllegalArgumentException If the character does not fit in a valid move. The tokenizer should be {@link #reset()} before being used again.
+	 */
+	@SuppressWarnings("fallthrough")
+	public ScrambleMove accept(int c){
+		boolean whitespace = Character.isWhitespace(c);
+		switch (this.state){
+			case BEFORE_OP:
+				if(whitespace){
+					return null;
+				}
+				this.state = State.IN_OP;
+				//fall through to read the first character of the op
+			case IN_OP:
+				if(Character.isLetterOrDigit(c)){
+					if(this.opLength == MAX_OP_LENGTH){
+						throw this.unexpected(c);
+					}
+					this.op[this.opLength++] = (char)c;
+					return null;
+				}
+				if(this.opLength == 0){
+					throw this.unexpected(c);
+				}
+				this.endOp();
+				this.state = State.AFTER_OP;
+				//fall through to read what ended the op
+			case AFTER_OP:
+				if(whitespace){
+					return null;
+				}
+				if(c != OP_SEP){
+					throw this.unexpected(c);
+				}
+				this.state = State.BEFORE_ARG;
+				return null;
+			case BEFORE_ARG:
+				if(whitespace){
+					return null;
+				}
+				this.args[this.argIndex] = 0;
+				this.negative = false;
+				if(c == '-' && canBeNegative(this.curMove, this.argIndex)){
+					this.negative = true;
+					this.state = State.IN_SIGN;
+					return null;
+				}
+				//fall through to read the first digit
+			case IN_SIGN:
+			case IN_ARG:
+				if(c >= '0' && c <= '9'){
+					long arg = this.args[this.argIndex];
+					if(arg > (Long.MAX_VALUE - (c - '0')) / 10){
+						throw new IllegalArgumentException("Argument of move too large.");
+					}
+					this.args[this.argIndex] = (arg * 10) + (c - '0');
+					this.state = State.IN_ARG;
+					return null;
+				}
+				if(this.state != State.IN_ARG){
+					throw this.unexpected(c);
+				}
+				this.endArg();
+				if(whitespace){
+					return null;
+				}
+				return this.readSeparator(c);
+			case AFTER_ARG:
+				if(whitespace){
+					return null;
+				}
+				return this.readSeparator(c);
+			default:
+				throw new IllegalStateException("Unknown state " + this.state);
+		}
+	}
+
+	/**
+	 * Gets if the tokenizer is between moves; not part way through reading one.
+	 * @return If not in the middle of a move.
+	 */
+	public boolean isBetweenMoves(){
+		return this.state == State.BEFORE_OP && this.opLength == 0;
+	}
+
+	/**
+	 * Drops any move part way through being read.
+	 */
+	public void reset(){
+		this.state = State.BEFORE_OP;
+		this.opLength = 0;
+		this.curMove = null;
+		this.args = null;
+		this.argIndex = 0;
+		this.negative = false;
+	}
+}
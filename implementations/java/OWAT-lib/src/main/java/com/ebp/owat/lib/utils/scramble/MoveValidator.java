@@ -16,8 +16,18 @@ public class MoveValidator {
 	 * @return If the matrix given is too small for scrambling.
 	 */
 	public static boolean matrixIsTooSmallForScrambling(Matrix matrix) {
-		return matrix.getNumCols() < MIN_SIZE_FOR_SCRAMBLING ||
-			matrix.getNumRows() < MIN_SIZE_FOR_SCRAMBLING;
+		return matrixIsTooSmallForScrambling(matrix.getNumRows(), matrix.getNumCols());
+	}
+
+	/**
+	 * Determines if a matrix of the size given is too small for scrambling.
+	 * @param numRows The number of rows in the matrix.
+	 * @param numCols The number of columns in the matrix.
+	 * @return If a matrix of the size given is too small for scrambling.
+	 */
+	public static boolean matrixIsTooSmallForScrambling(long numRows, long numCols) {
+		return numCols < MIN_SIZE_FOR_SCRAMBLING ||
+			numRows < MIN_SIZE_FOR_SCRAMBLING;
 	}
 	
 	/**
@@ -26,7 +36,17 @@ public class MoveValidator {
 	 * @throws IllegalStateException If the matrix is too small for scrambling.
 	 */
 	public static void throwIfMatrixTooSmallForScrambling(Matrix matrix) {
-		if (matrixIsTooSmallForScrambling(matrix)) {
+		throwIfMatrixTooSmallForScrambling(matrix.getNumRows(), matrix.getNumCols());
+	}
+
+	/**
+	 * Throws an exception if a matrix of the size given is too small for scrambling.
+	 * @param numRows The number of rows in the matrix.
+	 * @param numCols The number of columns in the matrix.
+	 * @throws IllegalStateException If the matrix is too small for scrambling.
+	 */
+	public static void throwIfMatrixTooSmallForScrambling(long numRows, long numCols) {
+		if (matrixIsTooSmallForScrambling(numRows, numCols)) {
 			throw new IllegalStateException("Matrix too small for scrambling.");
 		}
 	}
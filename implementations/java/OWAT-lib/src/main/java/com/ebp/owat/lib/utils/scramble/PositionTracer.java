@@ -0,0 +1,165 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import static com.ebp.owat.lib.utils.scramble.ScrambleConstants.*;
+
+/**
+ * Traces where nodes in a matrix go when scramble moves are done, without needing the matrix or its values.
+ *
+ * Positions are given as row-major indexes into a matrix of the size given; (row * numCols) + col.
+ *
+ * Follows the exact same semantics as the moves in {@link com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix}.
+ */
+public class PositionTracer {
+	/** The number of rows in the matrix being traced. */
+	private final long numRows;
+	/** The number of columns in the matrix being traced. */
+	private final long numCols;
+
+	/**
+	 * Constructor to set the size of the matrix being traced.
+	 * @param numRows The number of rows in the matrix.
+	 * @param numCols The number of columns in the matrix.
+	 * @throws IllegalArgumentException If either dimension is less than 1.
+	 */
+	public PositionTracer(long numRows, long numCols){
+		if(numRows < 1 || numCols < 1){
+			throw new IllegalArgumentException("Cannot trace positions on a matrix with no rows or columns.");
+		}
+		this.numRows = numRows;
+		this.numCols = numCols;
+	}
+
+	/**
+	 * Gets the number of rows in the matrix being traced.
+	 * @return The number of rows in the matrix being traced.
+	 */
+	public long getNumRows(){
+		return numRows;
+	}
+
+	/**
+	 * Gets the number of columns in the matrix being traced.
+	 * @return The number of columns in the matrix being traced.
+	 */
+	public long getNumCols(){
+		return numCols;
+	}
+
+	/**
+	 * Gets where the value at the index given ends up after the move is done.
+	 * @param move The move being done.
+	 * @param index The index of the value before the move.
+	 * @return The index of the value after the move.
+	 */
+	public long getDestination(ScrambleMove move, long index){
+		return this.trace(move, index, false);
+	}
+
+	/**
+	 * Gets where the value at the index given was before the move was done.
+	 * @param move The move that was done.
+	 * @param index The index of the value after the move.
+	 * @return The index of the value before the move.
+	 */
+	public long getSource(ScrambleMove move, long index){
+		return this.trace(move, index, true);
+	}
+
+	/**
+	 * Traces a set of indexes back through a move, replacing each with where its value was before the move was done.
+	 * @param move The move that was done.
+	 * @param indexes The indexes to trace. Modified in place.
+	 */
+	public void traceSources(ScrambleMove move, long[] indexes){
+		for(int i = 0; i < indexes.length; i++){
+			indexes[i] = this.trace(move, indexes[i], true);
+		}
+	}
+
+	/**
+	 * Traces a single index through a move.
+	 * @param move The move to trace through.
+	 * @param index The index to trace.
+	 * @param backwards If we are finding where the value came from rather than where it goes.
+	 * @return The traced index.
+	 */
+	private long trace(ScrambleMove move, long index, boolean backwards){
+		long row = index / this.numCols;
+		long col = index % this.numCols;
+
+		switch (move.move){
+			case SWAP: {
+				long x1 = move.getArg(Swap.X1),
+					y1 = move.getArg(Swap.Y1),
+					x2 = move.getArg(Swap.X2),
+					y2 = move.getArg(Swap.Y2);
+				if(col == x1 && row == y1){
+					col = x2;
+					row = y2;
+				}else if(col == x2 && row == y2){
+					col = x1;
+					row = y1;
+				}
+				break;
+			}
+			case SWAP_ROW: {
+				long one = move.getArg(SwapRow.ROWCOL1),
+					two = move.getArg(SwapRow.ROWCOL2);
+				if(row == one){
+					row = two;
+				}else if(row == two){
+					row = one;
+				}
+				break;
+			}
+			case SWAP_COL: {
+				long one = move.getArg(SwapCol.ROWCOL1),
+					two = move.getArg(SwapCol.ROWCOL2);
+				if(col == one){
+					col = two;
+				}else if(col == two){
+					col = one;
+				}
+				break;
+			}
+			case SLIDE_ROW:
+				if(row == move.getArg(SlideRow.ROWCOL)){
+					long numToSlide = move.getArg(SlideRow.NUMTOSLIDE);
+					col = Math.floorMod(col + (backwards ? -numToSlide : numToSlide), this.numCols);
+				}
+				break;
+			case SLIDE_COL:
+				if(col == move.getArg(SlideCol.ROWCOL)){
+					long numToSlide = move.getArg(SlideCol.NUMTOSLIDE);
+					row = Math.floorMod(row + (backwards ? -numToSlide : numToSlide), this.numRows);
+				}
+				break;
+			case ROT_BOX: {
+				long x = move.getArg(RotateBox.X),
+					y = move.getArg(RotateBox.Y),
+					size = move.getArg(RotateBox.SIZE);
+				if(col < x || col >= x + size || row < y || row >= y + size){
+					break;
+				}
+				long numTimesToRotate = Math.floorMod(move.getArg(RotateBox.ROTNUM), 4);
+				if(backwards){
+					numTimesToRotate = (4 - numTimesToRotate) % 4;
+				}
+				long subRow = row - y,
+					subCol = col - x;
+				for(long i = 0; i < numTimesToRotate; i++){
+					//one clockwise turn; transpose then flip each row, as ScrambleMatrix does.
+					long temp = subRow;
+					subRow = subCol;
+					subCol = size - 1 - temp;
+				}
+				row = subRow + y;
+				col = subCol + x;
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("The move given was invalid; Not a proper move.");
+		}
+		return (row * this.numCols) + col;
+	}
+}
@@ -13,10 +13,7 @@ public class ScrambleConstants {
 	static final char MOVE_END = ';';
 	static final char ARG_SEP = ',';
 	static final char COORD_SEP = 'x';
-	static final char COORD_SEP_CAP = 'P';
 	static final char OP_SEP = ':';
-	
-	static final String MOVE_SEP_REGEX = "(?<=" + ScrambleConstants.MOVE_END + ")";
 
 	/*
 		These are for determining what values are what for what moves.
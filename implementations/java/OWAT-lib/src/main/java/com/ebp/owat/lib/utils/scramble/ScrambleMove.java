@@ -69,13 +69,25 @@ public class ScrambleMove {
 	}
 	
 	/**
-	 * Turns this move into it's string representation.
+	 * Gets a new move that undoes this one. Does not change this move.
+	 * @return A new move that undoes this one.
+	 */
+	public ScrambleMove getReverse(){
+		ScrambleMove reverse = this.clone();
+		reverse.toReverse();
+		return reverse;
+	}
+	
+	/**
+	 * Turns this move into it's string representation. Does not change this move.
 	 * @param sbIn If null, simply returns the string. If given a StringBuilder, adds to the string builder and returns null.
+	 * @param reverse If the string should be of the move that undoes this one.
 	 * @return If sbIn is null, returns the string. Else just returns null.
 	 */
 	public String toKeyString(StringBuilder sbIn, boolean reverse){
+		long[] args = this.args;
 		if(reverse){
-			this.toReverse();
+			args = this.getReverse().args;
 		}
 		StringBuilder sb;
 		if(sbIn != null){
@@ -88,34 +100,34 @@ public class ScrambleMove {
 		
 		switch (this.move) {
 			case SWAP:
-				sb.append(this.args[Swap.X1])
+				sb.append(args[Swap.X1])
 					.append(COORD_SEP)
-					.append(this.args[Swap.Y1])
+					.append(args[Swap.Y1])
 					.append(ARG_SEP)
-					.append(this.args[Swap.X2])
+					.append(args[Swap.X2])
 					.append(COORD_SEP)
-					.append(this.args[Swap.Y2]);
+					.append(args[Swap.Y2]);
 				break;
 			case SWAP_ROW:
 			case SWAP_COL:
-				sb.append(this.args[SwapRow.ROWCOL1])
+				sb.append(args[SwapRow.ROWCOL1])
 					.append(ARG_SEP)
-					.append(this.args[SwapRow.ROWCOL2]);
+					.append(args[SwapRow.ROWCOL2]);
 				break;
 			case SLIDE_ROW:
 			case SLIDE_COL:
-				sb.append(this.args[SlideCol.ROWCOL])
+				sb.append(args[SlideCol.ROWCOL])
 					.append(ARG_SEP)
-					.append(this.args[SlideCol.NUMTOSLIDE]);
+					.append(args[SlideCol.NUMTOSLIDE]);
 				break;
 			case ROT_BOX:
-				sb.append(this.args[RotateBox.ROTNUM])
+				sb.append(args[RotateBox.ROTNUM])
 					.append(ARG_SEP)
-					.append(this.args[RotateBox.X])
+					.append(args[RotateBox.X])
 					.append(COORD_SEP)
-					.append(this.args[RotateBox.Y])
+					.append(args[RotateBox.Y])
 					.append(ARG_SEP)
-					.append(this.args[RotateBox.SIZE]);
+					.append(args[RotateBox.SIZE]);
 				break;
 		}
 		sb.append(MOVE_END);
@@ -137,31 +149,44 @@ public class ScrambleMove {
 	 * Parses a move from the string given.
 	 * @param move The move as a string.
 	 * @return The move parsed from the string.
+	 * @throws IllegalArgumentException If the string is not exactly one valid move.
 	 */
 	public static ScrambleMove parse(String move) {
-		ScrambleMoves sm = ScrambleMoves.determineMove(move);
-		String sanitizedMove = move.replaceAll("\\s", "");
-		sanitizedMove = sanitizedMove.substring(sanitizedMove.lastIndexOf(":") + 1, sanitizedMove.length() - 1);
-		String[] moveParts = sanitizedMove.split("(" + ARG_SEP + "|" + COORD_SEP + "|" + COORD_SEP_CAP + ")");
-		long[] args = new long[moveParts.length];
-		for (int i = 0; i < moveParts.length; i++) {
-			args[i] = Long.parseLong(moveParts[i]);
+		MoveTokenizer tokenizer = new MoveTokenizer();
+		ScrambleMove output = null;
+		for (int i = 0; i < move.length(); i++) {
+			ScrambleMove curMove = tokenizer.accept(move.charAt(i));
+			if (curMove != null) {
+				if (output != null) {
+					throw new IllegalArgumentException("String given held more than one move.");
+				}
+				output = curMove;
+			}
 		}
-		return new ScrambleMove(sm, args);
+		if (output == null || !tokenizer.isBetweenMoves()) {
+			throw new IllegalArgumentException("String given was not a valid move.");
+		}
+		return output;
 	}
 
 	/**
 	 * Parses multiple moves from a string.
 	 * @param moves The string with moves to parse.
 	 * @return A list of moves parsed from the string given.
+	 * @throws IllegalArgumentException If the string held an invalid move, or ended part way through one.
 	 */
 	public static LongLinkedList<ScrambleMove> parseMulti(String moves) {
 		LongLinkedList<ScrambleMove> output = new LongLinkedList<>();
+		MoveTokenizer tokenizer = new MoveTokenizer();
 		
-		String[] moveStrings = moves.split(MOVE_SEP_REGEX);
-		
-		for (String curMove : moveStrings) {
-			output.addLast(parse(curMove));
+		for (int i = 0; i < moves.length(); i++) {
+			ScrambleMove curMove = tokenizer.accept(moves.charAt(i));
+			if (curMove != null) {
+				output.addLast(curMove);
+			}
+		}
+		if (!tokenizer.isBetweenMoves()) {
+			throw new IllegalArgumentException("Unfinished move at end of the moves.");
 		}
 		return output;
 	}
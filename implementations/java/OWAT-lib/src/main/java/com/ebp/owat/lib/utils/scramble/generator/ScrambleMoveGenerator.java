@@ -13,8 +13,12 @@ import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
 public class ScrambleMoveGenerator {
 	/** The number generator to use. */
 	protected OwatRandGenerator numGenerator;
-	/** The matrix to generate moves for. */
+	/** The matrix to generate moves for. Null if generating for a set size instead. */
 	protected final Matrix matrix;
+	/** The number of rows to generate moves for, when not given a matrix. */
+	private final long numRows;
+	/** The number of columns to generate moves for, when not given a matrix. */
+	private final long numCols;
 
 	/**
 	 * Constructor for the generator.
@@ -24,6 +28,37 @@ public class ScrambleMoveGenerator {
 	public ScrambleMoveGenerator(OwatRandGenerator numGenerator, Matrix matrix) {
 		this.numGenerator = numGenerator;
 		this.matrix = matrix;
+		this.numRows = -1;
+		this.numCols = -1;
+	}
+
+	/**
+	 * Constructor for the generator, for generating moves for a matrix of a set size without needing the matrix itself.
+	 * @param numGenerator The number generator to use.
+	 * @param numRows The number of rows in the matrix to generate moves for.
+	 * @param numCols The number of columns in the matrix to generate moves for.
+	 */
+	public ScrambleMoveGenerator(OwatRandGenerator numGenerator, long numRows, long numCols) {
+		this.numGenerator = numGenerator;
+		this.matrix = null;
+		this.numRows = numRows;
+		this.numCols = numCols;
+	}
+
+	/**
+	 * Gets the number of rows in the matrix moves are being generated for.
+	 * @return The number of rows.
+	 */
+	private long getNumRows(){
+		return this.matrix == null ? this.numRows : this.matrix.getNumRows();
+	}
+
+	/**
+	 * Gets the number of columns in the matrix moves are being generated for.
+	 * @return The number of columns.
+	 */
+	private long getNumCols(){
+		return this.matrix == null ? this.numCols : this.matrix.getNumCols();
 	}
 
 	/**
@@ -46,20 +81,23 @@ public class ScrambleMoveGenerator {
 
 	/**
 	 * Gets a new move.
+	 *
+	 * Keys in {@link com.ebp.owat.lib.utils.key.KeySeed seed form} are generated again with this; the moves made, and the numbers drawn to make them, must stay the same for the same numbers given, or the generator version be bumped.
+	 *
 	 * @return A new move to be used to scramble the matrix.
 	 */
 	public ScrambleMove getMove(){
-		MoveValidator.throwIfMatrixTooSmallForScrambling(this.matrix);
+		MoveValidator.throwIfMatrixTooSmallForScrambling(this.getNumRows(), this.getNumCols());
 		ScrambleMoves sm = this.numGenerator.getRandValue(ScrambleMoves.values());
 		
 		switch (sm){
 			case SWAP:
 				long[] args = new long[4];
 				do{
-					args[ScrambleConstants.Swap.X1] = this.numGenerator.nextLong(this.matrix.getNumCols());
-					args[ScrambleConstants.Swap.Y1] = this.numGenerator.nextLong(this.matrix.getNumRows());
-					args[ScrambleConstants.Swap.X2] = this.numGenerator.nextLong(this.matrix.getNumCols());
-					args[ScrambleConstants.Swap.Y2] = this.numGenerator.nextLong(this.matrix.getNumRows());
+					args[ScrambleConstants.Swap.X1] = this.numGenerator.nextLong(this.getNumCols());
+					args[ScrambleConstants.Swap.Y1] = this.numGenerator.nextLong(this.getNumRows());
+					args[ScrambleConstants.Swap.X2] = this.numGenerator.nextLong(this.getNumCols());
+					args[ScrambleConstants.Swap.Y2] = this.numGenerator.nextLong(this.getNumRows());
 				}while(
 					args[ScrambleConstants.Swap.X1] == args[ScrambleConstants.Swap.X2] &&
 					args[ScrambleConstants.Swap.Y1] == args[ScrambleConstants.Swap.Y2]
@@ -68,33 +106,33 @@ public class ScrambleMoveGenerator {
 			case SWAP_ROW:
 					return new ScrambleMove(
 						sm,
-						this.numGenerator.nextLong(this.matrix.getNumRows()),
-						this.numGenerator.nextLong(this.matrix.getNumRows())
+						this.numGenerator.nextLong(this.getNumRows()),
+						this.numGenerator.nextLong(this.getNumRows())
 					);
 			case SWAP_COL:
 				return new ScrambleMove(
 					sm,
-					this.numGenerator.nextLong(this.matrix.getNumCols()),
-					this.numGenerator.nextLong(this.matrix.getNumCols())
+					this.numGenerator.nextLong(this.getNumCols()),
+					this.numGenerator.nextLong(this.getNumCols())
 				);
 			case SLIDE_ROW:
 				return new ScrambleMove(
 					sm,
-					this.numGenerator.nextLong(this.matrix.getNumRows()),
-					this.numGenerator.nextLong(this.matrix.getNumCols())
+					this.numGenerator.nextLong(this.getNumRows()),
+					this.numGenerator.nextLong(this.getNumCols())
 				);
 			case SLIDE_COL:
 				return new ScrambleMove(
 					sm,
-					this.numGenerator.nextLong(this.matrix.getNumCols()),
-					this.numGenerator.nextLong(this.matrix.getNumRows())
+					this.numGenerator.nextLong(this.getNumCols()),
+					this.numGenerator.nextLong(this.getNumRows())
 				);
 			case ROT_BOX:{
 				long
-					x = this.numGenerator.nextLong(this.matrix.getNumCols() - MoveValidator.MIN_SIZE_FOR_ROTATION),
-					y = this.numGenerator.nextLong(this.matrix.getNumRows() - MoveValidator.MIN_SIZE_FOR_ROTATION),
+					x = this.numGenerator.nextLong(this.getNumCols() - MoveValidator.MIN_SIZE_FOR_ROTATION),
+					y = this.numGenerator.nextLong(this.getNumRows() - MoveValidator.MIN_SIZE_FOR_ROTATION),
 					maxSize = Math.max(x,y),
-					s = this.numGenerator.nextLong(maxSize, this.matrix.getNumCols() - maxSize)
+					s = this.numGenerator.nextLong(maxSize, this.getNumCols() - maxSize)
 					;
 				return new ScrambleMove(sm, this.numGenerator.nextLong(1,4), x, y, s);
 			}
@@ -115,10 +153,10 @@ public class ScrambleMoveGenerator {
 	 */
 	private long[] getBoxCoords(){
 		long
-			x1 = this.numGenerator.nextLong(this.matrix.getNumCols() - 2L),
-			y1 = this.numGenerator.nextLong(this.matrix.getNumRows() - 2L),
-			x2 = this.numGenerator.nextLong(x1 + 2, this.matrix.getNumCols()),
-			y2 = this.numGenerator.nextLong(y1 + 2, this.matrix.getNumRows())
+			x1 = this.numGenerator.nextLong(this.getNumCols() - 2L),
+			y1 = this.numGenerator.nextLong(this.getNumRows() - 2L),
+			x2 = this.numGenerator.nextLong(x1 + 2, this.getNumCols()),
+			y2 = this.numGenerator.nextLong(y1 + 2, this.getNumRows())
 		;
 		
 		return new long[] {
@@ -0,0 +1,311 @@
+package com.ebp.owat.lib.runner;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.utils.index.IndexedDataReader;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.io.FileSink;
+import com.ebp.owat.lib.utils.io.ScrambledDataHeader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests scrambling, descrambling and re-keying with the different scrambled data formats.
+ */
+@RunWith(Parameterized.class)
+public class RunnerDataFormatTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunnerDataFormatTest.class);
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final byte[] data;
+	private final DataFormat format;
+
+	public RunnerDataFormatTest(String data, DataFormat format){
+		this.data = data.getBytes(StandardCharsets.UTF_8);
+		this.format = format;
+	}
+
+	private static byte[] descramble(byte[] scrambledData, byte[] key, long offset, long length) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DeScrambleRunner.Builder builder = new DeScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(scrambledData))
+			.setKeyInput(new ByteArrayInputStream(key))
+			.setDataOutput(output);
+		if(offset >= 0){
+			builder.setRange(offset, length);
+		}
+		builder.build().doSteps();
+		return output.toByteArray();
+	}
+
+	private static DataFormat getFormat(byte[] scrambledData) throws IOException {
+		return ScrambledDataHeader.detectFormat(new ByteArrayInputStream(scrambledData));
+	}
+
+	private void runTest(NodeMode mode) throws IOException {
+		LOGGER.info("Testing {} with {} data format. Data length: {}", mode, this.format, this.data.length);
+		File dataFile = this.tempFolder.newFile();
+		File keyFile = this.tempFolder.newFile();
+		File indexFile = this.tempFolder.newFile();
+
+		try(
+			OutputStream dataOutput = Files.newOutputStream(dataFile.toPath());
+			OutputStream keyOutput = Files.newOutputStream(keyFile.toPath());
+			OutputStream indexOutput = Files.newOutputStream(indexFile.toPath())
+		){
+			new ScrambleRunner.Builder<>()
+				.setDataInput(new ByteArrayInputStream(this.data))
+				.setDataOutput(dataOutput)
+				.setKeyOutput(keyOutput)
+				.setIndexOutput(indexOutput)
+				.setNodeType(mode)
+				.setDataFormat(this.format)
+				.build()
+				.doSteps();
+		}
+		byte[] scrambledData = Files.readAllBytes(dataFile.toPath());
+		byte[] key = Files.readAllBytes(keyFile.toPath());
+		assertEquals(this.format, getFormat(scrambledData));
+
+		assertArrayEquals(this.data, descramble(scrambledData, key, -1, -1));
+		int offset = this.data.length / 3;
+		assertArrayEquals(
+			Arrays.copyOfRange(this.data, offset, this.data.length),
+			descramble(scrambledData, key, offset, this.data.length)
+		);
+
+		//through a file, which is memory mapped
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new DeScrambleRunner.Builder()
+			.setDataInput(dataFile)
+			.setKeyInput(new FileInputStream(keyFile))
+			.setDataOutput(output)
+			.build()
+			.doSteps();
+		assertArrayEquals(this.data, output.toByteArray());
+
+		try(IndexedDataReader reader = new IndexedDataReader(indexFile, dataFile)){
+			byte[] read = new byte[this.data.length];
+			assertEquals(this.data.length, reader.read(0, read, 0, read.length));
+			assertArrayEquals(this.data, read);
+		}
+
+		//re-keying keeps the format unless told otherwise
+		for(DataFormat newFormat : new DataFormat[]{ null, DataFormat.BASE64, DataFormat.BINARY }){
+			ByteArrayOutputStream reKeyedDataOutput = new ByteArrayOutputStream();
+			ByteArrayOutputStream newKeyOutput = new ByteArrayOutputStream();
+			ReKeyRunner.Builder<?, ?, ?> builder = new ReKeyRunner.Builder<>()
+				.setDataInput(new ByteArrayInputStream(scrambledData))
+				.setKeyInput(new ByteArrayInputStream(key))
+				.setDataOutput(reKeyedDataOutput)
+				.setKeyOutput(newKeyOutput);
+			if(newFormat != null){
+				builder.setDataFormat(newFormat);
+			}
+			builder.build().doSteps();
+
+			assertEquals(newFormat == null ? this.format : newFormat, getFormat(reKeyedDataOutput.toByteArray()));
+			assertArrayEquals(this.data, descramble(reKeyedDataOutput.toByteArray(), newKeyOutput.toByteArray(), -1, -1));
+		}
+	}
+
+	@Test
+	public void testByteMode() throws IOException {
+		this.runTest(NodeMode.BYTE);
+	}
+
+	@Test
+	public void testBitMode() throws IOException {
+		this.runTest(NodeMode.BIT);
+	}
+
+	@Test
+	public void testBackgroundIo() throws IOException {
+		ByteArrayOutputStream dataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+		new ScrambleRunner.Builder<>()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(dataOutput)
+			.setKeyOutput(keyOutput)
+			.setDataFormat(this.format)
+			.setBackgroundIo(true)
+			.build()
+			.doSteps();
+		assertEquals(this.format, getFormat(dataOutput.toByteArray()));
+
+		ByteArrayOutputStream reKeyedDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream newKeyOutput = new ByteArrayOutputStream();
+		new ReKeyRunner.Builder<>()
+			.setDataInput(new ByteArrayInputStream(dataOutput.toByteArray()))
+			.setKeyInput(new ByteArrayInputStream(keyOutput.toByteArray()))
+			.setDataOutput(reKeyedDataOutput)
+			.setKeyOutput(newKeyOutput)
+			.setBackgroundIo(true)
+			.build()
+			.doSteps();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new DeScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(reKeyedDataOutput.toByteArray()))
+			.setKeyInput(new ByteArrayInputStream(newKeyOutput.toByteArray()))
+			.setDataOutput(output)
+			.setBackgroundIo(true)
+			.build()
+			.doSteps();
+		assertArrayEquals(this.data, output.toByteArray());
+	}
+
+	@Test
+	public void testMappedInputs() throws IOException {
+		File origFile = this.tempFolder.newFile();
+		File dataFile = this.tempFolder.newFile();
+		Files.write(origFile.toPath(), this.data);
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+		try(OutputStream dataOutput = Files.newOutputStream(dataFile.toPath())){
+			new ScrambleRunner.Builder<>()
+				.setDataInput(origFile)
+				.setDataOutput(dataOutput)
+				.setKeyOutput(keyOutput)
+				.setDataFormat(this.format)
+				.build()
+				.doSteps();
+		}
+		assertArrayEquals(this.data, descramble(Files.readAllBytes(dataFile.toPath()), keyOutput.toByteArray(), -1, -1));
+
+		ByteArrayOutputStream reKeyedDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream newKeyOutput = new ByteArrayOutputStream();
+		new ReKeyRunner.Builder<>()
+			.setDataInput(dataFile)
+			.setKeyInput(new ByteArrayInputStream(keyOutput.toByteArray()))
+			.setDataOutput(reKeyedDataOutput)
+			.setKeyOutput(newKeyOutput)
+			.build()
+			.doSteps();
+		assertArrayEquals(this.data, descramble(reKeyedDataOutput.toByteArray(), newKeyOutput.toByteArray(), -1, -1));
+	}
+
+	@Test
+	public void testFileOutputs() throws IOException {
+		File dataFile = this.tempFolder.newFile();
+		File keyFile = this.tempFolder.newFile();
+		new ScrambleRunner.Builder<>()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(dataFile, FileSink.SyncPolicy.ON_CLOSE)
+			.setKeyOutput(keyFile)
+			.setDataFormat(this.format)
+			.build()
+			.doSteps();
+
+		byte[] scrambledData = Files.readAllBytes(dataFile.toPath());
+		assertEquals(this.format, getFormat(scrambledData));
+		assertArrayEquals(this.data, descramble(scrambledData, Files.readAllBytes(keyFile.toPath()), -1, -1));
+	}
+
+	@Test
+	public void testReKeyFileOutputs() throws IOException {
+		ByteArrayOutputStream dataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+		new ScrambleRunner.Builder<>()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(dataOutput)
+			.setKeyOutput(keyOutput)
+			.setDataFormat(this.format)
+			.build()
+			.doSteps();
+
+		File dataFile = this.tempFolder.newFile();
+		File keyFile = this.tempFolder.newFile();
+		new ReKeyRunner.Builder<>()
+			.setDataInput(new ByteArrayInputStream(dataOutput.toByteArray()))
+			.setKeyInput(new ByteArrayInputStream(keyOutput.toByteArray()))
+			.setDataOutput(dataFile, FileSink.SyncPolicy.ON_CLOSE)
+			.setKeyOutput(keyFile)
+			.build()
+			.doSteps();
+
+		byte[] reKeyedData = Files.readAllBytes(dataFile.toPath());
+		assertEquals(this.format, getFormat(reKeyedData));
+		assertArrayEquals(this.data, descramble(reKeyedData, Files.readAllBytes(keyFile.toPath()), -1, -1));
+	}
+
+	@Test
+	public void testFileOutputsClosedOnFailure() throws IOException {
+		FileSink dataSink = new FileSink(this.tempFolder.newFile(), FileSink.SyncPolicy.ON_CLOSE);
+		try{
+			new ScrambleRunner.Builder<>()
+				.setDataInput(new ByteArrayInputStream(this.data))
+				.setDataOutput(dataSink)
+				.setKeyOutput(new OutputStream() {
+					@Override
+					public void write(int b) throws IOException {
+						throw new IOException("Failed to write key.");
+					}
+				})
+				.setDataFormat(this.format)
+				.build()
+				.doSteps();
+			fail("Scrambled with a key output that cannot be written to.");
+		}catch (IOException e){
+			//expected
+		}
+		try{
+			dataSink.write(0);
+			fail("Data output was left open after the run failed.");
+		}catch (IOException e){
+			//expected; closed
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHeaderDoesNotMatchKey() throws IOException {
+		ByteArrayOutputStream dataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+		new ScrambleRunner.Builder<>()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(dataOutput)
+			.setKeyOutput(keyOutput)
+			.setNodeType(NodeMode.BYTE)
+			.setDataFormat(DataFormat.BINARY)
+			.build()
+			.doSteps();
+
+		byte[] scrambledData = dataOutput.toByteArray();
+		//claim the data is in bit mode
+		scrambledData[ScrambledDataHeader.MAGIC.length + 1] = (byte)NodeMode.BIT.ordinal();
+		descramble(scrambledData, keyOutput.toByteArray(), -1, -1);
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> getDataToTest(){
+		String longData = "Super Secret Message that cannot get into the wrong hands. Lorem ipsum dolor sit amet, consectetur adipiscing elit. Etiam in velit sapien. Nullam id pharetra metus.";
+		return Arrays.asList(new Object[][] {
+			{ "a", DataFormat.BASE64 },
+			{ "a", DataFormat.BINARY },
+			{ "hello world", DataFormat.BASE64 },
+			{ "hello world", DataFormat.BINARY },
+			{ longData, DataFormat.BASE64 },
+			{ longData, DataFormat.BINARY }
+		});
+	}
+}
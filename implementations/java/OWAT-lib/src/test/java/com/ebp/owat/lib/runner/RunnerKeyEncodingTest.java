@@ -0,0 +1,231 @@
+package com.ebp.owat.lib.runner;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.key.BinaryKeySerializer;
+import com.ebp.owat.lib.utils.key.KeyEncoding;
+import com.ebp.owat.lib.utils.key.KeyFormat;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests scrambling, descrambling and re-keying with the different key encodings.
+ */
+@RunWith(Parameterized.class)
+public class RunnerKeyEncodingTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunnerKeyEncodingTest.class);
+
+	private final byte[] data;
+	private final KeyEncoding encoding;
+	private final KeyFormat format;
+
+	public RunnerKeyEncodingTest(String data, KeyEncoding encoding, KeyFormat format){
+		this.data = data.getBytes(StandardCharsets.UTF_8);
+		this.encoding = encoding;
+		this.format = format;
+	}
+
+	private static byte[] decompress(byte[] key) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(key))){
+			byte[] buffer = new byte[1024];
+			int numRead;
+			while((numRead = is.read(buffer)) != -1){
+				os.write(buffer, 0, numRead);
+			}
+		}
+		return os.toByteArray();
+	}
+
+	private static ScrambleKey readKey(byte[] key) throws IOException {
+		byte[] decompressed = decompress(key);
+		if(BinaryKeySerializer.detectFormat(decompressed[0] & 0xFF) == KeyFormat.BINARY){
+			return BinaryKeySerializer.read(new ByteArrayInputStream(decompressed));
+		}
+		return new ObjectMapper().readValue(decompressed, ScrambleKey.class);
+	}
+
+	private static KeyFormat getFormat(byte[] key) throws IOException {
+		return BinaryKeySerializer.detectFormat(decompress(key)[0] & 0xFF);
+	}
+
+	private static byte[] descramble(byte[] scrambledData, byte[] key, long offset, long length) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DeScrambleRunner.Builder builder = new DeScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(scrambledData))
+			.setKeyInput(new ByteArrayInputStream(key))
+			.setDataOutput(output);
+		if(offset >= 0){
+			builder.setRange(offset, length);
+		}
+		builder.build().doSteps();
+		return output.toByteArray();
+	}
+
+	private void runTest(NodeMode mode) throws IOException {
+		LOGGER.info("Testing {} with {} key encoding in {}. Data length: {}", mode, this.encoding, this.format, this.data.length);
+		ByteArrayOutputStream scrambledDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+
+		new ScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(scrambledDataOutput)
+			.setKeyOutput(keyOutput)
+			.setNodeType(mode)
+			.setKeyEncoding(this.encoding)
+			.setKeyFormat(this.format)
+			.build()
+			.doSteps();
+
+		assertEquals(this.format, getFormat(keyOutput.toByteArray()));
+		ScrambleKey key = readKey(keyOutput.toByteArray());
+		if(this.encoding != KeyEncoding.AUTO){
+			assertEquals(this.encoding == KeyEncoding.PERMUTATION, key.isPermutationForm());
+		}
+		assertEquals(this.encoding == KeyEncoding.SEED, key.isSeedForm());
+
+		assertArrayEquals(this.data, descramble(scrambledDataOutput.toByteArray(), keyOutput.toByteArray(), -1, -1));
+		int offset = this.data.length / 3;
+		assertArrayEquals(
+			Arrays.copyOfRange(this.data, offset, this.data.length),
+			descramble(scrambledDataOutput.toByteArray(), keyOutput.toByteArray(), offset, this.data.length)
+		);
+
+		//re-keyed keys hold the old moves too, so cannot be made from a seed
+		KeyEncoding reKeyEncoding = (this.encoding == KeyEncoding.SEED ? KeyEncoding.AUTO : this.encoding);
+		ByteArrayOutputStream reKeyedDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream newKeyOutput = new ByteArrayOutputStream();
+		new ReKeyRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(scrambledDataOutput.toByteArray()))
+			.setKeyInput(new ByteArrayInputStream(keyOutput.toByteArray()))
+			.setDataOutput(reKeyedDataOutput)
+			.setKeyOutput(newKeyOutput)
+			.setKeyEncoding(key.isPermutationForm() ? KeyEncoding.PERMUTATION : reKeyEncoding)
+			.build()
+			.doSteps();
+
+		//re-keying keeps the key format
+		assertEquals(this.format, getFormat(newKeyOutput.toByteArray()));
+		assertArrayEquals(this.data, descramble(reKeyedDataOutput.toByteArray(), newKeyOutput.toByteArray(), -1, -1));
+	}
+
+	@Test
+	public void testByteMode() throws IOException {
+		this.runTest(NodeMode.BYTE);
+	}
+
+	@Test
+	public void testBitMode() throws IOException {
+		this.runTest(NodeMode.BIT);
+	}
+
+	@Test
+	public void testKeyMemoryLimit() throws IOException {
+		ByteArrayOutputStream scrambledDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+		//small enough the moves spill to disk many times over
+		new ScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(scrambledDataOutput)
+			.setKeyOutput(keyOutput)
+			.setKeyEncoding(this.encoding)
+			.setKeyFormat(this.format)
+			.setKeyMemoryLimit(64)
+			.build()
+			.doSteps();
+
+		assertArrayEquals(this.data, descramble(scrambledDataOutput.toByteArray(), keyOutput.toByteArray(), -1, -1));
+	}
+
+	@Test
+	public void testKeyCompression() throws IOException {
+		ByteArrayOutputStream scrambledDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+		//small blocks, so even small keys are compressed in several
+		new ScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(scrambledDataOutput)
+			.setKeyOutput(keyOutput)
+			.setKeyEncoding(this.encoding)
+			.setKeyFormat(this.format)
+			.setKeyCompression(Deflater.BEST_COMPRESSION, 16)
+			.build()
+			.doSteps();
+
+		assertArrayEquals(this.data, descramble(scrambledDataOutput.toByteArray(), keyOutput.toByteArray(), -1, -1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCorruptData() throws IOException {
+		ByteArrayOutputStream scrambledDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+		//keys in permutation form are looked up rather than replayed, so only keys with moves are checked
+		new ScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(scrambledDataOutput)
+			.setKeyOutput(keyOutput)
+			.setKeyEncoding(this.encoding == KeyEncoding.SEED ? KeyEncoding.SEED : KeyEncoding.MOVES)
+			.setKeyFormat(this.format)
+			.setDataFormat(DataFormat.BINARY)
+			.build()
+			.doSteps();
+
+		//the same size, but not what the key was made for; caught before any moves are done
+		byte[] scrambledData = scrambledDataOutput.toByteArray();
+		scrambledData[scrambledData.length - 1] ^= 1;
+		descramble(scrambledData, keyOutput.toByteArray(), -1, -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadKeyCompressionLevel(){
+		new ScrambleRunner.Builder().setKeyCompression(10, 1024);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadKeyCompressionBlockSize(){
+		new ReKeyRunner.Builder().setKeyCompression(Deflater.DEFAULT_COMPRESSION, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReKeyToSeed(){
+		new ReKeyRunner.Builder().setKeyEncoding(KeyEncoding.SEED);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadKeyMemoryLimit(){
+		new ScrambleRunner.Builder().setKeyMemoryLimit(0);
+	}
+
+	@Parameterized.Parameters
+	public static Collection getDataToTest(){
+		String longData = "Super Secret Message that cannot get into the wrong hands. Lorem ipsum dolor sit amet, consectetur adipiscing elit. Etiam in velit sapien. Nullam id pharetra metus.";
+		List<Object[]> params = new ArrayList<>();
+		for(KeyFormat curFormat : KeyFormat.values()){
+			for(String curData : new String[]{ "hello world", longData }){
+				for(KeyEncoding curEncoding : KeyEncoding.values()){
+					params.add(new Object[]{ curData, curEncoding, curFormat });
+				}
+			}
+		}
+		return params;
+	}
+}
@@ -0,0 +1,145 @@
+package com.ebp.owat.lib.runner;
+
+import com.ebp.owat.lib.datastructure.value.ByteValue;
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.utils.io.DataFormat;
+import com.ebp.owat.lib.utils.key.KeyFormat;
+import com.ebp.owat.lib.utils.key.KeyWriter;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Tests descrambling only part of the original data.
+ */
+@RunWith(Parameterized.class)
+public class RunnerRangeTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunnerRangeTest.class);
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final byte[] data;
+	private final long offset;
+	private final long length;
+
+	public RunnerRangeTest(String data, long offset, long length){
+		this.data = data.getBytes(StandardCharsets.UTF_8);
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/** A key for more values than fit in an array; caught before any data is read. */
+	private static byte[] getTooLargeKey() throws IOException {
+		ScrambleKey key = new ScrambleKey(50_000L, 50_000L, 50_000L, 50_000L, ByteValue.class, -1);
+		key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 0L, 1L));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		KeyWriter.write(key, KeyFormat.BINARY, os);
+		return os.toByteArray();
+	}
+
+	private void runTest(NodeMode mode, DataFormat format) throws IOException {
+		LOGGER.info("Testing {} range descrambling with {} data format. Offset: {}, Length: {}", mode, format, this.offset, this.length);
+		ByteArrayOutputStream scrambledDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+
+		new ScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(scrambledDataOutput)
+			.setKeyOutput(keyOutput)
+			.setNodeType(mode)
+			.setDataFormat(format)
+			.build()
+			.doSteps();
+
+		int end = (int)Math.min(this.data.length, this.offset + this.length);
+		byte[] expected = Arrays.copyOfRange(this.data, (int)this.offset, end);
+
+		ByteArrayOutputStream deScrambledDataOutput = new ByteArrayOutputStream();
+		new DeScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(scrambledDataOutput.toByteArray()))
+			.setKeyInput(new ByteArrayInputStream(keyOutput.toByteArray()))
+			.setDataOutput(deScrambledDataOutput)
+			.setRange(this.offset, this.length)
+			.build()
+			.doSteps();
+		assertArrayEquals(expected, deScrambledDataOutput.toByteArray());
+
+		//through a file, which is read by position rather than in order
+		File dataFile = this.tempFolder.newFile();
+		Files.write(dataFile.toPath(), scrambledDataOutput.toByteArray());
+		deScrambledDataOutput = new ByteArrayOutputStream();
+		new DeScrambleRunner.Builder()
+			.setDataInput(dataFile)
+			.setKeyInput(new ByteArrayInputStream(keyOutput.toByteArray()))
+			.setDataOutput(deScrambledDataOutput)
+			.setRange(this.offset, this.length)
+			.build()
+			.doSteps();
+		assertArrayEquals(expected, deScrambledDataOutput.toByteArray());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRangeTooLarge() throws IOException {
+		new DeScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(new byte[0]))
+			.setKeyInput(new ByteArrayInputStream(getTooLargeKey()))
+			.setDataOutput(new ByteArrayOutputStream())
+			.setRange(0, Long.MAX_VALUE)
+			.build()
+			.doSteps();
+	}
+
+	@Test
+	public void testByteMode() throws IOException {
+		this.runTest(NodeMode.BYTE, DataFormat.BASE64);
+	}
+
+	@Test
+	public void testBitMode() throws IOException {
+		this.runTest(NodeMode.BIT, DataFormat.BASE64);
+	}
+
+	@Test
+	public void testBinaryByteMode() throws IOException {
+		this.runTest(NodeMode.BYTE, DataFormat.BINARY);
+	}
+
+	@Test
+	public void testBinaryBitMode() throws IOException {
+		this.runTest(NodeMode.BIT, DataFormat.BINARY);
+	}
+
+	@Parameterized.Parameters
+	public static Collection getRangesToTest(){
+		String longData = "Super Secret Message that cannot get into the wrong hands. Lorem ipsum dolor sit amet, consectetur adipiscing elit. Etiam in velit sapien. Nullam id pharetra metus.";
+		return Arrays.asList(new Object[][] {
+			{ "a", 0, 1 },
+			{ "hello world", 0, 5 },
+			{ "hello world", 6, 5 },
+			{ "hello world", 6, 500 },
+			{ "hello world", 11, 5 },
+			{ longData, 0, longData.length() },
+			{ longData, 13, 7 },
+			{ longData, longData.length() - 1, 1 }
+		});
+	}
+}
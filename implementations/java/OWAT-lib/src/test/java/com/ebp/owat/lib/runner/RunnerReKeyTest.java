@@ -0,0 +1,122 @@
+package com.ebp.owat.lib.runner;
+
+import com.ebp.owat.lib.datastructure.value.ByteValue;
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.runner.utils.Step;
+import com.ebp.owat.lib.runner.utils.results.RekeyResults;
+import com.ebp.owat.lib.utils.key.KeyEncoding;
+import com.ebp.owat.lib.utils.key.KeyFormat;
+import com.ebp.owat.lib.utils.key.KeyWriter;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests re-keying scrambled data.
+ */
+@RunWith(Parameterized.class)
+public class RunnerReKeyTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunnerReKeyTest.class);
+
+	private final byte[] data;
+
+	public RunnerReKeyTest(String data){
+		this.data = data.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** A key for more values than a permutation can hold; caught before any data is read when re-keyed into permutation form. */
+	private static byte[] getTooLargeKey() throws IOException {
+		ScrambleKey key = new ScrambleKey(50_000L, 50_000L, 50_000L, 50_000L, ByteValue.class, -1);
+		key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 0L, 1L));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		KeyWriter.write(key, KeyFormat.BINARY, os);
+		return os.toByteArray();
+	}
+
+	private void runTest(NodeMode mode) throws IOException {
+		LOGGER.info("Testing {} re-keying. Data length: {}", mode, this.data.length);
+		ByteArrayOutputStream scrambledDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream keyOutput = new ByteArrayOutputStream();
+
+		new ScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(this.data))
+			.setDataOutput(scrambledDataOutput)
+			.setKeyOutput(keyOutput)
+			.setNodeType(mode)
+			.build()
+			.doSteps();
+
+		ByteArrayOutputStream reKeyedDataOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream newKeyOutput = new ByteArrayOutputStream();
+
+		ReKeyRunner reKeyRunner = new ReKeyRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(scrambledDataOutput.toByteArray()))
+			.setKeyInput(new ByteArrayInputStream(keyOutput.toByteArray()))
+			.setDataOutput(reKeyedDataOutput)
+			.setKeyOutput(newKeyOutput)
+			.build();
+		reKeyRunner.doSteps();
+
+		RekeyResults results = reKeyRunner.getLastRunResults();
+		assertEquals(Step.DONE_REKEYING, results.getCurStep());
+		assertEquals(scrambledDataOutput.size(), reKeyedDataOutput.size());
+		LOGGER.info("Re-key results: {}", results.getCsvLine(true));
+
+		ByteArrayOutputStream deScrambledDataOutput = new ByteArrayOutputStream();
+
+		new DeScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(reKeyedDataOutput.toByteArray()))
+			.setKeyInput(new ByteArrayInputStream(newKeyOutput.toByteArray()))
+			.setDataOutput(deScrambledDataOutput)
+			.build()
+			.doSteps();
+
+		assertArrayEquals(this.data, deScrambledDataOutput.toByteArray());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() throws IOException {
+		new ReKeyRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(new byte[0]))
+			.setKeyInput(new ByteArrayInputStream(getTooLargeKey()))
+			.setDataOutput(new ByteArrayOutputStream())
+			.setKeyOutput(new ByteArrayOutputStream())
+			.setKeyEncoding(KeyEncoding.PERMUTATION)
+			.build()
+			.doSteps();
+	}
+
+	@Test
+	public void testByteMode() throws IOException {
+		this.runTest(NodeMode.BYTE);
+	}
+
+	@Test
+	public void testBitMode() throws IOException {
+		this.runTest(NodeMode.BIT);
+	}
+
+	@Parameterized.Parameters
+	public static Collection getDataToTest(){
+		return Arrays.asList(new Object[][] {
+			{ "a" },
+			{ "hello world" },
+			{ "Super Secret Message that cannot get into the wrong hands. Lorem ipsum dolor sit amet, consectetur adipiscing elit. Etiam in velit sapien. Nullam id pharetra metus." }
+		});
+	}
+}
@@ -1,19 +1,27 @@
 package com.ebp.owat.lib.runner.utilities;
 
 import com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix;
+import com.ebp.owat.lib.datastructure.set.ByteList;
 import com.ebp.owat.lib.datastructure.set.LongLinkedList;
 import com.ebp.owat.lib.datastructure.value.NodeMode;
 import com.ebp.owat.lib.datastructure.value.Value;
 import com.ebp.owat.lib.runner.utils.MatrixMode;
+import com.ebp.owat.lib.runner.utils.RunnerUtilities;
 import com.ebp.owat.lib.utils.rand.OwatRandGenerator;
 import com.ebp.owat.lib.utils.rand.RandGenerator;
 import org.junit.Test;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 
 import static org.junit.Assert.*;
 
@@ -97,4 +105,82 @@ public class RunnerSimpleUtilitiesTest extends RunnerUtilTest {
 
 		assertTrue("Compressed and decompressed data were not equal.", Arrays.equals(original, decompressed));
 	}
+
+	@Test
+	public void testBase64Streaming() throws IOException {
+		for(int length = 0; length < 10; length++){
+			byte original[] = Arrays.copyOf("Hello World".getBytes(StandardCharsets.UTF_8), length);
+			AtomicBoolean closed = new AtomicBoolean(false);
+			ByteArrayOutputStream os = new ByteArrayOutputStream(){
+				@Override
+				public void close(){
+					closed.set(true);
+				}
+			};
+
+			try(OutputStream encoder = utilities.getEncodingStream(os)){
+				encoder.write(original);
+			}
+			assertFalse("Encoding stream closed the stream given.", closed.get());
+			assertEquals(Base64.getEncoder().encodeToString(original), os.toString("UTF-8"));
+			assertEquals(os.size(), RunnerUtilities.getEncodedLength(length));
+
+			ByteList decoded = utilities.readBytesIn(new ByteArrayInputStream(os.toByteArray()), true);
+			assertArrayEquals(original, decoded.toArray());
+		}
+	}
+
+	@Test
+	public void testReadExactBytes() throws IOException {
+		byte[] original = "Hello World".getBytes(StandardCharsets.UTF_8);
+		CRC32 checksum = new CRC32();
+		assertArrayEquals(original, utilities.readBytesIn(new ByteArrayInputStream(original), false, original.length, checksum));
+		CRC32 expected = new CRC32();
+		expected.update(original);
+		assertEquals(expected.getValue(), checksum.getValue());
+
+		byte[] encoded = Base64.getEncoder().encode(original);
+		assertArrayEquals(original, utilities.readBytesIn(new ByteArrayInputStream(encoded), true, original.length, null));
+
+		for(int wrongLength : new int[]{ original.length - 1, original.length + 1 }){
+			try{
+				utilities.readBytesIn(new ByteArrayInputStream(original), false, wrongLength, null);
+				fail("Read data that was not the size given. Size given: " + wrongLength);
+			}catch (IllegalArgumentException e){
+				//expected
+			}
+		}
+	}
+
+	@Test
+	public void testWritePermutedValues() throws IOException {
+		Random rand = new Random(42L);
+		//more than one block's worth, to span blocks
+		byte[] scrambled = new byte[(64 * 1024 * 2) + 7];
+		rand.nextBytes(scrambled);
+		ByteList scrambledData = new ByteList(scrambled);
+
+		for(NodeMode mode : NodeMode.values()){
+			int valsPerByte = (mode == NodeMode.BIT ? 8 : 1);
+			long[] positions = new long[scrambled.length * valsPerByte];
+			for(int i = 0; i < positions.length; i++){
+				positions[i] = positions.length - 1 - i;
+			}
+
+			byte[] expected = new byte[scrambled.length];
+			for(int i = 0; i < positions.length; i++){
+				if(mode == NodeMode.BYTE){
+					expected[i] = scrambled[(int)positions[i]];
+				}else if(((scrambled[(int)(positions[i] / 8)] >> (positions[i] % 8)) & 1) == 1){
+					expected[i / 8] |= (byte)(1 << (i % 8));
+				}
+			}
+
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			long numWritten = utilities.writePermutedValues(scrambledData, positions, mode, os);
+
+			assertEquals(expected.length, numWritten);
+			assertArrayEquals("Wrong values written for mode " + mode, expected, os.toByteArray());
+		}
+	}
 }
@@ -20,5 +20,9 @@ public class RunnerStepTest {
 		stepsIn = Step.getStepsIn(ScrambleMode.SCRAMBLING);
 		assertNotNull(stepsIn);
 		assertFalse(stepsIn.isEmpty());
+
+		stepsIn = Step.getStepsIn(ScrambleMode.REKEYING);
+		assertNotNull(stepsIn);
+		assertFalse(stepsIn.isEmpty());
 	}
 }
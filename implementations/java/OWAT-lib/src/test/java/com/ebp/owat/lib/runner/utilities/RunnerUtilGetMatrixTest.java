@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.zip.CRC32;
 
 import static org.junit.Assert.assertEquals;
 
@@ -73,6 +74,37 @@ public class RunnerUtilGetMatrixTest extends RunnerUtilTest {
 		this.assertMatrix(m);
 	}
 
+	@Test
+	public void testGetMatrixFromStream() throws IOException {
+		byte[] bytes = testData.getBytes(StandardCharsets.UTF_8);
+		CRC32 checksum = new CRC32();
+		Matrix m = utilities.getMatrix(new ByteArrayInputStream(bytes), false, bytes.length, checksum, MatrixMode.HASHED, this.nodeType, -1, -1);
+		this.assertMatrix(m);
+
+		CRC32 expected = new CRC32();
+		expected.update(bytes);
+		assertEquals(expected.getValue(), checksum.getValue());
+	}
+
+	@Test
+	public void testGetMatrixFromStreamWithHW() throws IOException {
+		byte[] bytes = testData.getBytes(StandardCharsets.UTF_8);
+		Matrix m = utilities.getMatrix(new ByteArrayInputStream(bytes), false, bytes.length, null, MatrixMode.HASHED, this.nodeType, this.expectedHeight, this.expectedWidth);
+		this.assertMatrix(m);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetMatrixFromShortStream() throws IOException {
+		byte[] bytes = testData.getBytes(StandardCharsets.UTF_8);
+		utilities.getMatrix(new ByteArrayInputStream(bytes), false, bytes.length + 1, null, MatrixMode.HASHED, this.nodeType, -1, -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetMatrixFromLongStream() throws IOException {
+		byte[] bytes = testData.getBytes(StandardCharsets.UTF_8);
+		utilities.getMatrix(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length + 1)), false, bytes.length, null, MatrixMode.HASHED, this.nodeType, -1, -1);
+	}
+
 	@Parameterized.Parameters
 	public static Collection getMatrixClassesToTest(){
 		return Arrays.asList(new Object[][] {
@@ -0,0 +1,68 @@
+package com.ebp.owat.lib.runner.utilities;
+
+import com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix;
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.datastructure.value.Value;
+import com.ebp.owat.lib.runner.utils.MatrixMode;
+import com.ebp.owat.lib.runner.utils.RunnerUtilities;
+import com.ebp.owat.lib.utils.rand.OwatRandGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(Parameterized.class)
+public class RunnerUtilWriteMatrixTest {
+	private final RunnerUtilities<Value<?>, ScrambleMatrix<Value<?>>, OwatRandGenerator> utilities = new RunnerUtilities<>();
+	private final byte[] testData;
+	private final NodeMode nodeType;
+
+	public RunnerUtilWriteMatrixTest(String testData, NodeMode nodeType){
+		this.testData = testData.getBytes(StandardCharsets.UTF_8);
+		this.nodeType = nodeType;
+	}
+
+	@Test
+	public void testWriteMatrix() throws IOException {
+		ScrambleMatrix<Value<?>> m = utilities.getMatrix(
+			utilities.readBytesIn(new ByteArrayInputStream(this.testData), false),
+			MatrixMode.ARRAY,
+			this.nodeType
+		);
+		long length = this.testData.length * (this.nodeType == NodeMode.BIT ? 8L : 1L);
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		long numWritten = this.utilities.writeMatrix(m, this.nodeType, length, os);
+
+		assertEquals(this.testData.length, numWritten);
+		assertArrayEquals(this.testData, os.toByteArray());
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> getMatrixClassesToTest(){
+		StringBuilder longData = new StringBuilder();
+		while(longData.length() < 100_000){
+			longData.append("hello world12345");
+		}
+		return Arrays.asList(new Object[][] {
+			{ "a", NodeMode.BYTE},
+			{ "hello world", NodeMode.BYTE},
+			{ "hello world12345", NodeMode.BYTE},
+			{ longData.toString(), NodeMode.BYTE},
+			{ "a", NodeMode.BIT},
+			{ "hello world", NodeMode.BIT},
+			{ "hello world12345", NodeMode.BIT},
+			{ "hello wo", NodeMode.BIT},
+			{ longData.toString(), NodeMode.BIT}
+		});
+	}
+}
@@ -321,6 +321,26 @@ public class BaseMatrixTest<T extends Matrix<Integer>> extends MatrixTest<T> {
 		
 		//TODO:: test with nonsquare numbers (6, 11?)
 		
+		m = this.getTestingInstance();
+		assertFalse(m.grow(5, Arrays.asList(1,2,3,4,5).iterator()));
+		TestUtils.assertMatrix(
+			new Object[][]{
+				{1,2,3},
+				{4,5,n}
+			},
+			m
+		);
+		
+		m = this.getTestingInstance();
+		assertTrue(m.grow(2, 3, Arrays.asList(1,2,3,4,5,6).iterator()));
+		TestUtils.assertMatrix(
+			new Object[][]{
+				{1,2,3},
+				{4,5,6}
+			},
+			m
+		);
+		
 		m = this.getTestingInstance();
 		assertTrue(m.grow(Arrays.asList(1)));
 		try{
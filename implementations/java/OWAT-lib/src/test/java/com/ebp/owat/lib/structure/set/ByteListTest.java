@@ -0,0 +1,109 @@
+package com.ebp.owat.lib.structure.set;
+
+import com.ebp.owat.lib.datastructure.set.ByteList;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the ByteList class.
+ */
+public class ByteListTest {
+
+	@Test
+	public void testAdd(){
+		ByteList list = new ByteList(1);
+		assertTrue(list.isEmpty());
+
+		byte[] bytes = getBytes(1000);
+		for(int i = 0; i < 10; i++){
+			list.add(bytes[i]);
+		}
+		list.add(bytes, 10, bytes.length - 10);
+
+		assertEquals(bytes.length, list.size());
+		assertEquals(bytes.length, list.sizeL());
+		for(int i = 0; i < bytes.length; i++){
+			assertEquals(bytes[i], list.get(i));
+		}
+		assertArrayEquals(bytes, list.toArray());
+
+		ByteBuffer buffer = list.asByteBuffer();
+		assertEquals(bytes.length, buffer.remaining());
+		assertTrue(buffer.isReadOnly());
+	}
+
+	@Test
+	public void testReadFrom() throws IOException {
+		//past several read blocks, and over a stream that gives a few bytes at a time
+		byte[] bytes = getBytes((ByteList.DEFAULT_CAPACITY * 3) + 7);
+		ByteList list = new ByteList();
+		InputStream is = new ByteArrayInputStream(bytes){
+			@Override
+			public synchronized int read(byte[] b, int off, int len){
+				return super.read(b, off, Math.min(len, 1000));
+			}
+		};
+		assertEquals(bytes.length, list.readFrom(is));
+		assertArrayEquals(bytes, list.toArray());
+
+		assertEquals(0, new ByteList(0).readFrom(new ByteArrayInputStream(new byte[0])));
+	}
+
+	@Test
+	public void testMultipleChunks() throws IOException {
+		byte[] bytes = getBytes(1000);
+		ByteList list = new ByteList(0, 16);
+		list.add(bytes[0]);
+		list.add(bytes, 1, 500);
+		list.readFrom(new ByteArrayInputStream(bytes, 501, bytes.length - 501));
+
+		assertEquals(bytes.length, list.sizeL());
+		for(int i = 0; i < bytes.length; i++){
+			assertEquals(bytes[i], list.get(i));
+		}
+		assertArrayEquals(bytes, list.toArray());
+
+		//a run spanning several chunks
+		byte[] run = new byte[100];
+		list.get(10, run, 0, run.length);
+		assertArrayEquals(Arrays.copyOfRange(bytes, 10, 110), run);
+
+		try{
+			list.asByteBuffer();
+			fail();
+		}catch (IllegalStateException e){
+			//expected
+		}
+
+		//larger than a chunk to start
+		assertArrayEquals(bytes, new ByteList(bytes).toArray());
+		assertEquals(bytes.length, new ByteList(bytes.length, 16).readFrom(new ByteArrayInputStream(bytes)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadChunkSize(){
+		new ByteList(0, 100);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetRangeOutOfBounds(){
+		ByteList list = new ByteList(0, 16);
+		list.add(getBytes(20), 0, 20);
+		list.get(10, new byte[20], 0, 11);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfBounds(){
+		ByteList list = new ByteList(10);
+		list.add((byte)1);
+		list.get(1);
+	}
+}
@@ -5,10 +5,12 @@ import com.ebp.owat.lib.datastructure.value.BitValue;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class BitValueTest {
 	
@@ -67,4 +69,53 @@ public class BitValueTest {
 		));
 		assertEquals((byte)2, result);
 	}
+
+	@Test
+	public void testBitsOfAllBytes(){
+		for(int i = 0; i < 256; i++){
+			for(boolean isOriginal : new boolean[]{ true, false }){
+				List<BitValue> result = BitValue.bitsOf((byte)i, isOriginal);
+				assertEquals(8, result.size());
+				for(int curBit = 0; curBit < 8; curBit++){
+					assertEquals(new BitValue(((i >>> curBit) & 1) == 1, isOriginal), result.get(curBit));
+				}
+				assertEquals(result, BitValue.fromByte((byte)i, isOriginal));
+				assertEquals((byte)i, BitValue.toByte(result));
+			}
+		}
+	}
+	
+	@Test
+	public void testOf(){
+		assertEquals(new BitValue(true, true), BitValue.of(true, true));
+		assertEquals(new BitValue(true, false), BitValue.of(true, false));
+		assertEquals(new BitValue(false, true), BitValue.of(false, true));
+		assertEquals(new BitValue(false, false), BitValue.of(false, false));
+		assertSame(BitValue.of(true, false), BitValue.of(true, false));
+	}
+	
+	@Test
+	public void testToBits(){
+		long expected = 0x8000_0001_F0F0_0A05L;
+		List<BitValue> bits = new ArrayList<>();
+		for(int i = 0; i < Long.SIZE; i++){
+			bits.add(new BitValue(((expected >>> i) & 1) == 1));
+		}
+		assertEquals(expected, BitValue.toBits(bits.iterator(), Long.SIZE));
+		assertEquals(0x05L, BitValue.toBits(bits.iterator(), 8));
+		assertEquals(0L, BitValue.toBits(bits.iterator(), 0));
+		
+		try{
+			BitValue.toBits(bits.subList(0, 10).iterator(), 16);
+			Assert.fail();
+		}catch (IllegalStateException e){
+			//nothing to do
+		}
+		try{
+			BitValue.toBits(bits.iterator(), 65);
+			Assert.fail();
+		}catch (IllegalArgumentException e){
+			//nothing to do
+		}
+	}
 }
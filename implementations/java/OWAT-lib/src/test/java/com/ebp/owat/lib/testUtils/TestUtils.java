@@ -1,13 +1,127 @@
 package com.ebp.owat.lib.testUtils;
 
 import com.ebp.owat.lib.datastructure.matrix.Matrix;
+import com.ebp.owat.lib.datastructure.value.BitValue;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.ebp.owat.lib.utils.key.StreamingKeyReader;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class TestUtils {
+
+	/**
+	 * Gets random bytes to test with; the same for every call with the same length.
+	 * @param length The number of bytes to get.
+	 * @return The bytes.
+	 */
+	public static byte[] getBytes(int length){
+		byte[] bytes = new byte[length];
+		new Random(length).nextBytes(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Gets a key to test with, of 150x150 bits of data padded out to 200x200, holding the number of moves given. The moves cycle through the sorts of move, all valid for the matrix.
+	 * @param numMoves The number of moves to add.
+	 * @return The key.
+	 */
+	public static ScrambleKey getKey(int numMoves){
+		ScrambleKey key = new ScrambleKey(150L, 150L, 200L, 200L, BitValue.class, -1);
+		for(int i = 0; i < numMoves; i++){
+			switch (i % 4){
+				case 0:
+					key.addMove(new ScrambleMove(ScrambleMoves.SWAP, i % 200, 1L, 199L, 150L));
+					break;
+				case 1:
+					key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 5L, i % 200));
+					break;
+				case 2:
+					key.addMove(new ScrambleMove(ScrambleMoves.SLIDE_COL, i % 200, -(i % 150)));
+					break;
+				default:
+					key.addMove(new ScrambleMove(ScrambleMoves.ROT_BOX, -3L, 2L, 4L, 5L));
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Gets moves to test the holding of moves with, of every sort and with arguments from small to the largest a long can hold. Not valid for any matrix.
+	 * @param numMoves The number of moves to get.
+	 * @return The moves.
+	 */
+	public static List<ScrambleMove> getMoves(int numMoves){
+		List<ScrambleMove> moves = new ArrayList<>();
+		for(long i = 0; i < numMoves; i++){
+			switch ((int)(i % 4)){
+				case 0:
+					moves.add(new ScrambleMove(ScrambleMoves.SWAP, i, i + 1, Long.MAX_VALUE - i, 0L));
+					break;
+				case 1:
+					moves.add(new ScrambleMove(ScrambleMoves.SWAP_COL, i, 2L));
+					break;
+				case 2:
+					moves.add(new ScrambleMove(ScrambleMoves.SLIDE_ROW, i, -i));
+					break;
+				default:
+					moves.add(new ScrambleMove(ScrambleMoves.ROT_BOX, -2L, i, i, 3L));
+			}
+		}
+		return moves;
+	}
+
+	/**
+	 * Asserts the iterators given go through the same moves.
+	 * @param expected The moves expected.
+	 * @param actual The moves to check.
+	 */
+	public static void assertSameMoves(Iterator<ScrambleMove> expected, Iterator<ScrambleMove> actual){
+		while(expected.hasNext()){
+			assertTrue(actual.hasNext());
+			assertEquals(expected.next(), actual.next());
+		}
+		assertFalse(actual.hasNext());
+	}
+
+	/**
+	 * Asserts the reader given reads the moves expected, and nothing after them.
+	 * @param expected The moves expected.
+	 * @param actual The reader to read the moves from.
+	 * @throws IOException If the reader fails to read the moves.
+	 */
+	public static void assertSameMoves(Iterator<ScrambleMove> expected, StreamingKeyReader actual) throws IOException {
+		ScrambleMove curMove;
+		while((curMove = actual.nextMove()) != null){
+			assertTrue(expected.hasNext());
+			assertEquals(expected.next(), curMove);
+		}
+		assertFalse(expected.hasNext());
+		assertNull(actual.nextMove());
+	}
+
+	/**
+	 * Asserts the keys given have the same metadata, and descramble with the same moves.
+	 * @param expected The key expected.
+	 * @param actual The key to check.
+	 */
+	public static void assertSameMoves(ScrambleKey expected, ScrambleKey actual){
+		assertEquals(expected.meta, actual.meta);
+		assertEquals(expected.getNumMoves(), actual.getNumMoves());
+		assertSameMoves(expected.getDescrambleMovesIt(), actual.getDescrambleMovesIt());
+	}
 	
 	public static void assert2dArrayEquals(Object[][] expected, Object[][] actual){
 		assertEquals(expected.length, actual.length);
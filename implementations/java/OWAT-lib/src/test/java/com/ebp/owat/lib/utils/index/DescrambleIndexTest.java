@@ -0,0 +1,153 @@
+package com.ebp.owat.lib.utils.index;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import com.ebp.owat.lib.runner.ScrambleRunner;
+import com.ebp.owat.lib.utils.key.ScrambleKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.GZIPInputStream;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getBytes;
+import static com.ebp.owat.lib.testUtils.TestUtils.getKey;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests making a descramble index and reading original data through it.
+ */
+@RunWith(Parameterized.class)
+public class DescrambleIndexTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DescrambleIndexTest.class);
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final byte[] data;
+
+	public DescrambleIndexTest(String data){
+		this.data = data.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void runTest(NodeMode mode) throws IOException {
+		LOGGER.info("Testing {} descramble index. Data length: {}", mode, this.data.length);
+		File dataFile = this.tempFolder.newFile();
+		File keyFile = this.tempFolder.newFile();
+		File indexFile = this.tempFolder.newFile();
+
+		try(
+			OutputStream dataOutput = new FileOutputStream(dataFile);
+			OutputStream keyOutput = new FileOutputStream(keyFile);
+			OutputStream indexOutput = new FileOutputStream(indexFile)
+		){
+			new ScrambleRunner.Builder()
+				.setDataInput(new ByteArrayInputStream(this.data))
+				.setDataOutput(dataOutput)
+				.setKeyOutput(keyOutput)
+				.setIndexOutput(indexOutput)
+				.setNodeType(mode)
+				.build()
+				.doSteps();
+		}
+
+		try(IndexedDataReader reader = new IndexedDataReader(indexFile, dataFile)){
+			assertEquals(this.data.length, reader.length());
+
+			byte[] output = new byte[this.data.length];
+			assertEquals(this.data.length, reader.read(0, output, 0, output.length));
+			assertArrayEquals(this.data, output);
+
+			for(int i = 0; i < this.data.length; i++){
+				assertEquals(this.data[i], reader.read(i));
+			}
+
+			int offset = this.data.length / 2;
+			output = new byte[this.data.length + 1];
+			assertEquals(this.data.length - offset, reader.read(offset, output, 1, this.data.length));
+			assertArrayEquals(
+				Arrays.copyOfRange(this.data, offset, this.data.length),
+				Arrays.copyOfRange(output, 1, 1 + this.data.length - offset)
+			);
+			assertEquals(-1, reader.read(this.data.length, output, 0, 1));
+		}
+
+		//index built from the read in key must match the one made while scrambling
+		ScrambleKey key;
+		try(GZIPInputStream keyInput = new GZIPInputStream(Files.newInputStream(keyFile.toPath()))){
+			key = new ObjectMapper().readValue(keyInput, ScrambleKey.class);
+		}
+		ByteArrayOutputStream rebuiltIndex = new ByteArrayOutputStream();
+		DescrambleIndex.build(key).write(rebuiltIndex);
+		assertArrayEquals(Files.readAllBytes(indexFile.toPath()), rebuiltIndex.toByteArray());
+	}
+
+	@Test
+	public void testByteMode() throws IOException {
+		this.runTest(NodeMode.BYTE);
+	}
+
+	@Test
+	public void testBitMode() throws IOException {
+		this.runTest(NodeMode.BIT);
+	}
+
+	@Test
+	public void testReadAcrossEntryBlocks() throws IOException {
+		//enough values that a full read takes several blocks of entries
+		byte[] data = getBytes(3_000);
+		File dataFile = this.tempFolder.newFile();
+		File indexFile = this.tempFolder.newFile();
+		new ScrambleRunner.Builder()
+			.setDataInput(new ByteArrayInputStream(data))
+			.setDataOutput(dataFile)
+			.setKeyOutput(new ByteArrayOutputStream())
+			.setIndexOutput(indexFile)
+			.setNodeType(NodeMode.BIT)
+			.build()
+			.doSteps();
+
+		try(IndexedDataReader reader = new IndexedDataReader(indexFile, dataFile)){
+			byte[] output = new byte[data.length];
+			assertEquals(data.length, reader.read(0, output, 0, output.length));
+			assertArrayEquals(data, output);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testEntryOutOfBounds() throws IOException {
+		ScrambleKey key = getKey(10);
+		DescrambleIndex.build(key).getEntry(key.meta.getOriginalDataLength());
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAnIndex() throws IOException {
+		File notIndex = this.tempFolder.newFile();
+		Files.write(notIndex.toPath(), new byte[DescrambleIndex.HEADER_SIZE]);
+		new IndexedDataReader(notIndex, notIndex);
+	}
+
+	@Parameterized.Parameters
+	public static Collection getDataToTest(){
+		return Arrays.asList(new Object[][] {
+			{ "a" },
+			{ "hello world" },
+			{ "Super Secret Message that cannot get into the wrong hands. Lorem ipsum dolor sit amet, consectetur adipiscing elit. Etiam in velit sapien. Nullam id pharetra metus." }
+		});
+	}
+}
@@ -0,0 +1,88 @@
+package com.ebp.owat.lib.utils.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getBytes;
+import static org.junit.Assert.*;
+
+public class FileSinkTest {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testWrite() throws IOException {
+		for(FileSink.SyncPolicy policy : FileSink.SyncPolicy.values()){
+			for(int length : new int[]{ 0, 1, 99, 100, 101, 10_000 }){
+				byte[] bytes = getBytes(length);
+				File file = this.tempFolder.newFile();
+				try(FileSink sink = new FileSink(file, policy, 100)){
+					for(int i = 0; i < bytes.length; i += 37){
+						sink.write(bytes, i, Math.min(37, bytes.length - i));
+					}
+					assertEquals(bytes.length, sink.getNumBytesWritten());
+				}
+				assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+			}
+		}
+	}
+
+	@Test
+	public void testWriteSingleBytesAndFlush() throws IOException {
+		byte[] bytes = getBytes(1_000);
+		File file = this.tempFolder.newFile();
+		try(FileSink sink = new FileSink(file, FileSink.SyncPolicy.ON_FLUSH, 64)){
+			for(int i = 0; i < 500; i++){
+				sink.write(bytes[i]);
+			}
+			sink.flush();
+			assertArrayEquals(Arrays.copyOf(bytes, 500), Files.readAllBytes(file.toPath()));
+			sink.write(bytes, 500, 500);
+		}
+		assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void testExpectedLength() throws IOException {
+		byte[] bytes = getBytes(5_000);
+		File file = this.tempFolder.newFile();
+		try(FileSink sink = new FileSink(file, FileSink.SyncPolicy.ON_CLOSE, 100)){
+			sink.setExpectedLength(bytes.length);
+			assertEquals(bytes.length, file.length());
+			sink.write(bytes);
+		}
+		assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+
+		//any expected length not written is trimmed off
+		try(FileSink sink = new FileSink(file)){
+			sink.setExpectedLength(bytes.length * 2);
+			sink.write(bytes);
+		}
+		assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void testTruncatesExisting() throws IOException {
+		File file = this.tempFolder.newFile();
+		Files.write(file.toPath(), getBytes(1_000));
+		byte[] bytes = getBytes(10);
+		try(FileSink sink = new FileSink(file)){
+			sink.write(bytes);
+		}
+		assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws IOException {
+		FileSink sink = new FileSink(this.tempFolder.newFile());
+		sink.close();
+		sink.close();
+		sink.write(1);
+	}
+}
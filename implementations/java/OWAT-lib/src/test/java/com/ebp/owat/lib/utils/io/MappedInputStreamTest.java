@@ -0,0 +1,74 @@
+package com.ebp.owat.lib.utils.io;
+
+import com.ebp.owat.lib.datastructure.set.ByteList;
+import com.ebp.owat.lib.runner.utils.RunnerUtilities;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getBytes;
+import static org.junit.Assert.*;
+
+public class MappedInputStreamTest {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File getFile(byte[] bytes) throws IOException {
+		File file = this.tempFolder.newFile();
+		Files.write(file.toPath(), bytes);
+		return file;
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		byte[] bytes = getBytes(10_000);
+		try(MappedInputStream is = new MappedInputStream(this.getFile(bytes))){
+			assertEquals(bytes.length, is.remaining());
+			assertEquals(bytes[0] & 0xFF, is.read());
+
+			byte[] buffer = new byte[100];
+			assertEquals(buffer.length, is.read(buffer, 0, buffer.length));
+			assertArrayEquals(Arrays.copyOfRange(bytes, 1, 101), buffer);
+
+			assertEquals(1000, is.skip(1000));
+			is.mark(0);
+			assertEquals(bytes[1101] & 0xFF, is.read());
+			is.reset();
+			assertEquals(bytes[1101] & 0xFF, is.read());
+
+			assertEquals(bytes.length - 1102, is.remaining());
+			assertEquals(bytes.length - 1102, is.skip(Long.MAX_VALUE));
+			assertEquals(0, is.remaining());
+			assertEquals(-1, is.read());
+			assertEquals(-1, is.read(buffer, 0, buffer.length));
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		try(MappedInputStream is = new MappedInputStream(this.getFile(new byte[0]))){
+			assertEquals(0, is.remaining());
+			assertEquals(-1, is.read());
+		}
+	}
+
+	@Test
+	public void testReadBytesIn() throws IOException {
+		RunnerUtilities utilities = new RunnerUtilities();
+		byte[] bytes = getBytes(200_000);
+
+		ByteList read = utilities.readBytesIn(new MappedInputStream(this.getFile(bytes)), false);
+		assertArrayEquals(bytes, read.toArray());
+
+		byte[] encoded = Base64.getEncoder().encodeToString(bytes).getBytes(StandardCharsets.UTF_8);
+		read = utilities.readBytesIn(new MappedInputStream(this.getFile(encoded)), true);
+		assertArrayEquals(bytes, read.toArray());
+	}
+}
@@ -0,0 +1,78 @@
+package com.ebp.owat.lib.utils.io;
+
+import com.ebp.owat.lib.datastructure.value.NodeMode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getBytes;
+import static org.junit.Assert.*;
+
+public class MappedScrambledDataTest {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File getFile(byte[] bytes) throws IOException {
+		File file = this.tempFolder.newFile();
+		Files.write(file.toPath(), bytes);
+		return file;
+	}
+
+	private static void assertAllBytes(byte[] expected, MappedScrambledData data) throws IOException {
+		for(int i = 0; i < expected.length; i++){
+			assertEquals(expected[i], data.get(i));
+		}
+		//read out of order too, as they are when descrambling
+		for(int i = expected.length - 1; i >= 0; i -= 7){
+			assertEquals(expected[i], data.get(i));
+		}
+	}
+
+	@Test
+	public void testBase64() throws IOException {
+		//lengths that leave every amount of padding at the end
+		for(int length : new int[]{ 1, 2, 3, 1000 }){
+			byte[] bytes = getBytes(length);
+			try(MappedScrambledData data = new MappedScrambledData(this.getFile(Base64.getEncoder().encode(bytes)))){
+				assertEquals(DataFormat.BASE64, data.getFormat());
+				assertNull(data.getHeader());
+				assertAllBytes(bytes, data);
+			}
+		}
+	}
+
+	@Test
+	public void testBinary() throws IOException {
+		byte[] bytes = getBytes(1000);
+		ScrambledDataHeader header = new ScrambledDataHeader(NodeMode.BYTE, 10, 100);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		header.write(os);
+		os.write(bytes);
+		try(MappedScrambledData data = new MappedScrambledData(this.getFile(os.toByteArray()))){
+			assertEquals(DataFormat.BINARY, data.getFormat());
+			assertEquals(header, data.getHeader());
+			assertAllBytes(bytes, data);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testPastEnd() throws IOException {
+		byte[] bytes = getBytes(30);
+		try(MappedScrambledData data = new MappedScrambledData(this.getFile(Base64.getEncoder().encode(bytes)))){
+			data.get(bytes.length);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadHeader() throws IOException {
+		byte[] bytes = new byte[ScrambledDataHeader.HEADER_SIZE];
+		bytes[0] = ScrambledDataHeader.MAGIC[0];
+		new MappedScrambledData(this.getFile(bytes));
+	}
+}
@@ -0,0 +1,53 @@
+package com.ebp.owat.lib.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+public class NonClosingOutputStreamTest {
+	private static class TrackingOutputStream extends ByteArrayOutputStream {
+		boolean flushed = false;
+		boolean closed = false;
+
+		@Override
+		public void flush(){
+			this.flushed = true;
+		}
+
+		@Override
+		public void close(){
+			this.closed = true;
+		}
+	}
+
+	@Test
+	public void testWritesPassedThrough() throws IOException {
+		byte[] bytes = "Hello World".getBytes(StandardCharsets.UTF_8);
+		TrackingOutputStream os = new TrackingOutputStream();
+		try(OutputStream nonClosing = new NonClosingOutputStream(os)){
+			nonClosing.write(bytes[0]);
+			nonClosing.write(bytes, 1, bytes.length - 1);
+		}
+		assertArrayEquals(bytes, os.toByteArray());
+		assertFalse(os.closed);
+		assertFalse(os.flushed);
+	}
+
+	@Test
+	public void testWrappedInEncoder() throws IOException {
+		byte[] bytes = "Hello World".getBytes(StandardCharsets.UTF_8);
+		TrackingOutputStream os = new TrackingOutputStream();
+		//closing the encoder writes out its end, but leaves the stream open
+		try(OutputStream encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(os))){
+			encoder.write(bytes);
+		}
+		assertEquals(Base64.getEncoder().encodeToString(bytes), os.toString("UTF-8"));
+		assertFalse(os.closed);
+	}
+}
@@ -0,0 +1,137 @@
+package com.ebp.owat.lib.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelGzipOutputStreamTest {
+	/** Bytes that compress well, with repeats reaching back across blocks. */
+	private static byte[] getCompressibleBytes(int length){
+		Random rand = new Random(length);
+		StringBuilder sb = new StringBuilder(length + 10);
+		while(sb.length() < length){
+			sb.append("move ").append(rand.nextInt(64)).append(';');
+		}
+		return sb.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static byte[] decompress(byte[] compressed) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))){
+			byte[] buffer = new byte[4096];
+			int numRead;
+			while((numRead = is.read(buffer)) != -1){
+				os.write(buffer, 0, numRead);
+			}
+		}
+		return os.toByteArray();
+	}
+
+	private static byte[] compress(byte[] bytes, int level, int blockSize, int numThreads) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(os, level, blockSize, numThreads)){
+			for(int i = 0; i < bytes.length; i += 1_000){
+				gzip.write(bytes, i, Math.min(1_000, bytes.length - i));
+			}
+		}
+		return os.toByteArray();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		for(int length : new int[]{ 0, 1, 4_095, 4_096, 4_097, 300_000 }){
+			byte[] bytes = getCompressibleBytes(length);
+			for(int level : new int[]{ Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION }){
+				for(int numThreads : new int[]{ 1, 4 }){
+					assertArrayEquals(bytes, decompress(compress(bytes, level, 4_096, numThreads)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSingleBytes() throws IOException {
+		byte[] bytes = getCompressibleBytes(10_000);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(os, Deflater.DEFAULT_COMPRESSION, 7, 3)){
+			for(int i = 0; i < bytes.length; i++){
+				gzip.write(bytes[i]);
+				if(i % 1_000 == 0){
+					gzip.flush();
+				}
+			}
+		}
+		assertArrayEquals(bytes, decompress(os.toByteArray()));
+	}
+
+	@Test
+	public void testDefaults() throws IOException {
+		byte[] bytes = getCompressibleBytes(1_000_000);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(os)){
+			gzip.write(bytes);
+		}
+		assertArrayEquals(bytes, decompress(os.toByteArray()));
+	}
+
+	@Test
+	public void testSingleMember() throws IOException {
+		byte[] bytes = getCompressibleBytes(100_000);
+		byte[] compressed = compress(bytes, Deflater.DEFAULT_COMPRESSION, 1_000, 4);
+		//the header appears once, and the trailer holds the length of all the data
+		assertEquals(0x1f, compressed[0] & 0xFF);
+		assertEquals(0x8b, compressed[1] & 0xFF);
+		int length = 0;
+		for(int i = 0; i < 4; i++){
+			length |= (compressed[compressed.length - 4 + i] & 0xFF) << (8 * i);
+		}
+		assertEquals(bytes.length, length);
+	}
+
+	@Test
+	public void testCompressesAsWell() throws IOException {
+		byte[] bytes = getCompressibleBytes(500_000);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(GZIPOutputStream gzip = new GZIPOutputStream(os)){
+			gzip.write(bytes);
+		}
+		//each block primed with the one before; barely bigger than compressing all at once
+		assertTrue(compress(bytes, Deflater.DEFAULT_COMPRESSION, 16 * 1024, 4).length < os.size() * 1.05);
+	}
+
+	@Test
+	public void testWriteAfterClose() throws IOException {
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(new ByteArrayOutputStream());
+		gzip.close();
+		//closing twice is fine
+		gzip.close();
+		try{
+			gzip.write(1);
+			fail("Should not be able to write once closed.");
+		}catch (IOException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testBadArgs() throws IOException {
+		for(int[] curArgs : new int[][]{ {10, 1, 1}, {-2, 1, 1}, {0, 0, 1}, {0, 1, 0} }){
+			try{
+				new ParallelGzipOutputStream(new ByteArrayOutputStream(), curArgs[0], curArgs[1], curArgs[2]);
+				fail("Should not accept level " + curArgs[0] + ", block size " + curArgs[1] + " and " + curArgs[2] + " threads.");
+			}catch (IllegalArgumentException e){
+				//expected
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.ebp.owat.lib.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getBytes;
+import static org.junit.Assert.*;
+
+public class ReadAheadInputStreamTest {
+	private static byte[] readAll(InputStream is, int readSize) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[readSize];
+		int numRead;
+		while((numRead = is.read(buffer, 0, buffer.length)) != -1){
+			os.write(buffer, 0, numRead);
+		}
+		return os.toByteArray();
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		for(int length : new int[]{ 0, 1, 99, 100, 101, 10_000 }){
+			byte[] bytes = getBytes(length);
+			try(ReadAheadInputStream is = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 100, 3)){
+				assertArrayEquals(bytes, readAll(is, 37));
+				assertEquals(-1, is.read());
+			}
+		}
+	}
+
+	@Test
+	public void testReadSingleBytes() throws IOException {
+		byte[] bytes = getBytes(1_000);
+		try(ReadAheadInputStream is = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 64, 2)){
+			for(byte b : bytes){
+				assertEquals(b & 0xFF, is.read());
+			}
+			assertEquals(-1, is.read());
+		}
+	}
+
+	@Test
+	public void testErrorPassedOn() throws IOException {
+		InputStream failing = new InputStream() {
+			private int numRead = 0;
+
+			@Override
+			public int read() throws IOException {
+				if(this.numRead++ >= 150){
+					throw new IOException("Test failure");
+				}
+				return 1;
+			}
+		};
+		try(ReadAheadInputStream is = new ReadAheadInputStream(failing, 100, 2)){
+			readAll(is, 10);
+			fail();
+		}catch (IOException e){
+			assertEquals("Test failure", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testCloseClosesStream() throws IOException {
+		boolean[] closed = { false };
+		InputStream is = new ByteArrayInputStream(getBytes(10_000)) {
+			@Override
+			public void close(){
+				closed[0] = true;
+			}
+		};
+		ReadAheadInputStream readAhead = new ReadAheadInputStream(is, 100, 2);
+		readAhead.read();
+		readAhead.close();
+		assertTrue(closed[0]);
+		try{
+			readAhead.read();
+			fail();
+		}catch (IOException e){
+			//nothing to do
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.ebp.owat.lib.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class VarIntTest {
+	private static final long[] VALUES = { 0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE };
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		for(long curValue : VALUES){
+			int sizeBefore = os.size();
+			VarInt.write(os, curValue);
+			assertEquals(os.size() - sizeBefore, VarInt.size(curValue));
+		}
+		ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+		for(long curValue : VALUES){
+			assertEquals(curValue, VarInt.read(is));
+		}
+		assertEquals(-1, is.read());
+	}
+
+	@Test
+	public void testSizes(){
+		assertEquals(1, VarInt.size(0));
+		assertEquals(1, VarInt.size(127));
+		assertEquals(2, VarInt.size(128));
+		assertEquals(VarInt.MAX_SIZE, VarInt.size(-1));
+	}
+
+	@Test
+	public void testZigzag(){
+		assertEquals(0, VarInt.zigzag(0));
+		assertEquals(1, VarInt.zigzag(-1));
+		assertEquals(2, VarInt.zigzag(1));
+		assertEquals(3, VarInt.zigzag(-2));
+		for(long curValue : VALUES){
+			assertEquals(curValue, VarInt.unzigzag(VarInt.zigzag(curValue)));
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncated() throws IOException {
+		VarInt.read(new ByteArrayInputStream(new byte[]{ (byte)0x80 }));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTooLong() throws IOException {
+		byte[] bytes = new byte[VarInt.MAX_SIZE + 1];
+		Arrays.fill(bytes, (byte)0x80);
+		VarInt.read(new ByteArrayInputStream(bytes));
+	}
+}
@@ -0,0 +1,88 @@
+package com.ebp.owat.lib.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getBytes;
+import static org.junit.Assert.*;
+
+public class WriteBehindOutputStreamTest {
+	@Test
+	public void testWrite() throws IOException {
+		for(int length : new int[]{ 0, 1, 99, 100, 101, 10_000 }){
+			byte[] bytes = getBytes(length);
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			try(WriteBehindOutputStream writeBehind = new WriteBehindOutputStream(os, 100, 3)){
+				for(int i = 0; i < bytes.length; i += 37){
+					writeBehind.write(bytes, i, Math.min(37, bytes.length - i));
+				}
+			}
+			assertArrayEquals(bytes, os.toByteArray());
+		}
+	}
+
+	@Test
+	public void testWriteSingleBytesAndFlush() throws IOException {
+		byte[] bytes = getBytes(1_000);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(WriteBehindOutputStream writeBehind = new WriteBehindOutputStream(os, 64, 2)){
+			for(int i = 0; i < 500; i++){
+				writeBehind.write(bytes[i]);
+			}
+			writeBehind.flush();
+			assertEquals(500, os.size());
+			for(int i = 500; i < bytes.length; i++){
+				writeBehind.write(bytes[i]);
+			}
+		}
+		assertArrayEquals(bytes, os.toByteArray());
+	}
+
+	@Test
+	public void testErrorPassedOn() throws IOException {
+		OutputStream failing = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Test failure");
+			}
+		};
+		WriteBehindOutputStream writeBehind = new WriteBehindOutputStream(failing, 10, 2);
+		try{
+			writeBehind.write(getBytes(100));
+			writeBehind.flush();
+			fail();
+		}catch (IOException e){
+			assertEquals("Test failure", e.getCause().getMessage());
+		}
+		try{
+			writeBehind.close();
+			fail();
+		}catch (IOException e){
+			//nothing to do
+		}
+	}
+
+	@Test
+	public void testCloseLeavesStreamOpen() throws IOException {
+		boolean[] closed = { false };
+		OutputStream os = new ByteArrayOutputStream() {
+			@Override
+			public void close(){
+				closed[0] = true;
+			}
+		};
+		WriteBehindOutputStream writeBehind = new WriteBehindOutputStream(os, 10, 2);
+		writeBehind.write(1);
+		writeBehind.close();
+		assertFalse(closed[0]);
+		try{
+			writeBehind.write(1);
+			fail();
+		}catch (IOException e){
+			//nothing to do
+		}
+	}
+}
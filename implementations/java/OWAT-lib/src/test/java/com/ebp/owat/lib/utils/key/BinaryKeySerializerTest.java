@@ -0,0 +1,200 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.datastructure.value.BitValue;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.assertSameMoves;
+import static org.junit.Assert.*;
+
+public class BinaryKeySerializerTest {
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private static final ScrambleMove[] MOVES = {
+		new ScrambleMove(ScrambleMoves.SWAP, 0L, 1L, 199L, 150L),
+		new ScrambleMove(ScrambleMoves.SWAP_ROW, 5L, 6L),
+		new ScrambleMove(ScrambleMoves.SWAP_COL, 0L, 127L),
+		new ScrambleMove(ScrambleMoves.SLIDE_ROW, 3L, -64L),
+		new ScrambleMove(ScrambleMoves.SLIDE_COL, 128L, 63L),
+		new ScrambleMove(ScrambleMoves.ROT_BOX, -3L, 2L, 4L, 5L),
+		new ScrambleMove(ScrambleMoves.ROT_BOX, 1L, 0L, 0L, 2L)
+	};
+
+	private static ScrambleKey getKey(){
+		ScrambleKey key = new ScrambleKey(150L, 150L, 200L, 200L, BitValue.class, -1);
+		for(ScrambleMove curMove : MOVES){
+			key.addMove(curMove);
+		}
+		return key;
+	}
+
+	private static byte[] withHeader(byte[] serialized, KeyMetaData meta) throws IOException {
+		//the form is the last byte of the header
+		int formIndex = BinaryKeySerializer.MAGIC.length + 1 + 1 + 8 * Long.BYTES;
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		BinaryKeySerializer.writeHeader(meta, serialized[formIndex], header);
+		byte[] rewritten = serialized.clone();
+		System.arraycopy(header.toByteArray(), 0, rewritten, 0, header.size());
+		return rewritten;
+	}
+
+	@Test
+	public void testMoves() throws IOException {
+		ScrambleMove[] moves = Arrays.copyOf(MOVES, MOVES.length + 1);
+		moves[MOVES.length] = new ScrambleMove(ScrambleMoves.SWAP, 1_000_000L, Integer.MAX_VALUE, 0L, Long.MAX_VALUE);
+		for(ScrambleMove curMove : moves){
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			BinaryKeySerializer.writeMove(curMove, os);
+			assertEquals(os.size(), BinaryKeySerializer.sizeOfMove(curMove));
+
+			ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+			assertEquals(curMove, BinaryKeySerializer.readMove(is));
+			assertEquals(-1, is.read());
+		}
+		assertNull(BinaryKeySerializer.readMove(new ByteArrayInputStream(new byte[]{ BinaryKeySerializer.END_OF_MOVES })));
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ScrambleKey key = getKey();
+		byte[] serialized = BinaryKeySerializer.serialize(key);
+		assertEquals(KeyFormat.BINARY, BinaryKeySerializer.detectFormat(serialized[0] & 0xFF));
+
+		ScrambleKey read = BinaryKeySerializer.read(new ByteArrayInputStream(serialized));
+		assertEquals(om.readValue(om.writeValueAsBytes(key), ScrambleKey.class), read);
+		assertEquals(key.meta.dataHeight, read.meta.dataHeight);
+		assertEquals(key.meta.dataWidth, read.meta.dataWidth);
+		assertEquals(key.meta.lastColIndex, read.meta.lastColIndex);
+		assertSameMoves(key.getDescrambleMovesIt(), read.getMovesIt());
+
+		//much smaller than the JSON form
+		assertTrue(serialized.length < om.writeValueAsBytes(key).length);
+	}
+
+	@Test
+	public void testPermutationRoundTrip() throws IOException {
+		ScrambleKey key = getKey();
+		key.applyEncoding(KeyEncoding.PERMUTATION, KeyFormat.BINARY);
+		ScrambleKey read = BinaryKeySerializer.read(new ByteArrayInputStream(BinaryKeySerializer.serialize(key)));
+		assertTrue(read.isPermutationForm());
+		assertArrayEquals(key.getScrambledPositions(), read.getScrambledPositions());
+	}
+
+	@Test
+	public void testJsonNotBinary() throws IOException {
+		assertEquals(KeyFormat.JSON, BinaryKeySerializer.detectFormat(om.writeValueAsBytes(getKey())[0]));
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadMagic() throws IOException {
+		byte[] serialized = BinaryKeySerializer.serialize(getKey());
+		serialized[1] = 'X';
+		BinaryKeySerializer.read(new ByteArrayInputStream(serialized));
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadOpcode() throws IOException {
+		BinaryKeySerializer.readMove(new ByteArrayInputStream(new byte[]{ (byte)(ScrambleMoves.values().length + 1) }));
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingEnd() throws IOException {
+		byte[] serialized = BinaryKeySerializer.serialize(getKey());
+		//cut off the end of moves opcode and the block index after it
+		int indexLength = ByteBuffer.wrap(serialized, serialized.length - Integer.BYTES, Integer.BYTES).getInt();
+		BinaryKeySerializer.read(new ByteArrayInputStream(Arrays.copyOf(serialized, serialized.length - Integer.BYTES - indexLength - 1)));
+	}
+
+	@Test
+	public void testChecksInHeader() throws IOException {
+		ScrambleKey key = getKey();
+		KeyMetaData meta = BinaryKeySerializer.readMeta(new ByteArrayInputStream(BinaryKeySerializer.serialize(key)));
+		MoveChecksum checksum = MoveChecksum.of(getKey().getDescrambleMovesIt());
+		assertEquals(MOVES.length, meta.numMoves);
+		assertEquals(checksum.getValue(), meta.movesChecksum);
+		assertEquals(KeyMetaData.UNKNOWN, meta.dataChecksum);
+
+		key = getKey();
+		key.setDataChecksum(1234L);
+		meta = BinaryKeySerializer.read(new ByteArrayInputStream(BinaryKeySerializer.serialize(key))).meta;
+		assertEquals(1234L, meta.dataChecksum);
+
+		KeyMetaData fromJson = om.readValue(om.writeValueAsBytes(meta), KeyMetaData.class);
+		assertEquals(meta, fromJson);
+		assertEquals(meta.numMoves, fromJson.numMoves);
+		assertEquals(meta.movesChecksum, fromJson.movesChecksum);
+		assertEquals(meta.dataChecksum, fromJson.dataChecksum);
+	}
+
+	@Test
+	public void testUncheckedVersion() throws IOException {
+		//a key from before the header held its checks
+		byte[] serialized = BinaryKeySerializer.serialize(getKey());
+		int checksStart = BinaryKeySerializer.MAGIC.length + 1 + 1 + 5 * Long.BYTES;
+		int checksLength = 3 * Long.BYTES;
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		os.write(serialized, 0, checksStart);
+		os.write(serialized, checksStart + checksLength, serialized.length - checksStart - checksLength);
+		byte[] unchecked = os.toByteArray();
+		unchecked[BinaryKeySerializer.MAGIC.length] = BinaryKeySerializer.VERSION_UNCHECKED;
+
+		ScrambleKey read = BinaryKeySerializer.read(new ByteArrayInputStream(unchecked));
+		assertEquals(KeyMetaData.UNKNOWN, read.meta.numMoves);
+		assertEquals(KeyMetaData.UNKNOWN, read.meta.movesChecksum);
+		assertEquals(MOVES.length, read.getNumMoves());
+	}
+
+	@Test
+	public void testWrongNumMoves() throws IOException {
+		byte[] serialized = BinaryKeySerializer.serialize(getKey());
+		KeyMetaData meta = BinaryKeySerializer.readMeta(new ByteArrayInputStream(serialized));
+		try{
+			BinaryKeySerializer.read(new ByteArrayInputStream(withHeader(serialized, meta.withChecks(MOVES.length + 1, meta.movesChecksum, meta.dataChecksum))));
+			fail("Read a key with the wrong number of moves.");
+		}catch (IOException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testWrongMovesChecksum() throws IOException {
+		byte[] serialized = BinaryKeySerializer.serialize(getKey());
+		KeyMetaData meta = BinaryKeySerializer.readMeta(new ByteArrayInputStream(serialized));
+		try{
+			BinaryKeySerializer.read(new ByteArrayInputStream(withHeader(serialized, meta.withChecks(meta.numMoves, meta.movesChecksum ^ 1, meta.dataChecksum))));
+			fail("Read a key with moves not matching their checksum.");
+		}catch (IOException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testCheckDataChecksum(){
+		KeyMetaData meta = getKey().meta;
+		//nothing to check against
+		meta.checkDataChecksum(1L);
+		meta = meta.withChecks(KeyMetaData.UNKNOWN, KeyMetaData.UNKNOWN, 1L);
+		meta.checkDataChecksum(1L);
+		try{
+			meta.checkDataChecksum(2L);
+			fail("Data with a different checksum was accepted.");
+		}catch (IllegalArgumentException e){
+			//expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPermutationTooLarge() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		BinaryKeySerializer.writeHeader(new ScrambleKey(50_000L, 50_000L, 50_000L, 50_000L, BitValue.class, -1).meta, BinaryKeySerializer.FORM_PERMUTATION, os);
+		BinaryKeySerializer.read(new ByteArrayInputStream(os.toByteArray()));
+	}
+}
@@ -0,0 +1,169 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.rand.SplitMixRandGenerator;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+import com.ebp.owat.lib.utils.scramble.generator.ScrambleMoveGenerator;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ColumnarMoveBlockTest {
+	private static final ScrambleMove[] MOVES = {
+		new ScrambleMove(ScrambleMoves.SWAP, 0L, 1L, 199L, 150L),
+		new ScrambleMove(ScrambleMoves.SLIDE_ROW, 3L, -64L),
+		new ScrambleMove(ScrambleMoves.SWAP_ROW, 5L, 6L),
+		new ScrambleMove(ScrambleMoves.ROT_BOX, -3L, 2L, 4L, 5L),
+		new ScrambleMove(ScrambleMoves.SWAP_COL, 0L, 127L),
+		new ScrambleMove(ScrambleMoves.SLIDE_COL, 128L, 63L),
+		new ScrambleMove(ScrambleMoves.ROT_BOX, 1L, 0L, 0L, 2L),
+		new ScrambleMove(ScrambleMoves.SWAP_ROW, 0L, 0L),
+		new ScrambleMove(ScrambleMoves.SWAP, 1_000_000L, Integer.MAX_VALUE, 0L, Long.MAX_VALUE)
+	};
+
+	private static List<ScrambleMove> generateMoves(int numMoves){
+		ScrambleMoveGenerator generator = new ScrambleMoveGenerator(new SplitMixRandGenerator(42L), 1_000, 700);
+		List<ScrambleMove> moves = new ArrayList<>(numMoves);
+		for(int i = 0; i < numMoves; i++){
+			moves.add(generator.getMove());
+		}
+		return moves;
+	}
+
+	private static byte[] write(List<ScrambleMove> moves, int maxMoves) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ColumnarMoveBlock block = new ColumnarMoveBlock(maxMoves);
+		for(ScrambleMove curMove : moves){
+			if(block.add(curMove)){
+				block.writeTo(os);
+			}
+		}
+		if(!block.isEmpty()){
+			block.writeTo(os);
+		}
+		os.write(BinaryKeySerializer.END_OF_MOVES);
+		return os.toByteArray();
+	}
+
+	private static void assertReadBack(List<ScrambleMove> expected, byte[] written, int maxMoves) throws IOException {
+		ByteArrayInputStream is = new ByteArrayInputStream(written);
+		Iterator<ScrambleMove> it = expected.iterator();
+		MoveLog block;
+		while((block = ColumnarMoveBlock.read(is, maxMoves)) != null){
+			for(ScrambleMove curMove : block){
+				assertEquals(it.next(), curMove);
+			}
+		}
+		assertFalse(it.hasNext());
+		assertEquals(-1, is.read());
+	}
+
+	private static int gzipSize(byte[] bytes) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(GZIPOutputStream gzip = new GZIPOutputStream(os)){
+			gzip.write(bytes);
+		}
+		return os.size();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		List<ScrambleMove> moves = Arrays.asList(MOVES);
+		for(int maxMoves : new int[]{ 1, 2, 4, MOVES.length, 100 }){
+			assertReadBack(moves, write(moves, maxMoves), maxMoves);
+		}
+	}
+
+	@Test
+	public void testGeneratedMoves() throws IOException {
+		List<ScrambleMove> moves = generateMoves(50_000);
+		assertReadBack(moves, write(moves, 4_096), 4_096);
+	}
+
+	@Test
+	public void testSmallerThanInterleaved() throws IOException {
+		List<ScrambleMove> moves = generateMoves(100_000);
+		ByteArrayOutputStream interleaved = new ByteArrayOutputStream();
+		for(ScrambleMove curMove : moves){
+			BinaryKeySerializer.writeMove(curMove, interleaved);
+		}
+		byte[] columnar = write(moves, BinaryKeySerializer.MOVES_PER_BLOCK);
+		assertTrue(columnar.length < interleaved.size());
+		assertTrue(gzipSize(columnar) < gzipSize(interleaved.toByteArray()));
+	}
+
+	@Test
+	public void testBitsFitLargestIndex() throws IOException {
+		//rows up to 7 fit in 3 bits each; 5 moves is 15 bits a column, in 2 bytes
+		List<ScrambleMove> moves = new ArrayList<>();
+		for(int i = 0; i < 5; i++){
+			moves.add(new ScrambleMove(ScrambleMoves.SWAP_ROW, i, 7L));
+		}
+		byte[] written = write(moves, 10);
+		//count, opcodes, then each column; bits then packed values, then the end
+		assertEquals(1 + 5 + (1 + 2) + (1 + 2) + 1, written.length);
+		assertReadBack(moves, written, 10);
+	}
+
+	@Test
+	public void testAllZero() throws IOException {
+		List<ScrambleMove> moves = Arrays.asList(
+			new ScrambleMove(ScrambleMoves.SWAP_COL, 0L, 0L),
+			new ScrambleMove(ScrambleMoves.SWAP_COL, 0L, 0L)
+		);
+		byte[] written = write(moves, 10);
+		//no bits needed at all
+		assertEquals(1 + 2 + 1 + 1 + 1, written.length);
+		assertReadBack(moves, written, 10);
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		byte[] written = write(generateMoves(100), 100);
+		for(int length : new int[]{ 0, 1, 50, written.length - 2 }){
+			try{
+				ColumnarMoveBlock.read(new ByteArrayInputStream(Arrays.copyOf(written, length)), 100);
+				fail("Read a block cut off at " + length + " bytes.");
+			}catch (IOException e){
+				//expected
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadOpcode() throws IOException {
+		ColumnarMoveBlock.read(new ByteArrayInputStream(new byte[]{ 1, (byte)(ScrambleMoves.values().length + 1) }), 10);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTooManyMoves() throws IOException {
+		ColumnarMoveBlock.read(new ByteArrayInputStream(write(generateMoves(20), 20)), 10);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddToFull(){
+		ColumnarMoveBlock block = new ColumnarMoveBlock(1);
+		assertTrue(block.add(MOVES[0]));
+		block.add(MOVES[1]);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWriteEmpty() throws IOException {
+		new ColumnarMoveBlock(1).writeTo(new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoRoom(){
+		new ColumnarMoveBlock(0);
+	}
+}
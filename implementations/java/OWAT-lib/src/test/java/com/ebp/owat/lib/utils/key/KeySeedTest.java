@@ -0,0 +1,167 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.datastructure.value.ByteValue;
+import com.ebp.owat.lib.utils.scramble.MoveLog;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.assertSameMoves;
+import static org.junit.Assert.*;
+
+public class KeySeedTest {
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private static final KeyMetaData META = new KeyMetaData(10L, 10L, 12L, 13L, KeyMetaData.getTypeStr(ByteValue.class), -1L);
+
+	/** The moves generated from seed 0x5EED for a 12 x 13 matrix. If this changes, seed keys already written can no longer be descrambled; bump the generator version instead. */
+	private static final String GOLDEN_MOVES = "1:4x4,5x0;2:1,0;5:3,4;2:1,2;4:7,12;1:3x8,9x5;5:7,0;3:12,1;2:1,7;5:6,1;1:5x3,3x0;2:4,0;";
+
+	private static String toKeyString(Iterator<ScrambleMove> it){
+		StringBuilder sb = new StringBuilder();
+		while(it.hasNext()){
+			it.next().toKeyString(sb, false);
+		}
+		return sb.toString();
+	}
+
+	private static ScrambleKey getSeedKey(long seed, long numMoves){
+		ScrambleKey key = new ScrambleKey(
+			META.originalHeight, META.originalWidth, META.dataHeight, META.dataWidth, ByteValue.class, META.lastColIndex
+		);
+		key.useSeed(new KeySeed(seed, numMoves));
+		return key;
+	}
+
+	@Test
+	public void testGoldenMoves(){
+		KeySeed seed = new KeySeed(0x5EEDL, 12);
+		assertEquals(GOLDEN_MOVES, toKeyString(seed.generateMoves(META).iterator()));
+		//the generator makes the same moves when used straight
+		assertEquals(
+			GOLDEN_MOVES.substring(0, GOLDEN_MOVES.indexOf(';') + 1),
+			toKeyString(Collections.singletonList(seed.newMoveGenerator(META).getMove()).iterator())
+		);
+	}
+
+	@Test
+	public void testDescrambleMoves(){
+		KeySeed seed = new KeySeed(99L, 5_000);
+		MoveLog scrambleMoves = seed.generateMoves(META);
+		assertEquals(5_000, scrambleMoves.sizeL());
+
+		Iterator<ScrambleMove> reverseIt = scrambleMoves.reverseIterator();
+		for(ScrambleMove curMove : seed.generateDescrambleMoves(META)){
+			assertEquals(reverseIt.next().getReverse(), curMove);
+		}
+		assertFalse(reverseIt.hasNext());
+	}
+
+	@Test
+	public void testDescrambleMovesInChunks(){
+		//chunk sizes that do and do not divide the moves evenly
+		for(long numMoves : new long[]{ 0, 1, 7, 8, 1_000 }){
+			KeySeed seed = new KeySeed(99L, numMoves);
+			MoveLog scrambleMoves = seed.generateMoves(META);
+			for(int chunkSize : new int[]{ 1, 7, 64 }){
+				Iterator<ScrambleMove> reverseIt = scrambleMoves.reverseIterator();
+				Iterator<ScrambleMove> it = seed.descrambleMovesIterator(META, chunkSize);
+				while(it.hasNext()){
+					assertEquals(reverseIt.next().getReverse(), it.next());
+				}
+				assertFalse(reverseIt.hasNext());
+			}
+		}
+	}
+
+	@Test
+	public void testSeedKey() throws IOException {
+		ScrambleKey key = getSeedKey(0x5EEDL, 12);
+		assertTrue(key.isSeedForm());
+		assertEquals(12, key.getNumMoves());
+
+		//the same as the key holding the moves themselves
+		ScrambleKey movesKey = new ScrambleKey(
+			META.originalHeight, META.originalWidth, META.dataHeight, META.dataWidth, ByteValue.class, META.lastColIndex
+		);
+		for(ScrambleMove curMove : new KeySeed(0x5EEDL, 12).generateMoves(META)){
+			movesKey.addMove(curMove);
+		}
+		assertEquals(movesKey, key);
+		assertArrayEquals(movesKey.getScrambledPositions(), key.getScrambledPositions());
+
+		String json = om.writeValueAsString(key);
+		assertFalse(json.contains(SerializationConstants.SCRAMBLE));
+		ScrambleKey read = om.readValue(json, ScrambleKey.class);
+		assertTrue(read.isSeedForm());
+		assertEquals(key.getSeed(), read.getSeed());
+		assertEquals(key, read);
+		assertEquals(toKeyString(movesKey.getDescrambleMovesIt()), toKeyString(read.getMovesIt()));
+	}
+
+	@Test
+	public void testSeedKeyFormats() throws IOException {
+		ScrambleKey key = getSeedKey(-5L, 100_000);
+		for(KeyFormat curFormat : KeyFormat.values()){
+			key.applyEncoding(KeyEncoding.AUTO, curFormat);
+			assertTrue(key.isSeedForm());
+
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			KeyWriter.write(key, curFormat, os);
+			//the size of the key does not grow with the moves
+			assertTrue(os.size() < 200);
+
+			try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(os.toByteArray()))){
+				assertEquals(key.meta, reader.getMeta());
+				assertSameMoves(key.getDescrambleMovesIt(), reader);
+			}
+		}
+
+		ScrambleKey read = BinaryKeySerializer.read(new ByteArrayInputStream(BinaryKeySerializer.serialize(key)));
+		assertEquals(key.getSeed(), read.getSeed());
+		assertEquals(key, ParallelKeyReader.read(BinaryKeySerializer.serialize(key)));
+	}
+
+	@Test
+	public void testChangeEncoding(){
+		ScrambleKey key = getSeedKey(7L, 300);
+		ScrambleKey expected = getSeedKey(7L, 300);
+		key.applyEncoding(KeyEncoding.MOVES);
+		assertFalse(key.isSeedForm());
+		assertEquals(300, key.getNumMoves());
+		assertEquals(expected, key);
+
+		key = getSeedKey(7L, 300);
+		key.applyEncoding(KeyEncoding.PERMUTATION);
+		assertFalse(key.isSeedForm());
+		assertTrue(key.isPermutationForm());
+		assertArrayEquals(expected.getScrambledPositions(), key.getScrambledPositions());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSeedEncodingWithoutSeed(){
+		ScrambleKey key = new ScrambleKey(10L, 10L, 10L, 10L, ByteValue.class, -1);
+		key.applyEncoding(KeyEncoding.SEED);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddMoveToSeedKey(){
+		getSeedKey(1L, 1).addMove(new KeySeed(1L, 1).generateMoves(META).iterator().next());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedVersion(){
+		new KeySeed(KeySeed.GENERATOR_VERSION + 1, 1L, 1L);
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnsupportedVersionJson() throws IOException {
+		om.readValue("{\"genVersion\":2,\"value\":1,\"numMoves\":1}", KeySeed.class);
+	}
+}
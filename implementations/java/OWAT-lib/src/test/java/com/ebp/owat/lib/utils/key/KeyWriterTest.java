@@ -0,0 +1,82 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.getKey;
+import static org.junit.Assert.*;
+
+public class KeyWriterTest {
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private static byte[] writeAndDecompress(ScrambleKey key, KeyFormat format) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		KeyWriter.write(key, format, os);
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		try(GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(os.toByteArray()))){
+			byte[] buffer = new byte[4096];
+			int numRead;
+			while((numRead = is.read(buffer)) != -1){
+				decompressed.write(buffer, 0, numRead);
+			}
+		}
+		return decompressed.toByteArray();
+	}
+
+	@Test
+	public void testJsonMoves() throws IOException {
+		//enough moves to be written out over several blocks
+		for(int numMoves : new int[]{ 1, 7, 20_000 }){
+			ScrambleKey key = getKey(numMoves);
+			byte[] written = writeAndDecompress(key, KeyFormat.JSON);
+
+			assertEquals(om.readTree(om.writeValueAsBytes(key)), om.readTree(written));
+			assertEquals(om.readValue(om.writeValueAsBytes(key), ScrambleKey.class), om.readValue(written, ScrambleKey.class));
+		}
+	}
+
+	@Test
+	public void testJsonMetaFirst() throws IOException {
+		String written = new String(writeAndDecompress(getKey(3), KeyFormat.JSON), "US-ASCII");
+		assertTrue(written.startsWith("{\"" + SerializationConstants.META + "\":"));
+	}
+
+	@Test
+	public void testJsonPermutation() throws IOException {
+		ScrambleKey key = getKey(50);
+		key.applyEncoding(KeyEncoding.PERMUTATION);
+		byte[] written = writeAndDecompress(key, KeyFormat.JSON);
+
+		assertEquals(om.readTree(om.writeValueAsBytes(key)), om.readTree(written));
+		assertArrayEquals(key.getScrambledPositions(), om.readValue(written, ScrambleKey.class).getScrambledPositions());
+	}
+
+	@Test
+	public void testBinary() throws IOException {
+		ScrambleKey key = getKey(20_000);
+		assertTrue(Arrays.equals(BinaryKeySerializer.serialize(key), writeAndDecompress(key, KeyFormat.BINARY)));
+
+		key.applyEncoding(KeyEncoding.PERMUTATION, KeyFormat.BINARY);
+		assertTrue(Arrays.equals(BinaryKeySerializer.serialize(key), writeAndDecompress(key, KeyFormat.BINARY)));
+	}
+
+	@Test
+	public void testLeavesStreamOpen() throws IOException {
+		boolean[] closed = { false };
+		ByteArrayOutputStream os = new ByteArrayOutputStream(){
+			@Override
+			public void close(){
+				closed[0] = true;
+			}
+		};
+		KeyWriter.write(getKey(3), KeyFormat.JSON, os);
+		assertFalse(closed[0]);
+		assertTrue(os.size() > 0);
+	}
+}
@@ -0,0 +1,136 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.datastructure.value.ByteValue;
+import com.ebp.owat.lib.utils.io.VarInt;
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.assertSameMoves;
+import static com.ebp.owat.lib.testUtils.TestUtils.getKey;
+import static org.junit.Assert.*;
+
+public class ParallelKeyReaderTest {
+
+	@Test
+	public void testManyBlocks() throws IOException {
+		ScrambleKey key = getKey((BinaryKeySerializer.MOVES_PER_BLOCK * 3) + 123);
+		byte[] serialized = BinaryKeySerializer.serialize(key);
+		for(int numThreads : new int[]{ 1, 2, 4, 16 }){
+			assertSameMoves(key, ParallelKeyReader.read(serialized, numThreads));
+		}
+		assertSameMoves(key, BinaryKeySerializer.read(new ByteArrayInputStream(serialized)));
+	}
+
+	@Test
+	public void testFewMoves() throws IOException {
+		for(int numMoves : new int[]{ 0, 1, BinaryKeySerializer.MOVES_PER_BLOCK }){
+			ScrambleKey key = getKey(numMoves);
+			assertSameMoves(key, ParallelKeyReader.read(BinaryKeySerializer.serialize(key), 4));
+		}
+	}
+
+	@Test
+	public void testUnindexedKey() throws IOException {
+		ScrambleKey key = getKey(500);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		BinaryKeySerializer.writeHeader(key.meta, BinaryKeySerializer.FORM_MOVES, os);
+		Iterator<ScrambleMove> it = key.getDescrambleMovesIt();
+		while(it.hasNext()){
+			BinaryKeySerializer.writeMove(it.next(), os);
+		}
+		os.write(BinaryKeySerializer.END_OF_MOVES);
+
+		assertSameMoves(key, ParallelKeyReader.read(os.toByteArray(), 4));
+	}
+
+	@Test
+	public void testIndexedKey() throws IOException {
+		//keys written before columnar blocks; moves one after the other, then the index
+		ScrambleKey key = getKey(BinaryKeySerializer.MOVES_PER_BLOCK + 10);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		BinaryKeySerializer.writeHeader(key.meta, BinaryKeySerializer.FORM_INDEXED_MOVES, os);
+		Iterator<ScrambleMove> it = key.getDescrambleMovesIt();
+		int numMoves = 0;
+		int numBytes = 0;
+		while(it.hasNext()){
+			ScrambleMove curMove = it.next();
+			BinaryKeySerializer.writeMove(curMove, os);
+			numBytes += BinaryKeySerializer.sizeOfMove(curMove);
+			if(++numMoves == BinaryKeySerializer.MOVES_PER_BLOCK || !it.hasNext()){
+				VarInt.write(index, numMoves);
+				VarInt.write(index, numBytes);
+				numMoves = 0;
+				numBytes = 0;
+			}
+		}
+		os.write(BinaryKeySerializer.END_OF_MOVES);
+		VarInt.write(os, 2);
+		index.writeTo(os);
+		new DataOutputStream(os).writeInt(1 + index.size());
+
+		assertSameMoves(key, ParallelKeyReader.read(os.toByteArray(), 4));
+		assertSameMoves(key, BinaryKeySerializer.read(new ByteArrayInputStream(os.toByteArray())));
+	}
+
+	@Test
+	public void testPermutation() throws IOException {
+		ScrambleKey key = new ScrambleKey(10L, 10L, 10L, 10L, ByteValue.class, -1);
+		key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 1L, 2L));
+		key.applyEncoding(KeyEncoding.PERMUTATION, KeyFormat.BINARY);
+
+		ScrambleKey read = ParallelKeyReader.read(BinaryKeySerializer.serialize(key), 4);
+		assertTrue(read.isPermutationForm());
+		assertArrayEquals(key.getScrambledPositions(), read.getScrambledPositions());
+	}
+
+	@Test
+	public void testBadIndex() throws IOException {
+		byte[] serialized = BinaryKeySerializer.serialize(getKey((BinaryKeySerializer.MOVES_PER_BLOCK * 2) + 5));
+		//the byte count of the last block
+		serialized[serialized.length - Integer.BYTES - 1]++;
+		try{
+			ParallelKeyReader.read(serialized, 4);
+			fail();
+		}catch (IOException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testBadIndexLength() throws IOException {
+		byte[] serialized = BinaryKeySerializer.serialize(getKey(10));
+		serialized[serialized.length - 1] = 100;
+		try{
+			ParallelKeyReader.read(serialized, 4);
+			fail();
+		}catch (IOException e){
+			//expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoThreads() throws IOException {
+		ParallelKeyReader.read(BinaryKeySerializer.serialize(getKey(1)), 0);
+	}
+
+	@Test
+	public void testWrongMovesChecksum() throws IOException {
+		byte[] serialized = BinaryKeySerializer.serialize(getKey((BinaryKeySerializer.MOVES_PER_BLOCK * 2) + 5));
+		//the last byte of the checksum of the moves, in the header
+		serialized[BinaryKeySerializer.MAGIC.length + 1 + 1 + 7 * Long.BYTES - 1] ^= 1;
+		try{
+			ParallelKeyReader.read(serialized, 4);
+			fail();
+		}catch (IOException e){
+			//expected
+		}
+	}
+}
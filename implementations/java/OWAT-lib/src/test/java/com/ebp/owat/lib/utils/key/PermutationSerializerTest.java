@@ -0,0 +1,51 @@
+package com.ebp.owat.lib.utils.key;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PermutationSerializerTest {
+
+	@Test
+	public void testRoundTrip(){
+		long[][] toTest = {
+			{},
+			{0},
+			{5, 4, 3, 2, 1, 0},
+			{0, Long.MAX_VALUE, 0, Long.MAX_VALUE / 2},
+			{63, 64, 8191, 8192, 1}
+		};
+		for(long[] positions : toTest){
+			assertArrayEquals(positions, PermutationSerializer.deserialize(PermutationSerializer.serialize(positions), positions.length));
+			assertEquals(PermutationSerializer.serialize(positions).length(), PermutationSerializer.serializedLength(positions));
+		}
+	}
+
+	@Test
+	public void testRandomRoundTrip(){
+		Random rand = new Random(42);
+		long[] positions = new long[10000];
+		for(int i = 0; i < positions.length; i++){
+			positions[i] = rand.nextInt(20000);
+		}
+		String serialized = PermutationSerializer.serialize(positions);
+		assertArrayEquals(positions, PermutationSerializer.deserialize(serialized, positions.length));
+		//deltas of positions under 20000 take at most 3 bytes each
+		assertTrue(serialized.length() <= ((positions.length * 3 + 2) / 3) * 4);
+		assertEquals(serialized.length(), PermutationSerializer.serializedLength(positions));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooShort(){
+		PermutationSerializer.deserialize(PermutationSerializer.serialize(new long[]{1, 2}), 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLong(){
+		PermutationSerializer.deserialize(PermutationSerializer.serialize(new long[]{1, 2}), 1);
+	}
+}
@@ -1,8 +1,10 @@
 package com.ebp.owat.lib.utils.key;
 
 import com.ebp.owat.lib.datastructure.value.BitValue;
+import com.ebp.owat.lib.utils.rand.SplitMixRandGenerator;
 import com.ebp.owat.lib.utils.scramble.ScrambleMove;
 import com.ebp.owat.lib.utils.scramble.ScrambleMoves;
+import com.ebp.owat.lib.utils.scramble.generator.ScrambleMoveGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Test;
@@ -78,4 +80,111 @@ public class ScrambleKeyTest {
 		assertEquals(new ScrambleMove(ScrambleMoves.SWAP_ROW, 1L, 1L), it.next());
 		assertFalse(it.hasNext());
 	}
+	
+	@Test
+	public void testScrambleKeyPermutationForm() throws IOException {
+		ScrambleKey key = new ScrambleKey(4L, 4L, 4L, 4L, BitValue.class, -1);
+		key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 0L, 3L));
+		key.addMove(new ScrambleMove(ScrambleMoves.SLIDE_COL, 1L, 2L));
+		long[] positions = key.getScrambledPositions();
+		
+		key.applyEncoding(KeyEncoding.PERMUTATION);
+		assertTrue(key.isPermutationForm());
+		assertNull(key.getMoves());
+		assertArrayEquals(positions, key.getScrambledPositions());
+		try{
+			key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 1L, 2L));
+			Assert.fail();
+		}catch (IllegalStateException e){
+			//nothing to do
+		}
+		
+		String json = om.writeValueAsString(key);
+		LOGGER.info("Result: {}", json);
+		ScrambleKey keyTwo = om.readValue(json, ScrambleKey.class);
+		
+		assertTrue(keyTwo.isPermutationForm());
+		assertTrue(key.equals(keyTwo, false));
+		assertArrayEquals(positions, keyTwo.getScrambledPositions());
+	}
+	
+	@Test
+	public void testCheckedMetaKeptAsMovesAdded() throws IOException {
+		ScrambleKey key = new ScrambleKey(4L, 4L, 4L, 4L, BitValue.class, -1);
+		key.setMovesMemoryLimit(64);
+		ScrambleMoveGenerator generator = new ScrambleMoveGenerator(new SplitMixRandGenerator(42L), 4, 4);
+		for(int i = 0; i < 1_000; i++){
+			key.addMove(generator.getMove());
+			if(i % 250 == 0){
+				assertChecksMoves(key);
+			}
+		}
+		assertChecksMoves(key);
+		
+		//built on a key being scrambled, and one read back in
+		ScrambleKey builtOn = new ScrambleKey(key);
+		builtOn.addMove(generator.getMove());
+		assertChecksMoves(builtOn);
+		
+		builtOn = new ScrambleKey(om.readValue(om.writeValueAsString(key), ScrambleKey.class));
+		builtOn.addMove(generator.getMove());
+		assertChecksMoves(builtOn);
+		key.close();
+		builtOn.close();
+	}
+	
+	@Test
+	public void testMetaSerializedOnce() throws IOException {
+		ScrambleKey key = new ScrambleKey(4L, 4L, 4L, 4L, BitValue.class, -1);
+		key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 0L, 3L));
+		
+		KeyMetaData meta = om.treeToValue(om.valueToTree(key).get(SerializationConstants.META), KeyMetaData.class);
+		assertEquals(key.getCheckedMeta(), meta);
+		assertEquals(1, meta.numMoves);
+	}
+	
+	/**
+	 * Asserts the checked metadata of the key given holds the count and checksum of its moves.
+	 * @param key The key to check.
+	 */
+	private static void assertChecksMoves(ScrambleKey key){
+		MoveChecksum expected = MoveChecksum.of(key.getDescrambleMovesIt());
+		KeyMetaData meta = key.getCheckedMeta();
+		assertEquals(expected.getNumMoves(), meta.numMoves);
+		assertEquals(expected.getValue(), meta.movesChecksum);
+	}
+	
+	@Test
+	public void testAutoTooLargeForPermutation(){
+		//more values than a permutation can be held of; left as moves without working it out
+		for(KeyFormat curFormat : KeyFormat.values()){
+			ScrambleKey key = new ScrambleKey(50_000L, 50_000L, 50_000L, 50_000L, BitValue.class, -1);
+			key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 0L, 3L));
+			key.applyEncoding(KeyEncoding.AUTO, curFormat);
+			assertFalse(key.isPermutationForm());
+			assertEquals(1, key.getNumMoves());
+		}
+	}
+	
+	@Test
+	public void testAutoPicksSmaller(){
+		for(KeyFormat curFormat : KeyFormat.values()){
+			//few moves over a lot of data; smaller as moves
+			ScrambleKey key = new ScrambleKey(100L, 100L, 100L, 100L, BitValue.class, -1);
+			key.addMove(new ScrambleMove(ScrambleMoves.SWAP_ROW, 0L, 3L));
+			key.applyEncoding(KeyEncoding.AUTO, curFormat);
+			assertFalse(key.isPermutationForm());
+			
+			//many moves over little data; smaller as a permutation
+			key = new ScrambleKey(4L, 4L, 4L, 4L, BitValue.class, -1);
+			ScrambleMoveGenerator generator = new ScrambleMoveGenerator(new SplitMixRandGenerator(42L), 4, 4);
+			for(int i = 0; i < 1_000; i++){
+				key.addMove(generator.getMove());
+			}
+			long[] positions = key.getScrambledPositions();
+			key.applyEncoding(KeyEncoding.AUTO, curFormat);
+			assertTrue(key.isPermutationForm());
+			assertArrayEquals(positions, key.getScrambledPositions());
+		}
+	}
 }
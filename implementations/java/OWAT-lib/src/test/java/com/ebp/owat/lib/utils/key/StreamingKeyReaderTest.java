@@ -0,0 +1,260 @@
+package com.ebp.owat.lib.utils.key;
+
+import com.ebp.owat.lib.utils.scramble.ScrambleMove;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPOutputStream;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.assertSameMoves;
+import static com.ebp.owat.lib.testUtils.TestUtils.getKey;
+import static org.junit.Assert.*;
+
+public class StreamingKeyReaderTest {
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private static byte[] compress(String json) throws IOException {
+		return compress(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static byte[] compress(byte[] key) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try(GZIPOutputStream gos = new GZIPOutputStream(os)){
+			gos.write(key);
+		}
+		return os.toByteArray();
+	}
+
+	@Test
+	public void testStreamMoves() throws IOException {
+		//enough moves to fill the queues between stages
+		for(int numMoves : new int[]{ 1, 5, 100_000 }){
+			String json = om.writeValueAsString(getKey(numMoves));
+			ScrambleKey expected = om.readValue(json, ScrambleKey.class);
+
+			try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+				assertEquals(expected.meta, reader.getMeta());
+				assertFalse(reader.isPermutationForm());
+				assertSameMoves(expected.getMovesIt(), reader);
+			}
+		}
+	}
+
+	@Test
+	public void testMovesBeforeMeta() throws IOException {
+		ScrambleKey key = getKey(50);
+		String json = "{ \"scramble\" : " + om.writeValueAsString(key.getMoves()) + ", \"meta\" : " + om.writeValueAsString(key.meta) + " }";
+		ScrambleKey expected = om.readValue(json, ScrambleKey.class);
+
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			assertEquals(expected.meta, reader.getMeta());
+			assertSameMoves(expected.getMovesIt(), reader);
+		}
+	}
+
+	@Test
+	public void testReadWholeKey() throws IOException {
+		ScrambleKey key = getKey(1000);
+		String json = om.writeValueAsString(key);
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			assertEquals(om.readValue(json, ScrambleKey.class), reader.readWholeKey());
+		}
+
+		key = getKey(1000);
+		key.applyEncoding(KeyEncoding.PERMUTATION);
+		json = om.writeValueAsString(key);
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			assertTrue(reader.isPermutationForm());
+			assertNull(reader.nextMove());
+			ScrambleKey readKey = reader.readWholeKey();
+			assertTrue(readKey.isPermutationForm());
+			assertEquals(om.readValue(json, ScrambleKey.class), readKey);
+		}
+	}
+
+	@Test
+	public void testBinaryKey() throws IOException {
+		for(int numMoves : new int[]{ 1, 5, 100_000 }){
+			ScrambleKey key = getKey(numMoves);
+			ScrambleKey expected = om.readValue(om.writeValueAsString(key), ScrambleKey.class);
+
+			try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(BinaryKeySerializer.serialize(key))))){
+				assertEquals(expected.meta, reader.getMeta());
+				assertFalse(reader.isPermutationForm());
+				assertSameMoves(expected.getMovesIt(), reader);
+			}
+		}
+
+		ScrambleKey key = getKey(1000);
+		key.applyEncoding(KeyEncoding.PERMUTATION, KeyFormat.BINARY);
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(BinaryKeySerializer.serialize(key))))){
+			assertTrue(reader.isPermutationForm());
+			assertNull(reader.nextMove());
+			ScrambleKey readKey = reader.readWholeKey();
+			assertTrue(readKey.isPermutationForm());
+			assertArrayEquals(key.getScrambledPositions(), readKey.getScrambledPositions());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedBinaryKey() throws IOException {
+		byte[] key = BinaryKeySerializer.serialize(getKey(100));
+		//cut off the end of moves opcode and the block index after it
+		int indexLength = ByteBuffer.wrap(key, key.length - Integer.BYTES, Integer.BYTES).getInt();
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(Arrays.copyOf(key, key.length - Integer.BYTES - indexLength - 1))))){
+			reader.readWholeKey();
+		}
+	}
+
+	@Test
+	public void testEscapedJson() throws IOException {
+		ScrambleKey key = getKey(50);
+		String moves = om.writeValueAsString(key.getMoves());
+		//the same moves, with every character escaped
+		StringBuilder escaped = new StringBuilder("\"");
+		for(char curChar : moves.substring(1, moves.length() - 1).toCharArray()){
+			escaped.append(String.format("\\u%04x", (int)curChar));
+		}
+		escaped.append('"');
+		String json = "{\"meta\":" + om.writeValueAsString(key.meta) + ",\"scramble\":" + escaped + "}";
+
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			assertSameMoves(om.readValue(json, ScrambleKey.class).getMovesIt(), reader);
+		}
+	}
+
+	@Test(timeout = 60_000)
+	public void testMovesBeforeEndOfString() throws Exception {
+		String json = om.writeValueAsString(getKey(100_000));
+		ScrambleKey expected = om.readValue(json, ScrambleKey.class);
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		//cut partway through the moves string, well past what the reader takes in at a time
+		int cut = bytes.length / 2;
+		assertTrue(json.indexOf("\"scramble\"") < cut - 2 * 64 * 1024);
+
+		PipedInputStream pipeIn = new PipedInputStream(64 * 1024);
+		PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+		GZIPOutputStream gos = new GZIPOutputStream(pipeOut, true);
+		CountDownLatch movesRead = new CountDownLatch(1);
+		Thread writer = new Thread(()->{
+			try{
+				gos.write(bytes, 0, cut);
+				gos.flush();
+				movesRead.await();
+				gos.write(bytes, cut, bytes.length - cut);
+				gos.close();
+			}catch (IOException|InterruptedException e){
+				throw new IllegalStateException(e);
+			}
+		});
+		writer.start();
+
+		try(StreamingKeyReader reader = new StreamingKeyReader(pipeIn)){
+			Iterator<ScrambleMove> expectedIt = expected.getMovesIt();
+			//only the first half of the key has been written, so these come from the unfinished string
+			for(int i = 0; i < 1000; i++){
+				assertEquals(expectedIt.next(), reader.nextMove());
+			}
+			movesRead.countDown();
+			assertSameMoves(expectedIt, reader);
+		}finally{
+			movesRead.countDown();
+			writer.join();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNonAsciiMove() throws IOException {
+		//a multi byte character, that would be read as bytes that could be taken as part of a move
+		String json = "{\"meta\":" + om.writeValueAsString(getKey(0).meta) + ",\"scramble\":\"2:1,1;\u0132:1,1;\"}";
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			reader.readWholeKey();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownField() throws IOException {
+		String json = "{\"meta\":" + om.writeValueAsString(getKey(0).meta) + ",\"other\":\"\"}";
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			reader.readWholeKey();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadMove() throws IOException {
+		String json = "{\"meta\":" + om.writeValueAsString(getKey(0).meta) + ",\"scramble\":\"2:1,1;not a move;\"}";
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			reader.readWholeKey();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedKey() throws IOException {
+		String json = "{\"meta\":" + om.writeValueAsString(getKey(0).meta) + ",\"scramble\":\"2:1,1;";
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			reader.readWholeKey();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotCompressed() throws IOException {
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)))){
+			reader.getMeta();
+		}
+	}
+
+	@Test
+	public void testGetNumMoves() throws IOException {
+		ScrambleKey key = getKey(1000);
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(om.writeValueAsString(key))))){
+			assertEquals(1000, reader.getNumMoves());
+		}
+		key = getKey(1000);
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(BinaryKeySerializer.serialize(key))))){
+			assertEquals(1000, reader.getNumMoves());
+		}
+		//unknown for keys written before it was held
+		String json = "{\"meta\":" + om.writeValueAsString(getKey(0).meta) + ",\"scramble\":\"2:1,1;\"}";
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			assertEquals(KeyMetaData.UNKNOWN, reader.getNumMoves());
+			assertEquals(1, reader.readWholeKey().getNumMoves());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testWrongNumMoves() throws IOException {
+		KeyMetaData meta = getKey(0).meta.withChecks(2, KeyMetaData.UNKNOWN, KeyMetaData.UNKNOWN);
+		String json = "{\"meta\":" + om.writeValueAsString(meta) + ",\"scramble\":\"2:1,1;\"}";
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			reader.readWholeKey();
+		}
+	}
+
+	@Test
+	public void testWrongMovesChecksum() throws IOException {
+		ScrambleKey key = getKey(100);
+		KeyMetaData meta = key.getCheckedMeta();
+		meta = meta.withChecks(meta.numMoves, meta.movesChecksum ^ 1, meta.dataChecksum);
+		String json = "{\"meta\":" + om.writeValueAsString(meta) + ",\"scramble\":" + om.writeValueAsString(getKey(100).getMoves()) + "}";
+		try(StreamingKeyReader reader = new StreamingKeyReader(new ByteArrayInputStream(compress(json)))){
+			//caught once all the moves are read, before the end is reported
+			for(int i = 0; i < 100; i++){
+				assertNotNull(reader.nextMove());
+			}
+			reader.nextMove();
+			fail("Read a key with moves not matching their checksum.");
+		}catch (IOException e){
+			//expected
+		}
+	}
+}
@@ -36,7 +36,8 @@ public class OwatRandGeneratorTest {
 	public static Collection exceptionsToTest() {
 		return Arrays.asList(new Object[][] {
 			{ RandGenerator.class },
-			{ ThreadLocalRandGenerator.class }
+			{ ThreadLocalRandGenerator.class },
+			{ SplitMixRandGenerator.class }
 		});
 	}
 	
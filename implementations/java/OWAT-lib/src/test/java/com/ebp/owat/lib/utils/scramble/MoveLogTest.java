@@ -0,0 +1,234 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static com.ebp.owat.lib.testUtils.TestUtils.assertSameMoves;
+import static com.ebp.owat.lib.testUtils.TestUtils.getMoves;
+import static org.junit.Assert.*;
+
+public class MoveLogTest {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private static MoveLog getLog(List<ScrambleMove> moves){
+		MoveLog log = new MoveLog();
+		for(ScrambleMove curMove : moves){
+			log.add(curMove);
+		}
+		return log;
+	}
+
+	@Test
+	public void testIterators(){
+		for(int numMoves : new int[]{ 0, 1, 5, 50_000 }){
+			List<ScrambleMove> moves = getMoves(numMoves);
+			MoveLog log = getLog(moves);
+			assertEquals(numMoves, log.sizeL());
+			assertEquals(numMoves == 0, log.isEmpty());
+
+			assertSameMoves(moves.iterator(), log.iterator());
+			List<ScrambleMove> reversed = new ArrayList<>(moves);
+			Collections.reverse(reversed);
+			assertSameMoves(reversed.iterator(), log.reverseIterator());
+			//going through did not change the log
+			assertEquals(numMoves, log.sizeL());
+		}
+	}
+
+	@Test
+	public void testDestructiveIterator(){
+		List<ScrambleMove> moves = getMoves(50_000);
+		MoveLog log = getLog(moves);
+		Iterator<ScrambleMove> it = log.destructiveIterator();
+		for(int i = 0; i < moves.size(); i++){
+			assertEquals(moves.size() - i, log.sizeL());
+			assertEquals(moves.get(i), it.next());
+			if(i == 20_000){
+				//what is left can still be gone through either way
+				assertSameMoves(moves.subList(i + 1, moves.size()).iterator(), log.iterator());
+				List<ScrambleMove> reversed = new ArrayList<>(moves.subList(i + 1, moves.size()));
+				Collections.reverse(reversed);
+				assertSameMoves(reversed.iterator(), log.reverseIterator());
+			}
+		}
+		assertFalse(it.hasNext());
+		assertTrue(log.isEmpty());
+
+		//can be added to again once emptied
+		log.add(moves.get(3));
+		assertSameMoves(moves.subList(3, 4).iterator(), log.iterator());
+	}
+
+	@Test
+	public void testPresized(){
+		List<ScrambleMove> moves = getMoves(50_000);
+		//too few, exact, too many, unknown, and more than can be presized
+		for(long expected : new long[]{ 1, 50_000, 200_000, -1, Long.MAX_VALUE }){
+			MoveLog log = new MoveLog(expected);
+			assertTrue(log.isEmpty());
+			for(ScrambleMove curMove : moves){
+				log.add(curMove);
+			}
+			assertEquals(moves.size(), log.sizeL());
+			assertSameMoves(moves.iterator(), log.iterator());
+			assertEquals(getLog(moves), log);
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testIteratorPastEnd(){
+		Iterator<ScrambleMove> it = getLog(getMoves(1)).iterator();
+		it.next();
+		it.next();
+	}
+
+	@Test
+	public void testMovesNotShared(){
+		ScrambleMove move = new ScrambleMove(ScrambleMoves.SLIDE_COL, 1L, 2L);
+		MoveLog log = new MoveLog();
+		log.add(move);
+		move.toReverse();
+		assertEquals(new ScrambleMove(ScrambleMoves.SLIDE_COL, 1L, 2L), log.iterator().next());
+		log.iterator().next().toReverse();
+		assertEquals(new ScrambleMove(ScrambleMoves.SLIDE_COL, 1L, 2L), log.iterator().next());
+	}
+
+	@Test
+	public void testAddAllAndEquals(){
+		List<ScrambleMove> moves = getMoves(40_000);
+		MoveLog log = getLog(moves.subList(0, 25_000));
+		log.addAll(getLog(moves.subList(25_000, moves.size())));
+
+		MoveLog expected = getLog(moves);
+		assertEquals(expected, log);
+		assertEquals(expected.hashCode(), log.hashCode());
+		assertNotEquals(getLog(moves.subList(1, moves.size())), log);
+		assertNotEquals(getLog(getMoves(3)), getLog(moves.subList(1, 4)));
+	}
+
+	@Test
+	public void testParse(){
+		List<ScrambleMove> moves = getMoves(100);
+		StringBuilder sb = new StringBuilder();
+		for(ScrambleMove curMove : moves){
+			curMove.toKeyString(sb, false);
+		}
+		assertEquals(getLog(moves), MoveLog.parse(sb));
+		assertTrue(MoveLog.parse("").isEmpty());
+	}
+
+	@Test
+	public void testSpill(){
+		List<ScrambleMove> moves = getMoves(50_000);
+		List<ScrambleMove> reversed = new ArrayList<>(moves);
+		Collections.reverse(reversed);
+		//from spilling every few moves to spilling a few large segments
+		for(long threshold : new long[]{ 100, 10_000, 300_000 }){
+			MoveLog log = new MoveLog();
+			log.setSpillThreshold(threshold);
+			for(int i = 0; i < moves.size(); i++){
+				log.add(moves.get(i));
+				assertEquals(i + 1, log.sizeL());
+			}
+			assertTrue(log.hasSpilled());
+
+			assertSameMoves(moves.iterator(), log.iterator());
+			assertSameMoves(reversed.iterator(), log.reverseIterator());
+			//going through can be done again, and did not change the log
+			assertSameMoves(moves.iterator(), log.iterator());
+			assertEquals(getLog(moves), log);
+			assertEquals(getLog(moves).hashCode(), log.hashCode());
+
+			log.close();
+			assertTrue(log.isEmpty());
+			assertFalse(log.hasSpilled());
+			assertFalse(log.iterator().hasNext());
+		}
+	}
+
+	@Test
+	public void testSpillThenMore(){
+		List<ScrambleMove> moves = getMoves(1000);
+		MoveLog log = new MoveLog();
+		log.addAll(getLog(moves.subList(0, 300)));
+		//moves already held are spilled with the next one added
+		log.setSpillThreshold(100);
+		log.addAll(getLog(moves.subList(300, moves.size())));
+		assertTrue(log.hasSpilled());
+		assertSameMoves(moves.iterator(), log.iterator());
+
+		log.clear();
+		log.addAll(getLog(moves.subList(0, 2)));
+		assertSameMoves(moves.subList(0, 2).iterator(), log.iterator());
+		log.close();
+	}
+
+	@Test
+	public void testSpillDirectory() throws IOException {
+		File directory = this.tempFolder.newFolder();
+		List<ScrambleMove> moves = getMoves(1000);
+		MoveLog log = new MoveLog();
+		log.setSpillDirectory(directory);
+		log.setSpillThreshold(100);
+		log.addAll(getLog(moves));
+		assertTrue(log.hasSpilled());
+
+		File[] spilled = directory.listFiles();
+		assertNotNull(spilled);
+		assertEquals(1, spilled.length);
+		if(Files.getFileStore(directory.toPath()).supportsFileAttributeView(PosixFileAttributeView.class)){
+			assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(spilled[0].toPath()));
+		}
+		assertSameMoves(moves.iterator(), log.iterator());
+
+		log.close();
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSpillDirectoryAfterSpilled(){
+		MoveLog log = new MoveLog();
+		log.setSpillThreshold(1);
+		log.add(getMoves(1).get(0));
+		try{
+			log.setSpillDirectory(new File("."));
+		}finally{
+			log.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSpilledDestructiveIterator(){
+		MoveLog log = new MoveLog();
+		log.setSpillThreshold(1);
+		log.add(getMoves(1).get(0));
+		try{
+			log.destructiveIterator();
+		}finally{
+			log.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadSpillThreshold(){
+		new MoveLog().setSpillThreshold(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseUnfinished(){
+		MoveLog.parse("2:1,2;3:1");
+	}
+}
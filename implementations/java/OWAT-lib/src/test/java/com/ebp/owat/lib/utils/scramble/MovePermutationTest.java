@@ -0,0 +1,49 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix;
+import com.ebp.owat.lib.datastructure.matrix.array.ArrayScramblingMatrix;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MovePermutationTest {
+	private static final long NUM_ROWS = 6;
+	private static final long NUM_COLS = 5;
+
+	private static final ScrambleMove[] MOVES = {
+		new ScrambleMove(ScrambleMoves.SWAP, 0L, 0L, 4L, 5L),
+		new ScrambleMove(ScrambleMoves.SWAP, 2L, 3L, 2L, 1L),
+		new ScrambleMove(ScrambleMoves.SWAP_ROW, 1L, 4L),
+		new ScrambleMove(ScrambleMoves.SWAP_ROW, 2L, 2L),
+		new ScrambleMove(ScrambleMoves.SWAP_COL, 0L, 3L),
+		new ScrambleMove(ScrambleMoves.SLIDE_ROW, 2L, 3L),
+		new ScrambleMove(ScrambleMoves.SLIDE_ROW, 5L, -7L),
+		new ScrambleMove(ScrambleMoves.SLIDE_COL, 1L, 4L),
+		new ScrambleMove(ScrambleMoves.SLIDE_COL, 4L, -2L),
+		new ScrambleMove(ScrambleMoves.ROT_BOX, 1L, 0L, 0L, 3L),
+		new ScrambleMove(ScrambleMoves.ROT_BOX, 2L, 1L, 2L, 4L),
+		new ScrambleMove(ScrambleMoves.ROT_BOX, -1L, 1L, 1L, 2L)
+	};
+
+	@Test
+	public void testMovesMatchMatrix(){
+		ScrambleMatrix<Long> matrix = new ArrayScramblingMatrix<>();
+		matrix.grow(NUM_COLS, NUM_ROWS);
+		for(long y = 0; y < NUM_ROWS; y++){
+			for(long x = 0; x < NUM_COLS; x++){
+				matrix.setValue(x, y, (y * NUM_COLS) + x);
+			}
+		}
+		MovePermutation permutation = new MovePermutation(NUM_ROWS, NUM_COLS);
+		assertEquals(NUM_ROWS * NUM_COLS, permutation.size());
+
+		for(ScrambleMove move : MOVES){
+			matrix.doScrambleMove(move);
+			permutation.doMove(move);
+
+			for(long i = 0; i < permutation.size(); i++){
+				assertEquals((long)matrix.get(i % NUM_COLS, i / NUM_COLS), permutation.getSource(i));
+			}
+		}
+	}
+}
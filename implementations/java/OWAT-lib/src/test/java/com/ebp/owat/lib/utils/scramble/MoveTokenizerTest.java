@@ -0,0 +1,115 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import com.ebp.owat.lib.datastructure.set.LongLinkedList;
+import com.google.common.collect.Iterables;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class MoveTokenizerTest extends ScMoTest {
+	private static final String[] INVALID_MOVES = {
+		"sw:10x1,100x399",
+		"sw:10,1,100x399;",
+		"sw:10x1,100x399,5;",
+		"sw:10x1,-100x399;",
+		"swr:10;",
+		"swc:-10,399;",
+		"slr:100,--399;",
+		"slr:100,- 399;",
+		"rot:4,1x2,3;",
+		"rot:0,1x2,3;",
+		"rot:1,1,2,3;",
+		"swap:1,2;",
+		"7:1,2;",
+		":1,2;",
+		"swr 10,399;",
+		"swr:10,;",
+		"swr:10,99999999999999999999;"
+	};
+
+	@Test
+	public void testValidMoves(){
+		for(String curMove : Iterables.concat(SWAP, SWAP_ROW, SWAP_COL, SLIDE_ROW, SLIDE_COL, ROT_BOX)){
+			ScrambleMoves type = ScrambleMoves.determineMove(curMove);
+			ScrambleMove parsed = ScrambleMove.parse(curMove);
+			assertEquals(type, parsed.move);
+			for(int i = 0; i < type.numArgs; i++){
+				assertTrue(curMove.replaceAll("\\s", "").contains(Long.toString(parsed.getArg(i))));
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidMoves(){
+		for(String curMove : Iterables.concat(INVALID, Arrays.asList(INVALID_MOVES))){
+			try{
+				ScrambleMove.parse(curMove);
+				Assert.fail("Parsed invalid move \"" + curMove + "\"");
+			}catch (IllegalArgumentException e){
+				//expected
+			}
+		}
+	}
+
+	@Test
+	public void testArgs(){
+		assertEquals(new ScrambleMove(ScrambleMoves.SWAP, 10L, 1L, 100L, 399L), ScrambleMove.parse(" SW : 10 X 1 , 100 x 399 ; "));
+		assertEquals(new ScrambleMove(ScrambleMoves.SLIDE_COL, 0L, -399L), ScrambleMove.parse("5:0,-399;"));
+		assertEquals(new ScrambleMove(ScrambleMoves.ROT_BOX, -3L, 1L, 2L, 3L), ScrambleMove.parse("rot:-3,1x2,3;"));
+		assertEquals(new ScrambleMove(ScrambleMoves.SWAP_ROW, Long.MAX_VALUE, 0L), ScrambleMove.parse("2:" + Long.MAX_VALUE + ",0;"));
+	}
+
+	@Test
+	public void testParseMulti(){
+		ScrambleMove[] moves = {
+			new ScrambleMove(ScrambleMoves.SWAP, 10L, 1L, 100L, 399L),
+			new ScrambleMove(ScrambleMoves.SWAP_COL, 3L, 4L),
+			new ScrambleMove(ScrambleMoves.SLIDE_ROW, 10L, -5L),
+			new ScrambleMove(ScrambleMoves.ROT_BOX, 2L, 1L, 2L, 3L)
+		};
+		StringBuilder sb = new StringBuilder();
+		for(ScrambleMove curMove : moves){
+			curMove.toKeyString(sb, false);
+			sb.append('\n');
+		}
+
+		LongLinkedList<ScrambleMove> parsed = ScrambleMove.parseMulti(sb.toString());
+		assertEquals(moves.length, parsed.sizeL());
+		Iterator<ScrambleMove> it = parsed.iterator();
+		for(ScrambleMove curMove : moves){
+			assertEquals(curMove, it.next());
+		}
+
+		assertEquals(0, ScrambleMove.parseMulti("").sizeL());
+		assertEquals(0, ScrambleMove.parseMulti(" \n ").sizeL());
+		try{
+			ScrambleMove.parseMulti(sb.toString() + "2:1,");
+			Assert.fail();
+		}catch (IllegalArgumentException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testReset(){
+		MoveTokenizer tokenizer = new MoveTokenizer();
+		assertTrue(tokenizer.isBetweenMoves());
+		for(char c : "2:1,".toCharArray()){
+			assertNull(tokenizer.accept(c));
+		}
+		assertFalse(tokenizer.isBetweenMoves());
+		tokenizer.reset();
+		assertTrue(tokenizer.isBetweenMoves());
+
+		ScrambleMove move = null;
+		for(char c : "3:1,2;".toCharArray()){
+			move = tokenizer.accept(c);
+		}
+		assertEquals(new ScrambleMove(ScrambleMoves.SWAP_COL, 1L, 2L), move);
+		assertTrue(tokenizer.isBetweenMoves());
+	}
+}
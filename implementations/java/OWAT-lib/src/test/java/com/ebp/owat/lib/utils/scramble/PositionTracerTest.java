@@ -0,0 +1,92 @@
+package com.ebp.owat.lib.utils.scramble;
+
+import com.ebp.owat.lib.datastructure.matrix.ScrambleMatrix;
+import com.ebp.owat.lib.datastructure.matrix.array.ArrayScramblingMatrix;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(Parameterized.class)
+public class PositionTracerTest {
+	private static final long NUM_ROWS = 6;
+	private static final long NUM_COLS = 5;
+
+	private final ScrambleMove move;
+
+	public PositionTracerTest(ScrambleMove move){
+		this.move = move;
+	}
+
+	/**
+	 * Gets a matrix where each value is its own index.
+	 * @return A matrix where each value is its own index.
+	 */
+	private static ScrambleMatrix<Long> getIndexMatrix(){
+		ScrambleMatrix<Long> matrix = new ArrayScramblingMatrix<>();
+		matrix.grow(NUM_COLS, NUM_ROWS);
+		for(long y = 0; y < NUM_ROWS; y++){
+			for(long x = 0; x < NUM_COLS; x++){
+				matrix.setValue(x, y, (y * NUM_COLS) + x);
+			}
+		}
+		return matrix;
+	}
+
+	@Test
+	public void testTraceMatchesMatrix(){
+		ScrambleMatrix<Long> matrix = getIndexMatrix();
+		matrix.doScrambleMove(this.move);
+		PositionTracer tracer = new PositionTracer(NUM_ROWS, NUM_COLS);
+
+		for(long y = 0; y < NUM_ROWS; y++){
+			for(long x = 0; x < NUM_COLS; x++){
+				long index = (y * NUM_COLS) + x;
+				long origIndex = matrix.get(x, y);
+				assertEquals(origIndex, tracer.getSource(this.move, index));
+				assertEquals(index, tracer.getDestination(this.move, origIndex));
+			}
+		}
+	}
+
+	@Test
+	public void testTraceSources(){
+		ScrambleMatrix<Long> matrix = getIndexMatrix();
+		matrix.doScrambleMove(this.move);
+		PositionTracer tracer = new PositionTracer(NUM_ROWS, NUM_COLS);
+
+		long[] indexes = new long[(int)(NUM_ROWS * NUM_COLS)];
+		for(int i = 0; i < indexes.length; i++){
+			indexes[i] = i;
+		}
+		tracer.traceSources(this.move, indexes);
+
+		for(int i = 0; i < indexes.length; i++){
+			assertEquals((long)matrix.get(i % NUM_COLS, i / NUM_COLS), indexes[i]);
+		}
+	}
+
+	@Parameterized.Parameters
+	public static Collection getMovesToTest(){
+		return Arrays.asList(new Object[][]{
+			{ new ScrambleMove(ScrambleMoves.SWAP, 0L, 0L, 4L, 5L) },
+			{ new ScrambleMove(ScrambleMoves.SWAP, 2L, 3L, 2L, 1L) },
+			{ new ScrambleMove(ScrambleMoves.SWAP_ROW, 1L, 4L) },
+			{ new ScrambleMove(ScrambleMoves.SWAP_ROW, 2L, 2L) },
+			{ new ScrambleMove(ScrambleMoves.SWAP_COL, 0L, 3L) },
+			{ new ScrambleMove(ScrambleMoves.SLIDE_ROW, 2L, 3L) },
+			{ new ScrambleMove(ScrambleMoves.SLIDE_ROW, 5L, -7L) },
+			{ new ScrambleMove(ScrambleMoves.SLIDE_COL, 1L, 4L) },
+			{ new ScrambleMove(ScrambleMoves.SLIDE_COL, 4L, -2L) },
+			{ new ScrambleMove(ScrambleMoves.ROT_BOX, 1L, 0L, 0L, 3L) },
+			{ new ScrambleMove(ScrambleMoves.ROT_BOX, 2L, 1L, 2L, 4L) },
+			{ new ScrambleMove(ScrambleMoves.ROT_BOX, 3L, 2L, 1L, 3L) },
+			{ new ScrambleMove(ScrambleMoves.ROT_BOX, -1L, 1L, 1L, 2L) },
+			{ new ScrambleMove(ScrambleMoves.ROT_BOX, -3L, 0L, 1L, 5L) }
+		});
+	}
+}